@@ -126,30 +126,27 @@ public class UpLinkHandler extends ChannelInboundHandlerAdapter {
 
         String deviceId = message.getMsgHeader().getDeviceId();
         String secret = ((DeviceLoginMessage) message).getSecret();
-        DeviceSession deviceSession = new DeviceSession();
 
-        int resultCode = BridgeService.getBridgeClient().loginSync(deviceId, secret, 5000);
-
-        // 登录成功保存会话信息
-        if (resultCode == 0) {
-            deviceSession.setDeviceId(deviceId);
-            deviceSession.setChannel(channel);
-            DeviceSessionManger.getInstance().createSession(deviceId, deviceSession);
-            NettyUtils.setDeviceId(channel, deviceId);
-        }
-
-        // 构造登录响应的消息头
-        MsgHeader msgHeader = new MsgHeader();
-        msgHeader.setDeviceId(deviceId);
-        msgHeader.setFlowNo(message.getMsgHeader().getFlowNo());
-        msgHeader.setDirect(Constants.DIRECT_CLOUD_RSP);
-        msgHeader.setMsgType(Constants.MSG_TYPE_DEVICE_LOGIN);
-
-        // 调用网桥login接口，向平台发起登录请求
-        DefaultActionListenerImpl defaultLoginActionListener = new DefaultActionListenerImpl("login");
-        BridgeService.getBridgeClient()
-            .loginAsync(deviceId, secret, message.getMsgHeader().getFlowNo(),
-                defaultLoginActionListener);
+        // 调用网桥异步login接口，向平台发起登录请求，不阻塞netty的I/O线程
+        BridgeService.getBridgeClient().loginAsync(deviceId, secret).whenComplete((resultCode, throwable) -> {
+            if (throwable != null) {
+                log.warn("device={} login failed: {}", deviceId, ExceptionUtil.getBriefStackTrace(throwable));
+                sendResponse(channel, message, 1);
+                return;
+            }
+
+            // 登录成功保存会话信息
+            if (resultCode == 0) {
+                DeviceSession deviceSession = new DeviceSession();
+                deviceSession.setDeviceId(deviceId);
+                deviceSession.setChannel(channel);
+                DeviceSessionManger.getInstance().createSession(deviceId, deviceSession);
+                NettyUtils.setDeviceId(channel, deviceId);
+            }
+
+            // 给设备返回登录结果
+            sendResponse(channel, message, resultCode);
+        });
     }
 
     private void reportProperties(Channel channel, BaseMessage message) {
@@ -46,11 +46,11 @@ import com.huaweicloud.bridge.sdk.listener.BridgeDeviceMessageListener;
 import com.huaweicloud.bridge.sdk.listener.BridgePropertyListener;
 import com.huaweicloud.bridge.sdk.listener.ResetDeviceSecretListener;
 import com.huaweicloud.bridge.sdk.request.RequestIdCache;
+import com.huaweicloud.bridge.sdk.response.ResetDeviceSecretResponse;
 import com.huaweicloud.sdk.iot.device.client.ClientConf;
 import com.huaweicloud.sdk.iot.device.client.CustomOptions;
 import com.huaweicloud.sdk.iot.device.client.DeviceClient;
 import com.huaweicloud.sdk.iot.device.client.IotResult;
-import com.huaweicloud.sdk.iot.device.client.handler.MessageReceivedHandler;
 import com.huaweicloud.bridge.sdk.listener.LoginListener;
 import com.huaweicloud.bridge.sdk.listener.LogoutListener;
 import com.huaweicloud.sdk.iot.device.client.requests.CommandRsp;
@@ -62,6 +62,7 @@ import com.huaweicloud.sdk.iot.device.client.requests.DeviceProperties;
 import com.huaweicloud.sdk.iot.device.client.requests.ServiceProperty;
 import com.huaweicloud.sdk.iot.device.service.AbstractDevice;
 import com.huaweicloud.sdk.iot.device.transport.ActionListener;
+import com.huaweicloud.sdk.iot.device.transport.ConnectListener;
 import com.huaweicloud.sdk.iot.device.transport.RawMessage;
 import com.huaweicloud.sdk.iot.device.utils.ExceptionUtil;
 import com.huaweicloud.sdk.iot.device.utils.IotUtil;
@@ -74,7 +75,6 @@ import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
@@ -91,29 +91,27 @@ public class BridgeClient extends DeviceClient {
     private static final String PASSWORD = "password";
 
     /**
-     * bridgeClient相关请求topic
+     * bridgeClient相关请求topic，完整topic为“$oc/bridges/{bridge_id}/devices/{device_id}”加以下后缀，
+     * 前半部分在构造时生成，避免每次上报都执行String.format
      */
 
-    private static final String BRIDGE_LOGIN = "$oc/bridges/%s/devices/%s/sys/login/request_id=%s";
+    private static final String BRIDGE_LOGIN = "/sys/login/request_id=";
 
-    private static final String BRIDGE_LOGOUT = "$oc/bridges/%s/devices/%s/sys/logout/request_id=%s";
+    private static final String BRIDGE_LOGOUT = "/sys/logout/request_id=";
 
-    private static final String BRIDGE_REPORT_PROPERTY = "$oc/bridges/%s/devices/%s/sys/properties/report";
+    private static final String BRIDGE_REPORT_PROPERTY = "/sys/properties/report";
 
-    private static final String BRIDGE_RESET_DEVICE_SECRET = "$oc/bridges/%s/devices/%s/sys/reset_secret/request_id=%s";
+    private static final String BRIDGE_RESET_DEVICE_SECRET = "/sys/reset_secret/request_id=";
 
-    private static final String BRIDGE_REPORT_MESSAGE = "$oc/bridges/%s/devices/%s/sys/messages/up";
+    private static final String BRIDGE_REPORT_MESSAGE = "/sys/messages/up";
 
-    private static final String BRIDEGE_EVENT = "$oc/bridges/%s/devices/%s/sys/events/up";
+    private static final String BRIDEGE_EVENT = "/sys/events/up";
 
-    private static final String BRIDGE_COMMAND_RESPONSE
-        = "$oc/bridges/%s/devices/%s/sys/commands/response/request_id=%s";
+    private static final String BRIDGE_COMMAND_RESPONSE = "/sys/commands/response/request_id=";
 
-    private static final String BRIDGE_PROP_SET_RESPONSE
-        = "$oc/bridges/%s/devices/%s/sys/properties/set/response/request_id=%s";
+    private static final String BRIDGE_PROP_SET_RESPONSE = "/sys/properties/set/response/request_id=";
 
-    private static final String BRIDGE_PROP_GET_RESPONSE
-        = "$oc/bridges/%s/devices/%s/sys/properties/get/response/request_id=%s";
+    private static final String BRIDGE_PROP_GET_RESPONSE = "/sys/properties/get/response/request_id=";
 
     /**
      * bridgeClient相关的响应topic
@@ -137,6 +135,8 @@ public class BridgeClient extends DeviceClient {
 
     private String bridgeId;
 
+    private String bridgeTopicPrefix;
+
     /**
      * bridge相关listener
      */
@@ -159,6 +159,17 @@ public class BridgeClient extends DeviceClient {
      */
     private RequestIdCache requestIdCache;
 
+    private LoginOptions loginOptions = new LoginOptions();
+
+    private LoginScheduler loginScheduler;
+
+    /**
+     * 分片网桥客户端用于故障迁移的连接监听器，设置后用户设置的连接监听器在它之后得到通知，而不是替换它
+     */
+    private volatile ConnectListener shardConnectListener;
+
+    private volatile ConnectListener userConnectListener;
+
 
     public BridgeClient() {
         super();
@@ -168,16 +179,52 @@ public class BridgeClient extends DeviceClient {
         AbstractDevice device) {
         super(clientConf, device);
         this.bridgeId = clientConf.getDeviceId();
-        Map<String, MessageReceivedHandler> functionMap = getFunctionMap();
+        this.bridgeTopicPrefix = BridgeSDKConstants.BRIDGE_TOPIC_KEYWORD + bridgeId + "/devices/";
         requestIdCache = new RequestIdCache();
-        functionMap.put(MESSAGE_DOWN_TOPIC, new BridgeMessageHandler(this));
-        functionMap.put(COMMAND_DOWN_TOPIC, new BridgeCommandHandler(this));
-        functionMap.put(LOGIN_RESP_TOPIC, new DeviceLoginHandler(this));
-        functionMap.put(LOGOUT_RESP_TOPIC, new DeviceLogoutHandler(this));
-        functionMap.put(BRIDGE_RESET_DEVICE_SECRET_RESP, new SecretResetHandler(this));
-        functionMap.put(BRIDGE_DEVICE_DISCONNECT, new DeviceDisConnHandler(this));
-        functionMap.put(PROPERTY_SET_TOPIC, new BridgePropertySetHandler(this));
-        functionMap.put(PROPERTY_GET_TOPIC, new BridgePropertyGetHandler(this));
+        putMessageHandler(MESSAGE_DOWN_TOPIC, new BridgeMessageHandler(this));
+        putMessageHandler(COMMAND_DOWN_TOPIC, new BridgeCommandHandler(this));
+        putMessageHandler(LOGIN_RESP_TOPIC, new DeviceLoginHandler(this));
+        putMessageHandler(LOGOUT_RESP_TOPIC, new DeviceLogoutHandler(this));
+        putMessageHandler(BRIDGE_RESET_DEVICE_SECRET_RESP, new SecretResetHandler(this));
+        putMessageHandler(BRIDGE_DEVICE_DISCONNECT, new DeviceDisConnHandler(this));
+        putMessageHandler(PROPERTY_SET_TOPIC, new BridgePropertySetHandler(this));
+        putMessageHandler(PROPERTY_GET_TOPIC, new BridgePropertyGetHandler(this));
+    }
+
+    /**
+     * 设置连接监听器。作为分片网桥客户端的分片时，监听器在分片内部的故障迁移处理之后得到通知，不会影响故障迁移
+     *
+     * @param connectListener 连接监听器
+     */
+    @Override
+    public void setConnectListener(ConnectListener connectListener) {
+        this.userConnectListener = connectListener;
+        if (shardConnectListener == null) {
+            super.setConnectListener(connectListener);
+        }
+    }
+
+    void setShardConnectListener(ConnectListener connectListener) {
+        this.shardConnectListener = connectListener;
+        super.setConnectListener(new ConnectListener() {
+            @Override
+            public void connectionLost(Throwable cause) {
+                connectListener.connectionLost(cause);
+                ConnectListener listener = userConnectListener;
+                if (listener != null) {
+                    listener.connectionLost(cause);
+                }
+            }
+
+            @Override
+            public void connectComplete(boolean reconnect, String serverURI) {
+                connectListener.connectComplete(reconnect, serverURI);
+                ConnectListener listener = userConnectListener;
+                if (listener != null) {
+                    listener.connectComplete(reconnect, serverURI);
+                }
+            }
+        });
     }
 
     /**
@@ -352,6 +399,15 @@ public class BridgeClient extends DeviceClient {
         return this;
     }
 
+    /**
+     * 查询网桥到平台的连接状态
+     *
+     * @return true表示已连接
+     */
+    public boolean isConnected() {
+        return connection.isConnected();
+    }
+
     public RequestIdCache getRequestIdCache() {
         return requestIdCache;
     }
@@ -361,6 +417,47 @@ public class BridgeClient extends DeviceClient {
         connection.publishMessage(rawMessage, listener);
     }
 
+    /**
+     * 异步登录网桥下的设备，不阻塞调用线程。登录请求按LoginOptions限制并发和速率，同一设备正在进行的登录只发送一次
+     *
+     * @param deviceId 设备id
+     * @param password 设备密码
+     * @return 登录结果，为平台返回的result_code，0表示成功；超时或发送失败时异常结束
+     */
+    public CompletableFuture<Integer> loginAsync(String deviceId, String password) {
+        return getLoginScheduler().login(deviceId, password);
+    }
+
+    public LoginOptions getLoginOptions() {
+        return loginOptions;
+    }
+
+    /**
+     * 设置异步登录的流控参数，需要在第一次调用loginAsync(deviceId, password)之前设置
+     *
+     * @param loginOptions 流控参数
+     * @return 网桥客户端
+     */
+    public synchronized BridgeClient setLoginOptions(LoginOptions loginOptions) {
+        if (loginOptions == null) {
+            log.warn("the loginOptions is null.");
+            return this;
+        }
+        if (loginScheduler != null) {
+            log.warn("the loginOptions does not take effect after the first asynchronous login.");
+            return this;
+        }
+        this.loginOptions = loginOptions;
+        return this;
+    }
+
+    private synchronized LoginScheduler getLoginScheduler() {
+        if (loginScheduler == null) {
+            loginScheduler = new LoginScheduler(loginOptions, requestIdCache, this::loginAsync);
+        }
+        return loginScheduler;
+    }
+
     public int loginSync(String deviceId, String password, int millisecondTimeout) {
         String requestId = UUID.randomUUID().toString();
         CompletableFuture<Integer> future = new CompletableFuture<>();
@@ -370,18 +467,37 @@ public class BridgeClient extends DeviceClient {
 
     private int getSyncResult(int millisecondTimeout, String requestId, CompletableFuture<Integer> future,
         RawMessage rawMessage) {
-        requestIdCache.setRequestId2Cache(requestId, future);
+        requestIdCache.setRequestId2Cache(requestId, future, millisecondTimeout);
         connection.publishMessage(rawMessage, null);
 
         try {
             return future.get(millisecondTimeout, TimeUnit.MILLISECONDS);
         } catch (InterruptedException | ExecutionException | TimeoutException e) {
             log.error(ExceptionUtil.getBriefStackTrace(e));
+        } finally {
+            requestIdCache.invalidateCache(requestId);
         }
 
         return -1;
     }
 
+    private <T> CompletableFuture<T> publishRequest(String requestId, RawMessage rawMessage, long millisecondTimeout) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        requestIdCache.setRequestId2Cache(requestId, future, millisecondTimeout);
+        connection.publishMessage(rawMessage, new ActionListener() {
+            @Override
+            public void onSuccess(Object context) {
+            }
+
+            @Override
+            public void onFailure(Object context, Throwable var2) {
+                requestIdCache.invalidateCache(requestId);
+                future.completeExceptionally(var2 != null ? var2 : new IllegalStateException("publish failed"));
+            }
+        });
+        return future;
+    }
+
     private RawMessage generateLoginMsg(String deviceId, String password, String requestId) {
         String timeStamp = ZonedDateTime.ofInstant(Instant.now(), ZoneId.of("UTC"))
             .format(DateTimeFormatter.ofPattern("yyyyMMddHH"));
@@ -391,63 +507,92 @@ public class BridgeClient extends DeviceClient {
             secret = IotUtil.shaHMac(password, timeStamp, getClientConf().getCheckStamp());
         }
 
-        String topic = String.format(BRIDGE_LOGIN, this.bridgeId, deviceId, requestId);
+        String topic = bridgeTopicPrefix + deviceId + BRIDGE_LOGIN + requestId;
         ObjectNode jsonObject = JsonUtil.createObjectNode();
         jsonObject.putPOJO(SIGN_TYPE, BridgeSDKConstants.DEVICE_SIGN_TYPE);
         jsonObject.putPOJO(TIMESTAMP, timeStamp);
         jsonObject.putPOJO(PASSWORD, secret);
 
-        return new RawMessage(topic, JsonUtil.convertObject2String(jsonObject));
+        return new RawMessage(topic, JsonUtil.convertObject2Bytes(jsonObject));
     }
 
     public void logoutAsync(String deviceId, String requestId, ActionListener listener) {
-        String topic = String.format(BRIDGE_LOGOUT, this.bridgeId, deviceId, requestId);
+        String topic = bridgeTopicPrefix + deviceId + BRIDGE_LOGOUT + requestId;
         RawMessage rawMessage = new RawMessage(topic, "");
         connection.publishMessage(rawMessage, listener);
     }
 
+    /**
+     * 异步登出网桥下的设备
+     *
+     * @param deviceId           设备id
+     * @param millisecondTimeout 超时时间，单位毫秒
+     * @return 登出结果，为平台返回的result_code；超时或发送失败时异常结束
+     */
+    public CompletableFuture<Integer> logoutAsync(String deviceId, long millisecondTimeout) {
+        String requestId = UUID.randomUUID().toString();
+        String topic = bridgeTopicPrefix + deviceId + BRIDGE_LOGOUT + requestId;
+        return publishRequest(requestId, new RawMessage(topic, ""), millisecondTimeout);
+    }
+
     public int logoutSync(String deviceId, int millisecondTimeout) {
         String requestId = UUID.randomUUID().toString();
         CompletableFuture<Integer> future = new CompletableFuture<>();
-        String topic = String.format(BRIDGE_LOGOUT, this.bridgeId, deviceId, requestId);
+        String topic = bridgeTopicPrefix + deviceId + BRIDGE_LOGOUT + requestId;
         RawMessage rawMessage = new RawMessage(topic, "");
         return getSyncResult(millisecondTimeout, requestId, future, rawMessage);
     }
 
     public void reportProperties(String deviceId, List<ServiceProperty> properties, ActionListener listener) {
-        String topic = String.format(BRIDGE_REPORT_PROPERTY, this.bridgeId, deviceId);
-        ObjectNode jsonObject = JsonUtil.createObjectNode();
-        jsonObject.putPOJO("services", properties);
+        String topic = bridgeTopicPrefix + deviceId + BRIDGE_REPORT_PROPERTY;
+        DeviceProperties deviceProperties = new DeviceProperties();
+        deviceProperties.setServices(properties);
 
-        RawMessage rawMessage = new RawMessage(topic, JsonUtil.convertObject2String(jsonObject));
+        RawMessage rawMessage = new RawMessage(topic, JsonUtil.convertObject2Bytes(deviceProperties));
         connection.publishMessage(rawMessage, listener);
     }
 
     public void resetSecret(String deviceId, String requestId, DeviceSecret deviceSecret, ActionListener listener) {
-        String topic = String.format(BRIDGE_RESET_DEVICE_SECRET, this.bridgeId, deviceId, requestId);
-        RawMessage rawMessage = new RawMessage(topic, JsonUtil.convertObject2String(deviceSecret));
+        String topic = bridgeTopicPrefix + deviceId + BRIDGE_RESET_DEVICE_SECRET + requestId;
+        RawMessage rawMessage = new RawMessage(topic, JsonUtil.convertObject2Bytes(deviceSecret));
         connection.publishMessage(rawMessage, listener);
     }
 
+    /**
+     * 异步重置网桥下设备的密码
+     *
+     * @param deviceId           设备id
+     * @param deviceSecret       设备密码
+     * @param millisecondTimeout 超时时间，单位毫秒
+     * @return 平台的响应，包含结果码和新密码；超时或发送失败时异常结束
+     */
+    public CompletableFuture<ResetDeviceSecretResponse> resetSecretAsync(String deviceId, DeviceSecret deviceSecret,
+        long millisecondTimeout) {
+        String requestId = UUID.randomUUID().toString();
+        String topic = bridgeTopicPrefix + deviceId + BRIDGE_RESET_DEVICE_SECRET + requestId;
+        return publishRequest(requestId, new RawMessage(topic, JsonUtil.convertObject2Bytes(deviceSecret)),
+            millisecondTimeout);
+    }
+
     public void reportDeviceMessage(String deviceId, DeviceMessage deviceMessage, ActionListener listener) {
-        String topic = String.format(BRIDGE_REPORT_MESSAGE, this.bridgeId, deviceId);
-        RawMessage rawMessage = new RawMessage(topic, JsonUtil.convertObject2String(deviceMessage));
+        String topic = bridgeTopicPrefix + deviceId + BRIDGE_REPORT_MESSAGE;
+        RawMessage rawMessage = new RawMessage(topic, JsonUtil.convertObject2Bytes(deviceMessage));
         connection.publishMessage(rawMessage, listener);
     }
 
     @Override
     public void reportEvent(String deviceId, DeviceEvent event, ActionListener listener) {
-        String topic = String.format(BRIDEGE_EVENT, this.bridgeId, deviceId);
+        String topic = bridgeTopicPrefix + deviceId + BRIDEGE_EVENT;
         DeviceEvents events = new DeviceEvents();
         events.setServices(Collections.singletonList(event));
 
-        RawMessage rawMessage = new RawMessage(topic, JsonUtil.convertObject2String(events));
+        RawMessage rawMessage = new RawMessage(topic, JsonUtil.convertObject2Bytes(events));
         connection.publishMessage(rawMessage, listener);
     }
 
     public void respondCommand(String deviceId, String requestId, CommandRsp commandRsp) {
-        String topic = String.format(BRIDGE_COMMAND_RESPONSE, this.bridgeId, deviceId, requestId);
-        RawMessage rawMessage = new RawMessage(topic, JsonUtil.convertObject2String(commandRsp));
+        String topic = bridgeTopicPrefix + deviceId + BRIDGE_COMMAND_RESPONSE + requestId;
+        RawMessage rawMessage = new RawMessage(topic, JsonUtil.convertObject2Bytes(commandRsp));
         connection.publishMessage(rawMessage, null);
     }
 
@@ -459,10 +604,10 @@ public class BridgeClient extends DeviceClient {
      * @param services  服务属性
      */
     public void respondPropsGet(String deviceId, String requestId, List<ServiceProperty> services) {
-        String topic = String.format(BRIDGE_PROP_GET_RESPONSE, this.bridgeId, deviceId, requestId);
+        String topic = bridgeTopicPrefix + deviceId + BRIDGE_PROP_GET_RESPONSE + requestId;
         DeviceProperties deviceProperties = new DeviceProperties();
         deviceProperties.setServices(services);
-        RawMessage rawMessage = new RawMessage(topic, JsonUtil.convertObject2String(deviceProperties));
+        RawMessage rawMessage = new RawMessage(topic, JsonUtil.convertObject2Bytes(deviceProperties));
         connection.publishMessage(rawMessage, null);
     }
 
@@ -474,11 +619,24 @@ public class BridgeClient extends DeviceClient {
      * @param iotResult 写属性结果
      */
     public void respondPropsSet(String deviceId, String requestId, IotResult iotResult) {
-        String topic = String.format(BRIDGE_PROP_SET_RESPONSE, this.bridgeId, deviceId, requestId);
-        RawMessage rawMessage = new RawMessage(topic, JsonUtil.convertObject2String(iotResult));
+        String topic = bridgeTopicPrefix + deviceId + BRIDGE_PROP_SET_RESPONSE + requestId;
+        RawMessage rawMessage = new RawMessage(topic, JsonUtil.convertObject2Bytes(iotResult));
         connection.publishMessage(rawMessage, null);
     }
 
+    @Override
+    public void close() {
+        super.close();
+        synchronized (this) {
+            if (loginScheduler != null) {
+                loginScheduler.close();
+            }
+        }
+        if (requestIdCache != null) {
+            requestIdCache.close();
+        }
+    }
+
     @Override
     public void setCustomOptions(CustomOptions customOptions) {
         super.setCustomOptions(customOptions);
@@ -37,6 +37,7 @@ import lombok.extern.slf4j.Slf4j;
 
 
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 public class BridgeDevice extends IoTDevice {
@@ -52,6 +53,16 @@ public class BridgeDevice extends IoTDevice {
         this.bridgeClient = new BridgeClient(clientConf, this);
     }
 
+    /**
+     * 创建分片网桥使用的网桥设备，每个分片一个实例，不影响单例
+     *
+     * @param clientConf 分片的网桥配置
+     * @return 网桥设备
+     */
+    static BridgeDevice newShard(ClientConf clientConf) {
+        return new BridgeDevice(clientConf);
+    }
+
     // 此处采用单例模式，默认一个网桥服务，只会启动一个网桥，且网桥参数一致
     public static BridgeDevice getInstance(ClientConf clientConf) {
         if (Objects.isNull(instance)) {
@@ -66,6 +77,12 @@ public class BridgeDevice extends IoTDevice {
         return bridgeClient.connect();
     }
 
+    @Override
+    public CompletableFuture<Integer> initAsync() {
+        log.debug("the bridge client starts to init asynchronously. ");
+        return bridgeClient.connectAsync();
+    }
+
     /**
      * 获取网桥设备客户端。获取到网桥设备客户端后，可以直接调用客户端提供的消息、属性、命令等接口
      *
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.bridge.sdk;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * 一致性哈希环，将设备id映射到分片。每个分片在环上有多个虚拟节点，分片增减时只有该分片上的设备需要迁移
+ */
+class ConsistentHashRing {
+    private static final int VIRTUAL_NODES = 160;
+
+    private final long[] hashes;
+
+    private final int[] shards;
+
+    private final int shardCount;
+
+    /**
+     * 构造函数
+     *
+     * @param shardKeys 各分片的标识，比如网桥id，决定虚拟节点在环上的位置
+     */
+    ConsistentHashRing(List<String> shardKeys) {
+        this.shardCount = shardKeys.size();
+        int size = shardCount * VIRTUAL_NODES;
+        long[] nodeHashes = new long[size];
+        int[] nodeShards = new int[size];
+        Long[] order = new Long[size];
+        for (int shard = 0; shard < shardCount; shard++) {
+            for (int i = 0; i < VIRTUAL_NODES; i++) {
+                int index = shard * VIRTUAL_NODES + i;
+                nodeHashes[index] = hash(shardKeys.get(shard) + "#" + i);
+                nodeShards[index] = shard;
+                order[index] = (long) index;
+            }
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(nodeHashes[a.intValue()], nodeHashes[b.intValue()]));
+        this.hashes = new long[size];
+        this.shards = new int[size];
+        for (int i = 0; i < size; i++) {
+            hashes[i] = nodeHashes[order[i].intValue()];
+            shards[i] = nodeShards[order[i].intValue()];
+        }
+    }
+
+    /**
+     * 查询设备所属的分片
+     *
+     * @param key 设备id
+     * @return 分片序号
+     */
+    int shardOf(String key) {
+        return shards[firstNode(hash(key))];
+    }
+
+    /**
+     * 查询设备所属的可用分片：沿环顺时针找到第一个可用的分片，所有分片都不可用时返回所属分片
+     *
+     * @param key       设备id
+     * @param available 分片是否可用
+     * @return 分片序号
+     */
+    int shardOf(String key, IntPredicate available) {
+        int start = firstNode(hash(key));
+        for (int i = 0; i < hashes.length; i++) {
+            int shard = shards[(start + i) % hashes.length];
+            if (available.test(shard)) {
+                return shard;
+            }
+        }
+        return shards[start];
+    }
+
+    int getShardCount() {
+        return shardCount;
+    }
+
+    private int firstNode(long hash) {
+        int index = Arrays.binarySearch(hashes, hash);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return index == hashes.length ? 0 : index;
+    }
+
+    /**
+     * 64位FNV-1a哈希，再经过murmur3的fmix64打散
+     */
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
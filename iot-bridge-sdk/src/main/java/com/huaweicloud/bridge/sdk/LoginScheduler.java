@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.bridge.sdk;
+
+import com.huaweicloud.bridge.sdk.request.RequestIdCache;
+import com.huaweicloud.sdk.iot.device.transport.ActionListener;
+import com.huaweicloud.sdk.iot.device.utils.ExceptionUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 网桥设备登录调度：限制同时等待响应的登录数和发送速率，同一设备正在进行的登录只发送一次。
+ * 登录请求在单独的线程发送，调用方线程和mqtt回调线程都不会被阻塞，超时由RequestIdCache处理
+ */
+@Slf4j
+class LoginScheduler {
+    /**
+     * 登录请求的发送接口
+     */
+    interface Sender {
+        void send(String deviceId, String password, String requestId, ActionListener listener);
+    }
+
+    private final Sender sender;
+
+    private final RequestIdCache requestIdCache;
+
+    private final int maxInflight;
+
+    private final long intervalNanos;
+
+    private final long timeout;
+
+    private final ScheduledThreadPoolExecutor executor;
+
+    /**
+     * 排队中和已发出的登录，key为设备id
+     */
+    private final Map<String, Login> logins = new ConcurrentHashMap<>();
+
+    private final Object lock = new Object();
+
+    private final ArrayDeque<Login> queue = new ArrayDeque<>();
+
+    private int inflight;
+
+    private long nextSendTime;
+
+    private boolean drainScheduled;
+
+    private boolean closed;
+
+    LoginScheduler(LoginOptions options, RequestIdCache requestIdCache, Sender sender) {
+        if (options.getMaxInflight() <= 0 || options.getMaxLoginsPerSecond() < 0 || options.getTimeout() <= 0) {
+            throw new IllegalArgumentException("invalid login options");
+        }
+        this.sender = sender;
+        this.requestIdCache = requestIdCache;
+        this.maxInflight = options.getMaxInflight();
+        this.intervalNanos = options.getMaxLoginsPerSecond() == 0 ? 0
+            : TimeUnit.SECONDS.toNanos(1) / options.getMaxLoginsPerSecond();
+        this.timeout = options.getTimeout();
+        this.executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "iot-bridge-login");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.setRemoveOnCancelPolicy(true);
+        this.nextSendTime = System.nanoTime();
+    }
+
+    /**
+     * 提交登录请求。同一设备已有登录在排队或等待响应时，直接返回该登录的结果
+     *
+     * @param deviceId 设备id
+     * @param password 设备密码
+     * @return 登录结果，为平台返回的result_code；超时、发送失败或调度器关闭时异常结束
+     */
+    CompletableFuture<Integer> login(String deviceId, String password) {
+        Login login = new Login(deviceId, password);
+        Login existing = logins.putIfAbsent(deviceId, login);
+        if (existing != null) {
+            log.debug("device {} is already logging in", deviceId);
+            return existing.future;
+        }
+
+        synchronized (lock) {
+            if (closed) {
+                logins.remove(deviceId, login);
+                login.future.completeExceptionally(new IllegalStateException("login scheduler is closed"));
+                return login.future;
+            }
+            queue.add(login);
+        }
+        login.future.whenComplete((resultCode, throwable) -> onComplete(login));
+        submitDrain();
+        return login.future;
+    }
+
+    /**
+     * 等待响应的登录数
+     *
+     * @return 登录数
+     */
+    int getInflightCount() {
+        synchronized (lock) {
+            return inflight;
+        }
+    }
+
+    /**
+     * 排队中的登录数
+     *
+     * @return 登录数
+     */
+    int getQueuedCount() {
+        synchronized (lock) {
+            return queue.size();
+        }
+    }
+
+    /**
+     * 关闭调度器，未完成的登录异常结束
+     */
+    void close() {
+        synchronized (lock) {
+            closed = true;
+        }
+        IllegalStateException exception = new IllegalStateException("login scheduler is closed");
+        for (Login login : logins.values()) {
+            login.future.completeExceptionally(exception);
+        }
+        executor.shutdownNow();
+    }
+
+    private void onComplete(Login login) {
+        logins.remove(login.deviceId, login);
+        if (login.requestId != null) {
+            requestIdCache.invalidateCache(login.requestId);
+        }
+        synchronized (lock) {
+            if (login.sent) {
+                inflight--;
+            } else {
+                queue.remove(login);
+            }
+            if (closed) {
+                return;
+            }
+        }
+        submitDrain();
+    }
+
+    private void submitDrain() {
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            // 调度器已关闭，未完成的登录已在close中结束
+            log.debug("login scheduler is closed");
+        }
+    }
+
+    private void drain() {
+        List<Login> toSend = new ArrayList<>();
+        synchronized (lock) {
+            while (!closed && inflight < maxInflight && !queue.isEmpty()) {
+                if (intervalNanos > 0) {
+                    long now = System.nanoTime();
+                    if (now - nextSendTime < 0) {
+                        scheduleDrain(nextSendTime - now);
+                        break;
+                    }
+                    nextSendTime = Math.max(now, nextSendTime) + intervalNanos;
+                }
+                Login login = queue.poll();
+                login.sent = true;
+                inflight++;
+                toSend.add(login);
+            }
+        }
+        toSend.forEach(this::send);
+    }
+
+    private void scheduleDrain(long delayNanos) {
+        if (drainScheduled) {
+            return;
+        }
+        drainScheduled = true;
+        executor.schedule(() -> {
+            synchronized (lock) {
+                drainScheduled = false;
+            }
+            drain();
+        }, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void send(Login login) {
+        String requestId = UUID.randomUUID().toString();
+        login.requestId = requestId;
+        requestIdCache.setRequestId2Cache(requestId, login.future, timeout);
+        try {
+            sender.send(login.deviceId, login.password, requestId, new ActionListener() {
+                @Override
+                public void onSuccess(Object context) {
+                }
+
+                @Override
+                public void onFailure(Object context, Throwable var2) {
+                    log.warn("device {} publish login failed: {}", login.deviceId,
+                        ExceptionUtil.getBriefStackTrace(var2));
+                    login.future.completeExceptionally(var2 != null ? var2
+                        : new IllegalStateException("publish login failed"));
+                }
+            });
+        } catch (Exception e) {
+            log.warn("device {} send login failed: {}", login.deviceId, ExceptionUtil.getBriefStackTrace(e));
+            login.future.completeExceptionally(e);
+        }
+    }
+
+    private static class Login {
+        private final String deviceId;
+
+        private final String password;
+
+        private final CompletableFuture<Integer> future = new CompletableFuture<>();
+
+        private boolean sent;
+
+        private volatile String requestId;
+
+        Login(String deviceId, String password) {
+            this.deviceId = deviceId;
+            this.password = password;
+        }
+    }
+}
@@ -0,0 +1,399 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.bridge.sdk;
+
+import com.huaweicloud.bridge.sdk.listener.BridgeCommandListener;
+import com.huaweicloud.bridge.sdk.listener.BridgeDeviceDisConnListener;
+import com.huaweicloud.bridge.sdk.listener.BridgeDeviceMessageListener;
+import com.huaweicloud.bridge.sdk.listener.BridgePropertyListener;
+import com.huaweicloud.bridge.sdk.listener.LoginListener;
+import com.huaweicloud.bridge.sdk.listener.LogoutListener;
+import com.huaweicloud.bridge.sdk.listener.ResetDeviceSecretListener;
+import com.huaweicloud.bridge.sdk.request.DeviceSecret;
+import com.huaweicloud.bridge.sdk.response.ResetDeviceSecretResponse;
+import com.huaweicloud.sdk.iot.device.client.ClientConf;
+import com.huaweicloud.sdk.iot.device.client.IotResult;
+import com.huaweicloud.sdk.iot.device.client.requests.CommandRsp;
+import com.huaweicloud.sdk.iot.device.client.requests.DeviceEvent;
+import com.huaweicloud.sdk.iot.device.client.requests.DeviceMessage;
+import com.huaweicloud.sdk.iot.device.client.requests.ServiceProperty;
+import com.huaweicloud.sdk.iot.device.transport.ActionListener;
+import com.huaweicloud.sdk.iot.device.transport.ConnectListener;
+import com.huaweicloud.sdk.iot.device.utils.ExceptionUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 分片网桥客户端：使用多个网桥id建立多条mqtt连接，按设备id一致性哈希把设备分配到各条连接上，
+ * 突破单条连接的发送队列和maxInflight窗口的限制。
+ * 设备登录在哪条连接上，后续的上报和对下行请求的响应就通过哪条连接发送。
+ * 某条连接断开时，其上已登录的设备迁移到环上的下一条可用连接重新登录；连接恢复后，原属于该连接的设备先从临时连接登出，再迁回并重新登录。
+ * 为了能自动迁移，登录成功的设备密码会保存在内存中，登出后删除。
+ * 分片的连接状态由内部的连接监听器跟踪，通过本类或分片的setConnectListener设置的监听器在它之后得到通知
+ */
+@Slf4j
+public class ShardedBridgeClient {
+    /**
+     * 设备迁回原分片时，在临时分片上登出的超时时间，单位毫秒
+     */
+    private static final long MIGRATE_LOGOUT_TIMEOUT = 10000;
+
+    private final List<BridgeClient> shards;
+
+    private final List<String> shardIds;
+
+    private final boolean[] available;
+
+    private final ConsistentHashRing ring;
+
+    /**
+     * 已登录的设备，key为设备id
+     */
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * 构造函数，每个配置对应一个网桥id和一条连接
+     *
+     * @param clientConfs 各分片的网桥配置，网桥id不能重复，mode必须为网桥模式
+     */
+    public ShardedBridgeClient(List<ClientConf> clientConfs) {
+        this(shardIdsOf(clientConfs), createShards(clientConfs));
+    }
+
+    ShardedBridgeClient(List<String> shardIds, List<BridgeClient> shards) {
+        if (shards.isEmpty() || shards.size() != shardIds.size()) {
+            throw new IllegalArgumentException("invalid shards");
+        }
+        this.shards = Collections.unmodifiableList(new ArrayList<>(shards));
+        this.shardIds = Collections.unmodifiableList(new ArrayList<>(shardIds));
+        this.available = new boolean[shards.size()];
+        this.ring = new ConsistentHashRing(shardIds);
+        for (int i = 0; i < shards.size(); i++) {
+            int shard = i;
+            shards.get(i).setShardConnectListener(new ConnectListener() {
+                @Override
+                public void connectionLost(Throwable cause) {
+                    onShardDown(shard);
+                }
+
+                @Override
+                public void connectComplete(boolean reconnect, String serverURI) {
+                    onShardUp(shard);
+                }
+            });
+        }
+    }
+
+    private static List<String> shardIdsOf(List<ClientConf> clientConfs) {
+        if (clientConfs == null || clientConfs.isEmpty()) {
+            throw new IllegalArgumentException("clientConfs can not be empty");
+        }
+        List<String> ids = new ArrayList<>();
+        for (ClientConf clientConf : clientConfs) {
+            ids.add(clientConf.getDeviceId());
+        }
+        if (new HashSet<>(ids).size() != ids.size() || ids.contains(null)) {
+            throw new IllegalArgumentException("the bridge id of each shard should be unique");
+        }
+        return ids;
+    }
+
+    private static List<BridgeClient> createShards(List<ClientConf> clientConfs) {
+        List<BridgeClient> clients = new ArrayList<>();
+        for (ClientConf clientConf : clientConfs) {
+            clients.add(BridgeDevice.newShard(clientConf).getClient());
+        }
+        return clients;
+    }
+
+    /**
+     * 连接所有分片，分片连接成功后由连接监听器标记为可用
+     *
+     * @return 所有分片都连接成功时返回0，否则返回第一个失败分片的结果
+     */
+    public int connect() {
+        int result = 0;
+        for (int i = 0; i < shards.size(); i++) {
+            int ret = shards.get(i).connect();
+            if (ret != 0 && result == 0) {
+                log.error("bridge shard {} connect failed, result {}", shardIds.get(i), ret);
+                result = ret;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 关闭所有分片的连接
+     */
+    public void close() {
+        shards.forEach(BridgeClient::close);
+        sessions.clear();
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    /**
+     * 获取分片的网桥客户端，可用于设置各分片自己的参数
+     *
+     * @param index 分片序号
+     * @return 网桥客户端
+     */
+    public BridgeClient getShard(int index) {
+        return shards.get(index);
+    }
+
+    /**
+     * 获取设备当前使用的分片：已登录的设备为登录所在的分片，否则为哈希环上第一个可用的分片
+     *
+     * @param deviceId 设备id
+     * @return 网桥客户端
+     */
+    public BridgeClient getShard(String deviceId) {
+        return shards.get(shardIndexOf(deviceId));
+    }
+
+    int shardIndexOf(String deviceId) {
+        Session session = sessions.get(deviceId);
+        return session != null ? session.shard : route(deviceId);
+    }
+
+    private int route(String deviceId) {
+        return ring.shardOf(deviceId, this::isAvailable);
+    }
+
+    private synchronized boolean isAvailable(int shard) {
+        return available[shard];
+    }
+
+    /**
+     * 已登录的设备数
+     *
+     * @return 设备数
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * 异步登录设备，在设备所属的分片上发送登录请求
+     *
+     * @param deviceId 设备id
+     * @param password 设备密码
+     * @return 登录结果，为平台返回的result_code
+     */
+    public CompletableFuture<Integer> loginAsync(String deviceId, String password) {
+        int shard = route(deviceId);
+        return shards.get(shard).loginAsync(deviceId, password).thenApply(resultCode -> {
+            if (resultCode == 0) {
+                sessions.put(deviceId, new Session(shard, password));
+            }
+            return resultCode;
+        });
+    }
+
+    /**
+     * 异步登出设备，在设备登录所在的分片上发送登出请求
+     *
+     * @param deviceId           设备id
+     * @param millisecondTimeout 超时时间，单位毫秒
+     * @return 登出结果，为平台返回的result_code
+     */
+    public CompletableFuture<Integer> logoutAsync(String deviceId, long millisecondTimeout) {
+        int shard = shardIndexOf(deviceId);
+        sessions.remove(deviceId);
+        return shards.get(shard).logoutAsync(deviceId, millisecondTimeout);
+    }
+
+    public CompletableFuture<ResetDeviceSecretResponse> resetSecretAsync(String deviceId, DeviceSecret deviceSecret,
+        long millisecondTimeout) {
+        return getShard(deviceId).resetSecretAsync(deviceId, deviceSecret, millisecondTimeout);
+    }
+
+    public void reportProperties(String deviceId, List<ServiceProperty> properties, ActionListener listener) {
+        getShard(deviceId).reportProperties(deviceId, properties, listener);
+    }
+
+    public void reportDeviceMessage(String deviceId, DeviceMessage deviceMessage, ActionListener listener) {
+        getShard(deviceId).reportDeviceMessage(deviceId, deviceMessage, listener);
+    }
+
+    public void reportEvent(String deviceId, DeviceEvent event, ActionListener listener) {
+        getShard(deviceId).reportEvent(deviceId, event, listener);
+    }
+
+    public void respondCommand(String deviceId, String requestId, CommandRsp commandRsp) {
+        getShard(deviceId).respondCommand(deviceId, requestId, commandRsp);
+    }
+
+    public void respondPropsGet(String deviceId, String requestId, List<ServiceProperty> services) {
+        getShard(deviceId).respondPropsGet(deviceId, requestId, services);
+    }
+
+    public void respondPropsSet(String deviceId, String requestId, IotResult iotResult) {
+        getShard(deviceId).respondPropsSet(deviceId, requestId, iotResult);
+    }
+
+    /**
+     * 设置各分片的连接监听器，在分片内部的故障迁移处理之后得到通知
+     *
+     * @param listener 连接监听器
+     * @return 分片网桥客户端
+     */
+    public ShardedBridgeClient setConnectListener(ConnectListener listener) {
+        return forEachShard(shard -> shard.setConnectListener(listener));
+    }
+
+    public ShardedBridgeClient setBridgeCommandListener(BridgeCommandListener listener) {
+        return forEachShard(shard -> shard.setBridgeCommandListener(listener));
+    }
+
+    public ShardedBridgeClient setBridgeDeviceMessageListener(BridgeDeviceMessageListener listener) {
+        return forEachShard(shard -> shard.setBridgeDeviceMessageListener(listener));
+    }
+
+    public ShardedBridgeClient setBridgePropertyListener(BridgePropertyListener listener) {
+        return forEachShard(shard -> shard.setBridgePropertyListener(listener));
+    }
+
+    public ShardedBridgeClient setBridgeDeviceDisConnListener(BridgeDeviceDisConnListener listener) {
+        return forEachShard(shard -> shard.setBridgeDeviceDisConnListener(listener));
+    }
+
+    public ShardedBridgeClient setLoginListener(LoginListener listener) {
+        return forEachShard(shard -> shard.setLoginListener(listener));
+    }
+
+    public ShardedBridgeClient setLogoutListener(LogoutListener listener) {
+        return forEachShard(shard -> shard.setLogoutListener(listener));
+    }
+
+    public ShardedBridgeClient setResetDeviceSecretListener(ResetDeviceSecretListener listener) {
+        return forEachShard(shard -> shard.setResetDeviceSecretListener(listener));
+    }
+
+    /**
+     * 设置各分片异步登录的流控参数，每个分片单独计算
+     *
+     * @param loginOptions 流控参数
+     * @return 分片网桥客户端
+     */
+    public ShardedBridgeClient setLoginOptions(LoginOptions loginOptions) {
+        return forEachShard(shard -> shard.setLoginOptions(loginOptions));
+    }
+
+    private ShardedBridgeClient forEachShard(Consumer<BridgeClient> action) {
+        shards.forEach(action);
+        return this;
+    }
+
+    void onShardDown(int shard) {
+        synchronized (this) {
+            if (!available[shard]) {
+                return;
+            }
+            available[shard] = false;
+        }
+        log.warn("bridge shard {} connection lost, move its devices to other shards", shardIds.get(shard));
+        sessions.forEach((deviceId, session) -> {
+            if (session.shard != shard) {
+                return;
+            }
+            int target = route(deviceId);
+            if (target != shard) {
+                relogin(deviceId, session, target);
+            }
+        });
+    }
+
+    void onShardUp(int shard) {
+        synchronized (this) {
+            available[shard] = true;
+        }
+        // 重连后平台上该连接的设备都已离线，属于该分片的设备（包括迁出的设备）在该分片上重新登录
+        sessions.forEach((deviceId, session) -> {
+            if (route(deviceId) != shard) {
+                return;
+            }
+            int previous = session.shard;
+            if (previous == shard || !isAvailable(previous)) {
+                relogin(deviceId, session, shard);
+                return;
+            }
+
+            // 先在临时分片上登出再登录，避免晚到的登出把刚登录的设备置为离线；迁移完成前上报仍走临时分片
+            shards.get(previous).logoutAsync(deviceId, MIGRATE_LOGOUT_TIMEOUT).whenComplete((resultCode, throwable) -> {
+                if (throwable != null || resultCode != 0) {
+                    log.warn("device {} logout on bridge shard {} failed: {}", deviceId, shardIds.get(previous),
+                        throwable != null ? ExceptionUtil.getBriefStackTrace(throwable) : resultCode);
+                }
+                relogin(deviceId, session, shard);
+            });
+        });
+    }
+
+    private void relogin(String deviceId, Session session, int target) {
+        if (sessions.get(deviceId) != session) {
+            return;
+        }
+        shards.get(target).loginAsync(deviceId, session.password).whenComplete((resultCode, throwable) -> {
+            if (throwable != null || resultCode != 0) {
+                log.warn("device {} login on bridge shard {} failed: {}", deviceId, shardIds.get(target),
+                    throwable != null ? ExceptionUtil.getBriefStackTrace(throwable) : resultCode);
+                return;
+            }
+            if (sessions.get(deviceId) == session) {
+                session.shard = target;
+            }
+        });
+    }
+
+    private static class Session {
+        private volatile int shard;
+
+        private final String password;
+
+        Session(int shard, String password) {
+            this.shard = shard;
+            this.password = password;
+        }
+    }
+}
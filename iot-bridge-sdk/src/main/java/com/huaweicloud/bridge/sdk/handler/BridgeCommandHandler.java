@@ -33,10 +33,10 @@ package com.huaweicloud.bridge.sdk.handler;
 import com.huaweicloud.bridge.sdk.BridgeClient;
 import com.huaweicloud.bridge.sdk.constants.BridgeSDKConstants;
 import com.huaweicloud.bridge.sdk.request.BridgeCommand;
+import com.huaweicloud.sdk.iot.device.client.TopicRouter;
 import com.huaweicloud.sdk.iot.device.client.handler.MessageReceivedHandler;
 import com.huaweicloud.sdk.iot.device.client.requests.Command;
 import com.huaweicloud.sdk.iot.device.transport.RawMessage;
-import com.huaweicloud.sdk.iot.device.utils.IotUtil;
 import com.huaweicloud.sdk.iot.device.utils.JsonUtil;
 import lombok.extern.slf4j.Slf4j;
 
@@ -51,10 +51,15 @@ public class BridgeCommandHandler implements MessageReceivedHandler {
 
     @Override
     public void messageHandler(RawMessage message) {
+        messageHandler(message, TopicRouter.parse(message.getTopic()));
+    }
+
+    @Override
+    public void messageHandler(RawMessage message, TopicRouter.Route route) {
         String topic = message.getTopic();
-        String requestId = IotUtil.getRequestId(topic);
+        String requestId = route.getRequestId();
 
-        Command command = JsonUtil.convertJsonStringToObject(message.toString(), Command.class);
+        Command command = JsonUtil.convertJsonBytesToObject(message.getPayload(), Command.class);
         if (command == null) {
             log.warn("the invalid command");
             return;
@@ -68,7 +73,7 @@ public class BridgeCommandHandler implements MessageReceivedHandler {
         if (bridgeClient.getBridgeCommandListener() != null) {
             BridgeCommand bridgeCommand = new BridgeCommand();
             bridgeCommand.setCommand(command);
-            String deviceId = IotUtil.getDeviceId(topic);
+            String deviceId = route.getDeviceId();
             bridgeClient.getBridgeCommandListener().onCommand(deviceId, requestId, bridgeCommand);
         }
 
@@ -32,10 +32,10 @@ package com.huaweicloud.bridge.sdk.handler;
 
 import com.huaweicloud.bridge.sdk.BridgeClient;
 import com.huaweicloud.bridge.sdk.constants.BridgeSDKConstants;
+import com.huaweicloud.sdk.iot.device.client.TopicRouter;
 import com.huaweicloud.sdk.iot.device.client.handler.MessageReceivedHandler;
 import com.huaweicloud.sdk.iot.device.client.requests.DeviceMessage;
 import com.huaweicloud.sdk.iot.device.transport.RawMessage;
-import com.huaweicloud.sdk.iot.device.utils.IotUtil;
 import com.huaweicloud.sdk.iot.device.utils.JsonUtil;
 import lombok.extern.slf4j.Slf4j;
 
@@ -50,7 +50,12 @@ public class BridgeMessageHandler implements MessageReceivedHandler {
 
     @Override
     public void messageHandler(RawMessage message) {
-        DeviceMessage deviceMessage = JsonUtil.convertJsonStringToObject(message.toString(),
+        messageHandler(message, TopicRouter.parse(message.getTopic()));
+    }
+
+    @Override
+    public void messageHandler(RawMessage message, TopicRouter.Route route) {
+        DeviceMessage deviceMessage = JsonUtil.convertJsonBytesToObject(message.getPayload(),
             DeviceMessage.class);
         if (deviceMessage == null) {
             log.warn("the invalid device message is : {}", message);
@@ -64,7 +69,7 @@ public class BridgeMessageHandler implements MessageReceivedHandler {
         }
 
         // 处理网桥相关的消息
-        String deviceId = IotUtil.getDeviceId(topic);
+        String deviceId = route.getDeviceId();
         if (bridgeClient.getBridgeDeviceMessageListener() != null) {
             bridgeClient.getBridgeDeviceMessageListener().onDeviceMessage(deviceId, deviceMessage);
         }
@@ -32,10 +32,10 @@ package com.huaweicloud.bridge.sdk.handler;
 
 import com.huaweicloud.bridge.sdk.BridgeClient;
 import com.huaweicloud.bridge.sdk.constants.BridgeSDKConstants;
+import com.huaweicloud.sdk.iot.device.client.TopicRouter;
 import com.huaweicloud.sdk.iot.device.client.handler.MessageReceivedHandler;
 import com.huaweicloud.sdk.iot.device.client.requests.PropsGet;
 import com.huaweicloud.sdk.iot.device.transport.RawMessage;
-import com.huaweicloud.sdk.iot.device.utils.IotUtil;
 import com.huaweicloud.sdk.iot.device.utils.JsonUtil;
 import lombok.extern.slf4j.Slf4j;
 
@@ -50,8 +50,13 @@ public class BridgePropertyGetHandler implements MessageReceivedHandler {
 
     @Override
     public void messageHandler(RawMessage message) {
+        messageHandler(message, TopicRouter.parse(message.getTopic()));
+    }
+
+    @Override
+    public void messageHandler(RawMessage message, TopicRouter.Route route) {
 
-        PropsGet propsGet = JsonUtil.convertJsonStringToObject(message.toString(), PropsGet.class);
+        PropsGet propsGet = JsonUtil.convertJsonBytesToObject(message.getPayload(), PropsGet.class);
         if (propsGet == null) {
             log.warn("invalid property getting");
             return;
@@ -63,8 +68,8 @@ public class BridgePropertyGetHandler implements MessageReceivedHandler {
         }
         // 网桥属性查询处理逻辑
         if (bridgeClient.getBridgePropertyListener() != null) {
-            String deviceId = IotUtil.getDeviceId(topic);
-            String requestId = IotUtil.getRequestId(message.getTopic());
+            String deviceId = route.getDeviceId();
+            String requestId = route.getRequestId();
             String serviceId = propsGet.getServiceId();
             bridgeClient.getBridgePropertyListener().onPropertiesGet(deviceId, requestId, serviceId);
         }
@@ -32,11 +32,11 @@ package com.huaweicloud.bridge.sdk.handler;
 
 import com.huaweicloud.bridge.sdk.BridgeClient;
 import com.huaweicloud.bridge.sdk.constants.BridgeSDKConstants;
+import com.huaweicloud.sdk.iot.device.client.TopicRouter;
 import com.huaweicloud.sdk.iot.device.client.handler.MessageReceivedHandler;
 import com.huaweicloud.sdk.iot.device.client.requests.PropsSet;
 import com.huaweicloud.sdk.iot.device.client.requests.ServiceProperty;
 import com.huaweicloud.sdk.iot.device.transport.RawMessage;
-import com.huaweicloud.sdk.iot.device.utils.IotUtil;
 import com.huaweicloud.sdk.iot.device.utils.JsonUtil;
 import lombok.extern.slf4j.Slf4j;
 
@@ -53,8 +53,13 @@ public class BridgePropertySetHandler implements MessageReceivedHandler {
 
     @Override
     public void messageHandler(RawMessage message) {
+        messageHandler(message, TopicRouter.parse(message.getTopic()));
+    }
+
+    @Override
+    public void messageHandler(RawMessage message, TopicRouter.Route route) {
 
-        PropsSet propsSet = JsonUtil.convertJsonStringToObject(message.toString(), PropsSet.class);
+        PropsSet propsSet = JsonUtil.convertJsonBytesToObject(message.getPayload(), PropsSet.class);
         if (propsSet == null) {
             log.warn("invalid property setting");
             return;
@@ -67,8 +72,8 @@ public class BridgePropertySetHandler implements MessageReceivedHandler {
         // 网桥属性设置处理逻辑
         if (bridgeClient.getBridgePropertyListener() != null) {
             List<ServiceProperty> services = propsSet.getServices();
-            String deviceId = IotUtil.getDeviceId(topic);
-            String requestId = IotUtil.getRequestId(message.getTopic());
+            String deviceId = route.getDeviceId();
+            String requestId = route.getRequestId();
 
             bridgeClient.getBridgePropertyListener().onPropertiesSet(deviceId, requestId, services);
         }
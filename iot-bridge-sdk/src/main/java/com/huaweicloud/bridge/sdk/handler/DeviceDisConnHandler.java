@@ -31,9 +31,9 @@
 package com.huaweicloud.bridge.sdk.handler;
 
 import com.huaweicloud.bridge.sdk.BridgeClient;
+import com.huaweicloud.sdk.iot.device.client.TopicRouter;
 import com.huaweicloud.sdk.iot.device.client.handler.MessageReceivedHandler;
 import com.huaweicloud.sdk.iot.device.transport.RawMessage;
-import com.huaweicloud.sdk.iot.device.utils.IotUtil;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
@@ -47,9 +47,14 @@ public class DeviceDisConnHandler implements MessageReceivedHandler {
 
     @Override
     public void messageHandler(RawMessage message) {
+        messageHandler(message, TopicRouter.parse(message.getTopic()));
+    }
+
+    @Override
+    public void messageHandler(RawMessage message, TopicRouter.Route route) {
         log.debug("received the message of the device under one bridge disconnects, the  message is {}",
             message);
-        String deviceId = IotUtil.getDeviceId(message.getTopic());
+        String deviceId = route.getDeviceId();
         if (bridgeClient.getBridgeDeviceDisConnListener() != null) {
             bridgeClient.getBridgeDeviceDisConnListener().onDisConnect(deviceId);
         }
@@ -32,15 +32,14 @@ package com.huaweicloud.bridge.sdk.handler;
 
 import com.huaweicloud.bridge.sdk.BridgeClient;
 import com.huaweicloud.bridge.sdk.constants.BridgeSDKConstants;
+import com.huaweicloud.sdk.iot.device.client.TopicRouter;
 import com.huaweicloud.sdk.iot.device.client.handler.MessageReceivedHandler;
 import com.huaweicloud.sdk.iot.device.transport.RawMessage;
-import com.huaweicloud.sdk.iot.device.utils.IotUtil;
 import com.huaweicloud.sdk.iot.device.utils.JsonUtil;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 public class DeviceLoginHandler implements MessageReceivedHandler {
@@ -53,24 +52,29 @@ public class DeviceLoginHandler implements MessageReceivedHandler {
 
     @Override
     public void messageHandler(RawMessage message) {
+        messageHandler(message, TopicRouter.parse(message.getTopic()));
+    }
+
+    @Override
+    public void messageHandler(RawMessage message, TopicRouter.Route route) {
         log.debug("received the response of the device under one bridge logins, the  message is {}",
             message);
-        String requestId = IotUtil.getRequestId(message.getTopic());
-        String deviceId = IotUtil.getDeviceId(message.getTopic());
-        Map map = JsonUtil.convertJsonStringToObject(message.toString(), Map.class);
+        String requestId = route.getRequestId();
+        String deviceId = route.getDeviceId();
+        Map map = JsonUtil.convertJsonBytesToObject(message.getPayload(), Map.class);
         if (map == null) {
             log.warn("the response of device login is invalid. ");
             return;
         }
         int resultCode = (int) map.get(BridgeSDKConstants.RESULET_CODE);
 
+        // 同步和异步登录的结果通过future返回，设置了监听器时也需要结束future，否则登录只能等到超时
+        Optional.ofNullable(bridgeClient.getRequestIdCache())
+            .map(requestIdCache -> requestIdCache.<Integer>getFuture(requestId))
+            .ifPresent(integerCompletableFuture -> integerCompletableFuture.complete(resultCode));
+
         if (bridgeClient.getLoginListener() != null) {
             bridgeClient.getLoginListener().onLogin(deviceId, requestId, resultCode);
-            return;
         }
-
-        CompletableFuture<Integer> future = bridgeClient.getRequestIdCache().getFuture(requestId);
-        Optional.ofNullable(future)
-            .ifPresent(integerCompletableFuture -> integerCompletableFuture.complete(resultCode));
     }
 }
@@ -32,12 +32,14 @@ package com.huaweicloud.bridge.sdk.handler;
 
 import com.huaweicloud.bridge.sdk.BridgeClient;
 import com.huaweicloud.bridge.sdk.response.ResetDeviceSecretResponse;
+import com.huaweicloud.sdk.iot.device.client.TopicRouter;
 import com.huaweicloud.sdk.iot.device.client.handler.MessageReceivedHandler;
 import com.huaweicloud.sdk.iot.device.transport.RawMessage;
-import com.huaweicloud.sdk.iot.device.utils.IotUtil;
 import com.huaweicloud.sdk.iot.device.utils.JsonUtil;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.Optional;
+
 @Slf4j
 public class SecretResetHandler implements MessageReceivedHandler {
     private static final String NEW_SECRET = "new_secret";
@@ -50,11 +52,16 @@ public class SecretResetHandler implements MessageReceivedHandler {
 
     @Override
     public void messageHandler(RawMessage message) {
+        messageHandler(message, TopicRouter.parse(message.getTopic()));
+    }
+
+    @Override
+    public void messageHandler(RawMessage message, TopicRouter.Route route) {
         log.debug("received the response of the bridge resets device secret, the  message is {}", message);
-        String requestId = IotUtil.getRequestId(message.getTopic());
-        String deviceId = IotUtil.getDeviceId(message.getTopic());
+        String requestId = route.getRequestId();
+        String deviceId = route.getDeviceId();
 
-        ResetDeviceSecretResponse resetDeviceSecretResponse = JsonUtil.convertJsonStringToObject(message.toString(),
+        ResetDeviceSecretResponse resetDeviceSecretResponse = JsonUtil.convertJsonBytesToObject(message.getPayload(),
             ResetDeviceSecretResponse.class);
 
         if (resetDeviceSecretResponse == null) {
@@ -66,6 +73,10 @@ public class SecretResetHandler implements MessageReceivedHandler {
             ? null
             : (String) resetDeviceSecretResponse.getParas().get(NEW_SECRET);
 
+        Optional.ofNullable(bridgeClient.getRequestIdCache())
+            .map(requestIdCache -> requestIdCache.<ResetDeviceSecretResponse>getFuture(requestId))
+            .ifPresent(future -> future.complete(resetDeviceSecretResponse));
+
         if (bridgeClient.getResetDeviceSecretListener() != null) {
             bridgeClient.getResetDeviceSecretListener()
                 .onResetDeviceSecret(deviceId, requestId, resetDeviceSecretResponse.getResultCode(), newSecret);
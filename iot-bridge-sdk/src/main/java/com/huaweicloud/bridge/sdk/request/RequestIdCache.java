@@ -30,47 +30,151 @@
 
 package com.huaweicloud.bridge.sdk.request;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
+import com.huaweicloud.sdk.iot.device.client.HashedWheelTimer;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * RequestId的缓存实现样例，将登录的requestId同future关联。
+ * 网桥请求的关联表，将登录、登出、重置密码等请求的requestId同future关联，收到平台响应时通过requestId找到future。
+ * 不限制容量，每个请求按各自的超时时间由时间轮定时器清理，超时的future以TimeoutException异常结束
  */
 @Slf4j
 public class RequestIdCache {
+    /**
+     * 未指定超时时间时的默认超时时间，单位毫秒
+     */
+    public static final long DEFAULT_TIMEOUT = TimeUnit.MINUTES.toMillis(3);
 
-    private final Cache<String, CompletableFuture<Integer>> futureCache;
+    private static final int INITIAL_CAPACITY = 1024;
 
-    private static final int INITIAL_CAPACITY = 200;
+    private static final long TIMEOUT_TICK = 100;
 
-    private static final int MAX_CAPACITY = 2000;
+    private static final int TIMEOUT_WHEEL_SIZE = 512;
+
+    private final Map<String, Pending> pendingRequests = new ConcurrentHashMap<>(INITIAL_CAPACITY);
+
+    private final HashedWheelTimer timeoutTimer;
+
+    private final AtomicLong timeoutCount = new AtomicLong();
 
     public RequestIdCache() {
-        futureCache = CacheBuilder.newBuilder().initialCapacity(INITIAL_CAPACITY).maximumSize(MAX_CAPACITY)
-            .expireAfterWrite(3, TimeUnit.MINUTES).build();
+        timeoutTimer = new HashedWheelTimer("iot-bridge-request-timeout", TIMEOUT_TICK, TIMEOUT_WHEEL_SIZE);
     }
 
-    public void setRequestId2Cache(String requestId, CompletableFuture<Integer> future) {
-        futureCache.put(requestId, future);
+    /**
+     * 保存请求，使用默认超时时间
+     *
+     * @param requestId 请求id
+     * @param future    请求结果
+     */
+    public void setRequestId2Cache(String requestId, CompletableFuture<?> future) {
+        setRequestId2Cache(requestId, future, DEFAULT_TIMEOUT);
     }
 
+    /**
+     * 保存请求，超时后future以TimeoutException异常结束并从关联表中删除
+     *
+     * @param requestId 请求id
+     * @param future    请求结果
+     * @param timeout   超时时间，单位毫秒
+     */
+    public void setRequestId2Cache(String requestId, CompletableFuture<?> future, long timeout) {
+        Pending pending = new Pending(future);
+        Pending old = pendingRequests.put(requestId, pending);
+        if (old != null) {
+            log.warn("requestId {} is duplicated, the previous request is replaced", requestId);
+            old.timeout.cancel();
+        }
+        try {
+            pending.timeout = timeoutTimer.newTimeout(() -> {
+                if (pendingRequests.remove(requestId, pending)) {
+                    timeoutCount.incrementAndGet();
+                    future.completeExceptionally(new TimeoutException("request " + requestId + " timeout"));
+                }
+            }, timeout);
+        } catch (IllegalStateException e) {
+            // 关联表已关闭
+            pendingRequests.remove(requestId, pending);
+            future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * 删除请求，不结束future
+     *
+     * @param key 请求id
+     */
     public void invalidateCache(String key) {
-        futureCache.invalidate(key);
+        Pending pending = pendingRequests.remove(key);
+        if (pending != null && pending.timeout != null) {
+            pending.timeout.cancel();
+        }
     }
 
-    public CompletableFuture<Integer> getFuture(String requestId) {
-        try {
-            CompletableFuture<Integer> value = futureCache.getIfPresent(requestId);
-            invalidateCache(requestId);
-            return value;
-        } catch (Exception e) {
-            log.warn("getRequestId error : {} for key: {}", e, requestId);
+    /**
+     * 取出请求，取出后从关联表中删除
+     *
+     * @param requestId 请求id
+     * @param <T>       请求结果类型
+     * @return 请求结果，请求不存在或已超时时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> getFuture(String requestId) {
+        Pending pending = pendingRequests.remove(requestId);
+        if (pending == null) {
             return null;
         }
+        if (pending.timeout != null) {
+            pending.timeout.cancel();
+        }
+        return (CompletableFuture<T>) pending.future;
     }
 
+    /**
+     * 等待响应的请求数
+     *
+     * @return 请求数
+     */
+    public int getPendingCount() {
+        return pendingRequests.size();
+    }
+
+    /**
+     * 累计超时的请求数
+     *
+     * @return 请求数
+     */
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    /**
+     * 关闭关联表，等待响应的请求以异常结束
+     */
+    public void close() {
+        timeoutTimer.stop();
+        IllegalStateException exception = new IllegalStateException("request cache is closed");
+        pendingRequests.keySet().forEach(requestId -> {
+            Pending pending = pendingRequests.remove(requestId);
+            if (pending != null) {
+                pending.future.completeExceptionally(exception);
+            }
+        });
+    }
+
+    private static class Pending {
+        private final CompletableFuture<?> future;
+
+        private volatile HashedWheelTimer.Timeout timeout;
+
+        Pending(CompletableFuture<?> future) {
+            this.future = future;
+        }
+    }
 }
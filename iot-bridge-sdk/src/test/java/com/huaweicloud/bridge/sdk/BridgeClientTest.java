@@ -33,6 +33,8 @@ package com.huaweicloud.bridge.sdk;
 import static org.junit.Assert.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 
 import com.huaweicloud.bridge.sdk.request.DeviceSecret;
@@ -45,12 +47,15 @@ import com.huaweicloud.sdk.iot.device.client.requests.ServiceProperty;
 import com.huaweicloud.sdk.iot.device.constants.Constants;
 import com.huaweicloud.sdk.iot.device.service.AbstractDevice;
 import com.huaweicloud.sdk.iot.device.transport.ActionListener;
+import com.huaweicloud.sdk.iot.device.transport.ConnectListener;
 import com.huaweicloud.sdk.iot.device.transport.Connection;
 import com.huaweicloud.sdk.iot.device.transport.RawMessage;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.stubbing.Answer;
 import org.powermock.api.mockito.PowerMockito;
@@ -91,6 +96,26 @@ public class BridgeClientTest {
         bridgeClientUnderTest = new BridgeClientForTest(connMock, clientConf, null);
     }
 
+    @Test
+    public void test_user_connect_listener_chained_after_shard_listener() {
+        ConnectListener shardListener = mock(ConnectListener.class);
+        ConnectListener userListener = mock(ConnectListener.class);
+        bridgeClientUnderTest.setShardConnectListener(shardListener);
+        bridgeClientUnderTest.setConnectListener(userListener);
+
+        // 用户的监听器不替换分片的故障迁移监听器，两者按顺序得到通知
+        ArgumentCaptor<ConnectListener> captor = ArgumentCaptor.forClass(ConnectListener.class);
+        verify(connMock).setConnectListener(captor.capture());
+        captor.getValue().connectComplete(false, "ssl://127.0.0.1:8883");
+        captor.getValue().connectionLost(null);
+
+        InOrder inOrder = inOrder(shardListener, userListener);
+        inOrder.verify(shardListener).connectComplete(false, "ssl://127.0.0.1:8883");
+        inOrder.verify(userListener).connectComplete(false, "ssl://127.0.0.1:8883");
+        inOrder.verify(shardListener).connectionLost(null);
+        inOrder.verify(userListener).connectionLost(null);
+    }
+
     /**
      * 用例编号:test_login_async_should_return_success
      * 用例标题:网桥设备发布异步login成功
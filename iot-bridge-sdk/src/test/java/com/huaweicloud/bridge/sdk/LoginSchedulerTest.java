@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.bridge.sdk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.huaweicloud.bridge.sdk.request.RequestIdCache;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class LoginSchedulerTest {
+    private final RequestIdCache requestIdCache = new RequestIdCache();
+
+    private final List<String> sentRequestIds = new CopyOnWriteArrayList<>();
+
+    private final List<String> sentDeviceIds = new CopyOnWriteArrayList<>();
+
+    private LoginScheduler scheduler;
+
+    private LoginScheduler newScheduler(int maxInflight, int maxLoginsPerSecond, long timeout) {
+        LoginOptions options = new LoginOptions();
+        options.setMaxInflight(maxInflight);
+        options.setMaxLoginsPerSecond(maxLoginsPerSecond);
+        options.setTimeout(timeout);
+        scheduler = new LoginScheduler(options, requestIdCache, (deviceId, password, requestId, listener) -> {
+            sentDeviceIds.add(deviceId);
+            sentRequestIds.add(requestId);
+            listener.onSuccess(null);
+        });
+        return scheduler;
+    }
+
+    private void waitSent(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (sentRequestIds.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, sentRequestIds.size());
+    }
+
+    private void respond(int index, int resultCode) {
+        requestIdCache.getFuture(sentRequestIds.get(index)).complete(resultCode);
+    }
+
+    @After
+    public void tearDown() {
+        if (scheduler != null) {
+            scheduler.close();
+        }
+    }
+
+    @Test
+    public void test_window_and_coalesce() throws Exception {
+        newScheduler(2, 0, 5000);
+
+        CompletableFuture<Integer> first = scheduler.login("d1", "p");
+        assertSame(first, scheduler.login("d1", "p"));
+        CompletableFuture<Integer> second = scheduler.login("d2", "p");
+        CompletableFuture<Integer> third = scheduler.login("d3", "p");
+
+        // 窗口为2，第三个登录排队
+        waitSent(2);
+        Thread.sleep(50);
+        assertEquals(2, sentRequestIds.size());
+        assertEquals(1, scheduler.getQueuedCount());
+
+        respond(0, 0);
+        assertEquals(Integer.valueOf(0), first.get(1, TimeUnit.SECONDS));
+        waitSent(3);
+        assertEquals("d3", sentDeviceIds.get(2));
+
+        respond(1, 1);
+        respond(2, 0);
+        assertEquals(Integer.valueOf(1), second.get(1, TimeUnit.SECONDS));
+        assertEquals(Integer.valueOf(0), third.get(1, TimeUnit.SECONDS));
+
+        // 登录结束后同一设备可以再次登录
+        CompletableFuture<Integer> again = scheduler.login("d1", "p");
+        waitSent(4);
+        respond(3, 0);
+        assertEquals(Integer.valueOf(0), again.get(1, TimeUnit.SECONDS));
+        assertEquals(0, scheduler.getInflightCount());
+    }
+
+    @Test
+    public void test_timeout_releases_window() throws Exception {
+        newScheduler(1, 0, 50);
+
+        CompletableFuture<Integer> first = scheduler.login("d1", "p");
+        CompletableFuture<Integer> second = scheduler.login("d2", "p");
+        try {
+            first.get(1, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        waitSent(2);
+        respond(1, 0);
+        assertEquals(Integer.valueOf(0), second.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void test_pacing() throws Exception {
+        newScheduler(100, 20, 5000);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            scheduler.login("d" + i, "p");
+        }
+        waitSent(5);
+
+        // 每秒20个，5个登录至少间隔4 * 50ms
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(190));
+    }
+
+    @Test
+    public void test_close_fails_pending_logins() throws Exception {
+        newScheduler(1, 0, 5000);
+
+        CompletableFuture<Integer> first = scheduler.login("d1", "p");
+        CompletableFuture<Integer> second = scheduler.login("d2", "p");
+        scheduler.close();
+
+        assertTrue(first.isCompletedExceptionally());
+        assertTrue(second.isCompletedExceptionally());
+        assertTrue(scheduler.login("d3", "p").isCompletedExceptionally());
+    }
+}
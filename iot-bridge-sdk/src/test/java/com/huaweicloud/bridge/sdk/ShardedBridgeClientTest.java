@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.bridge.sdk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.huaweicloud.sdk.iot.device.client.requests.CommandRsp;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public class ShardedBridgeClientTest {
+    private static final int SHARD_COUNT = 4;
+
+    private final List<BridgeClient> shards = new ArrayList<>();
+
+    private ShardedBridgeClient shardedClient;
+
+    @Before
+    public void setUp() {
+        List<String> shardIds = new ArrayList<>();
+        for (int i = 0; i < SHARD_COUNT; i++) {
+            BridgeClient shard = mock(BridgeClient.class);
+            when(shard.loginAsync(anyString(), anyString())).thenReturn(CompletableFuture.completedFuture(0));
+            when(shard.logoutAsync(anyString(), anyLong())).thenReturn(CompletableFuture.completedFuture(0));
+            shards.add(shard);
+            shardIds.add("bridge" + i);
+        }
+        shardedClient = new ShardedBridgeClient(shardIds, shards);
+        for (int i = 0; i < SHARD_COUNT; i++) {
+            shardedClient.onShardUp(i);
+        }
+    }
+
+    @Test
+    public void test_ring_is_stable_and_balanced() {
+        ConsistentHashRing ring = new ConsistentHashRing(Arrays.asList("bridge0", "bridge1", "bridge2", "bridge3"));
+        ConsistentHashRing ring3 = new ConsistentHashRing(Arrays.asList("bridge0", "bridge1", "bridge2"));
+        int[] counts = new int[SHARD_COUNT];
+        int moved = 0;
+        int total = 40000;
+        for (int i = 0; i < total; i++) {
+            String deviceId = "device_" + i;
+            int shard = ring.shardOf(deviceId);
+            assertEquals(shard, ring.shardOf(deviceId));
+            counts[shard]++;
+
+            // 去掉一个分片时，只有该分片上的设备迁移
+            int shard3 = ring3.shardOf(deviceId);
+            if (shard != 3) {
+                assertEquals(shard, shard3);
+            } else {
+                moved++;
+            }
+        }
+        for (int count : counts) {
+            assertTrue(count > total / SHARD_COUNT * 0.8 && count < total / SHARD_COUNT * 1.2);
+        }
+        assertEquals(counts[3], moved);
+    }
+
+    @Test
+    public void test_replies_go_to_login_shard() {
+        shardedClient.loginAsync("device_1", "secret").join();
+        int shard = shardedClient.shardIndexOf("device_1");
+
+        CommandRsp commandRsp = new CommandRsp(0);
+        shardedClient.respondCommand("device_1", "request1", commandRsp);
+
+        verify(shards.get(shard)).loginAsync("device_1", "secret");
+        verify(shards.get(shard)).respondCommand("device_1", "request1", commandRsp);
+        assertEquals(1, shardedClient.getSessionCount());
+    }
+
+    @Test
+    public void test_rebalance_on_shard_down_and_up() {
+        String deviceId = "device_2";
+        shardedClient.loginAsync(deviceId, "secret").join();
+        int owner = shardedClient.shardIndexOf(deviceId);
+
+        // 连接断开，设备迁移到其他分片重新登录
+        shardedClient.onShardDown(owner);
+        int fallback = shardedClient.shardIndexOf(deviceId);
+        assertNotEquals(owner, fallback);
+        verify(shards.get(fallback)).loginAsync(deviceId, "secret");
+
+        // 连接恢复，设备迁回原分片，并从临时分片登出
+        shardedClient.onShardUp(owner);
+        assertEquals(owner, shardedClient.shardIndexOf(deviceId));
+        verify(shards.get(owner), times(2)).loginAsync(deviceId, "secret");
+        verify(shards.get(fallback)).logoutAsync(eq(deviceId), anyLong());
+
+        // 登出后不再迁移
+        when(shards.get(owner).logoutAsync(eq(deviceId), any(Long.class)))
+            .thenReturn(CompletableFuture.completedFuture(0));
+        shardedClient.logoutAsync(deviceId, 1000).join();
+        shardedClient.onShardDown(owner);
+        verify(shards.get(fallback), times(1)).loginAsync(deviceId, "secret");
+        verify(shards.get(owner), never()).logoutAsync(eq(deviceId), anyString(), any());
+        assertEquals(0, shardedClient.getSessionCount());
+    }
+
+    @Test
+    public void test_move_back_logs_out_before_login() {
+        String deviceId = "device_3";
+        shardedClient.loginAsync(deviceId, "secret").join();
+        int owner = shardedClient.shardIndexOf(deviceId);
+        shardedClient.onShardDown(owner);
+        int fallback = shardedClient.shardIndexOf(deviceId);
+
+        // 临时分片登出完成前不在原分片登录，上报仍走临时分片
+        CompletableFuture<Integer> logout = new CompletableFuture<>();
+        when(shards.get(fallback).logoutAsync(eq(deviceId), anyLong())).thenReturn(logout);
+        shardedClient.onShardUp(owner);
+        verify(shards.get(owner), times(1)).loginAsync(deviceId, "secret");
+        assertEquals(fallback, shardedClient.shardIndexOf(deviceId));
+
+        logout.complete(0);
+        InOrder inOrder = inOrder(shards.get(fallback), shards.get(owner));
+        inOrder.verify(shards.get(fallback)).logoutAsync(eq(deviceId), anyLong());
+        inOrder.verify(shards.get(owner)).loginAsync(deviceId, "secret");
+        assertEquals(owner, shardedClient.shardIndexOf(deviceId));
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.bridge.sdk.request;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class RequestIdCacheTest {
+    private final RequestIdCache requestIdCache = new RequestIdCache();
+
+    @After
+    public void tearDown() {
+        requestIdCache.close();
+    }
+
+    @Test
+    public void test_no_eviction_above_old_capacity() {
+        int count = 100000;
+        List<CompletableFuture<Integer>> futures = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            CompletableFuture<Integer> future = new CompletableFuture<>();
+            futures.add(future);
+            requestIdCache.setRequestId2Cache("request" + i, future);
+        }
+        assertEquals(count, requestIdCache.getPendingCount());
+
+        for (int i = 0; i < count; i++) {
+            assertSame(futures.get(i), requestIdCache.getFuture("request" + i));
+        }
+        assertEquals(0, requestIdCache.getPendingCount());
+        assertNull(requestIdCache.getFuture("request0"));
+    }
+
+    @Test
+    public void test_timeout_completes_exceptionally() throws Exception {
+        CompletableFuture<Integer> expired = new CompletableFuture<>();
+        CompletableFuture<Integer> answered = new CompletableFuture<>();
+        requestIdCache.setRequestId2Cache("expired", expired, 100);
+        requestIdCache.setRequestId2Cache("answered", answered, 100);
+        requestIdCache.<Integer>getFuture("answered").complete(0);
+
+        try {
+            expired.get(2, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        assertEquals(Integer.valueOf(0), answered.get());
+        assertEquals(1, requestIdCache.getTimeoutCount());
+        assertEquals(0, requestIdCache.getPendingCount());
+        assertNull(requestIdCache.getFuture("expired"));
+    }
+
+    @Test
+    public void test_invalidate_and_close() {
+        CompletableFuture<Integer> invalidated = new CompletableFuture<>();
+        CompletableFuture<Integer> pending = new CompletableFuture<>();
+        requestIdCache.setRequestId2Cache("invalidated", invalidated, 100);
+        requestIdCache.setRequestId2Cache("pending", pending);
+        requestIdCache.invalidateCache("invalidated");
+
+        requestIdCache.close();
+
+        assertFalse(invalidated.isDone());
+        assertTrue(pending.isCompletedExceptionally());
+
+        CompletableFuture<Integer> afterClose = new CompletableFuture<>();
+        requestIdCache.setRequestId2Cache("afterClose", afterClose);
+        assertTrue(afterClose.isCompletedExceptionally());
+        assertEquals(0, requestIdCache.getPendingCount());
+    }
+}
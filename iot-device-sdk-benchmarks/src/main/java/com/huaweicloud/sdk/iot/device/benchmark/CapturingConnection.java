@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.benchmark;
+
+import com.huaweicloud.sdk.iot.device.client.CustomOptions;
+import com.huaweicloud.sdk.iot.device.transport.ActionListener;
+import com.huaweicloud.sdk.iot.device.transport.ConnectActionListener;
+import com.huaweicloud.sdk.iot.device.transport.ConnectListener;
+import com.huaweicloud.sdk.iot.device.transport.Connection;
+import com.huaweicloud.sdk.iot.device.transport.RawMessage;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * 只保存最后一条上行消息的空连接，发布时立即回调成功，不涉及网络
+ */
+class CapturingConnection implements Connection {
+    RawMessage last;
+
+    /**
+     * 不为空时每发布一条消息释放一个许可，用于等待异步处理完成
+     */
+    Semaphore published;
+
+    @Override
+    public int connect() {
+        return 0;
+    }
+
+    @Override
+    public void publishMessage(RawMessage message, ActionListener listener) {
+        last = message;
+        if (listener != null) {
+            listener.onSuccess(null);
+        }
+        if (published != null) {
+            published.release();
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public boolean isConnected() {
+        return true;
+    }
+
+    @Override
+    public void setConnectListener(ConnectListener connectListener) {
+    }
+
+    @Override
+    public void subscribeTopic(String topic, ActionListener actionListener, int qos) {
+    }
+
+    @Override
+    public void setConnectActionListener(ConnectActionListener connectActionListener) {
+    }
+
+    @Override
+    public void setCustomOptions(CustomOptions customOptions) {
+    }
+}
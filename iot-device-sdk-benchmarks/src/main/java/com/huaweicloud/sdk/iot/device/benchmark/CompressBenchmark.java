@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.benchmark;
+
+import com.huaweicloud.sdk.iot.device.client.requests.DeviceProperties;
+import com.huaweicloud.sdk.iot.device.client.requests.ServiceProperty;
+import com.huaweicloud.sdk.iot.device.utils.GzipCompressor;
+import com.huaweicloud.sdk.iot.device.utils.IotUtil;
+import com.huaweicloud.sdk.iot.device.utils.JsonUtil;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 压缩上报：复用Deflater的GzipCompressor与原有每次新建GZIPOutputStream的方式对比，
+ * 消息体为不同数量服务的属性上报，序列化后约为300B、4KB、64KB。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressBenchmark {
+
+    @Param({"2", "32", "512"})
+    private int serviceCount;
+
+    private DeviceProperties deviceProperties;
+
+    @Setup
+    public void setUp() {
+        List<ServiceProperty> services = new ArrayList<>();
+        for (int i = 0; i < serviceCount; i++) {
+            Map<String, Object> properties = new HashMap<>();
+            properties.put("temperature", 20 + i % 15);
+            properties.put("humidity", 40.5 + i % 30);
+            properties.put("status", i % 2 == 0 ? "normal" : "alarm");
+            ServiceProperty serviceProperty = new ServiceProperty();
+            serviceProperty.setServiceId("sensor_" + i);
+            serviceProperty.setProperties(properties);
+            serviceProperty.setEventTime("20230101T000000Z");
+            services.add(serviceProperty);
+        }
+        deviceProperties = new DeviceProperties();
+        deviceProperties.setServices(services);
+    }
+
+    /**
+     * 原IotUtil.compress的方式，补上了finish，否则输出不完整
+     */
+    @Benchmark
+    public byte[] legacyGzipStream() throws IOException {
+        String json = JsonUtil.convertObject2String(deviceProperties);
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(byteArrayOutputStream)) {
+            gzipOutputStream.write(json.getBytes(StandardCharsets.UTF_8));
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] pooledDeflater() {
+        return GzipCompressor.compress(JsonUtil.convertObject2Bytes(deviceProperties));
+    }
+
+    /**
+     * IotUtil.compress：先序列化为字符串再编码，比直接序列化为字节多一次拷贝
+     */
+    @Benchmark
+    public byte[] iotUtilCompress() {
+        return IotUtil.compress(JsonUtil.convertObject2String(deviceProperties), "UTF-8");
+    }
+}
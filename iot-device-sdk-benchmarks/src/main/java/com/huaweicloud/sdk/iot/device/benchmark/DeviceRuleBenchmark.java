@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.benchmark;
+
+import com.huaweicloud.sdk.iot.device.client.requests.DeviceEvent;
+import com.huaweicloud.sdk.iot.device.client.requests.ServiceProperty;
+import com.huaweicloud.sdk.iot.device.devicerule.DeviceRuleService;
+import com.huaweicloud.sdk.iot.device.devicerule.model.DeviceInfo;
+import com.huaweicloud.sdk.iot.device.devicerule.model.DeviceRuleAction;
+import com.huaweicloud.sdk.iot.device.devicerule.model.DeviceRuleCondition;
+import com.huaweicloud.sdk.iot.device.devicerule.model.DeviceRuleInfo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 端侧规则判断：每次属性上报都会调用handleRule，规则分布在16个属性上，
+ * matchingReport命中上报属性对应的全部规则，unrelatedReport上报的属性没有规则引用。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class DeviceRuleBenchmark {
+
+    private static final int PROPERTY_COUNT = 16;
+
+    @Param({"0", "16", "256"})
+    private int ruleCount;
+
+    private DeviceRuleService deviceRuleService;
+
+    private List<ServiceProperty> matchingReport;
+
+    private List<ServiceProperty> unrelatedReport;
+
+    private int triggered;
+
+    @Setup
+    public void setUp() {
+        deviceRuleService = new DeviceRuleService() {
+            @Override
+            public void onRuleActionHandler(List<DeviceRuleAction> actionList) {
+                triggered += actionList.size();
+            }
+        };
+
+        List<DeviceRuleInfo> ruleInfos = new ArrayList<>();
+        for (int i = 0; i < ruleCount; i++) {
+            ruleInfos.add(rule("rule_" + i, "sensor/p" + i % PROPERTY_COUNT, String.valueOf(i)));
+        }
+        Map<String, Object> paras = new HashMap<>();
+        paras.put("rulesInfos", ruleInfos);
+        DeviceEvent deviceEvent = new DeviceEvent();
+        deviceEvent.setServiceId("$device_rule");
+        deviceEvent.setEventType("device_rule_config_response");
+        deviceEvent.setParas(paras);
+        deviceRuleService.onEvent(deviceEvent);
+
+        matchingReport = report("sensor", "p0", 100000);
+        unrelatedReport = report("sensor", "other", 100000);
+    }
+
+    private static DeviceRuleInfo rule(String ruleId, String path, String value) {
+        DeviceInfo deviceInfo = new DeviceInfo();
+        deviceInfo.setPath(path);
+        DeviceRuleCondition condition = new DeviceRuleCondition();
+        condition.setType("DEVICE_DATA");
+        condition.setDeviceInfo(deviceInfo);
+        condition.setOperator(">");
+        condition.setValue(value);
+
+        DeviceRuleAction action = new DeviceRuleAction();
+        action.setDeviceId(ruleId);
+        DeviceRuleInfo ruleInfo = new DeviceRuleInfo();
+        ruleInfo.setRuleId(ruleId);
+        ruleInfo.setStatus("active");
+        ruleInfo.setLogic("or");
+        ruleInfo.setConditions(Collections.singletonList(condition));
+        ruleInfo.setActions(Collections.singletonList(action));
+        return ruleInfo;
+    }
+
+    private static List<ServiceProperty> report(String serviceId, String property, Object value) {
+        ServiceProperty serviceProperty = new ServiceProperty();
+        serviceProperty.setServiceId(serviceId);
+        serviceProperty.setProperties(Collections.singletonMap(property, value));
+        return Collections.singletonList(serviceProperty);
+    }
+
+    @Benchmark
+    public int matchingReport() {
+        deviceRuleService.handleRule(matchingReport);
+        return triggered;
+    }
+
+    @Benchmark
+    public int unrelatedReport() {
+        deviceRuleService.handleRule(unrelatedReport);
+        return triggered;
+    }
+}
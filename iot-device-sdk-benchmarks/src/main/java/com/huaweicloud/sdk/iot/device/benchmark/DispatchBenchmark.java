@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.benchmark;
+
+import com.huaweicloud.sdk.iot.device.IoTDevice;
+import com.huaweicloud.sdk.iot.device.client.ClientConf;
+import com.huaweicloud.sdk.iot.device.client.DeviceClient;
+import com.huaweicloud.sdk.iot.device.client.requests.CommandRsp;
+import com.huaweicloud.sdk.iot.device.service.AbstractService;
+import com.huaweicloud.sdk.iot.device.service.DeviceCommand;
+import com.huaweicloud.sdk.iot.device.service.Property;
+import com.huaweicloud.sdk.iot.device.transport.RawMessage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 下行消息处理：从DeviceClient.onMessageReceived收到消息到响应发布完成。
+ * handle*在调用线程中完成路由、反序列化、服务回调（命令反射调用、onRead、onWrite）和响应序列化，
+ * dispatchCommand经过消息分发线程，额外包含线程切换的开销。日志级别调为warn，不统计日志输出。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class DispatchBenchmark {
+
+    private static final String DEVICE_ID = "product_node_000123";
+
+    private static final String TOPIC_PREFIX = "$oc/devices/" + DEVICE_ID + "/sys/";
+
+    private static final RawMessage COMMAND = new RawMessage(TOPIC_PREFIX + "commands/request_id=1",
+        "{\"service_id\":\"smokeDetector\",\"command_name\":\"ringAlarm\",\"paras\":{\"duration\":20}}");
+
+    private static final RawMessage PROPERTIES_GET = new RawMessage(TOPIC_PREFIX + "properties/get/request_id=2",
+        "{\"service_id\":\"smokeDetector\"}");
+
+    private static final RawMessage PROPERTIES_SET = new RawMessage(TOPIC_PREFIX + "properties/set/request_id=3",
+        "{\"services\":[{\"service_id\":\"smokeDetector\",\"properties\":{\"alarm\":0}}]}");
+
+    private CapturingConnection connection;
+
+    private DeviceClient client;
+
+    @Setup
+    public void setUp() {
+        connection = new CapturingConnection();
+        client = createDevice(connection).getClient();
+    }
+
+    @TearDown
+    public void tearDown() {
+        client.close();
+    }
+
+    static IoTDevice createDevice(CapturingConnection connection) {
+        ClientConf clientConf = new ClientConf();
+        clientConf.setDeviceId(DEVICE_ID);
+        clientConf.setSecret("secret");
+        clientConf.setServerUri("tcp://localhost:1883");
+        clientConf.setConnectionFactory((conf, listener) -> connection);
+        IoTDevice device = new IoTDevice(clientConf);
+        device.addService("smokeDetector", new SmokeDetectorService());
+
+        // 建链时初始化消息分发线程
+        device.getClient().connect();
+        return device;
+    }
+
+    private RawMessage handle(RawMessage message) {
+        client.getTopicRouter().route(message.getTopic()).getHandler().messageHandler(message);
+        return connection.last;
+    }
+
+    /**
+     * 命令：反射调用服务的命令方法
+     */
+    @Benchmark
+    public RawMessage handleCommand() {
+        return handle(COMMAND);
+    }
+
+    /**
+     * 属性查询：AbstractService.onRead
+     */
+    @Benchmark
+    public RawMessage handlePropertiesGet() {
+        return handle(PROPERTIES_GET);
+    }
+
+    /**
+     * 属性设置：AbstractService.onWrite，写成功后会上报变化的属性
+     */
+    @Benchmark
+    public RawMessage handlePropertiesSet() {
+        return handle(PROPERTIES_SET);
+    }
+
+    @Benchmark
+    public RawMessage dispatchCommand(Dispatched dispatched) throws InterruptedException {
+        dispatched.client.onMessageReceived(COMMAND);
+        dispatched.connection.published.acquire();
+        return dispatched.connection.last;
+    }
+
+    /**
+     * 经过消息分发线程的设备，每发布一条响应释放一个许可
+     */
+    @State(Scope.Thread)
+    public static class Dispatched {
+        private CapturingConnection connection;
+
+        private DeviceClient client;
+
+        @Setup
+        public void setUp() {
+            connection = new CapturingConnection();
+            client = createDevice(connection).getClient();
+            connection.published = new Semaphore(0);
+        }
+
+        @TearDown
+        public void tearDown() {
+            client.close();
+        }
+    }
+
+    public static class SmokeDetectorService extends AbstractService {
+        @Property(name = "alarm", writeable = true)
+        private int smokeAlarm = 1;
+
+        @Property(name = "smokeConcentration", writeable = false)
+        private float concentration = 12.5f;
+
+        @Property(writeable = false)
+        private int humidity = 61;
+
+        @Property(writeable = false)
+        private float temperature = 23.5f;
+
+        @DeviceCommand(name = "ringAlarm")
+        public CommandRsp alarm(Map<String, Object> paras) {
+            return new CommandRsp(0);
+        }
+
+        public int getSmokeAlarm() {
+            return smokeAlarm;
+        }
+
+        public void setSmokeAlarm(int smokeAlarm) {
+            this.smokeAlarm = smokeAlarm;
+        }
+
+        public float getConcentration() {
+            return concentration;
+        }
+
+        public void setConcentration(float concentration) {
+            this.concentration = concentration;
+        }
+
+        public int getHumidity() {
+            return humidity;
+        }
+
+        public void setHumidity(int humidity) {
+            this.humidity = humidity;
+        }
+
+        public float getTemperature() {
+            return temperature;
+        }
+
+        public void setTemperature(float temperature) {
+            this.temperature = temperature;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.benchmark;
+
+import com.huaweicloud.sdk.iot.device.client.requests.DeviceEvent;
+import com.huaweicloud.sdk.iot.device.client.requests.DeviceEventTypeRegistry;
+import com.huaweicloud.sdk.iot.device.client.requests.DeviceEvents;
+import com.huaweicloud.sdk.iot.device.client.requests.DeviceProperties;
+import com.huaweicloud.sdk.iot.device.client.requests.ServiceProperty;
+import com.huaweicloud.sdk.iot.device.gateway.requests.SubDevicesInfo;
+import com.huaweicloud.sdk.iot.device.utils.JsonUtil;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JsonUtil序列化：属性上报（单服务4个属性）与事件上报的序列化，以及平台下发的子设备事件的反序列化。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+
+    private DeviceProperties deviceProperties;
+
+    private DeviceEvents deviceEvents;
+
+    private byte[] subDeviceNotify;
+
+    @Setup
+    public void setUp() {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("alarm", 1);
+        values.put("smokeConcentration", 12.5);
+        values.put("temperature", 23.5);
+        values.put("humidity", 61);
+        ServiceProperty serviceProperty = new ServiceProperty();
+        serviceProperty.setServiceId("smokeDetector");
+        serviceProperty.setProperties(values);
+        deviceProperties = new DeviceProperties();
+        deviceProperties.setServices(Collections.singletonList(serviceProperty));
+
+        Map<String, Object> paras = new HashMap<>();
+        paras.put("version", 3);
+        paras.put("result_code", 0);
+        DeviceEvent deviceEvent = new DeviceEvent();
+        deviceEvent.setServiceId("$sub_device_manager");
+        deviceEvent.setEventType("sub_device_sync_request");
+        deviceEvent.setEventTime("20230101T000000Z");
+        deviceEvent.setParas(paras);
+        deviceEvents = new DeviceEvents();
+        deviceEvents.setDeviceId("product_gateway");
+        deviceEvents.setServices(Collections.singletonList(deviceEvent));
+
+        List<String> devices = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            devices.add("{\"parent_device_id\":\"product_gateway\",\"node_id\":\"node" + i
+                + "\",\"device_id\":\"product_node" + i + "\",\"name\":\"sensor" + i
+                + "\",\"product_id\":\"product\",\"status\":\"ONLINE\"}");
+        }
+        String notify = "{\"object_device_id\":\"product_gateway\",\"services\":[{\"service_id\":"
+            + "\"$sub_device_manager\",\"event_type\":\"add_sub_device_notify\",\"event_time\":\"20230101T000000Z\","
+            + "\"paras\":{\"devices\":[" + String.join(",", devices) + "],\"version\":7}}]}";
+        subDeviceNotify = notify.getBytes(StandardCharsets.UTF_8);
+
+        // 与网关一致，子设备通知的参数注册为SubDevicesInfo
+        DeviceEventTypeRegistry.register("$sub_device_manager", "add_sub_device_notify", SubDevicesInfo.class);
+    }
+
+    @Benchmark
+    public byte[] serializeProperties() {
+        return JsonUtil.convertObject2Bytes(deviceProperties);
+    }
+
+    @Benchmark
+    public String serializePropertiesToString() {
+        return JsonUtil.convertObject2String(deviceProperties);
+    }
+
+    @Benchmark
+    public byte[] serializeEvents() {
+        return JsonUtil.convertObject2Bytes(deviceEvents);
+    }
+
+    /**
+     * 10个子设备的新增通知，事件参数按注册的类型直接反序列化为SubDevicesInfo
+     */
+    @Benchmark
+    public DeviceEvents deserializeSubDeviceNotify() {
+        return JsonUtil.convertJsonBytesToObject(subDeviceNotify, DeviceEvents.class);
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.benchmark;
+
+import com.huaweicloud.sdk.iot.device.IoTDevice;
+import com.huaweicloud.sdk.iot.device.client.ClientConf;
+import com.huaweicloud.sdk.iot.device.client.requests.CommandRsp;
+import com.huaweicloud.sdk.iot.device.client.requests.ServiceProperty;
+import com.huaweicloud.sdk.iot.device.transport.ActionListener;
+import com.huaweicloud.sdk.iot.device.transport.loopback.LoopbackBroker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 通过进程内回环broker测量DeviceClient到handler再到service的完整链路开销，不包含网络和真实broker的时延。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoopbackPipelineBenchmark {
+    private static final String DEVICE_ID = "benchmark_device";
+
+    private static final String COMMAND_TOPIC = "$oc/devices/" + DEVICE_ID + "/sys/commands/request_id=";
+
+    private static final String COMMAND = "{\"service_id\":\"smokeDetector\",\"command_name\":\"ring\","
+        + "\"paras\":{\"duration\":20}}";
+
+    private LoopbackBroker broker;
+
+    private IoTDevice device;
+
+    private List<ServiceProperty> properties;
+
+    private volatile CompletableFuture<Object> pending;
+
+    private long requestId;
+
+    @Setup
+    public void setUp() {
+        broker = new LoopbackBroker();
+        broker.setUplinkListener(message -> {
+            CompletableFuture<Object> future = pending;
+            if (future != null && message.getTopic().contains("/sys/commands/response/")) {
+                future.complete(message);
+            }
+        });
+
+        ClientConf clientConf = new ClientConf();
+        clientConf.setServerUri("loopback://local");
+        clientConf.setDeviceId(DEVICE_ID);
+        clientConf.setSecret("secret");
+        clientConf.setConnectionFactory(broker);
+        device = new IoTDevice(clientConf);
+        if (device.init() != 0) {
+            throw new IllegalStateException("loopback connect failed");
+        }
+        device.getClient().setCommandListener((id, serviceId, commandName, paras) ->
+            device.getClient().respondCommand(id, new CommandRsp(0)));
+
+        Map<String, Object> values = new HashMap<>();
+        values.put("alarm", 1);
+        values.put("temperature", 23.5);
+        values.put("smokeConcentration", 12);
+        ServiceProperty serviceProperty = new ServiceProperty();
+        serviceProperty.setServiceId("smokeDetector");
+        serviceProperty.setProperties(values);
+        properties = Collections.singletonList(serviceProperty);
+    }
+
+    @TearDown
+    public void tearDown() {
+        device.getClient().close();
+        broker.close();
+    }
+
+    /**
+     * 属性上报：序列化、发布，到broker确认为止
+     */
+    @Benchmark
+    public Object reportProperties() throws Exception {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        device.getClient().reportProperties(properties, new ActionListener() {
+            @Override
+            public void onSuccess(Object context) {
+                future.complete(context);
+            }
+
+            @Override
+            public void onFailure(Object context, Throwable var2) {
+                future.completeExceptionally(var2);
+            }
+        });
+        return future.get(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 命令往返：平台下发命令，经消息分发、回调到响应上行
+     */
+    @Benchmark
+    public Object commandRoundTrip() throws Exception {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        pending = future;
+        broker.publish(COMMAND_TOPIC + requestId++, COMMAND);
+        return future.get(5, TimeUnit.SECONDS);
+    }
+}
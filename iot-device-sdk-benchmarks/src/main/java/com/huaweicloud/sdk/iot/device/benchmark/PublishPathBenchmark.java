@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.benchmark;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.huaweicloud.sdk.iot.device.IoTDevice;
+import com.huaweicloud.sdk.iot.device.client.ClientConf;
+import com.huaweicloud.sdk.iot.device.client.DeviceClient;
+import com.huaweicloud.sdk.iot.device.client.requests.CommandRsp;
+import com.huaweicloud.sdk.iot.device.client.requests.ServiceProperty;
+import com.huaweicloud.sdk.iot.device.service.AbstractDevice;
+import com.huaweicloud.sdk.iot.device.transport.Connection;
+import com.huaweicloud.sdk.iot.device.transport.RawMessage;
+import com.huaweicloud.sdk.iot.device.utils.JsonUtil;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 上行发布路径：每次上报在SDK内部产生的对象分配。
+ * legacy*为原实现（拼接topic、生成中间JSON字符串、再按平台编码转为字节），其余为DeviceClient当前实现，
+ * 连接替换为只保存消息的空实现，不涉及网络。分配量用-prof gc查看gc.alloc.rate.norm（字节/次）。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PublishPathBenchmark {
+
+    private static final String DEVICE_ID = "product_node_000123";
+
+    private static final String REQUEST_ID = "6d1d7c4a-2b1f-4d71-9a7b-3f1000c24e55";
+
+    private String deviceId;
+
+    private List<ServiceProperty> properties;
+
+    private CommandRsp commandRsp;
+
+    private DeviceClient client;
+
+    private CapturingConnection connection;
+
+    @Setup
+    public void setUp() {
+        ClientConf clientConf = new ClientConf();
+        deviceId = DEVICE_ID;
+        clientConf.setDeviceId(deviceId);
+        clientConf.setSecret("secret");
+        clientConf.setServerUri("tcp://localhost:1883");
+        connection = new CapturingConnection();
+        client = new OfflineDeviceClient(clientConf, new IoTDevice(clientConf), connection);
+
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("temperature", 23.5);
+        values.put("humidity", 61);
+        values.put("alarm", false);
+        ServiceProperty serviceProperty = new ServiceProperty();
+        serviceProperty.setServiceId("smokeDetector");
+        serviceProperty.setProperties(values);
+        properties = Collections.singletonList(serviceProperty);
+
+        commandRsp = new CommandRsp(0);
+    }
+
+    /**
+     * 原DeviceClient.reportProperties的发布方式
+     */
+    @Benchmark
+    public RawMessage legacyReportProperties() {
+        String topic = "$oc/devices/" + deviceId + "/sys/properties/report";
+        ObjectNode jsonObject = JsonUtil.createObjectNode();
+        jsonObject.putPOJO("services", properties);
+        RawMessage rawMessage = new RawMessage(topic, JsonUtil.convertObject2String(jsonObject));
+        connection.publishMessage(rawMessage, null);
+        return connection.last;
+    }
+
+    @Benchmark
+    public RawMessage reportProperties() {
+        client.reportProperties(properties, null);
+        return connection.last;
+    }
+
+    /**
+     * 原DeviceClient.respondCommand的发布方式
+     */
+    @Benchmark
+    public RawMessage legacyRespondCommand() {
+        String topic = "$oc/devices/" + deviceId + "/sys/commands/response/request_id=" + REQUEST_ID;
+        RawMessage rawMessage = new RawMessage(topic, JsonUtil.convertObject2String(commandRsp));
+        connection.publishMessage(rawMessage, null);
+        return connection.last;
+    }
+
+    @Benchmark
+    public RawMessage respondCommand() {
+        client.respondCommand(REQUEST_ID, commandRsp);
+        return connection.last;
+    }
+
+    private static class OfflineDeviceClient extends DeviceClient {
+        OfflineDeviceClient(ClientConf clientConf, AbstractDevice device, Connection connection) {
+            super(clientConf, device);
+            this.connection = connection;
+        }
+    }
+}
@@ -0,0 +1,654 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.benchmark;
+
+import com.huaweicloud.sdk.iot.device.service.AbstractService;
+import com.huaweicloud.sdk.iot.device.service.Property;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 服务属性读取：缓存的getter句柄与原有的每次查找getter再反射调用对比，服务有50个属性。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServiceReadBenchmark {
+
+    private LargeService service;
+
+    private Map<String, String> legacyFields;
+
+    @Setup
+    public void setUp() {
+        service = new LargeService();
+        legacyFields = new HashMap<>();
+        for (Field field : LargeService.class.getDeclaredFields()) {
+            Property property = field.getAnnotation(Property.class);
+            if (property != null) {
+                legacyFields.put(field.getName(), property.name().isEmpty() ? field.getName() : property.name());
+            }
+        }
+    }
+
+    /**
+     * 原AbstractService.onRead中的读取方式
+     */
+    @Benchmark
+    public Map<String, Object> legacyOnRead() throws Exception {
+        Map<String, Object> ret = new HashMap<>();
+        for (Map.Entry<String, String> entry : legacyFields.entrySet()) {
+            String fieldName = entry.getKey();
+            String getter = "get" + Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
+            Method method = service.getClass().getDeclaredMethod(getter);
+            Object value = method.invoke(service);
+            if (value != null) {
+                ret.put(entry.getValue(), value);
+            }
+        }
+        return ret;
+    }
+
+    @Benchmark
+    public Map<String, Object> onRead() {
+        return service.onRead();
+    }
+
+    public static class LargeService extends AbstractService {
+        @Property
+        private int property00 = 0;
+
+        @Property
+        private String property01 = "value1";
+
+        @Property
+        private int property02 = 2;
+
+        @Property
+        private String property03 = "value3";
+
+        @Property
+        private int property04 = 4;
+
+        @Property
+        private String property05 = "value5";
+
+        @Property
+        private int property06 = 6;
+
+        @Property
+        private String property07 = "value7";
+
+        @Property
+        private int property08 = 8;
+
+        @Property
+        private String property09 = "value9";
+
+        @Property
+        private int property10 = 10;
+
+        @Property
+        private String property11 = "value11";
+
+        @Property
+        private int property12 = 12;
+
+        @Property
+        private String property13 = "value13";
+
+        @Property
+        private int property14 = 14;
+
+        @Property
+        private String property15 = "value15";
+
+        @Property
+        private int property16 = 16;
+
+        @Property
+        private String property17 = "value17";
+
+        @Property
+        private int property18 = 18;
+
+        @Property
+        private String property19 = "value19";
+
+        @Property
+        private int property20 = 20;
+
+        @Property
+        private String property21 = "value21";
+
+        @Property
+        private int property22 = 22;
+
+        @Property
+        private String property23 = "value23";
+
+        @Property
+        private int property24 = 24;
+
+        @Property
+        private String property25 = "value25";
+
+        @Property
+        private int property26 = 26;
+
+        @Property
+        private String property27 = "value27";
+
+        @Property
+        private int property28 = 28;
+
+        @Property
+        private String property29 = "value29";
+
+        @Property
+        private int property30 = 30;
+
+        @Property
+        private String property31 = "value31";
+
+        @Property
+        private int property32 = 32;
+
+        @Property
+        private String property33 = "value33";
+
+        @Property
+        private int property34 = 34;
+
+        @Property
+        private String property35 = "value35";
+
+        @Property
+        private int property36 = 36;
+
+        @Property
+        private String property37 = "value37";
+
+        @Property
+        private int property38 = 38;
+
+        @Property
+        private String property39 = "value39";
+
+        @Property
+        private int property40 = 40;
+
+        @Property
+        private String property41 = "value41";
+
+        @Property
+        private int property42 = 42;
+
+        @Property
+        private String property43 = "value43";
+
+        @Property
+        private int property44 = 44;
+
+        @Property
+        private String property45 = "value45";
+
+        @Property
+        private int property46 = 46;
+
+        @Property
+        private String property47 = "value47";
+
+        @Property
+        private int property48 = 48;
+
+        @Property
+        private String property49 = "value49";
+
+        public int getProperty00() {
+            return property00;
+        }
+
+        public void setProperty00(int property00) {
+            this.property00 = property00;
+        }
+
+        public String getProperty01() {
+            return property01;
+        }
+
+        public void setProperty01(String property01) {
+            this.property01 = property01;
+        }
+
+        public int getProperty02() {
+            return property02;
+        }
+
+        public void setProperty02(int property02) {
+            this.property02 = property02;
+        }
+
+        public String getProperty03() {
+            return property03;
+        }
+
+        public void setProperty03(String property03) {
+            this.property03 = property03;
+        }
+
+        public int getProperty04() {
+            return property04;
+        }
+
+        public void setProperty04(int property04) {
+            this.property04 = property04;
+        }
+
+        public String getProperty05() {
+            return property05;
+        }
+
+        public void setProperty05(String property05) {
+            this.property05 = property05;
+        }
+
+        public int getProperty06() {
+            return property06;
+        }
+
+        public void setProperty06(int property06) {
+            this.property06 = property06;
+        }
+
+        public String getProperty07() {
+            return property07;
+        }
+
+        public void setProperty07(String property07) {
+            this.property07 = property07;
+        }
+
+        public int getProperty08() {
+            return property08;
+        }
+
+        public void setProperty08(int property08) {
+            this.property08 = property08;
+        }
+
+        public String getProperty09() {
+            return property09;
+        }
+
+        public void setProperty09(String property09) {
+            this.property09 = property09;
+        }
+
+        public int getProperty10() {
+            return property10;
+        }
+
+        public void setProperty10(int property10) {
+            this.property10 = property10;
+        }
+
+        public String getProperty11() {
+            return property11;
+        }
+
+        public void setProperty11(String property11) {
+            this.property11 = property11;
+        }
+
+        public int getProperty12() {
+            return property12;
+        }
+
+        public void setProperty12(int property12) {
+            this.property12 = property12;
+        }
+
+        public String getProperty13() {
+            return property13;
+        }
+
+        public void setProperty13(String property13) {
+            this.property13 = property13;
+        }
+
+        public int getProperty14() {
+            return property14;
+        }
+
+        public void setProperty14(int property14) {
+            this.property14 = property14;
+        }
+
+        public String getProperty15() {
+            return property15;
+        }
+
+        public void setProperty15(String property15) {
+            this.property15 = property15;
+        }
+
+        public int getProperty16() {
+            return property16;
+        }
+
+        public void setProperty16(int property16) {
+            this.property16 = property16;
+        }
+
+        public String getProperty17() {
+            return property17;
+        }
+
+        public void setProperty17(String property17) {
+            this.property17 = property17;
+        }
+
+        public int getProperty18() {
+            return property18;
+        }
+
+        public void setProperty18(int property18) {
+            this.property18 = property18;
+        }
+
+        public String getProperty19() {
+            return property19;
+        }
+
+        public void setProperty19(String property19) {
+            this.property19 = property19;
+        }
+
+        public int getProperty20() {
+            return property20;
+        }
+
+        public void setProperty20(int property20) {
+            this.property20 = property20;
+        }
+
+        public String getProperty21() {
+            return property21;
+        }
+
+        public void setProperty21(String property21) {
+            this.property21 = property21;
+        }
+
+        public int getProperty22() {
+            return property22;
+        }
+
+        public void setProperty22(int property22) {
+            this.property22 = property22;
+        }
+
+        public String getProperty23() {
+            return property23;
+        }
+
+        public void setProperty23(String property23) {
+            this.property23 = property23;
+        }
+
+        public int getProperty24() {
+            return property24;
+        }
+
+        public void setProperty24(int property24) {
+            this.property24 = property24;
+        }
+
+        public String getProperty25() {
+            return property25;
+        }
+
+        public void setProperty25(String property25) {
+            this.property25 = property25;
+        }
+
+        public int getProperty26() {
+            return property26;
+        }
+
+        public void setProperty26(int property26) {
+            this.property26 = property26;
+        }
+
+        public String getProperty27() {
+            return property27;
+        }
+
+        public void setProperty27(String property27) {
+            this.property27 = property27;
+        }
+
+        public int getProperty28() {
+            return property28;
+        }
+
+        public void setProperty28(int property28) {
+            this.property28 = property28;
+        }
+
+        public String getProperty29() {
+            return property29;
+        }
+
+        public void setProperty29(String property29) {
+            this.property29 = property29;
+        }
+
+        public int getProperty30() {
+            return property30;
+        }
+
+        public void setProperty30(int property30) {
+            this.property30 = property30;
+        }
+
+        public String getProperty31() {
+            return property31;
+        }
+
+        public void setProperty31(String property31) {
+            this.property31 = property31;
+        }
+
+        public int getProperty32() {
+            return property32;
+        }
+
+        public void setProperty32(int property32) {
+            this.property32 = property32;
+        }
+
+        public String getProperty33() {
+            return property33;
+        }
+
+        public void setProperty33(String property33) {
+            this.property33 = property33;
+        }
+
+        public int getProperty34() {
+            return property34;
+        }
+
+        public void setProperty34(int property34) {
+            this.property34 = property34;
+        }
+
+        public String getProperty35() {
+            return property35;
+        }
+
+        public void setProperty35(String property35) {
+            this.property35 = property35;
+        }
+
+        public int getProperty36() {
+            return property36;
+        }
+
+        public void setProperty36(int property36) {
+            this.property36 = property36;
+        }
+
+        public String getProperty37() {
+            return property37;
+        }
+
+        public void setProperty37(String property37) {
+            this.property37 = property37;
+        }
+
+        public int getProperty38() {
+            return property38;
+        }
+
+        public void setProperty38(int property38) {
+            this.property38 = property38;
+        }
+
+        public String getProperty39() {
+            return property39;
+        }
+
+        public void setProperty39(String property39) {
+            this.property39 = property39;
+        }
+
+        public int getProperty40() {
+            return property40;
+        }
+
+        public void setProperty40(int property40) {
+            this.property40 = property40;
+        }
+
+        public String getProperty41() {
+            return property41;
+        }
+
+        public void setProperty41(String property41) {
+            this.property41 = property41;
+        }
+
+        public int getProperty42() {
+            return property42;
+        }
+
+        public void setProperty42(int property42) {
+            this.property42 = property42;
+        }
+
+        public String getProperty43() {
+            return property43;
+        }
+
+        public void setProperty43(String property43) {
+            this.property43 = property43;
+        }
+
+        public int getProperty44() {
+            return property44;
+        }
+
+        public void setProperty44(int property44) {
+            this.property44 = property44;
+        }
+
+        public String getProperty45() {
+            return property45;
+        }
+
+        public void setProperty45(String property45) {
+            this.property45 = property45;
+        }
+
+        public int getProperty46() {
+            return property46;
+        }
+
+        public void setProperty46(int property46) {
+            this.property46 = property46;
+        }
+
+        public String getProperty47() {
+            return property47;
+        }
+
+        public void setProperty47(String property47) {
+            this.property47 = property47;
+        }
+
+        public int getProperty48() {
+            return property48;
+        }
+
+        public void setProperty48(int property48) {
+            this.property48 = property48;
+        }
+
+        public String getProperty49() {
+            return property49;
+        }
+
+        public void setProperty49(String property49) {
+            this.property49 = property49;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.benchmark;
+
+import com.huaweicloud.sdk.iot.device.client.ClientConf;
+import com.huaweicloud.sdk.iot.device.client.DeviceClient;
+import com.huaweicloud.sdk.iot.device.client.TopicRouter;
+import com.huaweicloud.sdk.iot.device.client.handler.MessageReceivedHandler;
+import com.huaweicloud.sdk.iot.device.utils.IotUtil;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 下行topic分发：字典树路由器与原有的functionMap线性contains扫描对比。
+ * handler表与网桥场景一致（DeviceClient的8个关键字加BridgeClient的8个关键字），topic按网桥的典型下行比例混合。
+ * 两种方式都包含handler取用的设备id和请求id：原方式由handler用IotUtil再次解析topic，路由器方式直接从路由结果截取。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TopicRouterBenchmark {
+
+    private static final String[] BRIDGE_KEYS = {
+        "/messages/down", "/sys/commands/request_id", "/sys/login/response/request_id",
+        "/sys/logout/response/request_id", "/sys/reset_secret/response/request_id", "/sys/disconnect",
+        "/sys/properties/set/request_id", "/sys/properties/get/request_id"
+    };
+
+    private static final String[] TOPICS = {
+        "$oc/bridges/bridge_01/devices/product_node_000123/sys/properties/set/request_id=6d1d7c4a-2b1f-4d71",
+        "$oc/bridges/bridge_01/devices/product_node_004711/sys/commands/request_id=9a7b3f10-00c2-4e55",
+        "$oc/bridges/bridge_01/devices/product_node_010001/sys/messages/down",
+        "$oc/bridges/bridge_01/devices/product_node_020002/sys/login/response/request_id=1f2e3d4c-5b6a",
+        "$oc/bridges/bridge_01/devices/product_node_030003/sys/properties/get/request_id=77aa88bb-99cc",
+        "$oc/bridges/bridge_01/devices/product_node_040004/sys/disconnect",
+        "$oc/devices/bridge_01/sys/events/down",
+        "$oc/devices/bridge_01/sys/shadow/get/response/request_id=0c0c0c0c-1d1d",
+        "$oc/bridges/bridge_01/devices/product_node_050005/sys/logout/response/request_id=abcdef01",
+        "$oc/devices/bridge_01/user/custom_topic"
+    };
+
+    private Map<String, MessageReceivedHandler> functionMap;
+
+    private TopicRouter router;
+
+    private int index;
+
+    @Setup
+    public void setUp() {
+        ClientConf clientConf = new ClientConf();
+        clientConf.setDeviceId("bridge_01");
+        clientConf.setSecret("secret");
+        clientConf.setServerUri("tcp://localhost:1883");
+        DeviceClient client = new DeviceClient(clientConf, null);
+        for (String key : BRIDGE_KEYS) {
+            client.putMessageHandler(key, message -> { });
+        }
+        functionMap = client.getFunctionMap();
+        router = client.getTopicRouter();
+    }
+
+    private String nextTopic() {
+        index = (index + 1) % TOPICS.length;
+        return TOPICS[index];
+    }
+
+    /**
+     * 原DeviceClient.onMessageReceived中的分发方式，加上handler中用IotUtil解析设备id和请求id
+     */
+    @Benchmark
+    public void legacyContainsScan(Blackhole blackhole) {
+        String topic = nextTopic();
+        for (Map.Entry<String, MessageReceivedHandler> next : functionMap.entrySet()) {
+            if (topic.contains(next.getKey())) {
+                blackhole.consume(functionMap.get(next.getKey()));
+                break;
+            }
+        }
+        blackhole.consume(IotUtil.getDeviceId(topic));
+        blackhole.consume(IotUtil.getRequestId(topic));
+    }
+
+    @Benchmark
+    public void topicRouter(Blackhole blackhole) {
+        TopicRouter.Route route = router.route(nextTopic());
+        blackhole.consume(route.getHandler());
+        blackhole.consume(route.getDeviceId());
+        blackhole.consume(route.getRequestId());
+    }
+}
@@ -32,6 +32,8 @@ package com.huaweicloud.sdk.iot.device.client;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.huaweicloud.sdk.iot.device.constants.Constants;
+import com.huaweicloud.sdk.iot.device.metrics.MetricRegistry;
+import com.huaweicloud.sdk.iot.device.transport.ConnectionFactory;
 
 import java.io.File;
 import java.security.KeyStore;
@@ -106,6 +108,23 @@ public class ClientConf implements Cloneable {
      */
     private int checkStamp = Constants.CHECK_STAMP_SHA256_OFF;
 
+    /**
+     * mqtt传输实现，默认使用paho
+     */
+    private int transport = Constants.TRANSPORT_PAHO;
+
+    /**
+     * 自定义连接工厂，设置后忽略transport
+     */
+    @JsonIgnore
+    private ConnectionFactory connectionFactory;
+
+    /**
+     * 指标注册表，为空时不记录指标
+     */
+    @JsonIgnore
+    private MetricRegistry metricRegistry;
+
     public File getFile() {
         return file;
     }
@@ -264,4 +283,47 @@ public class ClientConf implements Cloneable {
     public int getCheckStamp() {
         return checkStamp;
     }
+
+    /**
+     * 设置mqtt传输实现。单个JVM中承载大量设备时可以使用Constants.TRANSPORT_NETTY，
+     * 所有连接共用少量的netty线程，需要引入netty-codec-mqtt依赖。
+     * 使用Constants.TRANSPORT_NETTY_MQTT5时以mqtt5协议建链，上行topic使用主题别名以减少每条消息的字节数
+     *
+     * @param transport 传输实现，取值为Constants.TRANSPORT_PAHO、TRANSPORT_NETTY或TRANSPORT_NETTY_MQTT5
+     */
+    public void setTransport(int transport) {
+        this.transport = transport;
+    }
+
+    public int getTransport() {
+        return transport;
+    }
+
+    /**
+     * 设置自定义连接工厂，用于接入其他传输实现，例如进程内的LoopbackBroker。设置后忽略transport，
+     * 服务端地址也不再要求以tcp://或ssl://开头
+     *
+     * @param connectionFactory 连接工厂
+     */
+    public void setConnectionFactory(ConnectionFactory connectionFactory) {
+        this.connectionFactory = connectionFactory;
+    }
+
+    public ConnectionFactory getConnectionFactory() {
+        return connectionFactory;
+    }
+
+    /**
+     * 设置指标注册表，设置后记录发布时延、在途消息数、离线缓存深度、下行分发队列长度和重连情况，
+     * 多个设备可以共用一个注册表
+     *
+     * @param metricRegistry 指标注册表
+     */
+    public void setMetricRegistry(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+    }
+
+    public MetricRegistry getMetricRegistry() {
+        return metricRegistry;
+    }
 }
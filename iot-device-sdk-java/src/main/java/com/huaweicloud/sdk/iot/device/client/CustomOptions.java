@@ -2,8 +2,11 @@ package com.huaweicloud.sdk.iot.device.client;
 
 import com.huaweicloud.sdk.iot.device.client.handler.CustomBackoffHandler;
 import com.huaweicloud.sdk.iot.device.transport.ConnectListener;
+import com.huaweicloud.sdk.iot.device.transport.spool.OfflineMessageSpool;
 import com.huaweicloud.sdk.iot.device.utils.IotUtil;
 
+import java.util.concurrent.ScheduledExecutorService;
+
 /**
  * 自定义连接选项
  */
@@ -45,6 +48,86 @@ public class CustomOptions {
      */
     private ConnectListener connectListener;
 
+    /**
+     * 下行消息处理线程数，默认为1。消息按topic中的设备id分配到固定线程，同一设备的消息按顺序处理，不同设备的消息并行处理
+     */
+    private int dispatchThreadCount = 1;
+
+    /**
+     * 每个下行消息处理线程的队列长度，默认不限制。队列满时阻塞mqtt接收线程，
+     * 因此设置为有界时，消息处理中不能同步等待平台的下行响应，否则可能死锁
+     */
+    private int dispatchQueueSize = Integer.MAX_VALUE;
+
+    /**
+     * 共用的下行消息分发器，默认为null即每个客户端按dispatchThreadCount和dispatchQueueSize创建自己的分发器。
+     * 设置后使用此分发器，客户端关闭时不会关闭它，由创建方负责关闭，分发队列长度指标也由创建方自行注册
+     */
+    private MessageDispatcher dispatcher;
+
+    /**
+     * 共用的客户端任务线程池，默认为null即每个客户端建链时创建自己的单线程线程池，用于属性批量上报等客户端任务。
+     * 设置后使用此线程池，客户端关闭时不会关闭它，由创建方负责关闭
+     */
+    private ScheduledExecutorService executorService;
+
+    /**
+     * 属性批量上报的等待时间，单位毫秒，默认为0即不合并。大于0时，此时间内的属性上报（包括网关的子设备属性上报）合并为一条消息发布
+     */
+    private long reportLingerTime = 0;
+
+    /**
+     * 属性批量上报单条消息体的大小上限，单位字节，默认64KB。累积达到此大小时不再等待，立即发布
+     */
+    private int reportBatchMaxBytes = 64 * 1024;
+
+    /**
+     * 属性批量上报时是否合并同一服务的属性，默认为false。为true时同一设备同一服务的每个属性只上报等待时间内的最新值
+     */
+    private boolean reportCoalesce = false;
+
+    /**
+     * 离线消息磁盘缓存目录，默认为null即使用内存缓存（offlineBufferSize）。设置后断线期间的消息写入此目录下以设备id命名的子目录，
+     * 进程重启后仍会补发
+     */
+    private String offlineSpoolDir;
+
+    /**
+     * 离线消息磁盘缓存的配额，单位字节，默认64MB
+     */
+    private long offlineSpoolQuota = 64L * 1024 * 1024;
+
+    /**
+     * 离线消息磁盘缓存的分段文件大小，单位字节，默认4MB
+     */
+    private int offlineSpoolSegmentSize = 4 * 1024 * 1024;
+
+    /**
+     * 离线消息磁盘缓存配额用完时的丢弃策略，取值见OfflineMessageSpool，默认丢弃最早的消息
+     */
+    private int offlineSpoolDropPolicy = OfflineMessageSpool.DROP_OLDEST;
+
+    /**
+     * 重连后补发离线消息的速率，单位条/秒，默认100
+     */
+    private int offlineReplayRate = 100;
+
+    /**
+     * 压缩上报的大小阈值，单位字节，默认为0即总是压缩。消息体小于此大小时不压缩，改用对应的非压缩topic上报
+     */
+    private int compressThreshold = 0;
+
+    /**
+     * 压缩上报的最大压缩比（压缩后大小/原始大小），默认为1.0。压缩效果达不到此比例时不压缩，改用对应的非压缩topic上报
+     */
+    private double compressMaxRatio = 1.0;
+
+    /**
+     * mqtt5会话过期时间，单位秒，默认为0即断线后立即清除会话。大于0时在此时间内重连可恢复会话，不需要重新订阅，
+     * 只对Constants.TRANSPORT_NETTY_MQTT5生效
+     */
+    private long sessionExpiryInterval = 0;
+
     public long getBackoff() {
         return backoff;
     }
@@ -108,4 +191,124 @@ public class CustomOptions {
     public void setConnectListener(ConnectListener connectListener) {
         this.connectListener = connectListener;
     }
+
+    public int getDispatchThreadCount() {
+        return dispatchThreadCount;
+    }
+
+    public void setDispatchThreadCount(int dispatchThreadCount) {
+        this.dispatchThreadCount = dispatchThreadCount;
+    }
+
+    public int getDispatchQueueSize() {
+        return dispatchQueueSize;
+    }
+
+    public void setDispatchQueueSize(int dispatchQueueSize) {
+        this.dispatchQueueSize = dispatchQueueSize;
+    }
+
+    public MessageDispatcher getDispatcher() {
+        return dispatcher;
+    }
+
+    public void setDispatcher(MessageDispatcher dispatcher) {
+        this.dispatcher = dispatcher;
+    }
+
+    public ScheduledExecutorService getExecutorService() {
+        return executorService;
+    }
+
+    public void setExecutorService(ScheduledExecutorService executorService) {
+        this.executorService = executorService;
+    }
+
+    public long getReportLingerTime() {
+        return reportLingerTime;
+    }
+
+    public void setReportLingerTime(long reportLingerTime) {
+        this.reportLingerTime = reportLingerTime;
+    }
+
+    public int getReportBatchMaxBytes() {
+        return reportBatchMaxBytes;
+    }
+
+    public void setReportBatchMaxBytes(int reportBatchMaxBytes) {
+        this.reportBatchMaxBytes = reportBatchMaxBytes;
+    }
+
+    public boolean isReportCoalesce() {
+        return reportCoalesce;
+    }
+
+    public void setReportCoalesce(boolean reportCoalesce) {
+        this.reportCoalesce = reportCoalesce;
+    }
+
+    public String getOfflineSpoolDir() {
+        return offlineSpoolDir;
+    }
+
+    public void setOfflineSpoolDir(String offlineSpoolDir) {
+        this.offlineSpoolDir = offlineSpoolDir;
+    }
+
+    public long getOfflineSpoolQuota() {
+        return offlineSpoolQuota;
+    }
+
+    public void setOfflineSpoolQuota(long offlineSpoolQuota) {
+        this.offlineSpoolQuota = offlineSpoolQuota;
+    }
+
+    public int getOfflineSpoolSegmentSize() {
+        return offlineSpoolSegmentSize;
+    }
+
+    public void setOfflineSpoolSegmentSize(int offlineSpoolSegmentSize) {
+        this.offlineSpoolSegmentSize = offlineSpoolSegmentSize;
+    }
+
+    public int getOfflineSpoolDropPolicy() {
+        return offlineSpoolDropPolicy;
+    }
+
+    public void setOfflineSpoolDropPolicy(int offlineSpoolDropPolicy) {
+        this.offlineSpoolDropPolicy = offlineSpoolDropPolicy;
+    }
+
+    public int getOfflineReplayRate() {
+        return offlineReplayRate;
+    }
+
+    public void setOfflineReplayRate(int offlineReplayRate) {
+        this.offlineReplayRate = offlineReplayRate;
+    }
+
+    public int getCompressThreshold() {
+        return compressThreshold;
+    }
+
+    public void setCompressThreshold(int compressThreshold) {
+        this.compressThreshold = compressThreshold;
+    }
+
+    public double getCompressMaxRatio() {
+        return compressMaxRatio;
+    }
+
+    public void setCompressMaxRatio(double compressMaxRatio) {
+        this.compressMaxRatio = compressMaxRatio;
+    }
+
+    public long getSessionExpiryInterval() {
+        return sessionExpiryInterval;
+    }
+
+    public void setSessionExpiryInterval(long sessionExpiryInterval) {
+        this.sessionExpiryInterval = sessionExpiryInterval;
+    }
 }
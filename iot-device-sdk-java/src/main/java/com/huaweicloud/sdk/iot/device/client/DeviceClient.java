@@ -55,8 +55,12 @@ import com.huaweicloud.sdk.iot.device.client.requests.DeviceProperties;
 import com.huaweicloud.sdk.iot.device.client.requests.DevicePropertiesV3;
 import com.huaweicloud.sdk.iot.device.client.requests.ServiceProperty;
 import com.huaweicloud.sdk.iot.device.client.requests.ShadowRequest;
+import com.huaweicloud.sdk.iot.device.constants.Constants;
 import com.huaweicloud.sdk.iot.device.devicerule.ActionHandler;
 import com.huaweicloud.sdk.iot.device.gateway.requests.DeviceProperty;
+import com.huaweicloud.sdk.iot.device.metrics.ClientMetrics;
+import com.huaweicloud.sdk.iot.device.metrics.Gauge;
+import com.huaweicloud.sdk.iot.device.metrics.MetricRegistry;
 import com.huaweicloud.sdk.iot.device.service.AbstractDevice;
 import com.huaweicloud.sdk.iot.device.transport.ActionListener;
 import com.huaweicloud.sdk.iot.device.transport.ConnectActionListener;
@@ -64,20 +68,27 @@ import com.huaweicloud.sdk.iot.device.transport.ConnectListener;
 import com.huaweicloud.sdk.iot.device.transport.Connection;
 import com.huaweicloud.sdk.iot.device.transport.RawMessage;
 import com.huaweicloud.sdk.iot.device.transport.RawMessageListener;
+import com.huaweicloud.sdk.iot.device.transport.Reconnector;
 import com.huaweicloud.sdk.iot.device.transport.mqtt.MqttConnection;
+import com.huaweicloud.sdk.iot.device.transport.mqtt.NettyMqttConnection;
 import com.huaweicloud.sdk.iot.device.utils.ExceptionUtil;
+import com.huaweicloud.sdk.iot.device.utils.GzipCompressor;
 import com.huaweicloud.sdk.iot.device.utils.IotUtil;
 import com.huaweicloud.sdk.iot.device.utils.JsonUtil;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -97,7 +108,7 @@ public class DeviceClient implements RawMessageListener {
 
     private static final int CLIENT_THREAD_COUNT = 1;
 
-    private static final String DEFAULT_GZIP_ENCODING = "UTF-8";
+    private static final String GZIP_ENCODING_SUFFIX = "?encoding=gzip";
 
     private static final String SDK_VERSION = "JAVA_v1.2.2";
 
@@ -149,10 +160,54 @@ public class DeviceClient implements RawMessageListener {
 
     private ScheduledExecutorService executorService;
 
-    Map<String, MessageReceivedHandler> functionMap = new HashMap<>();
+    private boolean ownExecutorService;
+
+    private MessageDispatcher dispatcher;
+
+    private boolean ownDispatcher;
+
+    private Gauge dispatchQueueGauge;
+
+    private PropertyReportBatcher propertyBatcher;
+
+    private Reconnector reconnector;
+
+    private PropertyReportBatcher subDevicePropertyBatcher;
+
+    private volatile Map<String, MessageReceivedHandler> functionMap = new HashMap<>();
+
+    private volatile TopicRouter topicRouter;
+
+    private final Map<String, MessageReceivedHandler> functionMapView = new FunctionMapView();
 
     private CustomOptions customOptions = new CustomOptions();
 
+    private String messageUpTopic;
+
+    private String compressedMessageUpTopic;
+
+    private String propertiesReportTopic;
+
+    private String compressedPropertiesReportTopic;
+
+    private String subDevicePropertiesReportTopic;
+
+    private String compressedSubDevicePropertiesReportTopic;
+
+    private String eventUpTopic;
+
+    private String shadowGetTopicPrefix;
+
+    private String commandResponseTopicPrefix;
+
+    private String propsGetResponseTopicPrefix;
+
+    private String propsSetResponseTopicPrefix;
+
+    private String v3DataJsonTopic;
+
+    private String v3DataBinaryTopic;
+
     public DeviceClient() {
     }
 
@@ -162,9 +217,10 @@ public class DeviceClient implements RawMessageListener {
         this.clientConf = clientConf;
         this.deviceId = clientConf.getDeviceId();
         this.requestManager = new RequestManager(this);
-        this.connection = new MqttConnection(clientConf, this);
+        this.connection = createConnection(clientConf);
         this.device = device;
         this.rawMessageListenerMap = new ConcurrentHashMap<>();
+        initTopics(deviceId);
 
         functionMap.put(MESSAGE_DOWN_TOPIC, new MessageHandler(this));
         functionMap.put(COMMAND_DOWN_TOPIC, new CommandHandler(this));
@@ -174,6 +230,40 @@ public class DeviceClient implements RawMessageListener {
         functionMap.put(EVENT_DOWN_TOPIC, new EventDownHandler(this));
         functionMap.put(COMMAND_DOWN_TOPIC_OF_V3, new CommandV3Handler(this));
         functionMap.put(SHADOW_GET_RESPONSE_TOPIC, new ShadowHandler(this));
+        topicRouter = TopicRouter.compile(functionMap);
+    }
+
+    private Connection createConnection(ClientConf clientConf) {
+        if (clientConf.getConnectionFactory() != null) {
+            return clientConf.getConnectionFactory().createConnection(clientConf, this);
+        }
+        if (clientConf.getTransport() == Constants.TRANSPORT_NETTY
+            || clientConf.getTransport() == Constants.TRANSPORT_NETTY_MQTT5) {
+            return new NettyMqttConnection(clientConf, this);
+        }
+        return new MqttConnection(clientConf, this);
+    }
+
+    /**
+     * 上行topic只和设备id相关，构造时一次性生成，避免每次上报都拼接字符串
+     *
+     * @param deviceId 设备id
+     */
+    private void initTopics(String deviceId) {
+        String sysTopicPrefix = "$oc/devices/" + deviceId + "/sys/";
+        messageUpTopic = sysTopicPrefix + "messages/up";
+        compressedMessageUpTopic = messageUpTopic + GZIP_ENCODING_SUFFIX;
+        propertiesReportTopic = sysTopicPrefix + "properties/report";
+        compressedPropertiesReportTopic = propertiesReportTopic + GZIP_ENCODING_SUFFIX;
+        subDevicePropertiesReportTopic = sysTopicPrefix + "gateway/sub_devices/properties/report";
+        compressedSubDevicePropertiesReportTopic = subDevicePropertiesReportTopic + GZIP_ENCODING_SUFFIX;
+        eventUpTopic = sysTopicPrefix + "events/up";
+        shadowGetTopicPrefix = sysTopicPrefix + "shadow/get/request_id=";
+        commandResponseTopicPrefix = sysTopicPrefix + "commands/response/request_id=";
+        propsGetResponseTopicPrefix = sysTopicPrefix + "properties/get/response/request_id=";
+        propsSetResponseTopicPrefix = sysTopicPrefix + "properties/set/response/request_id=";
+        v3DataJsonTopic = "/huawei/v1/devices/" + deviceId + "/data/json";
+        v3DataBinaryTopic = "/huawei/v1/devices/" + deviceId + "/data/binary";
     }
 
     public ClientConf getClientConf() {
@@ -193,7 +283,8 @@ public class DeviceClient implements RawMessageListener {
         if (clientConf.getServerUri() == null) {
             throw new IllegalArgumentException("clientConf.getServerUri() is null");
         }
-        if (!clientConf.getServerUri().startsWith("tcp://") && (!clientConf.getServerUri().startsWith("ssl://"))) {
+        if (clientConf.getConnectionFactory() == null && !clientConf.getServerUri().startsWith("tcp://")
+            && (!clientConf.getServerUri().startsWith("ssl://"))) {
             throw new IllegalArgumentException("invalid serverUri");
         }
     }
@@ -204,13 +295,7 @@ public class DeviceClient implements RawMessageListener {
      * @return 0表示连接成功，其他表示连接失败
      */
     public int connect() {
-
-        synchronized (this) {
-            if (executorService == null) {
-                executorService = Executors.newScheduledThreadPool(CLIENT_THREAD_COUNT);
-            }
-        }
-
+        prepareConnect();
         int ret = connection.connect();
 
         // 如果是userName或password填写错误，则不重连
@@ -227,6 +312,72 @@ public class DeviceClient implements RawMessageListener {
         return ret;
     }
 
+    /**
+     * 和平台异步建立连接，不阻塞调用线程。首次连接失败时由共享的重连线程按退避时间重连，
+     * 大量设备同时连接时不会为每个设备占用一个线程
+     *
+     * @return 连接结果，0表示连接成功，其他表示连接失败
+     */
+    public CompletableFuture<Integer> connectAsync() {
+        prepareConnect();
+        return connection.connectAsync().thenCompose(ret -> {
+            // 如果是userName或password填写错误，则不重连
+            if (ret == MQTT_CONNECT_SUCCESS || ret == MQTTEXCEPTION_OF_BAD_USERNAME_OR_PWD) {
+                return CompletableFuture.completedFuture(ret);
+            }
+            return reconnector.reconnect();
+        }).thenApply(ret -> {
+            if (ret == MQTT_CONNECT_SUCCESS) {
+                reportDeviceInfo(null, null, null);
+            }
+            return ret;
+        });
+    }
+
+    private void prepareConnect() {
+        synchronized (this) {
+            if (reconnector == null) {
+                // 复用连接自带的重连器，避免断线自动重连与首次连接的重连同时对同一连接发起重试
+                reconnector = connection.getReconnector();
+            }
+            if (reconnector == null) {
+                reconnector = new Reconnector(connection, customOptions);
+            }
+            if (executorService == null && customOptions.getExecutorService() != null) {
+                executorService = customOptions.getExecutorService();
+            }
+            if (executorService == null) {
+                executorService = Executors.newScheduledThreadPool(CLIENT_THREAD_COUNT);
+                ownExecutorService = true;
+            }
+            if (dispatcher == null && customOptions.getDispatcher() != null) {
+                dispatcher = customOptions.getDispatcher();
+            }
+            if (dispatcher == null) {
+                dispatcher = new MessageDispatcher(customOptions.getDispatchThreadCount(),
+                    customOptions.getDispatchQueueSize());
+                ownDispatcher = true;
+                registerDispatchQueueGauge();
+            }
+            if (propertyBatcher == null && customOptions.getReportLingerTime() > 0) {
+                propertyBatcher = new PropertyReportBatcher(this, executorService, propertiesReportTopic, false,
+                    customOptions.getReportLingerTime(), customOptions.getReportBatchMaxBytes(),
+                    customOptions.isReportCoalesce());
+                subDevicePropertyBatcher = new PropertyReportBatcher(this, executorService,
+                    subDevicePropertiesReportTopic, true, customOptions.getReportLingerTime(),
+                    customOptions.getReportBatchMaxBytes(), customOptions.isReportCoalesce());
+            }
+        }
+    }
+
+    private void registerDispatchQueueGauge() {
+        MetricRegistry registry = clientConf.getMetricRegistry();
+        if (registry != null) {
+            dispatchQueueGauge = dispatcher::getQueueLength;
+            registry.registerGauge(ClientMetrics.DISPATCH_QUEUE_LENGTH, dispatchQueueGauge);
+        }
+    }
+
     /**
      * 上报设备消息
      * 如果需要上报子设备消息，需要调用DeviceMessage的setDeviceId接口设置为子设备的设备id
@@ -235,8 +386,7 @@ public class DeviceClient implements RawMessageListener {
      * @param listener      监听器，用于接收上报结果
      */
     public void reportDeviceMessage(DeviceMessage deviceMessage, ActionListener listener) {
-        String topic = "$oc/devices/" + this.deviceId + "/sys/messages/up";
-        this.publishRawMessage(new RawMessage(topic, JsonUtil.convertObject2String(deviceMessage)), listener);
+        this.publishRawMessage(new RawMessage(messageUpTopic, JsonUtil.convertObject2Bytes(deviceMessage)), listener);
     }
 
     /**
@@ -246,9 +396,8 @@ public class DeviceClient implements RawMessageListener {
      * @param listener      监听器，用于接收上报结果
      */
     public void reportCompressedDeviceMessage(DeviceMessage deviceMessage, ActionListener listener) {
-        String topic = "$oc/devices/" + this.deviceId + "/sys/messages/up?encoding=gzip";
-        byte[] compress = IotUtil.compress(JsonUtil.convertObject2String(deviceMessage), DEFAULT_GZIP_ENCODING);
-        this.publishRawMessage(new RawMessage(topic, compress), listener);
+        this.publishRawMessage(newCompressedMessage(deviceMessage, compressedMessageUpTopic, messageUpTopic),
+            listener);
     }
 
     /**
@@ -259,11 +408,11 @@ public class DeviceClient implements RawMessageListener {
      * @param qos           消息qos，0或1
      */
     public void reportDeviceMessage(DeviceMessage deviceMessage, ActionListener listener, int qos) {
-        String topic = "$oc/devices/" + this.deviceId + "/sys/messages/up";
         if (qos != 0) {
             qos = 1;
         }
-        this.publishRawMessage(new RawMessage(topic, JsonUtil.convertObject2String(deviceMessage), qos), listener);
+        this.publishRawMessage(new RawMessage(messageUpTopic, JsonUtil.convertObject2Bytes(deviceMessage), qos),
+            listener);
     }
 
     /**
@@ -297,13 +446,18 @@ public class DeviceClient implements RawMessageListener {
      */
     public void reportProperties(List<ServiceProperty> properties, ActionListener listener) {
 
-        String topic = "$oc/devices/" + this.deviceId + "/sys/properties/report";
-        ObjectNode jsonObject = JsonUtil.createObjectNode();
-        jsonObject.putPOJO("services", properties);
-
         // 端测规则处理
         device.getDeviceRuleService().handleRule(properties);
-        RawMessage rawMessage = new RawMessage(topic, JsonUtil.convertObject2String(jsonObject));
+
+        // 开启批量上报时先累积，由合并器统一发布
+        if (propertyBatcher != null) {
+            propertyBatcher.addServices(properties, listener);
+            return;
+        }
+
+        DeviceProperties deviceProperties = new DeviceProperties();
+        deviceProperties.setServices(properties);
+        RawMessage rawMessage = new RawMessage(propertiesReportTopic, JsonUtil.convertObject2Bytes(deviceProperties));
         connection.publishMessage(rawMessage, listener);
 
     }
@@ -315,11 +469,11 @@ public class DeviceClient implements RawMessageListener {
      * @param listener      发布监听器
      */
     public void getShadow(ShadowRequest shadowRequest, ActionListener listener) {
-        String topic = "$oc/devices/" + this.deviceId + "/sys/shadow/get/request_id=" + UUID.randomUUID().toString();
+        String topic = shadowGetTopicPrefix + UUID.randomUUID().toString();
         ObjectNode jsonObject = JsonUtil.createObjectNode();
         jsonObject.put("object_device_id", shadowRequest.getDeviceId());
         jsonObject.put("service_id", shadowRequest.getServiceId());
-        RawMessage rawMessage = new RawMessage(topic, JsonUtil.convertObject2String(jsonObject));
+        RawMessage rawMessage = new RawMessage(topic, JsonUtil.convertObject2Bytes(jsonObject));
         connection.publishMessage(rawMessage, listener);
     }
 
@@ -331,12 +485,11 @@ public class DeviceClient implements RawMessageListener {
      */
     public void reportCompressedProperties(List<ServiceProperty> properties, ActionListener listener) {
 
-        String topic = "$oc/devices/" + this.deviceId + "/sys/properties/report?encoding=gzip";
-        ObjectNode jsonObject = JsonUtil.createObjectNode();
-        jsonObject.putPOJO("services", properties);
+        DeviceProperties deviceProperties = new DeviceProperties();
+        deviceProperties.setServices(properties);
 
-        byte[] compress = IotUtil.compress(JsonUtil.convertObject2String(jsonObject), DEFAULT_GZIP_ENCODING);
-        connection.publishMessage(new RawMessage(topic, compress), listener);
+        connection.publishMessage(
+            newCompressedMessage(deviceProperties, compressedPropertiesReportTopic, propertiesReportTopic), listener);
 
     }
 
@@ -347,9 +500,7 @@ public class DeviceClient implements RawMessageListener {
      * @param listener           发布监听器
      */
     public void reportPropertiesV3(DevicePropertiesV3 devicePropertiesV3, ActionListener listener) {
-        String topic = "/huawei/v1/devices/" + this.deviceId + "/data/json";
-
-        RawMessage rawMessage = new RawMessage(topic, devicePropertiesV3.toString());
+        RawMessage rawMessage = new RawMessage(v3DataJsonTopic, devicePropertiesV3.toString());
         connection.publishMessage(rawMessage, listener);
     }
 
@@ -361,10 +512,7 @@ public class DeviceClient implements RawMessageListener {
      */
     public void reportBinaryV3(Byte[] bytes, ActionListener listener) {
 
-        String deviceIdTmp = clientConf.getDeviceId();
-        String topic = "/huawei/v1/devices/" + deviceIdTmp + "/data/binary";
-
-        RawMessage rawMessage = new RawMessage(topic, Arrays.toString(bytes));
+        RawMessage rawMessage = new RawMessage(v3DataBinaryTopic, Arrays.toString(bytes));
         connection.publishMessage(rawMessage, listener);
     }
 
@@ -376,8 +524,7 @@ public class DeviceClient implements RawMessageListener {
      */
     public void responseCommandV3(CommandRspV3 commandRspV3, ActionListener listener) {
 
-        String topic = "/huawei/v1/devices/" + deviceId + "/data/json";
-        RawMessage rawMessage = new RawMessage(topic, JsonUtil.convertObject2String(commandRspV3));
+        RawMessage rawMessage = new RawMessage(v3DataJsonTopic, JsonUtil.convertObject2Bytes(commandRspV3));
         connection.publishMessage(rawMessage, listener);
     }
 
@@ -389,8 +536,7 @@ public class DeviceClient implements RawMessageListener {
      */
     public void responseCommandBinaryV3(Byte[] bytes, ActionListener listener) {
 
-        String topic = "/huawei/v1/devices/" + deviceId + "/data/binary";
-        RawMessage rawMessage = new RawMessage(topic, Arrays.toString(bytes));
+        RawMessage rawMessage = new RawMessage(v3DataBinaryTopic, Arrays.toString(bytes));
         connection.publishMessage(rawMessage, listener);
     }
 
@@ -403,11 +549,13 @@ public class DeviceClient implements RawMessageListener {
     public void reportSubDeviceProperties(List<DeviceProperty> deviceProperties,
         ActionListener listener) {
 
-        ObjectNode node = JsonUtil.createObjectNode();
-        node.putPOJO("devices", deviceProperties);
+        if (subDevicePropertyBatcher != null) {
+            subDevicePropertyBatcher.addDevices(deviceProperties, listener);
+            return;
+        }
 
-        String topic = "$oc/devices/" + getDeviceId() + "/sys/gateway/sub_devices/properties/report";
-        RawMessage rawMessage = new RawMessage(topic, node.toString());
+        Map<String, List<DeviceProperty>> devices = Collections.singletonMap("devices", deviceProperties);
+        RawMessage rawMessage = new RawMessage(subDevicePropertiesReportTopic, JsonUtil.convertObject2Bytes(devices));
         publishRawMessage(rawMessage, listener);
 
     }
@@ -421,14 +569,35 @@ public class DeviceClient implements RawMessageListener {
     public void reportCompressedSubDeviceProperties(List<DeviceProperty> deviceProperties,
         ActionListener listener) {
 
-        ObjectNode node = JsonUtil.createObjectNode();
-        node.putPOJO("devices", deviceProperties);
-
-        String topic = "$oc/devices/" + getDeviceId() + "/sys/gateway/sub_devices/properties/report?encoding=gzip";
+        Map<String, List<DeviceProperty>> devices = Collections.singletonMap("devices", deviceProperties);
+        publishRawMessage(newCompressedMessage(devices, compressedSubDevicePropertiesReportTopic,
+            subDevicePropertiesReportTopic), listener);
 
-        byte[] compress = IotUtil.compress(node.toString(), DEFAULT_GZIP_ENCODING);
-        publishRawMessage(new RawMessage(topic, compress), listener);
+    }
 
+    /**
+     * 序列化并压缩消息体。消息体小于compressThreshold或压缩比达不到compressMaxRatio时不压缩，改用非压缩topic，
+     * 平台收到的内容相同
+     *
+     * @param payload         消息体
+     * @param compressedTopic 压缩上报topic
+     * @param plainTopic      对应的非压缩topic
+     * @return 待发布的消息
+     */
+    private RawMessage newCompressedMessage(Object payload, String compressedTopic, String plainTopic) {
+        byte[] json = JsonUtil.convertObject2Bytes(payload);
+        if (json == null) {
+            json = new byte[0];
+        }
+        if (json.length < customOptions.getCompressThreshold()) {
+            return new RawMessage(plainTopic, json);
+        }
+        byte[] compressed = GzipCompressor.compress(json);
+        if (compressed.length > json.length * customOptions.getCompressMaxRatio()) {
+            log.debug("compression is not worth it, size: {}, compressed size: {}", json.length, compressed.length);
+            return new RawMessage(plainTopic, json);
+        }
+        return new RawMessage(compressedTopic, compressed);
     }
 
     /**
@@ -456,43 +625,51 @@ public class DeviceClient implements RawMessageListener {
     @Override
     public void onMessageReceived(RawMessage message) {
 
-        if (executorService == null) {
-            log.error("executionService is null");
+        if (dispatcher == null) {
+            log.error("dispatcher is null");
             return;
         }
 
-        executorService.schedule(() -> {
+        // 在接收线程完成路由，按topic中的设备id选择处理通道，保证同一设备的消息顺序处理
+        String topic = message.getTopic();
+        TopicRouter.Route route = getTopicRouter().route(topic);
+        dispatcher.dispatch(route.getDeviceIdHash(), () -> {
             try {
-                String topic = message.getTopic();
-
                 RawMessageListener listener = rawMessageListenerMap.get(topic);
                 if (listener != null) {
                     listener.onMessageReceived(message);
                     return;
                 }
 
-                Set<Map.Entry<String, MessageReceivedHandler>> entries = functionMap.entrySet();
-                Iterator<Map.Entry<String, MessageReceivedHandler>> iterator = entries.iterator();
-                while (iterator.hasNext()) {
-                    Map.Entry<String, MessageReceivedHandler> next = iterator.next();
-                    if (topic.contains(next.getKey())) {
-                        functionMap.get(next.getKey()).messageHandler(message);
-                        break;
-                    }
+                MessageReceivedHandler handler = route.getHandler();
+                if (handler != null) {
+                    handler.messageHandler(message, route);
                 }
 
             } catch (Exception e) {
                 log.error(ExceptionUtil.getBriefStackTrace(e));
             }
-        }, 0, TimeUnit.MILLISECONDS);
+        });
 
     }
 
     public void close() {
+        if (reconnector != null) {
+            reconnector.cancel();
+        }
+        flushPropertyReports();
         connection.close();
-        if (null != executorService) {
+        if (null != executorService && ownExecutorService) {
             executorService.shutdown();
         }
+        // 共用的分发器由创建方关闭
+        if (null != dispatcher && ownDispatcher) {
+            dispatcher.shutdown();
+        }
+        if (dispatchQueueGauge != null) {
+            clientConf.getMetricRegistry().removeGauge(ClientMetrics.DISPATCH_QUEUE_LENGTH, dispatchQueueGauge);
+        }
+        requestManager.close();
     }
 
     /**
@@ -503,8 +680,8 @@ public class DeviceClient implements RawMessageListener {
      */
     public void respondCommand(String requestId, CommandRsp commandRsp) {
 
-        String topic = "$oc/devices/" + deviceId + "/sys/commands/response/request_id=" + requestId;
-        RawMessage rawMessage = new RawMessage(topic, JsonUtil.convertObject2String(commandRsp));
+        RawMessage rawMessage = new RawMessage(commandResponseTopicPrefix + requestId,
+            JsonUtil.convertObject2Bytes(commandRsp));
         connection.publishMessage(rawMessage, null);
     }
 
@@ -519,8 +696,8 @@ public class DeviceClient implements RawMessageListener {
         DeviceProperties deviceProperties = new DeviceProperties();
         deviceProperties.setServices(services);
 
-        String topic = "$oc/devices/" + deviceId + "/sys/properties/get/response/request_id=" + requestId;
-        RawMessage rawMessage = new RawMessage(topic, JsonUtil.convertObject2String(deviceProperties));
+        RawMessage rawMessage = new RawMessage(propsGetResponseTopicPrefix + requestId,
+            JsonUtil.convertObject2Bytes(deviceProperties));
         connection.publishMessage(rawMessage, null);
     }
 
@@ -532,8 +709,8 @@ public class DeviceClient implements RawMessageListener {
      */
     public void respondPropsSet(String requestId, IotResult iotResult) {
 
-        String topic = "$oc/devices/" + deviceId + "/sys/properties/set/response/request_id=" + requestId;
-        RawMessage rawMessage = new RawMessage(topic, JsonUtil.convertObject2String(iotResult));
+        RawMessage rawMessage = new RawMessage(propsSetResponseTopicPrefix + requestId,
+            JsonUtil.convertObject2Bytes(iotResult));
         connection.publishMessage(rawMessage, null);
     }
 
@@ -684,22 +861,77 @@ public class DeviceClient implements RawMessageListener {
     }
 
     /**
-     * 获取各类topic处理的handler
+     * 获取各类topic处理的handler。
+     * 返回的表是handler表的视图，对它的修改会写入handler表并重新编译路由，每次修改都要重新编译，
+     * 通过该表修改handler的方式已不推荐，请使用putMessageHandler、removeMessageHandler或setFunctionMap
      *
      * @return 各类topic处理的handler
      */
     public Map<String, MessageReceivedHandler> getFunctionMap() {
-        return functionMap;
+        return functionMapView;
     }
 
     /**
-     * 设置各类topic处理的handler
+     * 设置各类topic处理的handler，会复制传入的表并重新编译路由，之后对传入表的修改不再生效
      *
      * @param functionMap 各类topic处理的handler
      */
-    public void setFunctionMap(
+    public synchronized void setFunctionMap(
         Map<String, MessageReceivedHandler> functionMap) {
-        this.functionMap = functionMap;
+        Map<String, MessageReceivedHandler> copy = new LinkedHashMap<>(functionMap);
+        this.topicRouter = TopicRouter.compile(copy);
+        this.functionMap = copy;
+    }
+
+    /**
+     * 增加或替换某类topic的handler，并重新编译路由
+     *
+     * @param topicKeyword topic关键字
+     * @param handler      处理handler
+     * @return 被替换的handler，不存在时返回null
+     */
+    public synchronized MessageReceivedHandler putMessageHandler(String topicKeyword,
+        MessageReceivedHandler handler) {
+        // 写时复制，接收线程始终看到与handler表一致的路由器
+        Map<String, MessageReceivedHandler> copy = new LinkedHashMap<>(functionMap);
+        MessageReceivedHandler previous = copy.put(topicKeyword, handler);
+        this.topicRouter = TopicRouter.compile(copy);
+        this.functionMap = copy;
+        return previous;
+    }
+
+    /**
+     * 删除某类topic的handler，并重新编译路由
+     *
+     * @param topicKeyword topic关键字
+     * @return 被删除的handler，不存在时返回null
+     */
+    public synchronized MessageReceivedHandler removeMessageHandler(Object topicKeyword) {
+        if (!functionMap.containsKey(topicKeyword)) {
+            return null;
+        }
+        Map<String, MessageReceivedHandler> copy = new LinkedHashMap<>(functionMap);
+        MessageReceivedHandler previous = copy.remove(topicKeyword);
+        this.topicRouter = TopicRouter.compile(copy);
+        this.functionMap = copy;
+        return previous;
+    }
+
+    /**
+     * 获取根据handler表编译的topic路由器
+     *
+     * @return topic路由器
+     */
+    public TopicRouter getTopicRouter() {
+        TopicRouter router = topicRouter;
+        return router != null ? router : compileTopicRouter();
+    }
+
+    private synchronized TopicRouter compileTopicRouter() {
+        if (topicRouter == null) {
+            topicRouter = TopicRouter.compile(functionMap);
+        }
+        return topicRouter;
     }
 
     public void setDevice(AbstractDevice device) {
@@ -716,6 +948,18 @@ public class DeviceClient implements RawMessageListener {
         reportEvent(null, event, listener);
     }
 
+    /**
+     * 立即发布批量上报中已累积的属性，未开启批量上报时不做处理
+     */
+    public void flushPropertyReports() {
+        if (propertyBatcher != null) {
+            propertyBatcher.flush();
+        }
+        if (subDevicePropertyBatcher != null) {
+            subDevicePropertyBatcher.flush();
+        }
+    }
+
     public Future<?> scheduleTask(Runnable runnable) {
         return executorService.schedule(runnable, 0, TimeUnit.MILLISECONDS);
     }
@@ -732,6 +976,15 @@ public class DeviceClient implements RawMessageListener {
         return CLIENT_THREAD_COUNT;
     }
 
+    /**
+     * 获取下行消息分发器，连接建立前为null
+     *
+     * @return 下行消息分发器
+     */
+    public MessageDispatcher getDispatcher() {
+        return dispatcher;
+    }
+
     /**
      * 1、在网桥场景下会使用到，主要用于bridgeClient重写
      * 2、默认为网关上报子设备事件
@@ -744,10 +997,8 @@ public class DeviceClient implements RawMessageListener {
         DeviceEvents events = new DeviceEvents();
         events.setDeviceId(deviceId == null ? getDeviceId() : deviceId);
         events.setServices(Collections.singletonList(event));
-        String deviceIdTmp = clientConf.getDeviceId();
-        String topic = "$oc/devices/" + deviceIdTmp + "/sys/events/up";
 
-        RawMessage rawMessage = new RawMessage(topic, JsonUtil.convertObject2String(events));
+        RawMessage rawMessage = new RawMessage(eventUpTopic, JsonUtil.convertObject2Bytes(events));
         connection.publishMessage(rawMessage, listener);
     }
 
@@ -758,5 +1009,98 @@ public class DeviceClient implements RawMessageListener {
     public void setCustomOptions(CustomOptions customOptions) {
         this.customOptions = customOptions;
         this.connection.setCustomOptions(customOptions);
+        if (reconnector != null) {
+            reconnector.setCustomOptions(customOptions);
+        }
+    }
+
+    /**
+     * getFunctionMap返回的视图：读取当前的handler表，修改时通过putMessageHandler和removeMessageHandler写入并重新编译路由
+     */
+    private class FunctionMapView extends AbstractMap<String, MessageReceivedHandler> {
+        @Override
+        public MessageReceivedHandler get(Object key) {
+            return functionMap.get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return functionMap.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return functionMap.size();
+        }
+
+        @Override
+        public MessageReceivedHandler put(String key, MessageReceivedHandler value) {
+            return putMessageHandler(key, value);
+        }
+
+        @Override
+        public MessageReceivedHandler remove(Object key) {
+            return removeMessageHandler(key);
+        }
+
+        @Override
+        public void putAll(Map<? extends String, ? extends MessageReceivedHandler> map) {
+            synchronized (DeviceClient.this) {
+                Map<String, MessageReceivedHandler> copy = new LinkedHashMap<>(functionMap);
+                copy.putAll(map);
+                setFunctionMap(copy);
+            }
+        }
+
+        @Override
+        public void clear() {
+            setFunctionMap(Collections.emptyMap());
+        }
+
+        @Override
+        public Set<Entry<String, MessageReceivedHandler>> entrySet() {
+            return new AbstractSet<Entry<String, MessageReceivedHandler>>() {
+                @Override
+                public Iterator<Entry<String, MessageReceivedHandler>> iterator() {
+                    Iterator<Entry<String, MessageReceivedHandler>> snapshot = functionMap.entrySet().iterator();
+                    return new Iterator<Entry<String, MessageReceivedHandler>>() {
+                        private Entry<String, MessageReceivedHandler> last;
+
+                        @Override
+                        public boolean hasNext() {
+                            return snapshot.hasNext();
+                        }
+
+                        @Override
+                        public Entry<String, MessageReceivedHandler> next() {
+                            last = new SimpleEntry<String, MessageReceivedHandler>(snapshot.next()) {
+                                private static final long serialVersionUID = 1L;
+
+                                @Override
+                                public MessageReceivedHandler setValue(MessageReceivedHandler value) {
+                                    putMessageHandler(getKey(), value);
+                                    return super.setValue(value);
+                                }
+                            };
+                            return last;
+                        }
+
+                        @Override
+                        public void remove() {
+                            if (last == null) {
+                                throw new IllegalStateException();
+                            }
+                            removeMessageHandler(last.getKey());
+                            last = null;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return functionMap.size();
+                }
+            };
+        }
     }
 }
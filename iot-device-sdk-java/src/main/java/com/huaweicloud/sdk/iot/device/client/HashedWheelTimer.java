@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.client;
+
+import com.huaweicloud.sdk.iot.device.utils.ExceptionUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 哈希时间轮定时器，用于大量短时超时任务。
+ * 所有任务共用一个工作线程，按到期时间散列到时间轮的槽中，每个tick只检查一个槽，添加和取消都是O(1)。
+ * 超时精度为一个tick，适合请求超时这类不要求精确时间的场景。工作线程在添加第一个任务时启动，stop后不再接受任务。
+ */
+@Slf4j
+public class HashedWheelTimer {
+    private static final int STATE_INIT = 0;
+
+    private static final int STATE_STARTED = 1;
+
+    private static final int STATE_STOPPED = 2;
+
+    private final long tickNanos;
+
+    private final Queue<Timeout>[] wheel;
+
+    private final int mask;
+
+    private final String threadName;
+
+    private final Queue<Timeout> newTimeouts = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger state = new AtomicInteger(STATE_INIT);
+
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    private volatile long startTime;
+
+    private volatile Thread worker;
+
+    /**
+     * 构造函数
+     *
+     * @param threadName 工作线程名
+     * @param tick       每个槽的时间跨度，单位毫秒
+     * @param wheelSize  槽的数量，向上取整为2的幂
+     */
+    @SuppressWarnings("unchecked")
+    public HashedWheelTimer(String threadName, long tick, int wheelSize) {
+        int size = 1;
+        while (size < wheelSize) {
+            size <<= 1;
+        }
+        this.wheel = new Queue[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new ArrayDeque<>();
+        }
+        this.mask = size - 1;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(tick, 1));
+        this.threadName = threadName;
+    }
+
+    /**
+     * 添加超时任务
+     *
+     * @param task  到期时执行的任务，在工作线程中执行，不应阻塞
+     * @param delay 延迟时间，单位毫秒
+     * @return 超时句柄，可用于取消
+     */
+    public Timeout newTimeout(Runnable task, long delay) {
+        start();
+        long deadline = System.nanoTime() - startTime + TimeUnit.MILLISECONDS.toNanos(Math.max(delay, 0));
+        Timeout timeout = new Timeout(task, deadline);
+        pendingCount.incrementAndGet();
+        newTimeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * 查询未到期且未取消的任务数
+     *
+     * @return 任务数
+     */
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    /**
+     * 停止定时器，未到期的任务不再执行
+     */
+    public void stop() {
+        if (state.getAndSet(STATE_STOPPED) == STATE_STARTED) {
+            worker.interrupt();
+        }
+    }
+
+    private void start() {
+        if (state.get() == STATE_STARTED) {
+            return;
+        }
+        synchronized (this) {
+            // startTime和worker必须在STARTED可见之前写入，否则并发的newTimeout会按startTime为0计算到期时间，
+            // stop也可能读到为null的worker
+            if (state.get() == STATE_INIT) {
+                startTime = System.nanoTime();
+                worker = new Thread(this::run, threadName);
+                worker.setDaemon(true);
+                if (state.compareAndSet(STATE_INIT, STATE_STARTED)) {
+                    worker.start();
+                }
+            }
+        }
+        if (state.get() == STATE_STOPPED) {
+            throw new IllegalStateException("timer is stopped");
+        }
+    }
+
+    private void run() {
+        long tick = 0;
+        while (state.get() == STATE_STARTED) {
+            long deadline = tickNanos * (tick + 1);
+            long sleepNanos = deadline - (System.nanoTime() - startTime);
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    // stop时中断，退出循环
+                    continue;
+                }
+            }
+            transferNewTimeouts(tick);
+            expire(wheel[(int) (tick & mask)], deadline);
+            tick++;
+        }
+    }
+
+    private void transferNewTimeouts(long tick) {
+        Timeout timeout;
+        while ((timeout = newTimeouts.poll()) != null) {
+            if (timeout.state.get() != STATE_INIT) {
+                continue;
+            }
+
+            // 已过期的任务放到当前槽，本次tick即执行
+            long ticks = Math.max(timeout.deadline / tickNanos, tick);
+            timeout.remainingRounds = (ticks - tick) / wheel.length;
+            wheel[(int) (ticks & mask)].add(timeout);
+        }
+    }
+
+    private void expire(Queue<Timeout> bucket, long deadline) {
+        Iterator<Timeout> iterator = bucket.iterator();
+        while (iterator.hasNext()) {
+            Timeout timeout = iterator.next();
+            if (timeout.state.get() != STATE_INIT) {
+                iterator.remove();
+            } else if (timeout.remainingRounds <= 0 && timeout.deadline <= deadline) {
+                iterator.remove();
+                timeout.expire();
+            } else {
+                timeout.remainingRounds--;
+            }
+        }
+    }
+
+    /**
+     * 超时句柄
+     */
+    public class Timeout {
+        private final Runnable task;
+
+        private final long deadline;
+
+        private final AtomicInteger state = new AtomicInteger(STATE_INIT);
+
+        private long remainingRounds;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * 取消任务
+         *
+         * @return true表示取消成功，false表示任务已执行或已取消
+         */
+        public boolean cancel() {
+            if (state.compareAndSet(STATE_INIT, STATE_STOPPED)) {
+                pendingCount.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * 查询任务是否已到期执行
+         *
+         * @return true表示已到期执行
+         */
+        public boolean isExpired() {
+            return state.get() == STATE_STARTED;
+        }
+
+        private void expire() {
+            if (!state.compareAndSet(STATE_INIT, STATE_STARTED)) {
+                return;
+            }
+            pendingCount.decrementAndGet();
+            try {
+                task.run();
+            } catch (Exception e) {
+                log.error(ExceptionUtil.getBriefStackTrace(e));
+            }
+        }
+    }
+}
@@ -34,10 +34,14 @@ import com.huaweicloud.sdk.iot.device.transport.RawMessage;
 import com.huaweicloud.sdk.iot.device.utils.ExceptionUtil;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+/**
+ * 平台请求。请求结果通过future通知，超时由RequestManager的时间轮统一检测，不再为每个请求创建线程
+ */
 @Slf4j
 public class IotRequest {
 
@@ -48,16 +52,9 @@ public class IotRequest {
 
     private RawMessage rawMessage;
 
-    private Object result = null;
-
-    private boolean sync = true;
-
-    /**
-     * 异步请求才有
-     */
-    private RequestListener listener;
+    private volatile Object result = null;
 
-    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final CompletableFuture<String> future = new CompletableFuture<>();
 
     public IotRequest(RawMessage rawMessage, String requestId, int timeoutOfMilliSeconds) {
 
@@ -101,53 +98,63 @@ public class IotRequest {
         this.result = result;
     }
 
-    public void runSync() {
-
-        synchronized (this) {
-
-            try {
-                while (timeout != 0) {
-                    wait(timeout);
-                    timeout = 0;
-                }
-            } catch (InterruptedException e) {
-                log.error(ExceptionUtil.getBriefStackTrace(e));
-            }
-
-            if (result == null) {
-                result = IotResult.TIMEOUT;
-            }
+    /**
+     * 查询请求结果的future，响应到达时正常完成，超时时以TimeoutException异常完成
+     *
+     * @return future
+     */
+    public CompletableFuture<String> getFuture() {
+        return future;
+    }
 
+    /**
+     * 在当前线程等待请求结果，最长等待timeout毫秒，超时后结果为IotResult.TIMEOUT
+     */
+    public void runSync() {
+        try {
+            future.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            log.error(ExceptionUtil.getBriefStackTrace(e));
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("request failed, requestId: {}, {}", requestId, e.getClass().getSimpleName());
         }
 
+        if (result == null) {
+            result = IotResult.TIMEOUT;
+        }
     }
 
+    /**
+     * 异步等待请求结果，结果到达或超时后通知监听器，超时时通知的结果为IotResult.TIMEOUT
+     *
+     * @param listener 请求监听器
+     */
     public void runAsync(RequestListener listener) {
-
-        sync = false;
-        this.listener = listener;
-        executor.scheduleWithFixedDelay(() -> {
-            if (result == null) {
-                result = IotResult.TIMEOUT;
+        if (listener == null) {
+            return;
+        }
+        future.whenComplete((iotResult, throwable) -> {
+            if (throwable == null) {
+                listener.onFinish(iotResult);
+            } else {
+                listener.onFinish(IotResult.TIMEOUT.toString());
             }
-        }, 0, timeout, TimeUnit.MILLISECONDS);
+        });
     }
 
     public void onFinish(String iotResult) {
+        this.result = iotResult;
+        future.complete(iotResult);
+    }
 
-        synchronized (this) {
-            this.result = iotResult;
-
-            if (sync) {
-                notifyAll();
-            } else {
-                if (listener != null) {
-                    listener.onFinish(iotResult);
-                }
-            }
-
+    /**
+     * 请求超时，由sdk自动调用
+     */
+    public void onTimeout() {
+        if (!future.isDone()) {
+            result = IotResult.TIMEOUT;
+            future.completeExceptionally(new TimeoutException("request timeout, requestId: " + requestId));
         }
-
     }
-
 }
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.client;
+
+import com.huaweicloud.sdk.iot.device.utils.ExceptionUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 下行消息分发器。
+ * 按设备id把消息哈希到固定的处理通道，每个通道一个线程，同一设备的消息按到达顺序处理，不同设备的消息并行处理。
+ * 通道队列满时阻塞投递线程（即mqtt接收线程），形成背压而不是丢弃消息。
+ * 队列有界时，handler中不能同步等待需要由接收线程投递的下行消息（如同步等待平台响应），否则队列满后接收线程阻塞在投递上，
+ * handler永远等不到响应，形成死锁；这类场景请使用不限长度的队列或改为异步回调。
+ * 处理线程为守护线程，线程名为iot-dispatch-分发器序号-通道序号。多个客户端可以通过CustomOptions共用同一个分发器，
+ * 共用时由创建方负责关闭。
+ */
+@Slf4j
+public class MessageDispatcher {
+
+    private static final AtomicInteger DISPATCHER_SEQUENCE = new AtomicInteger();
+
+    private final ThreadPoolExecutor[] lanes;
+
+    /**
+     * 构造函数
+     *
+     * @param laneCount 处理通道数，小于1时按1处理
+     * @param queueSize 每个通道的队列长度，小于1时不限制
+     */
+    public MessageDispatcher(int laneCount, int queueSize) {
+        int count = Math.max(laneCount, 1);
+        int capacity = queueSize < 1 ? Integer.MAX_VALUE : queueSize;
+        String namePrefix = "iot-dispatch-" + DISPATCHER_SEQUENCE.incrementAndGet() + "-";
+        this.lanes = new ThreadPoolExecutor[count];
+        for (int i = 0; i < count; i++) {
+            String threadName = namePrefix + i;
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(capacity), runnable -> {
+                    Thread thread = new Thread(runnable, threadName);
+                    thread.setDaemon(true);
+                    return thread;
+                }, new BlockingPolicy());
+        }
+    }
+
+    /**
+     * 分发任务
+     *
+     * @param key  分发键，一般为设备id的哈希值，相同的键总是分配到同一通道
+     * @param task 任务
+     */
+    public void dispatch(int key, Runnable task) {
+        lanes[laneOf(key)].execute(task);
+    }
+
+    /**
+     * 计算分发键对应的通道
+     *
+     * @param key 分发键
+     * @return 通道下标
+     */
+    public int laneOf(int key) {
+        int spread = key ^ (key >>> 16);
+        return (spread & Integer.MAX_VALUE) % lanes.length;
+    }
+
+    /**
+     * 查询通道数
+     *
+     * @return 通道数
+     */
+    public int getLaneCount() {
+        return lanes.length;
+    }
+
+    /**
+     * 查询所有通道中等待处理的消息数
+     *
+     * @return 等待处理的消息数
+     */
+    public int getQueueLength() {
+        int length = 0;
+        for (ThreadPoolExecutor lane : lanes) {
+            length += lane.getQueue().size();
+        }
+        return length;
+    }
+
+    /**
+     * 关闭分发器，已投递的消息会继续处理完，之后分发的消息直接丢弃
+     */
+    public void shutdown() {
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+    }
+
+    private static class BlockingPolicy implements RejectedExecutionHandler {
+        @Override
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+                // 客户端关闭后接收线程仍可能投递在途的消息，丢弃即可，不能把异常抛给接收线程
+                log.debug("dispatcher is shutdown, drop the message");
+                return;
+            }
+            try {
+                executor.getQueue().put(task);
+            } catch (InterruptedException e) {
+                log.error(ExceptionUtil.getBriefStackTrace(e));
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
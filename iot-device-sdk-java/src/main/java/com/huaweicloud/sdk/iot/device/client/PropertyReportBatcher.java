@@ -0,0 +1,344 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.client;
+
+import com.huaweicloud.sdk.iot.device.client.requests.ServiceProperty;
+import com.huaweicloud.sdk.iot.device.gateway.requests.DeviceProperty;
+import com.huaweicloud.sdk.iot.device.transport.ActionListener;
+import com.huaweicloud.sdk.iot.device.transport.RawMessage;
+import com.huaweicloud.sdk.iot.device.utils.ExceptionUtil;
+import com.huaweicloud.sdk.iot.device.utils.JsonUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 属性上报批量合并器。
+ * 在linger时间内累积的属性上报合并为一条消息发布：直连设备合并为一个services数组，网关合并为一个devices数组。
+ * 开启coalesce时同一设备同一服务只保留每个属性的最新值，否则按上报顺序保留全部服务属性。
+ * 累积的消息体大小超过maxBytes时立即发布。每个服务属性在加入时即序列化，发布时直接拼接，不再重新序列化整条消息。
+ */
+@Slf4j
+public class PropertyReportBatcher {
+
+    private static final String OWN_DEVICE = "";
+
+    private static final byte[] DEVICES_FIELD = "{\"devices\":[".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] DEVICE_ID_FIELD = ",\"device_id\":".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] SERVICES_FIELD = "\"services\":[".getBytes(StandardCharsets.UTF_8);
+
+    private final DeviceClient client;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final String topic;
+
+    private final boolean isGateway;
+
+    private final long lingerTime;
+
+    private final int maxBytes;
+
+    private final boolean coalesce;
+
+    /**
+     * 设备id -> 服务键 -> 待发布的服务属性，直连设备的设备id为空字符串
+     */
+    private Map<String, Map<String, Entry>> pending = new LinkedHashMap<>();
+
+    private List<ActionListener> listeners = new ArrayList<>();
+
+    private int pendingBytes;
+
+    private long sequence;
+
+    private boolean flushScheduled;
+
+    /**
+     * 构造函数
+     *
+     * @param client     设备客户端，用于发布合并后的消息
+     * @param scheduler  定时发布使用的线程池
+     * @param topic      发布topic
+     * @param isGateway  true表示合并子设备属性（devices数组），false表示合并直连设备属性（services数组）
+     * @param lingerTime 首次上报后等待合并的时间，单位毫秒
+     * @param maxBytes   累积的消息体大小上限，单位字节，小于1时按1处理
+     * @param coalesce   是否只保留每个属性的最新值
+     */
+    public PropertyReportBatcher(DeviceClient client, ScheduledExecutorService scheduler, String topic,
+        boolean isGateway, long lingerTime, int maxBytes, boolean coalesce) {
+        this.client = client;
+        this.scheduler = scheduler;
+        this.topic = topic;
+        this.isGateway = isGateway;
+        this.lingerTime = lingerTime;
+        this.maxBytes = Math.max(maxBytes, 1);
+        this.coalesce = coalesce;
+    }
+
+    /**
+     * 加入直连设备的属性上报
+     *
+     * @param services 服务属性列表
+     * @param listener 发布监听器，合并后的消息发布完成时通知
+     */
+    public void addServices(List<ServiceProperty> services, ActionListener listener) {
+        add(Collections.singletonMap(OWN_DEVICE, services), listener);
+    }
+
+    /**
+     * 加入子设备的属性上报
+     *
+     * @param deviceProperties 子设备属性列表
+     * @param listener         发布监听器，合并后的消息发布完成时通知
+     */
+    public void addDevices(List<DeviceProperty> deviceProperties, ActionListener listener) {
+        Map<String, List<ServiceProperty>> devices = new LinkedHashMap<>();
+        for (DeviceProperty deviceProperty : deviceProperties) {
+            if (deviceProperty.getServices() == null) {
+                continue;
+            }
+            devices.computeIfAbsent(deviceProperty.getDeviceId(), k -> new ArrayList<>())
+                .addAll(deviceProperty.getServices());
+        }
+        add(devices, listener);
+    }
+
+    private void add(Map<String, List<ServiceProperty>> devices, ActionListener listener) {
+        List<Batch> ready = new ArrayList<>();
+        synchronized (this) {
+            for (Map.Entry<String, List<ServiceProperty>> device : devices.entrySet()) {
+                if (device.getValue() == null) {
+                    continue;
+                }
+                for (ServiceProperty service : device.getValue()) {
+                    addService(device.getKey(), service, ready);
+                }
+            }
+
+            // 超过上限提前发布的消息只带之前的监听器，本次的监听器挂在包含本次最后一个服务属性的消息上
+            if (listener != null) {
+                listeners.add(listener);
+            }
+            if (pendingBytes >= maxBytes) {
+                ready.add(new Batch(drain(), drainListeners()));
+            } else if (!flushScheduled && !pending.isEmpty()) {
+                flushScheduled = true;
+                scheduler.schedule(this::flush, lingerTime, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        for (Batch batch : ready) {
+            publish(batch.message, batch.listener);
+        }
+    }
+
+    private void addService(String deviceId, ServiceProperty service, List<Batch> ready) {
+        if (deviceId == null) {
+            log.error("discard service property without device id, serviceId = {}", service.getServiceId());
+            return;
+        }
+        Map<String, Entry> services = pending.computeIfAbsent(deviceId, k -> new LinkedHashMap<>());
+        String key = coalesce ? service.getServiceId() : String.valueOf(sequence++);
+        Entry entry = services.get(key);
+        if (entry == null) {
+            entry = new Entry();
+            entry.service = service;
+            services.put(key, entry);
+        } else {
+            pendingBytes -= entry.fragment.length;
+            entry.service = merge(entry.service, service);
+        }
+        entry.fragment = JsonUtil.convertObject2Bytes(entry.service);
+        if (entry.fragment == null) {
+            log.error("discard service property that can not be serialized, serviceId = {}", service.getServiceId());
+            services.remove(key);
+            if (services.isEmpty()) {
+                pending.remove(deviceId);
+            }
+            return;
+        }
+        pendingBytes += entry.fragment.length;
+
+        // 单条消息超过上限时先发布已累积的部分，再从当前服务属性重新开始累积
+        if (pendingBytes > maxBytes && pendingBytes > entry.fragment.length) {
+            services.remove(key);
+            if (services.isEmpty()) {
+                pending.remove(deviceId);
+            }
+            pendingBytes -= entry.fragment.length;
+            ready.add(new Batch(drain(), drainListeners()));
+            pending.computeIfAbsent(deviceId, k -> new LinkedHashMap<>()).put(key, entry);
+            pendingBytes = entry.fragment.length;
+        }
+    }
+
+    private static ServiceProperty merge(ServiceProperty older, ServiceProperty newer) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        if (older.getProperties() != null) {
+            properties.putAll(older.getProperties());
+        }
+        if (newer.getProperties() != null) {
+            properties.putAll(newer.getProperties());
+        }
+        ServiceProperty merged = new ServiceProperty();
+        merged.setServiceId(newer.getServiceId());
+        merged.setProperties(properties);
+
+        // 较早上报的时间不能代表较新的属性值，较新的上报不带时间时合并结果也不带，由平台使用接收时间
+        merged.setEventTime(newer.getEventTime());
+        return merged;
+    }
+
+    /**
+     * 立即发布已累积的属性
+     */
+    public void flush() {
+        RawMessage ready;
+        ActionListener readyListener;
+        synchronized (this) {
+            flushScheduled = false;
+            ready = drain();
+            readyListener = drainListeners();
+        }
+        publish(ready, readyListener);
+    }
+
+    private RawMessage drain() {
+        if (pending.isEmpty()) {
+            return null;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(pendingBytes + 64);
+        if (isGateway) {
+            out.write(DEVICES_FIELD, 0, DEVICES_FIELD.length);
+            boolean isFirstDevice = true;
+            for (Map.Entry<String, Map<String, Entry>> device : pending.entrySet()) {
+                if (!isFirstDevice) {
+                    out.write(',');
+                }
+                isFirstDevice = false;
+
+                // 字段顺序与DeviceProperty序列化结果保持一致
+                out.write('{');
+                writeServices(out, device.getValue());
+                out.write(DEVICE_ID_FIELD, 0, DEVICE_ID_FIELD.length);
+                byte[] deviceId = JsonUtil.convertObject2Bytes(device.getKey());
+                out.write(deviceId, 0, deviceId.length);
+                out.write('}');
+            }
+            out.write(']');
+        } else {
+            out.write('{');
+            writeServices(out, pending.get(OWN_DEVICE));
+        }
+        out.write('}');
+        pending = new LinkedHashMap<>();
+        pendingBytes = 0;
+        return new RawMessage(topic, out.toByteArray());
+    }
+
+    private static void writeServices(ByteArrayOutputStream out, Map<String, Entry> services) {
+        out.write(SERVICES_FIELD, 0, SERVICES_FIELD.length);
+        boolean isFirst = true;
+        for (Entry entry : services.values()) {
+            if (!isFirst) {
+                out.write(',');
+            }
+            isFirst = false;
+            out.write(entry.fragment, 0, entry.fragment.length);
+        }
+        out.write(']');
+    }
+
+    private ActionListener drainListeners() {
+        if (listeners.isEmpty()) {
+            return null;
+        }
+        List<ActionListener> drained = listeners;
+        listeners = new ArrayList<>();
+        return new ActionListener() {
+            @Override
+            public void onSuccess(Object context) {
+                for (ActionListener listener : drained) {
+                    listener.onSuccess(context);
+                }
+            }
+
+            @Override
+            public void onFailure(Object context, Throwable var2) {
+                for (ActionListener listener : drained) {
+                    listener.onFailure(context, var2);
+                }
+            }
+        };
+    }
+
+    private void publish(RawMessage rawMessage, ActionListener listener) {
+        if (rawMessage == null) {
+            return;
+        }
+        try {
+            client.publishRawMessage(rawMessage, listener);
+        } catch (Exception e) {
+            log.error(ExceptionUtil.getBriefStackTrace(e));
+            if (listener != null) {
+                listener.onFailure(null, e);
+            }
+        }
+    }
+
+    private static class Entry {
+        private ServiceProperty service;
+
+        private byte[] fragment;
+    }
+
+    private static class Batch {
+        private final RawMessage message;
+
+        private final ActionListener listener;
+
+        Batch(RawMessage message, ActionListener listener) {
+            this.message = message;
+            this.listener = listener;
+        }
+    }
+}
@@ -34,15 +34,24 @@ import com.huaweicloud.sdk.iot.device.transport.RawMessage;
 import com.huaweicloud.sdk.iot.device.utils.IotUtil;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
 /**
- * 请求管理器
+ * 请求管理器。
+ * 所有客户端的未完成请求由一个共用的时间轮统一检测超时，超时的请求从pendingRequests中移除，迟到的响应会被丢弃。
  */
 @Slf4j
 public class RequestManager {
 
+    private static final long TIMEOUT_TICK = 100L;
+
+    private static final int TIMEOUT_WHEEL_SIZE = 512;
+
+    private static final HashedWheelTimer TIMEOUT_TIMER = new HashedWheelTimer("iot-request-timeout", TIMEOUT_TICK,
+        TIMEOUT_WHEEL_SIZE);
+
     private final ConcurrentMap<String, IotRequest> pendingRequests = new ConcurrentHashMap<>();
 
     private final DeviceClient iotClient;
@@ -63,11 +72,14 @@ public class RequestManager {
      * @return 请求执行结果
      */
     public Object executeSyncRequest(IotRequest iotRequest) {
-
-        RawMessage rawMessage = iotRequest.getRawMessage();
-        iotClient.publishRawMessage(rawMessage, null);
-        pendingRequests.put(iotRequest.getRequestId(), iotRequest);
-        iotRequest.runSync();
+        String requestId = iotRequest.getRequestId();
+        pendingRequests.put(requestId, iotRequest);
+        try {
+            iotClient.publishRawMessage(iotRequest.getRawMessage(), null);
+            iotRequest.runSync();
+        } finally {
+            pendingRequests.remove(requestId, iotRequest);
+        }
         return iotRequest.getResult();
     }
 
@@ -75,14 +87,34 @@ public class RequestManager {
      * 执行异步请求
      *
      * @param iotRequest 请求参数
-     * @param listener   请求监听器，用于接收请求完成通知
+     * @param listener   请求监听器，用于接收请求完成通知，超时时通知的结果为IotResult.TIMEOUT
      */
     public void executeAsyncRequest(IotRequest iotRequest, RequestListener listener) {
-
-        RawMessage rawMessage = iotRequest.getRawMessage();
-        iotClient.publishRawMessage(rawMessage, null);
-        pendingRequests.put(iotRequest.getRequestId(), iotRequest);
         iotRequest.runAsync(listener);
+        executeAsyncRequest(iotRequest);
+    }
+
+    /**
+     * 执行异步请求
+     *
+     * @param iotRequest 请求参数
+     * @return 请求结果的future，超时时以TimeoutException异常完成
+     */
+    public CompletableFuture<String> executeAsyncRequest(IotRequest iotRequest) {
+        String requestId = iotRequest.getRequestId();
+        CompletableFuture<String> future = iotRequest.getFuture();
+
+        // 先登记再发布，避免响应先于登记到达
+        pendingRequests.put(requestId, iotRequest);
+        HashedWheelTimer.Timeout timeout = TIMEOUT_TIMER.newTimeout(() -> {
+            if (pendingRequests.remove(requestId, iotRequest)) {
+                iotRequest.onTimeout();
+            }
+        }, iotRequest.getTimeout());
+        future.whenComplete((result, throwable) -> timeout.cancel());
+
+        iotClient.publishRawMessage(iotRequest.getRawMessage(), null);
+        return future;
     }
 
     /**
@@ -100,4 +132,24 @@ public class RequestManager {
 
         request.onFinish(message.toString());
     }
+
+    /**
+     * 查询未完成的请求数
+     *
+     * @return 未完成的请求数
+     */
+    public int getPendingCount() {
+        return pendingRequests.size();
+    }
+
+    /**
+     * 关闭请求管理器，未完成的请求按超时处理
+     */
+    public void close() {
+        for (IotRequest request : pendingRequests.values()) {
+            if (pendingRequests.remove(request.getRequestId(), request)) {
+                request.onTimeout();
+            }
+        }
+    }
 }
@@ -0,0 +1,350 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.client;
+
+import com.huaweicloud.sdk.iot.device.client.handler.MessageReceivedHandler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 下行topic路由器。
+ * 将functionMap中的topic关键字按“/”切分后倒序编译成一棵分段字典树，收到消息时从topic末尾开始逐段匹配，
+ * 一次扫描即可得到处理handler、设备id和请求id，无需对每个关键字执行topic.contains()。
+ * 以request_id=开头的末尾分段按“request_id”匹配。字典树未命中时（如V3的前缀型topic）退回到按注册顺序的contains扫描，
+ * 与原有行为保持一致。
+ * 路由器创建后不可修改，functionMap变化后需重新编译。
+ */
+public class TopicRouter {
+
+    private static final String REQUEST_ID_SEGMENT = "request_id";
+
+    private static final String REQUEST_ID_PREFIX = "request_id=";
+
+    private static final String DEVICES_SEGMENT = "devices";
+
+    private static final String BRIDGES_SEGMENT = "bridges";
+
+    private final Node root = new Node();
+
+    private final String[] keys;
+
+    private final MessageReceivedHandler[] handlers;
+
+    private TopicRouter(Map<String, MessageReceivedHandler> functionMap) {
+        int size = functionMap.size();
+        this.keys = new String[size];
+        this.handlers = new MessageReceivedHandler[size];
+        int order = 0;
+        for (Map.Entry<String, MessageReceivedHandler> entry : functionMap.entrySet()) {
+            keys[order] = entry.getKey();
+            handlers[order] = entry.getValue();
+            addRoute(entry.getKey(), order);
+            order++;
+        }
+    }
+
+    /**
+     * 根据handler表编译路由器，编译时的遍历顺序即冲突时的匹配优先级
+     *
+     * @param functionMap topic关键字与handler的映射
+     * @return 路由器
+     */
+    public static TopicRouter compile(Map<String, MessageReceivedHandler> functionMap) {
+        return new TopicRouter(functionMap);
+    }
+
+    private void addRoute(String key, int order) {
+        if (key == null || key.isEmpty()) {
+            return;
+        }
+        List<String> segments = split(key);
+        Node node = root;
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            node = node.getOrAddChild(segments.get(i));
+        }
+
+        // 同一路径只保留优先级最高（最先遍历到）的handler
+        if (node != root && node.order < 0) {
+            node.order = order;
+        }
+    }
+
+    private static List<String> split(String key) {
+        List<String> segments = new ArrayList<>();
+        int start = 0;
+        int length = key.length();
+        while (start <= length) {
+            int end = key.indexOf('/', start);
+            if (end < 0) {
+                end = length;
+            }
+            if (end > start) {
+                segments.add(key.substring(start, end));
+            }
+            start = end + 1;
+        }
+        return segments;
+    }
+
+    /**
+     * 路由topic
+     *
+     * @param topic 下行topic
+     * @return 路由结果，handler为null表示没有匹配的handler
+     */
+    public Route route(String topic) {
+        Route route = new Route(topic);
+        if (topic == null) {
+            return route;
+        }
+        parseIds(topic, route);
+
+        int best = matchSuffix(topic);
+        if (best < 0) {
+            best = matchContains(topic);
+        }
+        if (best >= 0) {
+            route.key = keys[best];
+            route.handler = handlers[best];
+        }
+        return route;
+    }
+
+    /**
+     * 只解析topic中的设备id、网桥id和请求id，不匹配handler。供未经路由器直接调用的handler使用
+     *
+     * @param topic 下行topic
+     * @return 解析结果，handler为null
+     */
+    public static Route parse(String topic) {
+        Route route = new Route(topic);
+        if (topic != null) {
+            parseIds(topic, route);
+        }
+        return route;
+    }
+
+    private int matchSuffix(String topic) {
+        Node node = root;
+        int best = -1;
+        int end = topic.length();
+        boolean isLast = true;
+        while (end > 0) {
+            int start = topic.lastIndexOf('/', end - 1) + 1;
+            if (start == end) {
+                end = start - 1;
+                continue;
+            }
+            Node next = null;
+            if (isLast && topic.startsWith(REQUEST_ID_PREFIX, start)) {
+                next = node.getChild(REQUEST_ID_SEGMENT, 0, REQUEST_ID_SEGMENT.length());
+            }
+            if (next == null) {
+                next = node.getChild(topic, start, end);
+            }
+            if (next == null) {
+                break;
+            }
+            node = next;
+            if (node.order >= 0 && (best < 0 || node.order < best)) {
+                best = node.order;
+            }
+            isLast = false;
+            end = start - 1;
+        }
+        return best;
+    }
+
+    private int matchContains(String topic) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null && topic.contains(keys[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void parseIds(String topic, Route route) {
+        int requestIdIndex = topic.indexOf(REQUEST_ID_PREFIX);
+        if (requestIdIndex >= 0) {
+            route.requestIdStart = requestIdIndex + REQUEST_ID_PREFIX.length();
+        }
+
+        // 取第一个“devices”分段后面的分段作为设备id，“bridges”分段后面的分段作为网桥id，只记录下标，取值时再截取
+        int start = 0;
+        int previousStart = 0;
+        int previousEnd = 0;
+        int length = requestIdIndex >= 0 ? requestIdIndex : topic.length();
+        while (start < length) {
+            int end = topic.indexOf('/', start);
+            if (end < 0 || end > length) {
+                end = length;
+            }
+            if (isSegment(topic, previousStart, previousEnd, DEVICES_SEGMENT)) {
+                if (end < length) {
+                    route.deviceIdStart = start;
+                    route.deviceIdEnd = end;
+                }
+                return;
+            }
+            if (isSegment(topic, previousStart, previousEnd, BRIDGES_SEGMENT)) {
+                route.bridgeIdStart = start;
+                route.bridgeIdEnd = end;
+            }
+            previousStart = start;
+            previousEnd = end;
+            start = end + 1;
+        }
+    }
+
+    private static boolean isSegment(String topic, int start, int end, String segment) {
+        return end - start == segment.length() && topic.regionMatches(start, segment, 0, segment.length());
+    }
+
+    /**
+     * 字典树节点，子节点很少，用数组加regionMatches匹配，避免匹配时为每个分段创建字符串
+     */
+    private static class Node {
+        private String[] segments = new String[0];
+
+        private Node[] children = new Node[0];
+
+        private int order = -1;
+
+        private Node getChild(String topic, int start, int end) {
+            for (int i = 0; i < segments.length; i++) {
+                if (isSegment(topic, start, end, segments[i])) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        private Node getOrAddChild(String segment) {
+            Node child = getChild(segment, 0, segment.length());
+            if (child != null) {
+                return child;
+            }
+            child = new Node();
+            segments = Arrays.copyOf(segments, segments.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            segments[segments.length - 1] = segment;
+            children[children.length - 1] = child;
+            return child;
+        }
+    }
+
+    /**
+     * 路由结果
+     */
+    public static class Route {
+        private final String topic;
+
+        private MessageReceivedHandler handler;
+
+        private String key;
+
+        private int deviceIdStart = -1;
+
+        private int deviceIdEnd = -1;
+
+        private int bridgeIdStart = -1;
+
+        private int bridgeIdEnd = -1;
+
+        private int requestIdStart = -1;
+
+        private Route(String topic) {
+            this.topic = topic;
+        }
+
+        /**
+         * 查询匹配到的handler
+         *
+         * @return handler，未匹配时为null
+         */
+        public MessageReceivedHandler getHandler() {
+            return handler;
+        }
+
+        /**
+         * 查询匹配到的functionMap关键字
+         *
+         * @return 关键字，未匹配时为null
+         */
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * 查询topic中的设备id，网桥topic中为子设备id
+         *
+         * @return 设备id
+         */
+        public String getDeviceId() {
+            return deviceIdStart < 0 ? null : topic.substring(deviceIdStart, deviceIdEnd);
+        }
+
+        /**
+         * 查询topic中的网桥id，非网桥topic为null
+         *
+         * @return 网桥id
+         */
+        public String getBridgeId() {
+            return bridgeIdStart < 0 ? null : topic.substring(bridgeIdStart, bridgeIdEnd);
+        }
+
+        /**
+         * 查询topic中的请求id
+         *
+         * @return 请求id，topic中不带request_id时为null
+         */
+        public String getRequestId() {
+            return requestIdStart < 0 ? null : topic.substring(requestIdStart);
+        }
+
+        /**
+         * 计算topic中设备id的哈希值，与String.hashCode一致但不截取字符串
+         *
+         * @return 设备id的哈希值，topic中没有设备id时为0
+         */
+        public int getDeviceIdHash() {
+            int hash = 0;
+            for (int i = deviceIdStart; i >= 0 && i < deviceIdEnd; i++) {
+                hash = 31 * hash + topic.charAt(i);
+            }
+            return hash;
+        }
+    }
+}
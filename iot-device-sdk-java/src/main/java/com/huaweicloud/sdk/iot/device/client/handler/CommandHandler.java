@@ -31,9 +31,9 @@
 package com.huaweicloud.sdk.iot.device.client.handler;
 
 import com.huaweicloud.sdk.iot.device.client.DeviceClient;
+import com.huaweicloud.sdk.iot.device.client.TopicRouter;
 import com.huaweicloud.sdk.iot.device.client.requests.Command;
 import com.huaweicloud.sdk.iot.device.transport.RawMessage;
-import com.huaweicloud.sdk.iot.device.utils.IotUtil;
 import com.huaweicloud.sdk.iot.device.utils.JsonUtil;
 import lombok.extern.slf4j.Slf4j;
 
@@ -48,10 +48,14 @@ public class CommandHandler implements MessageReceivedHandler {
 
     @Override
     public void messageHandler(RawMessage message) {
-        String topic = message.getTopic();
-        String requestId = IotUtil.getRequestId(topic);
+        messageHandler(message, TopicRouter.parse(message.getTopic()));
+    }
+
+    @Override
+    public void messageHandler(RawMessage message, TopicRouter.Route route) {
+        String requestId = route.getRequestId();
 
-        Command command = JsonUtil.convertJsonStringToObject(message.toString(), Command.class);
+        Command command = JsonUtil.convertJsonBytesToObject(message.getPayload(), Command.class);
         if (command == null) {
             log.error("invalid command");
             return;
@@ -47,7 +47,7 @@ public class CommandV3Handler implements MessageReceivedHandler {
 
     @Override
     public void messageHandler(RawMessage message) {
-        CommandV3 commandV3 = JsonUtil.convertJsonStringToObject(message.toString(), CommandV3.class);
+        CommandV3 commandV3 = JsonUtil.convertJsonBytesToObject(message.getPayload(), CommandV3.class);
         if (commandV3 == null) {
             log.error("invalid commandV3");
             return;
@@ -31,9 +31,9 @@
 package com.huaweicloud.sdk.iot.device.client.handler;
 
 import com.huaweicloud.sdk.iot.device.client.DeviceClient;
+import com.huaweicloud.sdk.iot.device.client.TopicRouter;
 import com.huaweicloud.sdk.iot.device.client.requests.DeviceEvents;
 import com.huaweicloud.sdk.iot.device.transport.RawMessage;
-import com.huaweicloud.sdk.iot.device.utils.IotUtil;
 import com.huaweicloud.sdk.iot.device.utils.JsonUtil;
 import lombok.extern.slf4j.Slf4j;
 
@@ -50,8 +50,13 @@ public class EventDownHandler implements MessageReceivedHandler {
 
     @Override
     public void messageHandler(RawMessage message) {
+        messageHandler(message, TopicRouter.parse(message.getTopic()));
+    }
+
+    @Override
+    public void messageHandler(RawMessage message, TopicRouter.Route route) {
         String topic = message.getTopic();
-        DeviceEvents deviceEvents = JsonUtil.convertJsonStringToObject(message.toString(), DeviceEvents.class);
+        DeviceEvents deviceEvents = JsonUtil.convertJsonBytesToObject(message.getPayload(), DeviceEvents.class);
         if (deviceEvents == null || topic == null) {
             log.error("invalid events");
             return;
@@ -59,7 +64,7 @@ public class EventDownHandler implements MessageReceivedHandler {
 
         // 网桥事件处理
         if (topic.contains(BRIDGE_TOPIC_KEYWORD)) {
-            String deviceId = IotUtil.getDeviceId(topic);
+            String deviceId = route.getDeviceId();
             deviceClient.getDevice().onBridgeEvent(deviceId, deviceEvents);
             return;
         }
@@ -33,12 +33,28 @@ package com.huaweicloud.sdk.iot.device.client.handler;
 import com.huaweicloud.sdk.iot.device.client.DeviceClient;
 import com.huaweicloud.sdk.iot.device.client.requests.DeviceMessage;
 import com.huaweicloud.sdk.iot.device.client.requests.RawDeviceMessage;
+import com.huaweicloud.sdk.iot.device.service.AbstractDevice;
 import com.huaweicloud.sdk.iot.device.transport.RawMessage;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class MessageHandler implements MessageReceivedHandler {
 
+    /**
+     * 设备类是否重写了onDeviceMessage，没有重写时系统格式的消息无人处理
+     */
+    private static final ClassValue<Boolean> HANDLES_DEVICE_MESSAGE = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            try {
+                return type.getMethod("onDeviceMessage", DeviceMessage.class).getDeclaringClass()
+                    != AbstractDevice.class;
+            } catch (NoSuchMethodException e) {
+                return false;
+            }
+        }
+    };
+
     private final DeviceClient deviceClient;
 
     public MessageHandler(DeviceClient deviceClient) {
@@ -48,15 +64,21 @@ public class MessageHandler implements MessageReceivedHandler {
     @Override
     public void messageHandler(RawMessage message) {
         RawDeviceMessage rawDeviceMessage = new RawDeviceMessage(message.getPayload());
-        DeviceMessage deviceMessage = rawDeviceMessage.toDeviceMessage();
-        boolean isSystemFormat = (deviceMessage != null);
 
         if (deviceClient.getRawDeviceMessageListener() != null) {
             log.debug("receive message in custom format:  {}", message);
             deviceClient.getRawDeviceMessageListener().onRawDeviceMessage(rawDeviceMessage);
         }
 
-        if (isSystemFormat) {
+        // 只设置了RawDeviceMessageListener时，没有人需要系统格式的消息，不做格式检测
+        AbstractDevice device = deviceClient.getDevice();
+        if (deviceClient.getDeviceMessageListener() == null
+            && (device == null || !HANDLES_DEVICE_MESSAGE.get(device.getClass()))) {
+            return;
+        }
+
+        DeviceMessage deviceMessage = rawDeviceMessage.toDeviceMessage();
+        if (deviceMessage != null) {
             log.debug("receive message in system format: {}", message);
             boolean isCurrentDevice = (deviceMessage.getDeviceId() == null
                     || deviceMessage.getDeviceId().equals(deviceClient.getDeviceId()));
@@ -30,8 +30,20 @@
 
 package com.huaweicloud.sdk.iot.device.client.handler;
 
+import com.huaweicloud.sdk.iot.device.client.TopicRouter;
 import com.huaweicloud.sdk.iot.device.transport.RawMessage;
 
 public interface MessageReceivedHandler {
     void messageHandler(RawMessage message);
+
+    /**
+     * 处理已路由的下行消息，route中带有路由时从topic解析出的设备id和请求id，实现类可直接取用，无需再次解析topic。
+     * 默认实现忽略route，调用单参数的messageHandler
+     *
+     * @param message 下行消息
+     * @param route   路由结果
+     */
+    default void messageHandler(RawMessage message, TopicRouter.Route route) {
+        messageHandler(message);
+    }
 }
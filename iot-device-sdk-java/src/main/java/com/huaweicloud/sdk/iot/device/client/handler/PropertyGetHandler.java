@@ -31,9 +31,9 @@
 package com.huaweicloud.sdk.iot.device.client.handler;
 
 import com.huaweicloud.sdk.iot.device.client.DeviceClient;
+import com.huaweicloud.sdk.iot.device.client.TopicRouter;
 import com.huaweicloud.sdk.iot.device.client.requests.PropsGet;
 import com.huaweicloud.sdk.iot.device.transport.RawMessage;
-import com.huaweicloud.sdk.iot.device.utils.IotUtil;
 import com.huaweicloud.sdk.iot.device.utils.JsonUtil;
 
 public class PropertyGetHandler implements MessageReceivedHandler {
@@ -45,9 +45,14 @@ public class PropertyGetHandler implements MessageReceivedHandler {
 
     @Override
     public void messageHandler(RawMessage message) {
-        String requestId = IotUtil.getRequestId(message.getTopic());
+        messageHandler(message, TopicRouter.parse(message.getTopic()));
+    }
+
+    @Override
+    public void messageHandler(RawMessage message, TopicRouter.Route route) {
+        String requestId = route.getRequestId();
 
-        PropsGet propsGet = JsonUtil.convertJsonStringToObject(message.toString(), PropsGet.class);
+        PropsGet propsGet = JsonUtil.convertJsonBytesToObject(message.getPayload(), PropsGet.class);
         if (propsGet == null) {
             return;
         }
@@ -31,9 +31,9 @@
 package com.huaweicloud.sdk.iot.device.client.handler;
 
 import com.huaweicloud.sdk.iot.device.client.DeviceClient;
+import com.huaweicloud.sdk.iot.device.client.TopicRouter;
 import com.huaweicloud.sdk.iot.device.client.requests.PropsSet;
 import com.huaweicloud.sdk.iot.device.transport.RawMessage;
-import com.huaweicloud.sdk.iot.device.utils.IotUtil;
 import com.huaweicloud.sdk.iot.device.utils.JsonUtil;
 import lombok.extern.slf4j.Slf4j;
 
@@ -48,9 +48,14 @@ public class PropertySetHandler implements MessageReceivedHandler {
 
     @Override
     public void messageHandler(RawMessage message) {
-        String requestId = IotUtil.getRequestId(message.getTopic());
+        messageHandler(message, TopicRouter.parse(message.getTopic()));
+    }
+
+    @Override
+    public void messageHandler(RawMessage message, TopicRouter.Route route) {
+        String requestId = route.getRequestId();
 
-        PropsSet propsSet = JsonUtil.convertJsonStringToObject(message.toString(), PropsSet.class);
+        PropsSet propsSet = JsonUtil.convertJsonBytesToObject(message.getPayload(), PropsSet.class);
         if (propsSet == null) {
             log.error("invalid property setting");
             return;
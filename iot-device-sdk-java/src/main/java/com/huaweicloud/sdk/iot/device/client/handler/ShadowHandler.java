@@ -1,9 +1,9 @@
 package com.huaweicloud.sdk.iot.device.client.handler;
 
 import com.huaweicloud.sdk.iot.device.client.DeviceClient;
+import com.huaweicloud.sdk.iot.device.client.TopicRouter;
 import com.huaweicloud.sdk.iot.device.client.requests.Shadow;
 import com.huaweicloud.sdk.iot.device.transport.RawMessage;
-import com.huaweicloud.sdk.iot.device.utils.IotUtil;
 import com.huaweicloud.sdk.iot.device.utils.JsonUtil;
 import lombok.extern.slf4j.Slf4j;
 
@@ -18,10 +18,14 @@ public class ShadowHandler implements MessageReceivedHandler {
 
     @Override
     public void messageHandler(RawMessage message) {
-        String topic = message.getTopic();
-        String requestId = IotUtil.getRequestId(topic);
+        messageHandler(message, TopicRouter.parse(message.getTopic()));
+    }
+
+    @Override
+    public void messageHandler(RawMessage message, TopicRouter.Route route) {
+        String requestId = route.getRequestId();
 
-        final Shadow shadow = JsonUtil.convertJsonStringToObject(message.toString(), Shadow.class);
+        final Shadow shadow = JsonUtil.convertJsonBytesToObject(message.getPayload(), Shadow.class);
         if (shadow == null) {
             log.warn("invalid shadow");
             return;
@@ -31,12 +31,16 @@
 package com.huaweicloud.sdk.iot.device.client.requests;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.huaweicloud.sdk.iot.device.utils.JsonUtil;
 
 import java.util.Map;
 
 /**
  * 服务的事件
  */
+@JsonDeserialize(using = DeviceEventDeserializer.class)
 public class DeviceEvent {
     /**
      * 事件所属服务id
@@ -61,6 +65,16 @@ public class DeviceEvent {
      */
     private Map<String, Object> paras;
 
+    /**
+     * 按DeviceEventTypeRegistry注册的类型解析出的事件参数，未注册的事件为null
+     */
+    private Object typedParas;
+
+    /**
+     * 注册类型的事件参数的原始token，用于按需得到与报文一致的Map
+     */
+    private TokenBuffer rawParas;
+
     @JsonProperty("event_id")
     private String eventId;
 
@@ -96,12 +110,47 @@ public class DeviceEvent {
         this.eventTime = eventTime;
     }
 
+    /**
+     * 获取Map形式的事件参数。若参数已被解析为注册的类型，第一次调用时再从原始报文转换为Map
+     *
+     * @return 事件参数
+     */
+    @SuppressWarnings("unchecked")
     public Map<String, Object> getParas() {
+        if (paras == null && rawParas != null) {
+            paras = JsonUtil.convertValue(rawParas, Map.class);
+        }
         return paras;
     }
 
     public void setParas(Map<String, Object> paras) {
         this.paras = paras;
+        this.typedParas = null;
+        this.rawParas = null;
+    }
+
+    /**
+     * 获取指定类型的事件参数。下行事件的参数类型已在DeviceEventTypeRegistry注册时直接返回解析结果，否则从Map转换
+     *
+     * @param cls 参数类型
+     * @param <T> 参数类型
+     * @return 事件参数
+     */
+    public <T> T getParas(Class<T> cls) {
+        if (cls.isInstance(typedParas)) {
+            return cls.cast(typedParas);
+        }
+        return JsonUtil.convertMap2Object(getParas(), cls);
+    }
+
+    void setTypedParas(Object typedParas) {
+        this.typedParas = typedParas;
+        this.paras = null;
+    }
+
+    void setRawParas(TokenBuffer rawParas) {
+        this.rawParas = rawParas;
+        this.paras = null;
     }
 
     @Override
@@ -110,7 +159,7 @@ public class DeviceEvent {
             + "serviceId='" + serviceId + '\''
             + ", eventType='" + eventType + '\''
             + ", eventTime='" + eventTime + '\''
-            + ", paras=" + paras
+            + ", paras=" + (typedParas != null ? typedParas : getParas())
             + ", eventId='" + eventId + '\'' + '}';
     }
 }
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.client.requests;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * DeviceEvent反序列化器。
+ * 根据service_id和event_type从DeviceEventTypeRegistry查到参数类型后，paras直接解析为该类型；
+ * 若paras出现在service_id或event_type之前，先缓存paras的token，读完整个对象后再解析，仍然只解析一遍。
+ * 注册类型的paras保留缓存的token，类型不匹配时只丢弃该事件的类型化结果，getParas()仍可从token得到原始的Map
+ */
+@Slf4j
+class DeviceEventDeserializer extends StdDeserializer<DeviceEvent> {
+    private static final long serialVersionUID = 1L;
+
+    DeviceEventDeserializer() {
+        super(DeviceEvent.class);
+    }
+
+    @Override
+    public DeviceEvent deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        JsonToken token = p.currentToken();
+        if (token == JsonToken.START_OBJECT) {
+            token = p.nextToken();
+        }
+        if (token != JsonToken.FIELD_NAME && token != JsonToken.END_OBJECT) {
+            return (DeviceEvent) ctxt.handleUnexpectedToken(DeviceEvent.class, p);
+        }
+
+        DeviceEvent deviceEvent = new DeviceEvent();
+        TokenBuffer pendingParas = null;
+        for (; token == JsonToken.FIELD_NAME; token = p.nextToken()) {
+            String field = p.currentName();
+            p.nextToken();
+            switch (field) {
+                case "service_id":
+                    deviceEvent.setServiceId(p.getValueAsString());
+                    break;
+                case "event_type":
+                    deviceEvent.setEventType(p.getValueAsString());
+                    break;
+                case "event_time":
+                    deviceEvent.setEventTime(p.getValueAsString());
+                    break;
+                case "event_id":
+                    deviceEvent.setEventId(p.getValueAsString());
+                    break;
+                case "paras":
+                    if (deviceEvent.getServiceId() != null && deviceEvent.getEventType() != null) {
+                        readParas(p, ctxt, deviceEvent, null);
+                    } else {
+                        pendingParas = ctxt.bufferAsCopyOfValue(p);
+                    }
+                    break;
+                default:
+                    p.skipChildren();
+                    break;
+            }
+        }
+
+        if (pendingParas != null) {
+            try (JsonParser bufferParser = pendingParas.asParser(p.getCodec())) {
+                bufferParser.nextToken();
+                readParas(bufferParser, ctxt, deviceEvent, pendingParas);
+            }
+        }
+        return deviceEvent;
+    }
+
+    private void readParas(JsonParser p, DeserializationContext ctxt, DeviceEvent deviceEvent, TokenBuffer buffered)
+        throws IOException {
+        if (p.currentToken() == JsonToken.VALUE_NULL) {
+            return;
+        }
+        Class<?> parasType = DeviceEventTypeRegistry.lookup(deviceEvent.getServiceId(), deviceEvent.getEventType());
+        if (parasType != null) {
+            readTypedParas(p, ctxt, deviceEvent, parasType, buffered);
+            return;
+        }
+        JavaType mapType = ctxt.getTypeFactory().constructMapType(Map.class, String.class, Object.class);
+        deviceEvent.setParas(ctxt.readValue(p, mapType));
+    }
+
+    /**
+     * 按注册类型解析paras。解析失败时主解析器已经越过了paras，所以先缓存token再解析，
+     * 失败时只记录日志，该事件仍可通过getParas()取到Map，不影响同一消息中的其他事件
+     */
+    private void readTypedParas(JsonParser p, DeserializationContext ctxt, DeviceEvent deviceEvent,
+        Class<?> parasType, TokenBuffer buffered) throws IOException {
+        TokenBuffer rawParas = buffered != null ? buffered : ctxt.bufferAsCopyOfValue(p);
+        deviceEvent.setRawParas(rawParas);
+        try (JsonParser bufferParser = rawParas.asParser(p.getCodec())) {
+            bufferParser.nextToken();
+            deviceEvent.setTypedParas(ctxt.readValue(bufferParser, parasType));
+        } catch (JsonProcessingException e) {
+            log.warn("paras of event {}/{} does not match {}: {}", deviceEvent.getServiceId(),
+                deviceEvent.getEventType(), parasType.getSimpleName(), e.getOriginalMessage());
+        }
+    }
+}
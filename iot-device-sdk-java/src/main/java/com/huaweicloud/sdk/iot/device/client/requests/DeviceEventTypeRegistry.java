@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.client.requests;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 平台下发事件的参数类型注册表，记录(service_id, event_type)对应的参数类型。
+ * 解析下行事件时，已注册类型的paras直接反序列化为目标对象，不再先转成Map再转换一次
+ */
+public final class DeviceEventTypeRegistry {
+    private static final Map<String, Class<?>> PARAS_TYPES = new ConcurrentHashMap<>();
+
+    private DeviceEventTypeRegistry() {
+    }
+
+    /**
+     * 注册事件参数类型，重复注册时以最后一次为准
+     *
+     * @param serviceId 服务id
+     * @param eventType 事件类型
+     * @param parasType 事件参数类型
+     */
+    public static void register(String serviceId, String eventType, Class<?> parasType) {
+        if (serviceId == null || eventType == null || parasType == null) {
+            throw new IllegalArgumentException("serviceId, eventType and parasType can not be null");
+        }
+        PARAS_TYPES.put(key(serviceId, eventType), parasType);
+    }
+
+    /**
+     * 取消注册事件参数类型
+     *
+     * @param serviceId 服务id
+     * @param eventType 事件类型
+     */
+    public static void unregister(String serviceId, String eventType) {
+        if (serviceId == null || eventType == null) {
+            return;
+        }
+        PARAS_TYPES.remove(key(serviceId, eventType));
+    }
+
+    /**
+     * 查询事件参数类型
+     *
+     * @param serviceId 服务id
+     * @param eventType 事件类型
+     * @return 事件参数类型，未注册时返回null
+     */
+    public static Class<?> lookup(String serviceId, String eventType) {
+        if (serviceId == null || eventType == null) {
+            return null;
+        }
+        return PARAS_TYPES.get(key(serviceId, eventType));
+    }
+
+    private static String key(String serviceId, String eventType) {
+        return serviceId + '/' + eventType;
+    }
+}
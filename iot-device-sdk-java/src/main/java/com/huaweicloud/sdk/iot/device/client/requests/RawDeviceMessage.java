@@ -30,15 +30,12 @@
 
 package com.huaweicloud.sdk.iot.device.client.requests;
 
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.huaweicloud.sdk.iot.device.utils.JsonUtil;
 
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
 
 /**
  * 设备消息
@@ -49,9 +46,6 @@ public class RawDeviceMessage {
      */
     private byte[] payload;
 
-    private final Set<String> systemMessageKeys = new HashSet<>(
-            Arrays.asList("name", "id", "content", "object_device_id"));
-
     public RawDeviceMessage() {
     }
 
@@ -86,18 +80,65 @@ public class RawDeviceMessage {
         return new String(payload, StandardCharsets.UTF_8);
     }
 
+    /**
+     * 转换为系统格式的消息。只有json对象且所有字段都是name、id、content、object_device_id时才是系统格式。
+     * 采用流式解析，第一个字节不是'{'时不做json解析，遇到第一个非系统字段或非标量的值时立即返回
+     *
+     * @return 系统格式的消息，不是系统格式时返回null
+     */
     public DeviceMessage toDeviceMessage() {
-        TypeReference<HashMap<String, Object>> typeRef = new TypeReference<HashMap<String, Object>>() {
-        };
-        Map<String, Object> objectKV = JsonUtil.convertJsonStringToObject(toUTF8String(), typeRef);
-        if (objectKV == null) {
+        if (!startsWithObject(payload)) {
+            return null;
+        }
+        try (JsonParser parser = JsonUtil.createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            DeviceMessage deviceMessage = new DeviceMessage();
+            for (JsonToken token = parser.nextToken(); token != JsonToken.END_OBJECT; token = parser.nextToken()) {
+                if (token != JsonToken.FIELD_NAME) {
+                    return null;
+                }
+                String field = parser.currentName();
+                if (!parser.nextToken().isScalarValue()) {
+                    return null;
+                }
+                String value = parser.getValueAsString();
+                switch (field) {
+                    case "name":
+                        deviceMessage.setName(value);
+                        break;
+                    case "id":
+                        deviceMessage.setId(value);
+                        break;
+                    case "content":
+                        deviceMessage.setContent(value);
+                        break;
+                    case "object_device_id":
+                        deviceMessage.setDeviceId(value);
+                        break;
+                    default:
+                        return null;
+                }
+            }
+            return deviceMessage;
+        } catch (IOException e) {
             return null; // can't convert to system format
         }
-        boolean isSystemFormat = objectKV.entrySet().stream()
-                .allMatch(entry -> systemMessageKeys.contains(entry.getKey()));
-        if (isSystemFormat) {
-            return JsonUtil.convertMap2Object(objectKV, DeviceMessage.class);
+    }
+
+    private static boolean startsWithObject(byte[] bytes) {
+        if (bytes == null) {
+            return false;
+        }
+        for (byte b : bytes) {
+            if (b == '{') {
+                return true;
+            }
+            if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+                return false;
+            }
         }
-        return null;
+        return false;
     }
 }
@@ -51,4 +51,13 @@ public class Constants {
 
     public static final int CHECK_STAMP_SM3_ON = 2; // HMAC-SM3校验时间戳
 
+    /**
+     * mqtt传输实现
+     */
+    public static final int TRANSPORT_PAHO = 0; // paho客户端，每个连接独占收发线程
+
+    public static final int TRANSPORT_NETTY = 1; // netty客户端，所有连接共用事件循环线程
+
+    public static final int TRANSPORT_NETTY_MQTT5 = 2; // netty客户端，使用mqtt5协议，支持主题别名和会话保持
+
 }
@@ -33,19 +33,21 @@ package com.huaweicloud.sdk.iot.device.devicelog;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.huaweicloud.sdk.iot.device.client.listener.DefaultActionListenerImpl;
 import com.huaweicloud.sdk.iot.device.client.requests.DeviceEvent;
+import com.huaweicloud.sdk.iot.device.client.requests.DeviceEventTypeRegistry;
 import com.huaweicloud.sdk.iot.device.service.AbstractService;
 import com.huaweicloud.sdk.iot.device.utils.IotUtil;
-import com.huaweicloud.sdk.iot.device.utils.JsonUtil;
+import com.huaweicloud.sdk.iot.device.utils.TimeStampClock;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.TimeZone;
 
 public class DeviceLogService extends AbstractService {
     private static final String LOG_CONFIG = "log_config";
 
+    static {
+        DeviceEventTypeRegistry.register("$log", LOG_CONFIG, ObjectNode.class);
+    }
+
     private boolean logSwitch = false;
 
     private String endTime;
@@ -91,7 +93,7 @@ public class DeviceLogService extends AbstractService {
 
         if (LOG_CONFIG.equals(deviceEvent.getEventType())) {
 
-            ObjectNode objectNode = JsonUtil.convertMap2Object(deviceEvent.getParas(), ObjectNode.class);
+            ObjectNode objectNode = deviceEvent.getParas(ObjectNode.class);
 
             String aSwitch = objectNode.get("switch").asText();
             String time = objectNode.get("end_time").asText();
@@ -149,10 +151,7 @@ public class DeviceLogService extends AbstractService {
             time = time.replace("Z", "");
         }
 
-        String timeStampFormat = "yyyyMMddHHmmss";
-        SimpleDateFormat df = new SimpleDateFormat(timeStampFormat);
-        df.setTimeZone(TimeZone.getTimeZone("UTC"));
-        String currentTime = df.format(new Date(System.currentTimeMillis()));
+        String currentTime = TimeStampClock.getDefault().getCompactTimeStamp();
 
         if (this.isLogSwitch() && (time == null || currentTime.compareTo(time) < 0)) {
             return true;
@@ -0,0 +1,358 @@
+package com.huaweicloud.sdk.iot.device.devicerule;
+
+import com.huaweicloud.sdk.iot.device.client.requests.ServiceProperty;
+import com.huaweicloud.sdk.iot.device.devicerule.model.DeviceRuleAction;
+import com.huaweicloud.sdk.iot.device.devicerule.model.DeviceRuleCondition;
+import com.huaweicloud.sdk.iot.device.devicerule.model.DeviceRuleInfo;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 编译后的端侧规则。
+ * 规则下发时把条件路径、比较运算符和比较值预先解析好，属性上报时只做数值比较，不再拆分字符串和解析数字。
+ * 比较语义与原先逐次解析的实现一致：数值比较按float进行，等于先比较字符串再比较数值，in按字符串比较。
+ */
+@Slf4j
+final class CompiledRule {
+    static final int LOGIC_INVALID = 0;
+
+    static final int LOGIC_OR = 1;
+
+    static final int LOGIC_AND = 2;
+
+    private final String ruleId;
+
+    private final boolean active;
+
+    private final int logic;
+
+    private final CompiledTimeRange timeRange;
+
+    private final List<Condition> conditions;
+
+    private final List<DeviceRuleAction> actions;
+
+    private CompiledRule(DeviceRuleInfo ruleInfo) {
+        this.ruleId = ruleInfo.getRuleId();
+        this.active = "active".equals(ruleInfo.getStatus());
+        if ("or".equals(ruleInfo.getLogic())) {
+            this.logic = LOGIC_OR;
+        } else if ("and".equals(ruleInfo.getLogic())) {
+            this.logic = LOGIC_AND;
+        } else {
+            this.logic = LOGIC_INVALID;
+        }
+        this.timeRange = CompiledTimeRange.compile(ruleInfo.getTimeRange());
+        List<Condition> compiled = new ArrayList<>();
+        if (ruleInfo.getConditions() != null) {
+            for (DeviceRuleCondition condition : ruleInfo.getConditions()) {
+                compiled.add(Condition.compile(condition));
+            }
+        }
+        this.conditions = Collections.unmodifiableList(compiled);
+        this.actions = ruleInfo.getActions();
+    }
+
+    /**
+     * 编译规则
+     *
+     * @param ruleInfo 规则
+     * @return 编译后的规则
+     */
+    static CompiledRule compile(DeviceRuleInfo ruleInfo) {
+        return new CompiledRule(ruleInfo);
+    }
+
+    String getRuleId() {
+        return ruleId;
+    }
+
+    boolean isActive() {
+        return active;
+    }
+
+    int getLogic() {
+        return logic;
+    }
+
+    CompiledTimeRange getTimeRange() {
+        return timeRange;
+    }
+
+    List<Condition> getConditions() {
+        return conditions;
+    }
+
+    List<DeviceRuleAction> getActions() {
+        return actions;
+    }
+
+    /**
+     * 规则条件是否可以被属性上报触发。没有条件的and规则对任何上报都成立，无法按属性索引
+     *
+     * @return true表示任何上报都要判断
+     */
+    boolean isUnconditional() {
+        return logic == LOGIC_AND && conditions.isEmpty();
+    }
+
+    /**
+     * 判断上报的属性是否满足规则条件，不判断规则状态和时间段
+     *
+     * @param properties 上报的属性
+     * @return true表示满足
+     */
+    boolean isSatisfied(List<ServiceProperty> properties) {
+        if (logic == LOGIC_OR) {
+            for (Condition condition : conditions) {
+                if (condition.isSatisfied(properties)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (logic == LOGIC_AND) {
+            for (Condition condition : conditions) {
+                if (!condition.isSatisfied(properties)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        log.warn("rule logic is not match. ruleId: {}", ruleId);
+        return false;
+    }
+
+    /**
+     * 判断规则在指定时间是否生效
+     *
+     * @param now UTC时间
+     * @return true表示生效
+     */
+    boolean isInTimeRange(ZonedDateTime now) {
+        return timeRange.matches(now);
+    }
+
+    /**
+     * 编译后的属性条件
+     */
+    static final class Condition {
+        static final int OP_NEVER = 0;
+
+        static final int OP_EQ = 1;
+
+        static final int OP_GT = 2;
+
+        static final int OP_GE = 3;
+
+        static final int OP_LT = 4;
+
+        static final int OP_LE = 5;
+
+        static final int OP_BETWEEN = 6;
+
+        static final int OP_IN = 7;
+
+        private static final Condition NEVER = new Condition(null, null, OP_NEVER, null, null, null, null);
+
+        private final String serviceId;
+
+        private final String property;
+
+        private final int operator;
+
+        private final String value;
+
+        // 比较值解析成的float，无法解析时为null，对应原实现中解析失败返回false
+        private final Float number;
+
+        private final Float upper;
+
+        private final Set<String> inValues;
+
+        private Condition(String serviceId, String property, int operator, String value, Float number, Float upper,
+            Set<String> inValues) {
+            this.serviceId = serviceId;
+            this.property = property;
+            this.operator = operator;
+            this.value = value;
+            this.number = number;
+            this.upper = upper;
+            this.inValues = inValues;
+        }
+
+        static Condition compile(DeviceRuleCondition condition) {
+            if (!"DEVICE_DATA".equals(condition.getType()) || condition.getDeviceInfo() == null
+                || condition.getDeviceInfo().getPath() == null) {
+                return NEVER;
+            }
+            final String path = condition.getDeviceInfo().getPath();
+            final String[] pathArray = path.split("/");
+            if (pathArray.length != 2) {
+                log.warn("rule condition path is invalid. path: {}", path);
+                return NEVER;
+            }
+            final String serviceId = pathArray[0];
+            final String property = pathArray[1];
+            final String value = condition.getValue();
+            final String operator = condition.getOperator();
+            if ("between".equals(operator)) {
+                final String[] valueArray = value == null ? new String[0] : value.split(",");
+                if (valueArray.length != 2) {
+                    log.warn("rule condition value is invalid. value: {}", value);
+                    return new Condition(serviceId, property, OP_NEVER, value, null, null, null);
+                }
+                return new Condition(serviceId, property, OP_BETWEEN, value, parse(valueArray[0]),
+                    parse(valueArray[1]), null);
+            }
+            if ("in".equals(operator)) {
+                if (condition.getInValues() == null) {
+                    return new Condition(serviceId, property, OP_NEVER, value, null, null, null);
+                }
+                return new Condition(serviceId, property, OP_IN, value, null, null,
+                    new HashSet<>(condition.getInValues()));
+            }
+            return new Condition(serviceId, property, toOperator(operator, value), value, parse(value), null, null);
+        }
+
+        private static int toOperator(String operator, String value) {
+            if (value == null || operator == null) {
+                return OP_NEVER;
+            }
+            switch (operator) {
+                case "=":
+                    return OP_EQ;
+                case ">":
+                    return OP_GT;
+                case ">=":
+                    return OP_GE;
+                case "<":
+                    return OP_LT;
+                case "<=":
+                    return OP_LE;
+                default:
+                    log.warn("operator id other. operator = {}", operator);
+                    return OP_NEVER;
+            }
+        }
+
+        private static Float parse(String value) {
+            if (value == null) {
+                return null;
+            }
+            try {
+                return Float.valueOf(value);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        String getServiceId() {
+            return serviceId;
+        }
+
+        String getProperty() {
+            return property;
+        }
+
+        int getOperator() {
+            return operator;
+        }
+
+        /**
+         * 上报的属性中只要有一个同服务的属性值满足条件即满足
+         *
+         * @param properties 上报的属性
+         * @return true表示满足
+         */
+        boolean isSatisfied(List<ServiceProperty> properties) {
+            if (operator == OP_NEVER) {
+                return false;
+            }
+            for (ServiceProperty serviceProperty : properties) {
+                final Map<String, Object> props = serviceProperty.getProperties();
+                if (props == null || !serviceId.equals(serviceProperty.getServiceId())) {
+                    continue;
+                }
+                if (test(props.get(property))) {
+                    log.debug("match condition for service. serviceId: {}, value: {}", serviceId, value);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean test(Object left) {
+            switch (operator) {
+                case OP_IN:
+                    return inValues.contains(String.valueOf(left));
+                case OP_EQ:
+                    return left != null && isEqual(left);
+                case OP_BETWEEN:
+                    if (left == null || number == null || upper == null) {
+                        return false;
+                    }
+                    Float between = toFloat(left);
+                    return between != null && between >= number && between <= upper;
+                default:
+                    if (left == null || number == null) {
+                        return false;
+                    }
+                    return compare(toFloat(left));
+            }
+        }
+
+        private boolean compare(Float left) {
+            if (left == null) {
+                return false;
+            }
+            switch (operator) {
+                case OP_GT:
+                    return left > number;
+                case OP_GE:
+                    return left >= number;
+                case OP_LT:
+                    return left < number;
+                case OP_LE:
+                    return left <= number;
+                default:
+                    return false;
+            }
+        }
+
+        private boolean isEqual(Object left) {
+            if (number != null && isPlainNumber(left)) {
+                return number.equals(((Number) left).floatValue());
+            }
+            final String l = String.valueOf(left);
+            if (l.equals(value)) {
+                return true;
+            }
+            if (number == null) {
+                return false;
+            }
+            Float leftNumber = parse(l);
+            return leftNumber != null && leftNumber.equals(number);
+        }
+
+        private static boolean isPlainNumber(Object value) {
+            return value instanceof Integer || value instanceof Long || value instanceof Double
+                || value instanceof Float || value instanceof Short || value instanceof Byte;
+        }
+
+        private static Float toFloat(Object value) {
+            if (isPlainNumber(value)) {
+                return ((Number) value).floatValue();
+            }
+            return parse(String.valueOf(value));
+        }
+    }
+}
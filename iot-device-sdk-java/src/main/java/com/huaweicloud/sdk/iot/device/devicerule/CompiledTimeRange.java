@@ -0,0 +1,121 @@
+package com.huaweicloud.sdk.iot.device.devicerule;
+
+import com.huaweicloud.sdk.iot.device.devicerule.model.TimeRange;
+import com.huaweicloud.sdk.iot.device.utils.ExceptionUtil;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.ZonedDateTime;
+
+/**
+ * 预解析的规则生效时间段，开始结束时间换算成一天中的分钟数，星期列表换算成位图，判断时不再解析字符串
+ */
+@Slf4j
+final class CompiledTimeRange {
+    private static final CompiledTimeRange ALWAYS = new CompiledTimeRange(true, 0, 0, 0);
+
+    private static final CompiledTimeRange NEVER = new CompiledTimeRange(false, 0, 0, 0);
+
+    private final boolean valid;
+
+    private final int beginInMinute;
+
+    private final int endInMinute;
+
+    private final int weekMask;
+
+    private CompiledTimeRange(boolean valid, int beginInMinute, int endInMinute, int weekMask) {
+        this.valid = valid;
+        this.beginInMinute = beginInMinute;
+        this.endInMinute = endInMinute;
+        this.weekMask = weekMask;
+    }
+
+    /**
+     * 解析时间段
+     *
+     * @param timeRange 时间段，为null表示不限时间
+     * @return 解析结果，时间段不完整或格式错误时任何时间都不满足
+     */
+    static CompiledTimeRange compile(TimeRange timeRange) {
+        if (timeRange == null) {
+            return ALWAYS;
+        }
+        String beginTime = timeRange.getStartTime();
+        String endTime = timeRange.getEndTime();
+        String weekStr = timeRange.getDaysOfWeek();
+        if (isEmpty(beginTime) || isEmpty(endTime) || isEmpty(weekStr)) {
+            return NEVER;
+        }
+        try {
+            int weekMask = 0;
+            for (String week : weekStr.split(",")) {
+                int day = Integer.parseInt(week);
+                if (day >= 0 && day < Integer.SIZE) {
+                    weekMask |= 1 << day;
+                }
+            }
+            return new CompiledTimeRange(true, toMinute(beginTime), toMinute(endTime), weekMask);
+        } catch (RuntimeException e) {
+            log.warn("rule time range is invalid. timeRange: {}, e={}", timeRange,
+                ExceptionUtil.getBriefStackTrace(e));
+            return NEVER;
+        }
+    }
+
+    private static int toMinute(String time) {
+        // 时间格式为HH:mm
+        final String[] timeList = time.split(":");
+        return Integer.parseInt(timeList[0]) * 60 + Integer.parseInt(timeList[1]);
+    }
+
+    private static boolean isEmpty(String str) {
+        return str == null || str.isEmpty();
+    }
+
+    /**
+     * 是否不限时间
+     *
+     * @return true表示任何时间都满足
+     */
+    boolean isAlways() {
+        return this == ALWAYS;
+    }
+
+    /**
+     * 判断指定时间是否在时间段内
+     *
+     * @param now UTC时间
+     * @return true表示在时间段内
+     */
+    boolean matches(ZonedDateTime now) {
+        if (this == ALWAYS) {
+            return true;
+        }
+        if (!valid) {
+            return false;
+        }
+        int nowWeek = (now.getDayOfWeek().getValue() + 1) % 7;
+        int nowInMinute = now.getHour() * 60 + now.getMinute();
+
+        // 8:00 -9:00形式
+        if (beginInMinute < endInMinute) {
+            return beginInMinute <= nowInMinute && nowInMinute <= endInMinute && containsWeek(nowWeek);
+        }
+        // 23:00 -01:00形式， 处于23:00-00:00之间的形式
+        if ((beginInMinute <= nowInMinute) && (nowInMinute <= 24 * 60 + 60) && containsWeek(nowWeek)) {
+            return true;
+        } else if (nowInMinute <= endInMinute) {
+            nowWeek = nowWeek - 1;
+            if (nowWeek == 0) {
+                nowWeek = 7;
+            }
+            return containsWeek(nowWeek);
+        }
+        return false;
+    }
+
+    private boolean containsWeek(int week) {
+        return week >= 0 && week < Integer.SIZE && (weekMask & (1 << week)) != 0;
+    }
+}
@@ -5,22 +5,27 @@ import com.huaweicloud.sdk.iot.device.devicerule.model.TimeRange;
 import com.huaweicloud.sdk.iot.device.utils.ExceptionUtil;
 
 import lombok.extern.slf4j.Slf4j;
-import org.quartz.Job;
-import org.quartz.JobExecutionContext;
 
 import java.util.List;
 
 @Slf4j
-public class DeviceRuleJob implements Job {
+public class DeviceRuleJob implements Runnable {
+
+    private final List<DeviceRuleAction> actionList;
+
+    private final DeviceRuleService deviceRuleService;
+
+    private final TimeRange timeRange;
+
+    DeviceRuleJob(List<DeviceRuleAction> actionList, DeviceRuleService deviceRuleService, TimeRange timeRange) {
+        this.actionList = actionList;
+        this.deviceRuleService = deviceRuleService;
+        this.timeRange = timeRange;
+    }
 
     @Override
-    public void execute(JobExecutionContext context) {
+    public void run() {
         try {
-            final List<DeviceRuleAction> actionList = (List<DeviceRuleAction>) context.getMergedJobDataMap()
-                .get("actionList");
-            final DeviceRuleService deviceRuleService = (DeviceRuleService) context.getMergedJobDataMap()
-                .get("deviceRuleService");
-            final TimeRange timeRange = (TimeRange) context.getMergedJobDataMap().get("timeRange");
             if (deviceRuleService.checkTimeRange(timeRange)) {
                 deviceRuleService.onRuleActionHandler(actionList);
             }
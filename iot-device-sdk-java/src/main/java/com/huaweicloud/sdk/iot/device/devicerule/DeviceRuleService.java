@@ -4,8 +4,8 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.huaweicloud.sdk.iot.device.client.IotResult;
 import com.huaweicloud.sdk.iot.device.client.listener.CommandListener;
 import com.huaweicloud.sdk.iot.device.client.requests.DeviceEvent;
+import com.huaweicloud.sdk.iot.device.client.requests.DeviceEventTypeRegistry;
 import com.huaweicloud.sdk.iot.device.client.requests.ServiceProperty;
-import com.huaweicloud.sdk.iot.device.devicerule.model.DeviceInfo;
 import com.huaweicloud.sdk.iot.device.devicerule.model.DeviceRuleAction;
 import com.huaweicloud.sdk.iot.device.devicerule.model.DeviceRuleCommand;
 import com.huaweicloud.sdk.iot.device.devicerule.model.DeviceRuleCondition;
@@ -23,22 +23,27 @@ import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
 
 @Slf4j
 public class DeviceRuleService extends AbstractService {
 
+    static {
+        DeviceEventTypeRegistry.register("$device_rule", "device_rule_config_response", DeviceRuleEventInfo.class);
+    }
+
     private Map<String, DeviceRuleInfo> deviceRuleInfoMap = new ConcurrentHashMap<>();
 
     private Map<String, TimerRuleInstance> timerRuleInstanceMap = new ConcurrentHashMap<>();
 
+    private final Map<String, CompiledRule> compiledRuleMap = new ConcurrentHashMap<>();
+
+    private volatile RuleIndex ruleIndex = RuleIndex.EMPTY;
+
     @Override
     public void onEvent(DeviceEvent deviceEvent) {
         final String serviceId = deviceEvent.getServiceId();
@@ -47,10 +52,8 @@ public class DeviceRuleService extends AbstractService {
             log.warn("serviceId={} or eventType={} is not match deviceRule!", serviceId, eventType);
             return;
         }
-        final Map<String, Object> paras = deviceEvent.getParas();
         try {
-            final DeviceRuleEventInfo deviceRuleEventInfo = JsonUtil.convertValue(paras,
-                DeviceRuleEventInfo.class);
+            final DeviceRuleEventInfo deviceRuleEventInfo = deviceEvent.getParas(DeviceRuleEventInfo.class);
             deviceRuleEventInfo.getRuleInfos()
                 .forEach(deviceRuleInfo -> {
                     final String ruleId = deviceRuleInfo.getRuleId();
@@ -58,9 +61,11 @@ public class DeviceRuleService extends AbstractService {
                     if (oldDeviceRuleInfo == null
                         || oldDeviceRuleInfo.getRuleVersionInShadow() < deviceRuleInfo.getRuleVersionInShadow()) {
                         deviceRuleInfoMap.put(ruleId, deviceRuleInfo);
+                        compiledRuleMap.put(ruleId, CompiledRule.compile(deviceRuleInfo));
                         submitTimerRule(ruleId, deviceRuleInfo);
                     }
                 });
+            rebuildRuleIndex();
             log.info("deviceRuleInfos is {}", deviceRuleInfoMap);
         } catch (Exception e) {
             log.warn("failed to execute onEvent, e={}", ExceptionUtil.getBriefStackTrace(e));
@@ -76,6 +81,7 @@ public class DeviceRuleService extends AbstractService {
                 final DeviceRuleInfo deviceRuleInfo = deviceRuleInfoMap.get(ruleId);
                 if (deviceRuleInfo != null) {
                     deviceRuleInfoMap.remove(ruleId);
+                    compiledRuleMap.remove(ruleId);
                     final TimerRuleInstance timerRuleInstance = timerRuleInstanceMap.get(ruleId);
                     if (timerRuleInstance != null) {
                         timerRuleInstanceMap.remove(ruleId);
@@ -100,6 +106,9 @@ public class DeviceRuleService extends AbstractService {
             final List<String> delRuleIds = new ArrayList<>();
 
             setWrite(properties, ruleIds, delRuleIds);
+            if (!delRuleIds.isEmpty()) {
+                rebuildRuleIndex();
+            }
             DeviceEvent deviceEvent = new DeviceEvent();
             deviceEvent.setServiceId("$device_rule");
             deviceEvent.setEventType("device_rule_config_request");
@@ -127,44 +136,19 @@ public class DeviceRuleService extends AbstractService {
         }
     }
 
+    private synchronized void rebuildRuleIndex() {
+        ruleIndex = RuleIndex.build(compiledRuleMap.values());
+    }
+
+    /**
+     * 属性上报时判断端侧规则，只判断引用了上报属性的规则，条件满足时执行规则动作
+     *
+     * @param properties 上报的属性
+     */
     public void handleRule(List<ServiceProperty> properties) {
-        deviceRuleInfoMap.keySet().forEach(ruleId -> {
-            final DeviceRuleInfo deviceRuleInfo = deviceRuleInfoMap.get(ruleId);
-            if (!"active".equals(deviceRuleInfo.getStatus())) {
-                log.info("rule status={} is not active", deviceRuleInfo.getStatus());
-                return;
-            }
-            // 判断是否在时间范围内
-            if (!checkTimeRange(deviceRuleInfo.getTimeRange())) {
-                log.warn("rule was not match the time!");
-                return;
-            }
-            final List<DeviceRuleCondition> conditions = deviceRuleInfo.getConditions();
-            final String logic = deviceRuleInfo.getLogic();
-            if ("or".equals(logic)) {
-                for (DeviceRuleCondition condition : conditions) {
-                    final boolean flag = isConditionSatisfied(condition, properties);
-                    if (flag) {
-                        onRuleActionHandler(deviceRuleInfo.getActions());
-                        return;
-                    }
-                }
-            } else if ("and".equals(logic)) {
-                boolean isSatisfied = true;
-                for (DeviceRuleCondition condition : conditions) {
-                    final boolean flag = isConditionSatisfied(condition, properties);
-                    if (!flag) {
-                        isSatisfied = false;
-                        break;
-                    }
-                }
-                if (isSatisfied) {
-                    onRuleActionHandler(deviceRuleInfo.getActions());
-                }
-            } else {
-                log.warn("rule logic is not match. logic: {}", logic);
-            }
-        });
+        for (CompiledRule rule : ruleIndex.match(properties)) {
+            onRuleActionHandler(rule.getActions());
+        }
     }
 
     public void onRuleActionHandler(List<DeviceRuleAction> actionList) {
@@ -202,166 +186,8 @@ public class DeviceRuleService extends AbstractService {
             command.getCommandBody());
     }
 
-    private boolean isConditionSatisfied(DeviceRuleCondition condition, List<ServiceProperty> properties) {
-        try {
-            if (!"DEVICE_DATA".equals(condition.getType())) {
-                return false;
-            }
-
-            final DeviceInfo deviceInfo = condition.getDeviceInfo();
-            final String[] pathArray = deviceInfo.getPath().split("/");
-            if (pathArray.length != 2) {
-                log.warn("rule condition path is invalid. path: {}", deviceInfo.getPath());
-                return false;
-            }
-
-            final String serviceId = pathArray[0];
-            final String property = pathArray[1];
-            return operation(condition.getValue(), condition.getInValues(), serviceId, property, properties,
-                condition.getOperator());
-        } catch (Exception e) {
-            log.warn("failed to execute isConditionSatisfied, e={}", ExceptionUtil.getBriefStackTrace(e));
-        }
-        return false;
-    }
-
-    private boolean operation(String value, List<String> inValues, String serviceId, String property,
-        List<ServiceProperty> properties, String operator) {
-        if ("between".equals(operator)) {
-            final String[] valueArray = value.split(",");
-            if (valueArray.length != 2) {
-                log.warn("rule condition value is invalid. value: {}", value);
-                return false;
-            }
-
-            for (ServiceProperty serviceProperty : properties) {
-                final Object propertyValue = String.valueOf(serviceProperty.getProperties().get(property));
-                if (serviceId.equals(serviceProperty.getServiceId()) && valueCompare(propertyValue, valueArray[0],
-                    ">=") && valueCompare(propertyValue, valueArray[1],
-                    "<=")) {
-                    return true;
-                }
-            }
-            return false;
-        }
-        if ("in".equals(operator)) {
-            for (ServiceProperty serviceProperty : properties) {
-                if (serviceId.equals(serviceProperty.getServiceId()) && isInValues(
-                    serviceProperty.getProperties().get(property), inValues)) {
-                    return true;
-                }
-            }
-            return false;
-        }
-
-        for (ServiceProperty serviceProperty : properties) {
-            if (serviceId.equals(serviceProperty.getServiceId()) && valueCompare(
-                serviceProperty.getProperties().get(property), value, operator)) {
-                log.info("match condition for service. serviceId: {}, value: {}", serviceId, value);
-                return true;
-            }
-        }
-
-        return false;
-    }
-
-    private boolean isInValues(Object left, List<String> inValues) {
-        return inValues.contains(String.valueOf(left));
-    }
-
-    private boolean valueCompare(Object left, Object right, String operator) {
-        if (!Objects.isNull(left) && !Objects.isNull(right)) {
-            String l = String.valueOf(left);
-            String r = String.valueOf(right);
-
-            try {
-                switch (operator) {
-                    case "=":
-                        return equals(l, r);
-                    case ">":
-                        return Float.valueOf(l) > Float.valueOf(r);
-                    case ">=":
-                        return Float.valueOf(l) >= Float.valueOf(r);
-                    case "<":
-                        return Float.valueOf(l) < Float.valueOf(r);
-                    case "<=":
-                        return Float.valueOf(l) <= Float.valueOf(r);
-                    default:
-                        log.warn("operator id other. operator = {}", operator);
-                }
-
-            } catch (NumberFormatException exception) {
-                log.warn("String trans to Float failed! left is {}, right is {}", left, right);
-            }
-        }
-        log.warn("compare result is false, left is {}, right is {}, operator is {}", left, right, operator);
-        return false;
-    }
-
-    private boolean equals(String left, String right) {
-        if (left.equals(right)) {
-            return true;
-        } else {
-            try {
-                return Float.valueOf(left).equals(Float.valueOf(right));
-            } catch (Exception e) {
-                log.warn("String trans to Float failed! left is {}, right is {}", left, right);
-            }
-            return false;
-        }
-    }
-
     public boolean checkTimeRange(TimeRange timeRange) {
-        if (timeRange == null) {
-            return true;
-        }
-        String beginTime = timeRange.getStartTime();
-        String endTime = timeRange.getEndTime();
-        String weekStr = timeRange.getDaysOfWeek();
-        if (isEmpty(beginTime) || isEmpty(endTime) || isEmpty(weekStr)) {
-            return false;
-        }
-        final ZonedDateTime now = ZonedDateTime.ofInstant(Instant.now(), ZoneId.of("UTC"));
-        int nowWeek = (now.getDayOfWeek().getValue() + 1) % 7;
-        log.info("nowWeek={}", nowWeek);
-        String[] weekStrList = weekStr.split(",");
-        final List<Integer> weekList = Arrays.asList(weekStrList)
-            .stream()
-            .map(week -> Integer.parseInt(week))
-            .collect(Collectors.toList());
-        // 开始结束时间分割成[Hour, Minute]
-        final String[] beginTimeList = beginTime.split(":");
-        int beginHour = Integer.parseInt(beginTimeList[0]);
-        int beginMinute = Integer.parseInt(beginTimeList[1]);
-        final String[] endTimeList = endTime.split(":");
-        int endHour = Integer.parseInt(endTimeList[0]);
-        int endMinute = Integer.parseInt(endTimeList[1]);
-        int nowHour = now.getHour();
-        int nowMinute = now.getMinute();
-        int beginInMinute = beginHour * 60 + beginMinute;
-        int nowInMinute = nowHour * 60 + nowMinute;
-        int endInMinute = endHour * 60 + endMinute;
-
-        // 8:00 -9:00形式
-        if (beginInMinute < endInMinute) {
-            return beginInMinute <= nowInMinute && nowInMinute <= endInMinute && weekList.contains(nowWeek);
-        }
-        // 23:00 -01:00形式， 处于23:00-00:00之间的形式
-        if ((beginInMinute <= nowInMinute) && (nowInMinute <= 24 * 60 + 60) && weekList.contains(nowWeek)) {
-            return true;
-        } else if (nowInMinute <= endInMinute) {
-            nowWeek = nowWeek - 1;
-            if (nowWeek == 0) {
-                nowWeek = 7;
-            }
-            return weekList.contains(nowWeek);
-        }
-
-        return false;
-    }
-
-    private boolean isEmpty(String str) {
-        return str == null || str.isEmpty();
+        return CompiledTimeRange.compile(timeRange).matches(ZonedDateTime.ofInstant(Instant.now(), ZoneId.of("UTC")));
     }
 
     private void submitTimerRule() throws Exception {
@@ -385,6 +211,9 @@ public class DeviceRuleService extends AbstractService {
                 timerRuleInstanceMap.get(key).shutdown();
                 timerRuleInstanceMap.remove(key);
             }
+            if (!isTimerRule) {
+                continue;
+            }
             if (!"active".equals(deviceRuleInfo.getStatus())) {
                 log.info("rule status={} is not active", deviceRuleInfo.getStatus());
                 return;
@@ -414,6 +243,9 @@ public class DeviceRuleService extends AbstractService {
                 timerRuleInstanceMap.get(ruleId).shutdown();
                 timerRuleInstanceMap.remove(ruleId);
             }
+            if (!isTimerRule) {
+                return;
+            }
             if (!"active".equals(deviceRuleInfo.getStatus())) {
                 log.info("rule status={} is not active", deviceRuleInfo.getStatus());
                 return;
@@ -0,0 +1,130 @@
+package com.huaweicloud.sdk.iot.device.devicerule;
+
+import com.huaweicloud.sdk.iot.device.client.requests.ServiceProperty;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 按“服务id/属性名”索引的规则表。
+ * 属性上报时只取出引用了本次上报属性的规则进行判断，其它规则不参与计算。索引创建后不可修改，规则变化时整体重建。
+ */
+@Slf4j
+final class RuleIndex {
+    static final RuleIndex EMPTY = new RuleIndex(Collections.emptyList());
+
+    private static final ZoneId UTC = ZoneId.of("UTC");
+
+    private final Map<String, Map<String, List<CompiledRule>>> rulesByProperty = new HashMap<>();
+
+    private final List<CompiledRule> unconditionalRules = new ArrayList<>();
+
+    private final int size;
+
+    private RuleIndex(Collection<CompiledRule> rules) {
+        int count = 0;
+        for (CompiledRule rule : rules) {
+            if (!rule.isActive()) {
+                continue;
+            }
+            if (rule.getLogic() == CompiledRule.LOGIC_INVALID) {
+                log.warn("rule logic is not match. ruleId: {}", rule.getRuleId());
+                continue;
+            }
+            count++;
+            if (rule.isUnconditional()) {
+                unconditionalRules.add(rule);
+                continue;
+            }
+            for (CompiledRule.Condition condition : rule.getConditions()) {
+                if (condition.getOperator() == CompiledRule.Condition.OP_NEVER) {
+                    continue;
+                }
+                List<CompiledRule> indexed = rulesByProperty
+                    .computeIfAbsent(condition.getServiceId(), key -> new HashMap<>())
+                    .computeIfAbsent(condition.getProperty(), key -> new ArrayList<>());
+                if (!indexed.contains(rule)) {
+                    indexed.add(rule);
+                }
+            }
+        }
+        this.size = count;
+    }
+
+    /**
+     * 根据编译后的规则创建索引，未激活和逻辑无效的规则不进入索引
+     *
+     * @param rules 编译后的规则
+     * @return 索引
+     */
+    static RuleIndex build(Collection<CompiledRule> rules) {
+        return new RuleIndex(rules);
+    }
+
+    /**
+     * 查询索引中生效的规则数
+     *
+     * @return 规则数
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * 找出被本次上报触发的规则
+     *
+     * @param properties 上报的属性
+     * @return 条件满足且在生效时间段内的规则
+     */
+    List<CompiledRule> match(List<ServiceProperty> properties) {
+        if (size == 0 || properties == null) {
+            return Collections.emptyList();
+        }
+        Set<CompiledRule> candidates = new LinkedHashSet<>(unconditionalRules);
+        for (ServiceProperty serviceProperty : properties) {
+            Map<String, List<CompiledRule>> serviceRules = rulesByProperty.get(serviceProperty.getServiceId());
+            if (serviceRules == null || serviceProperty.getProperties() == null) {
+                continue;
+            }
+            for (String property : serviceProperty.getProperties().keySet()) {
+                List<CompiledRule> rules = serviceRules.get(property);
+                if (rules != null) {
+                    candidates.addAll(rules);
+                }
+            }
+        }
+        if (candidates.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<CompiledRule> matched = new ArrayList<>();
+        ZonedDateTime now = null;
+        for (CompiledRule rule : candidates) {
+            if (!rule.isSatisfied(properties)) {
+                continue;
+            }
+            if (!rule.getTimeRange().isAlways()) {
+                if (now == null) {
+                    now = ZonedDateTime.ofInstant(Instant.now(), UTC);
+                }
+                if (!rule.isInTimeRange(now)) {
+                    log.debug("rule was not match the time! ruleId: {}", rule.getRuleId());
+                    continue;
+                }
+            }
+            matched.add(rule);
+        }
+        return matched;
+    }
+}
@@ -1,37 +1,60 @@
 package com.huaweicloud.sdk.iot.device.devicerule;
 
+import com.huaweicloud.sdk.iot.device.client.HashedWheelTimer;
 import com.huaweicloud.sdk.iot.device.devicerule.model.DeviceRuleCondition;
 import com.huaweicloud.sdk.iot.device.devicerule.model.DeviceRuleInfo;
+import com.huaweicloud.sdk.iot.device.utils.ExceptionUtil;
 import com.huaweicloud.sdk.iot.device.utils.IotUtil;
 
 import lombok.extern.slf4j.Slf4j;
-import org.quartz.CronScheduleBuilder;
-import org.quartz.JobBuilder;
-import org.quartz.JobDataMap;
-import org.quartz.JobDetail;
-import org.quartz.Scheduler;
-import org.quartz.SchedulerException;
-import org.quartz.SimpleScheduleBuilder;
-import org.quartz.Trigger;
-import org.quartz.TriggerBuilder;
-import org.quartz.impl.StdSchedulerFactory;
-
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * 定时规则实例。
+ * 所有规则共用一个时间轮线程计时，到期后把规则动作交给动作线程池执行，再按规则计算下一次触发时间重新加入时间轮。
+ * DAILY_TIMER按UTC时间在指定星期的指定时分触发，星期取值1到7，1表示星期日；
+ * SIMPLE_TIMER从startTime开始每隔repeatInterval秒触发，共触发repeatCount + 1次，repeatCount为负数表示不限次数。
+ */
 @Slf4j
 public class TimerRuleInstance {
+    private static final int REPEAT_INDEFINITELY = -1;
+
+    private static final DateTimeFormatter START_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final HashedWheelTimer TIMER = new HashedWheelTimer("iot-rule-timer", 100L, 512);
+
+    private static final ExecutorService ACTION_EXECUTOR = createActionExecutor();
 
-    private Scheduler scheduler;
+    private final DeviceRuleService deviceRuleService;
 
-    private DeviceRuleService deviceRuleService;
+    private final List<Trigger> triggers = new ArrayList<>();
 
-    TimerRuleInstance(DeviceRuleService deviceRuleService) throws SchedulerException {
+    private volatile boolean isShutdown;
+
+    TimerRuleInstance(DeviceRuleService deviceRuleService) {
         this.deviceRuleService = deviceRuleService;
-        scheduler = new StdSchedulerFactory().getScheduler();
+    }
+
+    private static ExecutorService createActionExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(4, 4, 60L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "iot-rule-action");
+                thread.setDaemon(true);
+                return thread;
+            });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
     }
 
     public void submitRule(DeviceRuleInfo ruleInfo) throws Exception {
@@ -41,7 +64,7 @@ public class TimerRuleInstance {
             if ("DAILY_TIMER".equals(type)) {
                 final String executeTime = condition.getTime();
                 final String daysOfWeek = condition.getDaysOfWeek();
-                if (IotUtil.isStringEmpty(executeTime) && IotUtil.isStringEmpty(daysOfWeek)) {
+                if (IotUtil.isStringEmpty(executeTime) || IotUtil.isStringEmpty(daysOfWeek)) {
                     log.warn("time or days of week is empty, time={}, daysOfWeek={}", executeTime, daysOfWeek);
                     return;
                 }
@@ -50,56 +73,184 @@ public class TimerRuleInstance {
                     log.warn("time format is invalid. time={}", executeTime);
                     return;
                 }
-                final String[] daysList = daysOfWeek.split(",");
                 final Integer[] intTimes = IotUtil.strArrayToInteger(timeList);
-                final Integer[] intDaysList = IotUtil.strArrayToInteger(daysList);
-                final JobDetail jobDetail = getJobDetail(ruleInfo);
-                Trigger trigger = TriggerBuilder.newTrigger()
-                    .withSchedule(
-                        CronScheduleBuilder.atHourAndMinuteOnGivenDaysOfWeek(intTimes[0], intTimes[1], intDaysList)
-                            .inTimeZone(TimeZone.getTimeZone("UTC")))
-                    .build();
-                scheduler.scheduleJob(jobDetail, trigger);
+                final Integer[] intDaysList = IotUtil.strArrayToInteger(daysOfWeek.split(","));
+                int daysMask = 0;
+                for (Integer day : intDaysList) {
+                    if (day < 1 || day > 7) {
+                        throw new IllegalArgumentException("invalid day of week: " + day);
+                    }
+                    daysMask |= 1 << day;
+                }
+                if (intTimes[0] < 0 || intTimes[0] > 23 || intTimes[1] < 0 || intTimes[1] > 59) {
+                    throw new IllegalArgumentException("invalid time: " + executeTime);
+                }
+                triggers.add(new DailyTrigger(newJob(ruleInfo), intTimes[0], intTimes[1], daysMask));
             } else if ("SIMPLE_TIMER".equals(type)) {
                 final int repeatInterval = condition.getRepeatInterval();
                 final int repeatCount = condition.getRepeatCount();
-                final String startTime = condition.getStartTime();
-                final JobDetail jobDetail = getJobDetail(ruleInfo);
-                Trigger trigger = TriggerBuilder.newTrigger()
-                    .withSchedule(SimpleScheduleBuilder.simpleSchedule()
-                        .withRepeatCount(repeatCount)
-                        .withIntervalInSeconds(repeatInterval))
-                    .startAt(strToDate(startTime))
-                    .build();
-                scheduler.scheduleJob(jobDetail, trigger);
+                if (repeatCount != 0 && repeatInterval <= 0) {
+                    throw new IllegalArgumentException("repeat interval must be >= 1: " + repeatInterval);
+                }
+                final long startTime = strToMillis(condition.getStartTime());
+                triggers.add(new SimpleTrigger(newJob(ruleInfo), startTime, repeatInterval * 1000L,
+                    repeatCount < 0 ? REPEAT_INDEFINITELY : repeatCount));
             }
         }
     }
 
-    private Date strToDate(String strTime) throws ParseException {
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
-        return dateFormat.parse(strTime);
+    private long strToMillis(String strTime) {
+        return LocalDateTime.parse(strTime, START_TIME_FORMATTER).toInstant(ZoneOffset.UTC).toEpochMilli();
     }
 
-    private JobDetail getJobDetail(DeviceRuleInfo ruleInfo) {
-        JobDataMap jobDataMap = new JobDataMap();
-        jobDataMap.put("actionList", ruleInfo.getActions());
-        jobDataMap.put("deviceRuleService", deviceRuleService);
-        jobDataMap.put("timeRange", ruleInfo.getTimeRange());
-        JobDetail jobDetail = JobBuilder.newJob(DeviceRuleJob.class).setJobData(jobDataMap).build();
-        return jobDetail;
+    private DeviceRuleJob newJob(DeviceRuleInfo ruleInfo) {
+        return new DeviceRuleJob(ruleInfo.getActions(), deviceRuleService, ruleInfo.getTimeRange());
     }
 
-    public void start() throws SchedulerException {
-        if (scheduler != null) {
-            scheduler.start();
+    public void start() {
+        for (Trigger trigger : triggers) {
+            trigger.scheduleNext(System.currentTimeMillis());
         }
     }
 
-    public void shutdown() throws SchedulerException {
-        if (scheduler != null) {
-            scheduler.shutdown();
+    public void shutdown() {
+        isShutdown = true;
+        for (Trigger trigger : triggers) {
+            trigger.cancel();
+        }
+    }
+
+    /**
+     * 触发器，每次只在时间轮中保留下一次触发
+     */
+    private abstract class Trigger {
+        private final DeviceRuleJob job;
+
+        private volatile HashedWheelTimer.Timeout timeout;
+
+        Trigger(DeviceRuleJob job) {
+            this.job = job;
+        }
+
+        /**
+         * 计算下一次触发时间
+         *
+         * @param now 当前时间，UTC毫秒数
+         * @return 下一次触发时间，小于0表示不再触发
+         */
+        abstract long nextFireTime(long now);
+
+        void scheduleNext(long now) {
+            long fireTime = nextFireTime(now);
+            if (isShutdown || fireTime < 0) {
+                return;
+            }
+            timeout = TIMER.newTimeout(this::fire, Math.max(fireTime - System.currentTimeMillis(), 0));
+
+            // 与shutdown并发时保证新加入的任务也被取消
+            if (isShutdown) {
+                timeout.cancel();
+            }
+        }
+
+        private void fire() {
+            if (isShutdown) {
+                return;
+            }
+            try {
+                ACTION_EXECUTOR.execute(job);
+            } catch (Exception e) {
+                log.warn("failed to execute timer rule, e={}", ExceptionUtil.getBriefStackTrace(e));
+            }
+            scheduleNext(System.currentTimeMillis());
+        }
+
+        void cancel() {
+            HashedWheelTimer.Timeout current = timeout;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+    }
+
+    private class DailyTrigger extends Trigger {
+        private final int hour;
+
+        private final int minute;
+
+        private final int daysMask;
+
+        private long lastFireTime = -1;
+
+        DailyTrigger(DeviceRuleJob job, int hour, int minute, int daysMask) {
+            super(job);
+            this.hour = hour;
+            this.minute = minute;
+            this.daysMask = daysMask;
+        }
+
+        @Override
+        long nextFireTime(long now) {
+            // 时间轮按tick触发，可能比预定时间略早，从上次触发时间之后开始找，避免同一分钟触发两次
+            long from = Math.max(now, lastFireTime + 1);
+            ZonedDateTime time = Instant.ofEpochMilli(from).atZone(ZoneOffset.UTC);
+            ZonedDateTime candidate = time.withHour(hour).withMinute(minute).withSecond(0).withNano(0);
+            if (!candidate.isAfter(time)) {
+                candidate = candidate.plusDays(1);
+            }
+            for (int i = 0; i < 7; i++) {
+                // DayOfWeek中星期一为1、星期日为7，换算成星期日为1、星期六为7
+                int day = candidate.getDayOfWeek().getValue() % 7 + 1;
+                if ((daysMask & (1 << day)) != 0) {
+                    lastFireTime = candidate.toInstant().toEpochMilli();
+                    return lastFireTime;
+                }
+                candidate = candidate.plusDays(1);
+            }
+            return -1;
+        }
+    }
+
+    private class SimpleTrigger extends Trigger {
+        private final long startTime;
+
+        private final long interval;
+
+        private final int repeatCount;
+
+        private int timesTriggered = -1;
+
+        private long lastFireTime;
+
+        SimpleTrigger(DeviceRuleJob job, long startTime, long interval, int repeatCount) {
+            super(job);
+            this.startTime = startTime;
+            this.interval = interval;
+            this.repeatCount = repeatCount;
+        }
+
+        @Override
+        long nextFireTime(long now) {
+            timesTriggered++;
+            if (repeatCount != REPEAT_INDEFINITELY && timesTriggered > repeatCount) {
+                return -1;
+            }
+            if (timesTriggered > 0) {
+                lastFireTime += interval;
+                return lastFireTime;
+            }
+
+            // 首次触发。开始时间已过时与原Quartz默认的错过触发处理一致：不限次数的按原周期对齐到下一次，
+            // 限定次数的立即触发并保留全部次数
+            lastFireTime = startTime;
+            if (startTime < now) {
+                if (repeatCount == REPEAT_INDEFINITELY) {
+                    lastFireTime = startTime + ((now - startTime) / interval + 1) * interval;
+                } else {
+                    lastFireTime = now;
+                }
+            }
+            return lastFireTime;
         }
     }
 }
@@ -31,13 +31,13 @@
 package com.huaweicloud.sdk.iot.device.filemanager;
 
 import com.huaweicloud.sdk.iot.device.client.requests.DeviceEvent;
+import com.huaweicloud.sdk.iot.device.client.requests.DeviceEventTypeRegistry;
 import com.huaweicloud.sdk.iot.device.filemanager.request.UrlRequest;
 import com.huaweicloud.sdk.iot.device.filemanager.request.OpFileStatusRequest;
 import com.huaweicloud.sdk.iot.device.filemanager.response.UrlResponse;
 import com.huaweicloud.sdk.iot.device.service.AbstractService;
 import com.huaweicloud.sdk.iot.device.transport.ActionListener;
 import com.huaweicloud.sdk.iot.device.utils.IotUtil;
-import com.huaweicloud.sdk.iot.device.utils.JsonUtil;
 import lombok.extern.slf4j.Slf4j;
 
 
@@ -76,6 +76,11 @@ public class FileManagerService extends AbstractService {
 
     private static final String DOWNLOAD_RESULT_REPORT = "download_result_report";
 
+    static {
+        DeviceEventTypeRegistry.register(FILE_MANAGER, GET_UPLOAD_URL_RESPONSE, UrlResponse.class);
+        DeviceEventTypeRegistry.register(FILE_MANAGER, GET_DOWNLOAD_URL_RESPONSE, UrlResponse.class);
+    }
+
     private FileMangerListener fileMangerListener;
 
     private BridgeFileMangerListener bridgeFileMangerListener;
@@ -235,10 +240,10 @@ public class FileManagerService extends AbstractService {
         }
 
         if (deviceEvent.getEventType().equalsIgnoreCase(GET_UPLOAD_URL_RESPONSE)) {
-            UrlResponse urlParam = JsonUtil.convertMap2Object(deviceEvent.getParas(), UrlResponse.class);
+            UrlResponse urlParam = deviceEvent.getParas(UrlResponse.class);
             fileMangerListener.onUploadUrl(urlParam);
         } else if (deviceEvent.getEventType().equalsIgnoreCase(GET_DOWNLOAD_URL_RESPONSE)) {
-            UrlResponse urlParam = JsonUtil.convertMap2Object(deviceEvent.getParas(), UrlResponse.class);
+            UrlResponse urlParam = deviceEvent.getParas(UrlResponse.class);
             fileMangerListener.onDownloadUrl(urlParam);
         } else {
             log.error("invalid event type.");
@@ -259,10 +264,10 @@ public class FileManagerService extends AbstractService {
         }
 
         if (deviceEvent.getEventType().equalsIgnoreCase(GET_UPLOAD_URL_RESPONSE)) {
-            UrlResponse urlParam = JsonUtil.convertMap2Object(deviceEvent.getParas(), UrlResponse.class);
+            UrlResponse urlParam = deviceEvent.getParas(UrlResponse.class);
             bridgeFileMangerListener.onUploadUrl(urlParam, deviceId);
         } else if (deviceEvent.getEventType().equalsIgnoreCase(GET_DOWNLOAD_URL_RESPONSE)) {
-            UrlResponse urlParam = JsonUtil.convertMap2Object(deviceEvent.getParas(), UrlResponse.class);
+            UrlResponse urlParam = deviceEvent.getParas(UrlResponse.class);
             bridgeFileMangerListener.onDownloadUrl(urlParam, deviceId);
         } else {
             log.error("invalid event type.");
@@ -30,10 +30,11 @@
 
 package com.huaweicloud.sdk.iot.device.gateway;
 
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.huaweicloud.sdk.iot.device.IoTDevice;
+import com.huaweicloud.sdk.iot.device.client.ClientConf;
 import com.huaweicloud.sdk.iot.device.client.requests.Command;
 import com.huaweicloud.sdk.iot.device.client.requests.DeviceEvent;
+import com.huaweicloud.sdk.iot.device.client.requests.DeviceEventTypeRegistry;
 import com.huaweicloud.sdk.iot.device.client.requests.DeviceEvents;
 import com.huaweicloud.sdk.iot.device.client.requests.DeviceMessage;
 import com.huaweicloud.sdk.iot.device.client.requests.PropsGet;
@@ -49,9 +50,7 @@ import com.huaweicloud.sdk.iot.device.gateway.requests.ScanSubdeviceNotify;
 import com.huaweicloud.sdk.iot.device.gateway.requests.SubDevicesInfo;
 import com.huaweicloud.sdk.iot.device.transport.ActionListener;
 import com.huaweicloud.sdk.iot.device.transport.ConnectListener;
-import com.huaweicloud.sdk.iot.device.transport.RawMessage;
 import com.huaweicloud.sdk.iot.device.utils.IotUtil;
-import com.huaweicloud.sdk.iot.device.utils.JsonUtil;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.File;
@@ -67,6 +66,15 @@ import java.util.Map;
 @Slf4j
 public abstract class AbstractGateway extends IoTDevice {
 
+    static {
+        DeviceEventTypeRegistry.register("$sub_device_discovery", "start_scan", ScanSubdeviceNotify.class);
+        DeviceEventTypeRegistry.register("$sub_device_manager", "add_sub_device_notify", SubDevicesInfo.class);
+        DeviceEventTypeRegistry.register("$sub_device_manager", "delete_sub_device_notify", SubDevicesInfo.class);
+        DeviceEventTypeRegistry.register("$sub_device_manager", "add_sub_device_response", GtwAddSubDeviceRsp.class);
+        DeviceEventTypeRegistry.register("$sub_device_manager", "delete_sub_device_response",
+            GtwDelSubDeviceRsp.class);
+    }
+
     private SubDevDiscoveryListener subDevDiscoveryListener;
 
     private final SubDevicesPersistence subDevicesPersistence;
@@ -86,20 +94,7 @@ public abstract class AbstractGateway extends IoTDevice {
         String deviceSecret, File file) {
         super(serverUri, deviceId, deviceSecret, file);
         this.subDevicesPersistence = subDevicesPersistence;
-
-        getClient().setConnectListener(new ConnectListener() {
-            @Override
-            public void connectionLost(Throwable cause) {
-
-            }
-
-            @Override
-            public void connectComplete(boolean reconnect, String serverURI) {
-                // 建连或重连时，向平台同步子设备信息
-                syncSubDevices();
-            }
-        });
-
+        initSyncListener();
     }
 
     /**
@@ -116,6 +111,22 @@ public abstract class AbstractGateway extends IoTDevice {
         KeyStore keyStore, String keyPassword, File file) {
         super(serverUri, deviceId, keyStore, keyPassword, file);
         this.subDevicesPersistence = subDevicesPersistence;
+        initSyncListener();
+    }
+
+    /**
+     * 构造函数，直接使用客户端配置创建网关，可以指定传输层实现
+     *
+     * @param subDevicesPersistence 子设备持久化，提供子设备信息保存能力
+     * @param clientConf            客户端配置
+     */
+    public AbstractGateway(SubDevicesPersistence subDevicesPersistence, ClientConf clientConf) {
+        super(clientConf);
+        this.subDevicesPersistence = subDevicesPersistence;
+        initSyncListener();
+    }
+
+    private void initSyncListener() {
         getClient().setConnectListener(new ConnectListener() {
             @Override
             public void connectionLost(Throwable cause) {
@@ -228,14 +239,7 @@ public abstract class AbstractGateway extends IoTDevice {
     private void reportSubDeviceProperties(List<DeviceProperty> deviceProperties,
         ActionListener listener) {
 
-        ObjectNode node = JsonUtil.createObjectNode();
-        node.putPOJO("devices", deviceProperties);
-
-        String topic = "$oc/devices/" + getDeviceId() + "/sys/gateway/sub_devices/properties/report";
-
-        RawMessage rawMessage = new RawMessage(topic, node.toString());
-
-        getClient().publishRawMessage(rawMessage, listener);
+        getClient().reportSubDeviceProperties(deviceProperties, listener);
 
     }
 
@@ -332,8 +336,7 @@ public abstract class AbstractGateway extends IoTDevice {
 
             if ("start_scan".equals(deviceEvent.getEventType())) {
 
-                ScanSubdeviceNotify scanSubdeviceNotify = JsonUtil.convertMap2Object(
-                    deviceEvent.getParas(), ScanSubdeviceNotify.class);
+                ScanSubdeviceNotify scanSubdeviceNotify = deviceEvent.getParas(ScanSubdeviceNotify.class);
 
                 if (subDevDiscoveryListener != null) {
                     subDevDiscoveryListener.onScan(scanSubdeviceNotify);
@@ -341,23 +344,20 @@ public abstract class AbstractGateway extends IoTDevice {
 
             } else if ("add_sub_device_notify".equals(deviceEvent.getEventType())) {
 
-                SubDevicesInfo subDevicesInfo = JsonUtil.convertMap2Object(
-                    deviceEvent.getParas(), SubDevicesInfo.class);
+                SubDevicesInfo subDevicesInfo = deviceEvent.getParas(SubDevicesInfo.class);
 
                 onAddSubDevices(subDevicesInfo);
 
             } else if ("delete_sub_device_notify".equals(deviceEvent.getEventType())) {
 
-                SubDevicesInfo subDevicesInfo = JsonUtil.convertMap2Object(
-                    deviceEvent.getParas(), SubDevicesInfo.class);
+                SubDevicesInfo subDevicesInfo = deviceEvent.getParas(SubDevicesInfo.class);
 
                 onDeleteSubDevices(subDevicesInfo);
 
             } else if ("add_sub_device_response".equals(deviceEvent.getEventType())) {
 
                 // 跟接收子设备新增通知处理逻辑不一致
-                GtwAddSubDeviceRsp gtwAddSubDeviceRsp = JsonUtil.convertMap2Object(deviceEvent.getParas(),
-                    GtwAddSubDeviceRsp.class);
+                GtwAddSubDeviceRsp gtwAddSubDeviceRsp = deviceEvent.getParas(GtwAddSubDeviceRsp.class);
 
                 if (gtwOperateSubDeviceListener != null) {
                     gtwOperateSubDeviceListener.onAddSubDeviceRsp(gtwAddSubDeviceRsp, deviceEvent.getEventId());
@@ -365,8 +365,7 @@ public abstract class AbstractGateway extends IoTDevice {
             } else if ("delete_sub_device_response".equals(deviceEvent.getEventType())) {
 
                 // 跟接收子设备删除通知处理逻辑不一致
-                GtwDelSubDeviceRsp gtwDelSubDeviceRsp = JsonUtil.convertMap2Object(deviceEvent.getParas(),
-                    GtwDelSubDeviceRsp.class);
+                GtwDelSubDeviceRsp gtwDelSubDeviceRsp = deviceEvent.getParas(GtwDelSubDeviceRsp.class);
 
                 if (gtwOperateSubDeviceListener != null) {
                     gtwOperateSubDeviceListener.onDelSubDeviceRsp(gtwDelSubDeviceRsp, deviceEvent.getEventId());
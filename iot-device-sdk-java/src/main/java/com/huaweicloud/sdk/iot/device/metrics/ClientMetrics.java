@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.metrics;
+
+import com.huaweicloud.sdk.iot.device.transport.ActionListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 单个连接的指标记录，由连接在发布、建链、断链时调用。
+ * 没有设置MetricRegistry时所有方法直接返回，不产生额外开销
+ */
+public class ClientMetrics {
+    /**
+     * 发布到收到PUBACK的时延，直方图，单位微秒，只统计qos1且发布时连接正常的消息
+     */
+    public static final String PUBLISH_LATENCY = "iot.publish.latency";
+
+    /**
+     * 收到PUBACK的消息数，计数器
+     */
+    public static final String PUBLISH_SUCCESS = "iot.publish.success";
+
+    /**
+     * 发布失败的消息数，包括发送窗口已满、连接断开导致的失败，计数器
+     */
+    public static final String PUBLISH_FAILURE = "iot.publish.failure";
+
+    /**
+     * 已发出但还未收到PUBACK的消息数，仪表
+     */
+    public static final String PUBLISH_INFLIGHT = "iot.publish.inflight";
+
+    /**
+     * 发送窗口大小，即CustomOptions.maxInflight，仪表。在途消息数接近该值时新消息会进入离线缓存或发布失败
+     */
+    public static final String PUBLISH_INFLIGHT_LIMIT = "iot.publish.inflight.limit";
+
+    /**
+     * 内存离线缓存中的消息数，仪表，缓存满后新消息会被丢弃
+     */
+    public static final String OFFLINE_BUFFER_SIZE = "iot.offline.buffer.size";
+
+    /**
+     * 磁盘离线缓存中未确认的消息数，仪表，只在设置了CustomOptions.offlineSpoolDir时注册
+     */
+    public static final String OFFLINE_SPOOL_SIZE = "iot.offline.spool.size";
+
+    /**
+     * 下行消息分发通道中等待处理的消息数，仪表
+     */
+    public static final String DISPATCH_QUEUE_LENGTH = "iot.dispatch.queue.length";
+
+    /**
+     * 连接断开次数，计数器
+     */
+    public static final String CONNECTION_LOST = "iot.connection.lost";
+
+    /**
+     * 建链失败次数，包括首次建链和每次重连尝试，计数器
+     */
+    public static final String CONNECT_FAILURE = "iot.connect.failure";
+
+    /**
+     * 从连接断开到重连成功的时长，直方图，单位毫秒
+     */
+    public static final String RECONNECT_DURATION = "iot.reconnect.duration";
+
+    private final MetricRegistry registry;
+
+    private final Map<String, Gauge> registeredGauges = new ConcurrentHashMap<>();
+
+    private final AtomicInteger inflight = new AtomicInteger();
+
+    private volatile boolean lost;
+
+    private volatile long lostTime;
+
+    /**
+     * 构造函数
+     *
+     * @param registry 指标注册表，为null时不记录指标
+     */
+    public ClientMetrics(MetricRegistry registry) {
+        this.registry = registry;
+        registerGauge(PUBLISH_INFLIGHT, inflight::get);
+    }
+
+    public boolean isEnabled() {
+        return registry != null;
+    }
+
+    /**
+     * 开始统计一条消息的发布，收到PUBACK或发布失败时调用publishCompleted
+     *
+     * @return 发布时间，传给publishCompleted；未开启指标时返回0
+     */
+    public long publishStarted() {
+        if (registry == null) {
+            return 0L;
+        }
+        inflight.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * 结束统计一条消息的发布
+     *
+     * @param startTime publishStarted返回的发布时间
+     * @param success   是否收到PUBACK
+     */
+    public void publishCompleted(long startTime, boolean success) {
+        if (registry == null) {
+            return;
+        }
+        inflight.decrementAndGet();
+        if (success) {
+            registry.counter(PUBLISH_SUCCESS).increment();
+            registry.histogram(PUBLISH_LATENCY)
+                .record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startTime));
+        } else {
+            registry.counter(PUBLISH_FAILURE).increment();
+        }
+    }
+
+    /**
+     * 包装发布监听器，在发布结果通知时结束统计
+     *
+     * @param listener 原监听器，可以为null
+     * @return 包装后的监听器，未开启指标时返回原监听器
+     */
+    public ActionListener trackPublish(ActionListener listener) {
+        if (registry == null) {
+            return listener;
+        }
+        long startTime = publishStarted();
+        return new ActionListener() {
+            @Override
+            public void onSuccess(Object context) {
+                publishCompleted(startTime, true);
+                if (listener != null) {
+                    listener.onSuccess(context);
+                }
+            }
+
+            @Override
+            public void onFailure(Object context, Throwable var2) {
+                publishCompleted(startTime, false);
+                if (listener != null) {
+                    listener.onFailure(context, var2);
+                }
+            }
+        };
+    }
+
+    /**
+     * 连接断开时调用
+     */
+    public void connectionLost() {
+        if (registry == null) {
+            return;
+        }
+        registry.counter(CONNECTION_LOST).increment();
+        lostTime = System.nanoTime();
+        lost = true;
+    }
+
+    /**
+     * 建链成功时调用，断开后重连成功时记录重连时长
+     */
+    public void connected() {
+        if (registry == null || !lost) {
+            return;
+        }
+        lost = false;
+        registry.histogram(RECONNECT_DURATION).record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lostTime));
+    }
+
+    /**
+     * 建链失败时调用
+     */
+    public void connectFailed() {
+        if (registry != null) {
+            registry.counter(CONNECT_FAILURE).increment();
+        }
+    }
+
+    /**
+     * 注册仪表，同一个名称只注册一次，close时统一注销
+     *
+     * @param name  指标名称
+     * @param gauge 仪表
+     */
+    public void registerGauge(String name, Gauge gauge) {
+        if (registry != null && registeredGauges.putIfAbsent(name, gauge) == null) {
+            registry.registerGauge(name, gauge);
+        }
+    }
+
+    /**
+     * 注销注册过的仪表，连接关闭时调用。共用注册表时，已关闭设备的状态不再计入仪表
+     */
+    public void close() {
+        if (registry == null) {
+            return;
+        }
+        registeredGauges.forEach(registry::removeGauge);
+        registeredGauges.clear();
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 指标注册表，不依赖任何监控框架，通过ClientConf.setMetricRegistry设置后SDK把连接相关的指标记录到这里，
+ * 指标名称见ClientMetrics。
+ * 多个设备可以共用一个注册表：同名的计数器和直方图合并统计，同名的仪表可以由多个设备分别注册，读取时返回所有仪表的和
+ */
+public class MetricRegistry {
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    private final Map<String, Set<Gauge>> gauges = new ConcurrentHashMap<>();
+
+    /**
+     * 查询计数器，不存在时创建
+     *
+     * @param name 指标名称
+     * @return 计数器
+     */
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, key -> new Counter());
+    }
+
+    /**
+     * 查询直方图，不存在时创建
+     *
+     * @param name 指标名称
+     * @return 直方图
+     */
+    public Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, key -> new Histogram());
+    }
+
+    /**
+     * 注册仪表，同一个名称可以注册多个仪表
+     *
+     * @param name  指标名称
+     * @param gauge 仪表
+     */
+    public void registerGauge(String name, Gauge gauge) {
+        gauges.computeIfAbsent(name, key -> ConcurrentHashMap.newKeySet()).add(gauge);
+    }
+
+    /**
+     * 注销仪表，设备关闭时调用
+     *
+     * @param name  指标名称
+     * @param gauge 注册时的仪表
+     */
+    public void removeGauge(String name, Gauge gauge) {
+        Set<Gauge> registered = gauges.get(name);
+        if (registered != null) {
+            registered.remove(gauge);
+        }
+    }
+
+    /**
+     * 查询仪表的当前值
+     *
+     * @param name 指标名称
+     * @return 该名称下所有仪表的和，没有注册时返回0
+     */
+    public long getGaugeValue(String name) {
+        Set<Gauge> registered = gauges.get(name);
+        if (registered == null) {
+            return 0L;
+        }
+        long value = 0L;
+        for (Gauge gauge : registered) {
+            value += gauge.getValue();
+        }
+        return value;
+    }
+
+    public Map<String, Counter> getCounters() {
+        return Collections.unmodifiableMap(counters);
+    }
+
+    public Map<String, Histogram> getHistograms() {
+        return Collections.unmodifiableMap(histograms);
+    }
+
+    public Set<String> getGaugeNames() {
+        return Collections.unmodifiableSet(gauges.keySet());
+    }
+}
@@ -32,9 +32,9 @@ package com.huaweicloud.sdk.iot.device.ota;
 
 import com.huaweicloud.sdk.iot.device.client.listener.DefaultActionListenerImpl;
 import com.huaweicloud.sdk.iot.device.client.requests.DeviceEvent;
+import com.huaweicloud.sdk.iot.device.client.requests.DeviceEventTypeRegistry;
 import com.huaweicloud.sdk.iot.device.service.AbstractService;
 import com.huaweicloud.sdk.iot.device.utils.IotUtil;
-import com.huaweicloud.sdk.iot.device.utils.JsonUtil;
 import lombok.extern.slf4j.Slf4j;
 
 
@@ -79,6 +79,14 @@ public class OTAService extends AbstractService {
 
     public static final int OTA_CODE_INNER_ERROR = 255; // 内部异常
 
+    static {
+        DeviceEventTypeRegistry.register("$ota", "version_query", OTAQueryInfo.class);
+        DeviceEventTypeRegistry.register("$ota", "firmware_upgrade", OTAPackage.class);
+        DeviceEventTypeRegistry.register("$ota", "software_upgrade", OTAPackage.class);
+        DeviceEventTypeRegistry.register("$ota", "firmware_upgrade_v2", OTAPackageV2.class);
+        DeviceEventTypeRegistry.register("$ota", "software_upgrade_v2", OTAPackageV2.class);
+    }
+
     private OTAListener otaListener;
 
     private ExecutorService executorService; // OTA单独起一个线程处理
@@ -164,20 +172,20 @@ public class OTAService extends AbstractService {
         }
 
         if (deviceEvent.getEventType().equalsIgnoreCase("version_query")) {
-            OTAQueryInfo queryInfo = JsonUtil.convertMap2Object(deviceEvent.getParas(), OTAQueryInfo.class);
+            OTAQueryInfo queryInfo = deviceEvent.getParas(OTAQueryInfo.class);
             otaListener.onQueryVersion(queryInfo);
             return;
         } else if (deviceEvent.getEventType().equalsIgnoreCase("firmware_upgrade")
             || deviceEvent.getEventType().equalsIgnoreCase("software_upgrade")) {
 
-            OTAPackage pkg = JsonUtil.convertMap2Object(deviceEvent.getParas(), OTAPackage.class);
+            OTAPackage pkg = deviceEvent.getParas(OTAPackage.class);
 
             success = executorService.submit(() -> otaListener.onNewPackage(pkg), "success");
 
         } else if (deviceEvent.getEventType().equalsIgnoreCase("firmware_upgrade_v2")
             || deviceEvent.getEventType().equalsIgnoreCase("software_upgrade_v2")) {
 
-            OTAPackageV2 pkgV2 = JsonUtil.convertMap2Object(deviceEvent.getParas(), OTAPackageV2.class);
+            OTAPackageV2 pkgV2 = deviceEvent.getParas(OTAPackageV2.class);
 
             success = executorService.submit(() -> otaListener.onNewPackageV2(pkgV2), "success");
         }
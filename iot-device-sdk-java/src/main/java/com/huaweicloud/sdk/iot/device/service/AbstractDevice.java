@@ -61,6 +61,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -176,7 +177,21 @@ public class AbstractDevice {
      * @return 如果连接成功，返回0；其它表示失败
      */
     public int init() {
+        initConnLogListener();
+        return client.connect();
+    }
 
+    /**
+     * 异步初始化，创建到平台的连接，不阻塞调用线程
+     *
+     * @return 连接结果，0表示成功，其它表示失败
+     */
+    public CompletableFuture<Integer> initAsync() {
+        initConnLogListener();
+        return client.connectAsync();
+    }
+
+    private void initConnLogListener() {
         // 如果日志上报开关是关闭状态或者已过日志收集结束时间，则取消上报设备连接状态相关日志
         if (deviceLogService.canReportLog()) {
             DefaultConnLogListener defaultConnLogListener = new DefaultConnLogListener(deviceLogService);
@@ -186,8 +201,6 @@ public class AbstractDevice {
                 deviceLogService);
             client.setConnectActionListener(defaultConnActionLogListener);
         }
-
-        return client.connect();
     }
 
     /**
@@ -38,15 +38,15 @@ import com.huaweicloud.sdk.iot.device.client.requests.DeviceEvent;
 import com.huaweicloud.sdk.iot.device.utils.ExceptionUtil;
 import lombok.extern.slf4j.Slf4j;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 抽象服务类，提供了属性自动读写和命令调用能力，用户可以继承此类，根据物模型定义自己的服务
@@ -57,84 +57,51 @@ public abstract class AbstractService implements IService {
 
     private AbstractDevice iotDevice;
 
-    private final Map<String, Method> commands = new HashMap<>();
+    private final Map<String, Method> commands;
 
-    private final Map<String, Field> writeableFields = new HashMap<>();
+    private final Map<String, ServiceMetadata.PropertyAccessor> writeableFields;
 
-    private final Map<String, FieldPair> readableFields = new HashMap<>();
+    private final Map<String, ServiceMetadata.PropertyAccessor> readableFields;
 
-    private Timer timer;
+    /**
+     * 所有服务共用的自动上报调度线程。读取属性（调用服务的getter）、序列化和发布都在此线程中执行，
+     * 发布是异步的，不等待平台确认，但getter阻塞会推迟所有设备的自动上报
+     */
+    private static final ScheduledThreadPoolExecutor AUTO_REPORT_SCHEDULER = createAutoReportScheduler();
 
-    private String serviceId;
+    private ScheduledFuture<?> autoReportFuture;
 
-    private static class FieldPair {
-        String propertyName;
+    private volatile long lastFullReportTime;
 
-        Field field;
+    private String serviceId;
 
-        FieldPair(String propertyName, Field field) {
-            this.propertyName = propertyName;
-            this.field = field;
-        }
+    private static ScheduledThreadPoolExecutor createAutoReportScheduler() {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "iot-auto-report");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
     }
 
     public AbstractService() {
-        for (Field field : this.getClass().getDeclaredFields()) {
-
-            Property property = field.getAnnotation(Property.class);
-            if (property == null) {
-                continue;
-            }
-
-            String name = property.name();
-            if (name.isEmpty()) {
-                name = field.getName();
-            }
-            if (property.writeable()) {
-                writeableFields.put(name, field);
-            }
-
-            // 这里key是字段名,pair里保存属性名
-            readableFields.put(field.getName(), new FieldPair(name, field));
-        }
-
-        for (Method method : this.getClass().getDeclaredMethods()) {
-            DeviceCommand deviceCommand = method.getAnnotation(DeviceCommand.class);
-            if (deviceCommand == null) {
-                continue;
-            }
-            String name = deviceCommand.name();
-            if (name.isEmpty()) {
-                name = method.getName();
-            }
-            commands.put(name, method);
-        }
+        // 注解解析和getter/setter查找按服务类缓存，同一个类的多个实例共用
+        ServiceMetadata metadata = ServiceMetadata.of(this.getClass());
+        this.commands = metadata.getCommands();
+        this.writeableFields = metadata.getWriteableFields();
+        this.readableFields = metadata.getReadableFields();
     }
 
-    private Object getFiledValue(String fieldName) {
-        Field field = readableFields.get(fieldName).field;
-        if (field == null) {
-            log.error("field is null: " + fieldName);
+    private Object getFiledValue(ServiceMetadata.PropertyAccessor accessor) {
+        if (!accessor.hasGetter()) {
+            log.error("method is null: " + accessor.getGetterName());
             return null;
         }
-        String getter = "get" + Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
-        Method method;
 
         try {
-            method = this.getClass().getDeclaredMethod(getter);
-        } catch (NoSuchMethodException e) {
-            log.error(ExceptionUtil.getBriefStackTrace(e));
-            return null;
-        }
-
-        if (method == null) {
-            log.error("method is null: " + getter);
-            return null;
-        }
-
-        try {
-            return method.invoke(this);
-        } catch (IllegalAccessException | InvocationTargetException e) {
+            return accessor.get(this);
+        } catch (Throwable e) {
             log.error(ExceptionUtil.getBriefStackTrace(e));
         }
 
@@ -154,14 +121,15 @@ public abstract class AbstractService implements IService {
         // 读取指定的字段
         if (fields.length > 0) {
             for (String fieldName : fields) {
-                if (readableFields.get(fieldName) == null) {
+                ServiceMetadata.PropertyAccessor accessor = readableFields.get(fieldName);
+                if (accessor == null) {
                     log.error("field is not readable:" + fieldName);
                     continue;
                 }
 
-                Object value = getFiledValue(fieldName);
+                Object value = getFiledValue(accessor);
                 if (value != null) {
-                    ret.put(readableFields.get(fieldName).propertyName, value);
+                    ret.put(accessor.getPropertyName(), value);
                 }
             }
 
@@ -169,10 +137,10 @@ public abstract class AbstractService implements IService {
         }
 
         // 读取全部字段
-        for (Map.Entry<String, FieldPair> entry : readableFields.entrySet()) {
-            Object value = getFiledValue(entry.getKey());
+        for (ServiceMetadata.PropertyAccessor accessor : readableFields.values()) {
+            Object value = getFiledValue(accessor);
             if (value != null) {
-                ret.put(entry.getValue().propertyName, value);
+                ret.put(accessor.getPropertyName(), value);
             }
         }
         return ret;
@@ -191,34 +159,23 @@ public abstract class AbstractService implements IService {
         List<String> changedProps = new ArrayList<>();
         for (Map.Entry<String, Object> entry : properties.entrySet()) {
 
-            Field field = writeableFields.get(entry.getKey());
-            if (field == null) {
+            ServiceMetadata.PropertyAccessor accessor = writeableFields.get(entry.getKey());
+            if (accessor == null) {
                 log.error("field not found or not writeable " + entry.getKey());
                 return new IotResult(-1, "field not found or not writeable " + entry.getKey());
 
             }
 
-            Object value = entry.getValue();
-            String setter = "set" + Character.toUpperCase(field.getName().charAt(0)) + field.getName().substring(1);
-            Method method = null;
-
-            try {
-                method = this.getClass().getDeclaredMethod(setter, field.getType());
-            } catch (NoSuchMethodException e) {
-                log.error(ExceptionUtil.getBriefStackTrace(e));
-
-            }
-
-            if (method == null) {
-                log.error("method not found, the method is {}", setter);
-                return new IotResult(-1, "method not found： " + setter);
+            if (!accessor.hasSetter()) {
+                log.error("method not found, the method is {}", accessor.getSetterName());
+                return new IotResult(-1, "method not found： " + accessor.getSetterName());
             }
 
             try {
-                method.invoke(this, value);
+                accessor.set(this, entry.getValue());
                 log.info("write property ok, {}", entry.getKey());
-                changedProps.add(field.getName());
-            } catch (Exception e) {
+                changedProps.add(accessor.getField().getName());
+            } catch (Throwable e) {
                 log.error(ExceptionUtil.getBriefStackTrace(e));
                 return new IotResult(-1, e.getMessage());
             }
@@ -259,6 +216,9 @@ public abstract class AbstractService implements IService {
      * @param properties 变化的属性，不指定默认读取全部可读属性
      */
     public void firePropertiesChanged(String... properties) {
+        if (properties.length == 0) {
+            lastFullReportTime = System.nanoTime();
+        }
         iotDevice.firePropertiesChanged(getServiceId(), properties);
     }
 
@@ -312,32 +272,48 @@ public abstract class AbstractService implements IService {
     }
 
     /**
-     * 开启自动周期上报属性
+     * 开启自动周期上报属性。
+     * 所有服务共用一个调度线程，首次上报时间在一个周期内随机打散，避免大量服务同时上报；
+     * 如果距上次手动全量上报（不带参数调用firePropertiesChanged）不到半个周期，本周期的自动上报会被合并跳过。
+     * 上报在共用的调度线程中执行，属性的getter不能阻塞或执行耗时操作，否则会推迟其他设备的上报
      *
      * @param reportInterval 上报周期，单位ms
      */
-    public void enableAutoReport(int reportInterval) {
-        if (timer != null) {
+    public synchronized void enableAutoReport(int reportInterval) {
+        if (autoReportFuture != null) {
             log.error("timer is already enabled");
             return;
         }
+        if (reportInterval <= 0) {
+            log.error("invalid report interval: {}", reportInterval);
+            return;
+        }
 
-        timer = new Timer();
-        timer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                firePropertiesChanged();
-            }
-        }, reportInterval, reportInterval);
+        long initialDelay = 1 + ThreadLocalRandom.current().nextInt(reportInterval);
+        long coalesceWindow = TimeUnit.MILLISECONDS.toNanos(reportInterval) / 2;
+        autoReportFuture = AUTO_REPORT_SCHEDULER.scheduleAtFixedRate(() -> autoReport(coalesceWindow),
+            initialDelay, reportInterval, TimeUnit.MILLISECONDS);
+    }
+
+    private void autoReport(long coalesceWindow) {
+        if (lastFullReportTime != 0 && System.nanoTime() - lastFullReportTime < coalesceWindow) {
+            return;
+        }
+        try {
+            iotDevice.firePropertiesChanged(getServiceId());
+        } catch (Exception e) {
+            // 异常会终止周期任务，这里只记录日志
+            log.error(ExceptionUtil.getBriefStackTrace(e));
+        }
     }
 
     /**
      * 关闭自动周期上报，您可以通过firePropertiesChanged触发上报
      */
-    public void disableAutoReport() {
-        if (timer != null) {
-            timer.cancel();
-            timer = null;
+    public synchronized void disableAutoReport() {
+        if (autoReportFuture != null) {
+            autoReportFuture.cancel(false);
+            autoReportFuture = null;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.service;
+
+import com.huaweicloud.sdk.iot.device.utils.ExceptionUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 服务类的属性和命令元数据。
+ * 每个服务类只在第一次实例化时解析一次注解，并把getter/setter转换成MethodHandle缓存起来，读写属性时直接调用，
+ * 不再每次拼接方法名和查找方法。
+ */
+@Slf4j
+final class ServiceMetadata {
+    private static final ClassValue<ServiceMetadata> CACHE = new ClassValue<ServiceMetadata>() {
+        @Override
+        protected ServiceMetadata computeValue(Class<?> type) {
+            return new ServiceMetadata(type);
+        }
+    };
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final Map<String, Method> commands = new HashMap<>();
+
+    private final Map<String, PropertyAccessor> writeableFields = new HashMap<>();
+
+    // key是字段名，accessor里保存属性名
+    private final Map<String, PropertyAccessor> readableFields = new HashMap<>();
+
+    private ServiceMetadata(Class<?> serviceClass) {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        for (Field field : serviceClass.getDeclaredFields()) {
+            Property property = field.getAnnotation(Property.class);
+            if (property == null) {
+                continue;
+            }
+
+            String name = property.name();
+            if (name.isEmpty()) {
+                name = field.getName();
+            }
+            PropertyAccessor accessor = new PropertyAccessor(lookup, serviceClass, name, field);
+            if (property.writeable()) {
+                writeableFields.put(name, accessor);
+            }
+            readableFields.put(field.getName(), accessor);
+        }
+
+        for (Method method : serviceClass.getDeclaredMethods()) {
+            DeviceCommand deviceCommand = method.getAnnotation(DeviceCommand.class);
+            if (deviceCommand == null) {
+                continue;
+            }
+            String name = deviceCommand.name();
+            if (name.isEmpty()) {
+                name = method.getName();
+            }
+            commands.put(name, method);
+        }
+    }
+
+    /**
+     * 查询服务类的元数据，第一次查询时解析
+     *
+     * @param serviceClass 服务类
+     * @return 元数据
+     */
+    static ServiceMetadata of(Class<?> serviceClass) {
+        return CACHE.get(serviceClass);
+    }
+
+    Map<String, Method> getCommands() {
+        return Collections.unmodifiableMap(commands);
+    }
+
+    Map<String, PropertyAccessor> getWriteableFields() {
+        return Collections.unmodifiableMap(writeableFields);
+    }
+
+    Map<String, PropertyAccessor> getReadableFields() {
+        return Collections.unmodifiableMap(readableFields);
+    }
+
+    private static String accessorName(String prefix, String fieldName) {
+        return prefix + Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
+    }
+
+    /**
+     * 单个属性的读写句柄。getter/setter按原有规则在服务类自身声明的方法中查找，找不到时为null
+     */
+    static final class PropertyAccessor {
+        private final String propertyName;
+
+        private final Field field;
+
+        private final String getterName;
+
+        private final String setterName;
+
+        private final MethodHandle getter;
+
+        private final Method setterMethod;
+
+        private final MethodHandle setter;
+
+        private final Class<?> valueType;
+
+        private PropertyAccessor(MethodHandles.Lookup lookup, Class<?> serviceClass, String propertyName,
+            Field field) {
+            this.propertyName = propertyName;
+            this.field = field;
+            this.getterName = accessorName("get", field.getName());
+            this.setterName = accessorName("set", field.getName());
+            this.getter = unreflect(lookup, findMethod(serviceClass, getterName), GETTER_TYPE);
+            this.setterMethod = findMethod(serviceClass, setterName, field.getType());
+            this.setter = unreflect(lookup, setterMethod, SETTER_TYPE);
+            this.valueType = MethodType.methodType(field.getType()).wrap().returnType();
+        }
+
+        private static Method findMethod(Class<?> serviceClass, String name, Class<?>... parameterTypes) {
+            Method method;
+            try {
+                method = serviceClass.getDeclaredMethod(name, parameterTypes);
+            } catch (NoSuchMethodException e) {
+                return null;
+            }
+            try {
+                method.setAccessible(true);
+            } catch (SecurityException e) {
+                log.warn("set accessible failed, method: {}", name);
+            }
+            return method;
+        }
+
+        private static MethodHandle unreflect(MethodHandles.Lookup lookup, Method method, MethodType type) {
+            if (method == null) {
+                return null;
+            }
+            try {
+                return lookup.unreflect(method).asType(type);
+            } catch (IllegalAccessException e) {
+                log.error(ExceptionUtil.getBriefStackTrace(e));
+                return null;
+            }
+        }
+
+        String getPropertyName() {
+            return propertyName;
+        }
+
+        Field getField() {
+            return field;
+        }
+
+        String getGetterName() {
+            return getterName;
+        }
+
+        String getSetterName() {
+            return setterName;
+        }
+
+        boolean hasGetter() {
+            return getter != null;
+        }
+
+        boolean hasSetter() {
+            return setter != null;
+        }
+
+        /**
+         * 读取属性值
+         *
+         * @param service 服务实例
+         * @return 属性值
+         * @throws Throwable getter抛出的异常
+         */
+        Object get(Object service) throws Throwable {
+            return getter.invokeExact(service);
+        }
+
+        /**
+         * 写入属性值。值的类型与setter参数不完全一致时（如Integer写入long字段），按反射调用的转换规则处理
+         *
+         * @param service 服务实例
+         * @param value   属性值
+         * @throws Throwable setter抛出的异常，或值类型不匹配时的IllegalArgumentException
+         */
+        void set(Object service, Object value) throws Throwable {
+            if (value == null ? !field.getType().isPrimitive() : valueType.isInstance(value)) {
+                setter.invokeExact(service, value);
+                return;
+            }
+            try {
+                setterMethod.invoke(service, value);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
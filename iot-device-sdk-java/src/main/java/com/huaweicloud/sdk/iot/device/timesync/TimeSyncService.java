@@ -33,9 +33,9 @@ package com.huaweicloud.sdk.iot.device.timesync;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.huaweicloud.sdk.iot.device.client.listener.DefaultActionListenerImpl;
 import com.huaweicloud.sdk.iot.device.client.requests.DeviceEvent;
+import com.huaweicloud.sdk.iot.device.client.requests.DeviceEventTypeRegistry;
 import com.huaweicloud.sdk.iot.device.service.AbstractService;
 import com.huaweicloud.sdk.iot.device.utils.IotUtil;
-import com.huaweicloud.sdk.iot.device.utils.JsonUtil;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -56,6 +56,10 @@ import java.util.Map;
  */
 
 public class TimeSyncService extends AbstractService {
+    static {
+        DeviceEventTypeRegistry.register("$time_sync", "time_sync_response", ObjectNode.class);
+    }
+
     private TimeSyncListener listener;
 
     public TimeSyncListener getListener() {
@@ -96,7 +100,7 @@ public class TimeSyncService extends AbstractService {
         }
 
         if (deviceEvent.getEventType().equalsIgnoreCase("time_sync_response")) {
-            ObjectNode node = JsonUtil.convertMap2Object(deviceEvent.getParas(), ObjectNode.class);
+            ObjectNode node = deviceEvent.getParas(ObjectNode.class);
             long deviceSendTime = node.get("device_send_time").asLong();
             long serverRecvTime = node.get("server_recv_time").asLong();
             long serverSendTime = node.get("server_send_time").asLong();
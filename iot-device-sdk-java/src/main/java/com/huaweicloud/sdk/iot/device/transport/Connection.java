@@ -32,6 +32,8 @@ package com.huaweicloud.sdk.iot.device.transport;
 
 import com.huaweicloud.sdk.iot.device.client.CustomOptions;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * IOT连接，代表设备和平台之间的一个连接
  */
@@ -43,6 +45,15 @@ public interface Connection {
      */
     int connect();
 
+    /**
+     * 异步建立连接，不阻塞调用线程。默认实现在调用线程中执行connect
+     *
+     * @return 连接建立结果，0表示成功，其他表示失败
+     */
+    default CompletableFuture<Integer> connectAsync() {
+        return CompletableFuture.completedFuture(connect());
+    }
+
     /**
      * 发布消息
      *
@@ -89,4 +100,14 @@ public interface Connection {
      * @param customOptions 自定义参数选项
      */
     void setCustomOptions(CustomOptions customOptions);
+
+    /**
+     * 获取连接自带的重连器，连接断开后的自动重连和首次连接失败后的重连共用它，保证同一连接只有一组重试在进行。
+     * 默认返回null，表示连接不自带重连器，由调用方自行创建
+     *
+     * @return 重连器
+     */
+    default Reconnector getReconnector() {
+        return null;
+    }
 }
@@ -51,6 +51,11 @@ public class RawMessage {
      */
     private int qos;
 
+    /**
+     * 消息体解码后的文本，第一次调用toString时生成
+     */
+    private String text;
+
     /**
      * 构造函数
      *
@@ -59,7 +64,7 @@ public class RawMessage {
      */
     public RawMessage(String topic, String payload) {
         this.topic = topic;
-        this.payload = payload.getBytes();
+        this.payload = payload.getBytes(StandardCharsets.UTF_8);
         this.qos = 1;
     }
 
@@ -85,7 +90,20 @@ public class RawMessage {
     public RawMessage(String topic, String payload, int qos) {
         this.qos = qos;
         this.topic = topic;
-        this.payload = payload.getBytes();
+        this.payload = payload.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param topic   消息topic
+     * @param payload 消息体
+     * @param qos     qos,0或1
+     */
+    public RawMessage(String topic, byte[] payload, int qos) {
+        this.qos = qos;
+        this.topic = topic;
+        this.payload = payload;
     }
 
     /**
@@ -122,6 +140,7 @@ public class RawMessage {
      */
     public void setPayload(byte[] payload) {
         this.payload = payload;
+        this.text = null;
     }
 
     /**
@@ -142,8 +161,18 @@ public class RawMessage {
         this.qos = qos;
     }
 
+    /**
+     * 按UTF-8解码消息体，结果会被缓存，多次调用只解码一次
+     *
+     * @return 消息体文本
+     */
     @Override
     public String toString() {
-        return new String(payload, StandardCharsets.UTF_8);
+        String decoded = text;
+        if (decoded == null) {
+            decoded = new String(payload, StandardCharsets.UTF_8);
+            text = decoded;
+        }
+        return decoded;
     }
 }
@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.transport;
+
+import com.huaweicloud.sdk.iot.device.client.CustomOptions;
+import com.huaweicloud.sdk.iot.device.client.handler.CustomBackoffHandler;
+import com.huaweicloud.sdk.iot.device.utils.ExceptionUtil;
+import com.huaweicloud.sdk.iot.device.utils.IotUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 异步退避重连。
+ * 每个连接一个实例，记录该连接自己的重试次数；所有连接共用一个定时线程安排重连，等待期间不占用线程，
+ * 大量连接同时断线时也不会为每个连接阻塞一个线程。
+ */
+@Slf4j
+public class Reconnector {
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "iot-reconnect");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 执行自定义重连的线程池。自定义重连通常循环到连接成功为止，会一直占用线程，
+     * 不能放在定时线程或JVM共用的ForkJoinPool中；只有使用自定义重连时才创建线程，空闲后回收
+     */
+    private static final ExecutorService CUSTOM_BACKOFF_EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger sequence = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "iot-custom-reconnect-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final Connection connection;
+
+    private volatile CustomOptions customOptions;
+
+    private volatile int retryTimes;
+
+    private CompletableFuture<Integer> pending;
+
+    /**
+     * 构造函数
+     *
+     * @param connection    需要重连的连接
+     * @param customOptions 自定义选项，提供退避参数
+     */
+    public Reconnector(Connection connection, CustomOptions customOptions) {
+        this.connection = connection;
+        this.customOptions = customOptions;
+    }
+
+    public void setCustomOptions(CustomOptions customOptions) {
+        this.customOptions = customOptions;
+    }
+
+    /**
+     * 查询当前的重试次数，重连成功后清零
+     *
+     * @return 重试次数
+     */
+    public int getRetryTimes() {
+        return retryTimes;
+    }
+
+    /**
+     * 开始退避重连，重连进行中时返回同一个结果
+     * 设置了CustomBackoffHandler时在调用线程中执行自定义重连，与原有行为一致；自定义重连在锁外执行，执行期间可以取消
+     *
+     * @return 重连结果，0表示重连成功，-1表示未开启重连或重连已取消
+     */
+    public CompletableFuture<Integer> reconnect() {
+        CustomBackoffHandler handler;
+        CompletableFuture<Integer> future = new CompletableFuture<>();
+        synchronized (this) {
+            if (pending != null && !pending.isDone()) {
+                return pending;
+            }
+            CustomOptions options = customOptions;
+            handler = options.getCustomBackoffHandler();
+            if (handler == null && !options.isReConnect()) {
+                return CompletableFuture.completedFuture(-1);
+            }
+            pending = future;
+            if (handler == null) {
+                schedule(future);
+                return future;
+            }
+        }
+
+        // 自定义重连通常循环到连接成功为止，不能持有锁，否则关闭连接时cancel会一直等待
+        try {
+            future.complete(handler.backoffHandler(connection));
+        } catch (Exception e) {
+            log.error(ExceptionUtil.getBriefStackTrace(e));
+            future.complete(-1);
+        }
+        return future;
+    }
+
+    /**
+     * 在连接丢失的回调中开始重连，不阻塞调用线程。
+     * 默认的退避重连只安排定时任务，直接在调用线程中开始；自定义重连可能阻塞，交给专用的线程池执行
+     */
+    public void reconnectInBackground() {
+        if (customOptions.getCustomBackoffHandler() == null) {
+            reconnect();
+            return;
+        }
+        CUSTOM_BACKOFF_EXECUTOR.execute(this::reconnect);
+    }
+
+    /**
+     * 在重连共用的定时线程上按固定间隔执行任务，只能用于补发离线消息这类不阻塞的短任务
+     *
+     * @param task   任务
+     * @param period 首次执行的延迟及之后的执行间隔
+     * @param unit   时间单位
+     * @return 任务句柄，用于取消
+     */
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, long period, TimeUnit unit) {
+        return SCHEDULER.scheduleWithFixedDelay(task, period, period, unit);
+    }
+
+    /**
+     * 取消进行中的重连，关闭连接时调用
+     */
+    public synchronized void cancel() {
+        if (pending != null) {
+            pending.complete(-1);
+        }
+    }
+
+    private void schedule(CompletableFuture<Integer> future) {
+        long delay = IotUtil.getBackoffTime(customOptions, retryTimes);
+        SCHEDULER.schedule(() -> attempt(future), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void attempt(CompletableFuture<Integer> future) {
+        if (future.isDone()) {
+            return;
+        }
+        CompletableFuture<Integer> connectFuture;
+        try {
+            connectFuture = connection.connectAsync();
+        } catch (Exception e) {
+            log.error(ExceptionUtil.getBriefStackTrace(e));
+            connectFuture = CompletableFuture.completedFuture(-1);
+        }
+        connectFuture.whenComplete((ret, throwable) -> {
+            if (throwable == null && ret != null && ret == 0) {
+                retryTimes = 0;
+                future.complete(0);
+                return;
+            }
+            retryTimes++;
+            log.info("reconnect failed, retry times is {}", retryTimes);
+            if (!future.isDone()) {
+                schedule(future);
+            }
+        });
+    }
+}
@@ -0,0 +1,506 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.transport.loopback;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.huaweicloud.sdk.iot.device.client.ClientConf;
+import com.huaweicloud.sdk.iot.device.transport.ActionListener;
+import com.huaweicloud.sdk.iot.device.transport.Connection;
+import com.huaweicloud.sdk.iot.device.transport.ConnectionFactory;
+import com.huaweicloud.sdk.iot.device.transport.RawMessage;
+import com.huaweicloud.sdk.iot.device.transport.RawMessageListener;
+import com.huaweicloud.sdk.iot.device.utils.ExceptionUtil;
+import com.huaweicloud.sdk.iot.device.utils.IotUtil;
+import com.huaweicloud.sdk.iot.device.utils.JsonUtil;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 进程内的mqtt代理，按平台的topic约定在JVM内转发消息，不经过网络，用于端到端测试和基准测试，
+ * 可以把SDK自身的开销和服务端的时延分开度量。
+ * <p>
+ * 代理按平台的行为应答部分上行请求：设备影子查询（返回设备上报过的属性）、时间同步、子设备新增删除和同步、
+ * 网桥设备登录登出和重置密钥。所有上行消息都会通知上行消息监听器，平台的下行消息通过publish发送。
+ * 连接建立、消息转发和应答都在代理的单个线程中按顺序执行
+ * <p>
+ * 使用方式：
+ * <pre>
+ * LoopbackBroker broker = new LoopbackBroker();
+ * clientConf.setConnectionFactory(broker);
+ * IoTDevice device = new IoTDevice(clientConf);
+ * </pre>
+ */
+@Slf4j
+public class LoopbackBroker implements ConnectionFactory {
+    private static final String DEVICE_TOPIC_PREFIX = "$oc/devices/";
+
+    private static final String BRIDGE_TOPIC_PREFIX = "$oc/bridges/";
+
+    private static final String V3_TOPIC_PREFIX = "/huawei/v1/devices/";
+
+    private static final String SHADOW_GET = "/sys/shadow/get/request_id=";
+
+    private static final String PROPERTIES_REPORT = "/sys/properties/report";
+
+    private static final String SUB_DEVICES_PROPERTIES_REPORT = "/sys/gateway/sub_devices/properties/report";
+
+    private static final String EVENTS_UP = "/sys/events/up";
+
+    private static final String EVENTS_DOWN = "/sys/events/down";
+
+    private static final String BRIDGE_LOGIN = "/sys/login/request_id=";
+
+    private static final String BRIDGE_LOGOUT = "/sys/logout/request_id=";
+
+    private static final String BRIDGE_RESET_SECRET = "/sys/reset_secret/request_id=";
+
+    private static final String SUB_DEVICE_MANAGER = "$sub_device_manager";
+
+    private static final String TIME_SYNC = "$time_sync";
+
+    private static final String OBJECT_DEVICE_ID = "object_device_id";
+
+    private static final String SERVICES = "services";
+
+    private static final String SERVICE_ID = "service_id";
+
+    private static final String EVENT_TYPE = "event_type";
+
+    private static final String PARAS = "paras";
+
+    private static final String DEVICES = "devices";
+
+    private static final String DEVICE_ID = "device_id";
+
+    private static final String PROPERTIES = "properties";
+
+    private static final String RESULT_CODE = "result_code";
+
+    private final ThreadPoolExecutor executor;
+
+    private final Map<String, LoopbackConnection> connections = new ConcurrentHashMap<>();
+
+    /**
+     * 有自定义订阅的连接，下行消息只需在这些连接中匹配订阅
+     */
+    private final Set<LoopbackConnection> subscribers = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 以下状态只在代理线程中访问
+     */
+    private final Map<String, Map<String, ObjectNode>> reportedProperties = new HashMap<>();
+
+    private final Map<String, Map<String, ObjectNode>> subDevices = new HashMap<>();
+
+    private final Map<String, Long> subDeviceVersions = new HashMap<>();
+
+    private volatile RawMessageListener uplinkListener;
+
+    public LoopbackBroker() {
+        executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "iot-loopback-broker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public Connection createConnection(ClientConf clientConf, RawMessageListener rawMessageListener) {
+        return new LoopbackConnection(this, clientConf, rawMessageListener);
+    }
+
+    /**
+     * 设置上行消息监听器，设备发布的每条消息在代理应答之后通知，在代理线程中调用
+     *
+     * @param uplinkListener 上行消息监听器
+     */
+    public void setUplinkListener(RawMessageListener uplinkListener) {
+        this.uplinkListener = uplinkListener;
+    }
+
+    /**
+     * 以平台身份发布下行消息，投递给平台为其自动订阅了该topic的设备以及订阅了匹配topic的设备
+     *
+     * @param topic   topic
+     * @param payload 消息体
+     */
+    public void publish(String topic, byte[] payload) {
+        submit(() -> route(new RawMessage(topic, payload)));
+    }
+
+    /**
+     * 以平台身份发布下行消息
+     *
+     * @param topic   topic
+     * @param payload 消息体
+     */
+    public void publish(String topic, String payload) {
+        submit(() -> route(new RawMessage(topic, payload)));
+    }
+
+    /**
+     * 模拟断链，设备收到连接丢失通知，并按重连配置重连
+     *
+     * @param clientId 设备id，网桥模式下为网桥id
+     * @return 设备在线时返回true
+     */
+    public boolean disconnect(String clientId) {
+        LoopbackConnection connection = connections.remove(clientId);
+        if (connection == null) {
+            return false;
+        }
+        submit(connection::onDisconnected);
+        return true;
+    }
+
+    /**
+     * 查询在线连接数
+     *
+     * @return 在线连接数
+     */
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    /**
+     * 等待已提交的消息及其产生的应答全部处理完
+     *
+     * @param timeout 超时时间
+     * @param unit    时间单位
+     * @return 超时前处理完返回true
+     * @throws InterruptedException 等待被中断
+     */
+    public boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        do {
+            CountDownLatch latch = new CountDownLatch(1);
+            submit(latch::countDown);
+            if (!latch.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        } while (!executor.getQueue().isEmpty());
+        return true;
+    }
+
+    /**
+     * 关闭代理，所有连接收到连接丢失通知
+     */
+    public void close() {
+        new ArrayList<>(connections.keySet()).forEach(this::disconnect);
+        executor.shutdown();
+    }
+
+    CompletableFuture<Integer> attach(LoopbackConnection connection) {
+        CompletableFuture<Integer> future = new CompletableFuture<>();
+        submit(() -> {
+            // 与平台一致，同一个设备重复建链时断开之前的连接
+            LoopbackConnection previous = connections.put(connection.getClientId(), connection);
+            if (previous != null && previous != connection) {
+                previous.onDisconnected();
+            }
+            connection.onConnected();
+            future.complete(0);
+        });
+        if (executor.isShutdown()) {
+            future.complete(-1);
+        }
+        return future;
+    }
+
+    void detach(LoopbackConnection connection) {
+        connections.remove(connection.getClientId(), connection);
+        subscribers.remove(connection);
+    }
+
+    void onSubscribe(LoopbackConnection connection) {
+        subscribers.add(connection);
+    }
+
+    void onPublish(RawMessage message, ActionListener listener) {
+        try {
+            executor.execute(() -> {
+                try {
+                    respond(message);
+                } catch (Exception e) {
+                    log.error(ExceptionUtil.getBriefStackTrace(e));
+                }
+                RawMessageListener listenerOfUplink = uplinkListener;
+                if (listenerOfUplink != null) {
+                    try {
+                        listenerOfUplink.onMessageReceived(message);
+                    } catch (Exception e) {
+                        log.error(ExceptionUtil.getBriefStackTrace(e));
+                    }
+                }
+                if (listener != null) {
+                    listener.onSuccess(null);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            if (listener != null) {
+                listener.onFailure(null, e);
+            }
+        }
+    }
+
+    private void submit(Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            log.warn("loopback broker is closed");
+        }
+    }
+
+    /**
+     * 系统topic按其中的设备id直接找到连接，自定义订阅只在有订阅的连接中匹配，避免每条下行消息遍历所有连接
+     */
+    private void route(RawMessage message) {
+        String topic = message.getTopic();
+        String clientId = getClientId(topic);
+        LoopbackConnection target = clientId == null ? null : connections.get(clientId);
+        if (target != null && (target.acceptsSystemTopic(topic) || target.matchesSubscription(topic))) {
+            target.deliver(message);
+        }
+        for (LoopbackConnection connection : subscribers) {
+            if (connection != target && connections.get(connection.getClientId()) == connection
+                && connection.matchesSubscription(topic)) {
+                connection.deliver(message);
+            }
+        }
+    }
+
+    private static String getClientId(String topic) {
+        String prefix;
+        if (topic.startsWith(DEVICE_TOPIC_PREFIX)) {
+            prefix = DEVICE_TOPIC_PREFIX;
+        } else if (topic.startsWith(BRIDGE_TOPIC_PREFIX)) {
+            prefix = BRIDGE_TOPIC_PREFIX;
+        } else if (topic.startsWith(V3_TOPIC_PREFIX)) {
+            prefix = V3_TOPIC_PREFIX;
+        } else {
+            return null;
+        }
+        int end = topic.indexOf('/', prefix.length());
+        return end < 0 ? null : topic.substring(prefix.length(), end);
+    }
+
+    /**
+     * 按平台的行为应答上行请求，在代理线程中执行
+     */
+    private void respond(RawMessage message) {
+        String topic = message.getTopic();
+        if (topic.startsWith(BRIDGE_TOPIC_PREFIX)) {
+            respondBridge(topic, message.getPayload());
+            return;
+        }
+        if (!topic.startsWith(DEVICE_TOPIC_PREFIX)) {
+            return;
+        }
+        String deviceId = IotUtil.getDeviceId(topic);
+        if (topic.endsWith(PROPERTIES_REPORT)) {
+            storeProperties(deviceId, readTree(message.getPayload()).path(SERVICES));
+        } else if (topic.endsWith(SUB_DEVICES_PROPERTIES_REPORT)) {
+            for (JsonNode device : readTree(message.getPayload()).path(DEVICES)) {
+                storeProperties(device.path(DEVICE_ID).asText(), device.path(SERVICES));
+            }
+        } else if (topic.contains(SHADOW_GET)) {
+            respondShadow(deviceId, topic, readTree(message.getPayload()));
+        } else if (topic.endsWith(EVENTS_UP)) {
+            for (JsonNode event : readTree(message.getPayload()).path(SERVICES)) {
+                respondEvent(deviceId, event);
+            }
+        }
+    }
+
+    private static JsonNode readTree(byte[] payload) {
+        JsonNode node = JsonUtil.convertJsonBytesToObject(payload, JsonNode.class);
+        return node == null ? JsonUtil.createObjectNode() : node;
+    }
+
+    private void storeProperties(String deviceId, JsonNode services) {
+        Map<String, ObjectNode> serviceProperties = reportedProperties.computeIfAbsent(deviceId,
+            key -> new LinkedHashMap<>());
+        for (JsonNode service : services) {
+            ObjectNode properties = serviceProperties.computeIfAbsent(service.path(SERVICE_ID).asText(),
+                key -> JsonUtil.createObjectNode());
+            if (service.path(PROPERTIES).isObject()) {
+                properties.setAll((ObjectNode) service.path(PROPERTIES));
+            }
+        }
+    }
+
+    private void respondShadow(String deviceId, String topic, JsonNode request) {
+        String objectDeviceId = request.path(OBJECT_DEVICE_ID).asText(deviceId);
+        String serviceId = request.path(SERVICE_ID).asText(null);
+        ObjectNode response = JsonUtil.createObjectNode();
+        response.put(OBJECT_DEVICE_ID, objectDeviceId);
+        ArrayNode shadow = response.putArray("shadow");
+        reportedProperties.getOrDefault(objectDeviceId, new HashMap<>()).forEach((service, properties) -> {
+            if (serviceId != null && !serviceId.equals(service)) {
+                return;
+            }
+            ObjectNode data = shadow.addObject();
+            data.put(SERVICE_ID, service);
+            data.putObject("desired").putObject(PROPERTIES);
+            ObjectNode reported = data.putObject("reported");
+            reported.set(PROPERTIES, properties.deepCopy());
+            reported.put("event_time", IotUtil.getTimeStamp());
+            data.put("version", 0);
+        });
+        route(new RawMessage(IotUtil.makeRspTopic(topic), JsonUtil.convertObject2Bytes(response)));
+    }
+
+    private void respondEvent(String deviceId, JsonNode event) {
+        String eventType = event.path(EVENT_TYPE).asText();
+        JsonNode paras = event.path(PARAS);
+        if ("time_sync_request".equals(eventType)) {
+            long now = System.currentTimeMillis();
+            Map<String, Object> result = new HashMap<>();
+            result.put("device_send_time", paras.path("device_send_time").asLong());
+            result.put("server_recv_time", now);
+            result.put("server_send_time", now);
+            sendEvent(deviceId, TIME_SYNC, "time_sync_response", result);
+        } else if ("add_sub_device_request".equals(eventType)) {
+            addSubDevices(deviceId, paras.path(DEVICES));
+        } else if ("delete_sub_device_request".equals(eventType)) {
+            deleteSubDevices(deviceId, paras.path(DEVICES));
+        } else if ("sub_device_sync_request".equals(eventType)) {
+            Map<String, Object> result = new HashMap<>();
+            result.put(DEVICES, new ArrayList<>(subDevices.getOrDefault(deviceId, new HashMap<>()).values()));
+            result.put("version", subDeviceVersions.getOrDefault(deviceId, 0L));
+            sendEvent(deviceId, SUB_DEVICE_MANAGER, "add_sub_device_notify", result);
+        }
+    }
+
+    private void addSubDevices(String gatewayId, JsonNode devices) {
+        Map<String, ObjectNode> gatewaySubDevices = subDevices.computeIfAbsent(gatewayId,
+            key -> new LinkedHashMap<>());
+        List<ObjectNode> added = new ArrayList<>();
+        for (JsonNode device : devices) {
+            ObjectNode subDevice = ((ObjectNode) device).deepCopy();
+            if (!subDevice.hasNonNull(DEVICE_ID)) {
+                subDevice.put(DEVICE_ID, subDevice.path("product_id").asText() + "_"
+                    + subDevice.path("node_id").asText());
+            }
+            subDevice.put("parent_device_id", gatewayId);
+            subDevice.put("status", "OFFLINE");
+            gatewaySubDevices.put(subDevice.path(DEVICE_ID).asText(), subDevice);
+            added.add(subDevice);
+        }
+        subDeviceVersions.merge(gatewayId, 1L, Long::sum);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("successful_devices", added);
+        result.put("failed_devices", new ArrayList<>());
+        sendEvent(gatewayId, SUB_DEVICE_MANAGER, "add_sub_device_response", result);
+    }
+
+    private void deleteSubDevices(String gatewayId, JsonNode devices) {
+        Map<String, ObjectNode> gatewaySubDevices = subDevices.computeIfAbsent(gatewayId,
+            key -> new LinkedHashMap<>());
+        List<String> deleted = new ArrayList<>();
+        for (JsonNode device : devices) {
+            if (gatewaySubDevices.remove(device.asText()) != null) {
+                deleted.add(device.asText());
+            }
+        }
+        subDeviceVersions.merge(gatewayId, 1L, Long::sum);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("successful_devices", deleted);
+        result.put("failed_devices", new ArrayList<>());
+        sendEvent(gatewayId, SUB_DEVICE_MANAGER, "delete_sub_device_response", result);
+    }
+
+    private void sendEvent(String deviceId, String serviceId, String eventType, Map<String, Object> paras) {
+        ObjectNode event = JsonUtil.createObjectNode();
+        event.put(SERVICE_ID, serviceId);
+        event.put(EVENT_TYPE, eventType);
+        event.put("event_time", IotUtil.getTimeStamp());
+        event.putPOJO(PARAS, paras);
+        ObjectNode events = JsonUtil.createObjectNode();
+        events.put(OBJECT_DEVICE_ID, deviceId);
+        events.putArray(SERVICES).add(event);
+        route(new RawMessage(DEVICE_TOPIC_PREFIX + deviceId + EVENTS_DOWN, JsonUtil.convertObject2Bytes(events)));
+    }
+
+    private void respondBridge(String topic, byte[] payload) {
+        if (!topic.contains(BRIDGE_LOGIN) && !topic.contains(BRIDGE_LOGOUT) && !topic.contains(BRIDGE_RESET_SECRET)) {
+            return;
+        }
+        ObjectNode response = JsonUtil.createObjectNode();
+        response.put(RESULT_CODE, 0);
+        if (topic.contains(BRIDGE_RESET_SECRET)) {
+            response.putObject(PARAS).put("new_secret", readTree(payload).path("new_secret").asText());
+        }
+        route(new RawMessage(IotUtil.makeRspTopic(topic), JsonUtil.convertObject2Bytes(response)));
+    }
+
+    /**
+     * 按mqtt的规则匹配topic过滤器，支持+和#通配符
+     *
+     * @param filter topic过滤器
+     * @param topic  topic
+     * @return 匹配时返回true
+     */
+    static boolean matches(String filter, String topic) {
+        String[] filterLevels = filter.split("/", -1);
+        String[] topicLevels = topic.split("/", -1);
+        for (int i = 0; i < filterLevels.length; i++) {
+            if ("#".equals(filterLevels[i])) {
+                return true;
+            }
+            if (i >= topicLevels.length) {
+                return false;
+            }
+            if (!"+".equals(filterLevels[i]) && !filterLevels[i].equals(topicLevels[i])) {
+                return false;
+            }
+        }
+        return filterLevels.length == topicLevels.length;
+    }
+}
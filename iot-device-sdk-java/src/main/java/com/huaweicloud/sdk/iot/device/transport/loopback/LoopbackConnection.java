@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.transport.loopback;
+
+import com.huaweicloud.sdk.iot.device.client.ClientConf;
+import com.huaweicloud.sdk.iot.device.client.CustomOptions;
+import com.huaweicloud.sdk.iot.device.constants.Constants;
+import com.huaweicloud.sdk.iot.device.metrics.ClientMetrics;
+import com.huaweicloud.sdk.iot.device.transport.ActionListener;
+import com.huaweicloud.sdk.iot.device.transport.ConnectActionListener;
+import com.huaweicloud.sdk.iot.device.transport.ConnectListener;
+import com.huaweicloud.sdk.iot.device.transport.Connection;
+import com.huaweicloud.sdk.iot.device.transport.RawMessage;
+import com.huaweicloud.sdk.iot.device.transport.RawMessageListener;
+import com.huaweicloud.sdk.iot.device.transport.Reconnector;
+import com.huaweicloud.sdk.iot.device.utils.ExceptionUtil;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 连接到LoopbackBroker的进程内连接，由LoopbackBroker创建
+ */
+@Slf4j
+class LoopbackConnection implements Connection {
+    private final LoopbackBroker broker;
+
+    private final ClientConf clientConf;
+
+    private final RawMessageListener rawMessageListener;
+
+    private final Reconnector reconnector;
+
+    private final ClientMetrics metrics;
+
+    /**
+     * 平台自动为设备订阅的topic前缀
+     */
+    private final String[] systemTopicPrefixes;
+
+    private final Set<String> subscriptions = ConcurrentHashMap.newKeySet();
+
+    private volatile ConnectListener connectListener;
+
+    private volatile ConnectActionListener connectActionListener;
+
+    private volatile CustomOptions customOptions = new CustomOptions();
+
+    private volatile boolean connected;
+
+    LoopbackConnection(LoopbackBroker broker, ClientConf clientConf, RawMessageListener rawMessageListener) {
+        this.broker = broker;
+        this.clientConf = clientConf;
+        this.rawMessageListener = rawMessageListener;
+        this.reconnector = new Reconnector(this, customOptions);
+        this.metrics = new ClientMetrics(clientConf.getMetricRegistry());
+        String deviceId = clientConf.getDeviceId();
+        if (clientConf.getMode() == Constants.CONNECT_OF_BRIDGE_MODE) {
+            this.systemTopicPrefixes = new String[] {"$oc/bridges/" + deviceId + "/"};
+        } else {
+            this.systemTopicPrefixes = new String[] {"$oc/devices/" + deviceId + "/",
+                "/huawei/v1/devices/" + deviceId + "/"};
+        }
+    }
+
+    String getClientId() {
+        return clientConf.getDeviceId();
+    }
+
+    @Override
+    public int connect() {
+        try {
+            return connectAsync().get();
+        } catch (InterruptedException e) {
+            log.error(ExceptionUtil.getBriefStackTrace(e));
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.error(ExceptionUtil.getBriefStackTrace(e));
+        }
+        return -1;
+    }
+
+    @Override
+    public CompletableFuture<Integer> connectAsync() {
+        return broker.attach(this);
+    }
+
+    /**
+     * 代理接受连接后调用，在代理线程中执行
+     */
+    void onConnected() {
+        connected = true;
+        metrics.connected();
+        if (connectActionListener != null) {
+            connectActionListener.onSuccess(null);
+        }
+        if (connectListener != null) {
+            connectListener.connectComplete(false, clientConf.getServerUri());
+        }
+        if (customOptions.getConnectListener() != null) {
+            customOptions.getConnectListener().connectComplete(false, clientConf.getServerUri());
+        }
+    }
+
+    /**
+     * 代理断开连接时调用，在代理线程中执行
+     */
+    void onDisconnected() {
+        if (!connected) {
+            return;
+        }
+        connected = false;
+        IOException cause = new IOException("connection lost");
+        log.error("Connection lost.", cause);
+        metrics.connectionLost();
+        if (connectListener != null) {
+            connectListener.connectionLost(cause);
+        }
+        if (customOptions.getConnectListener() != null) {
+            customOptions.getConnectListener().connectionLost(cause);
+        }
+
+        // 自定义重连可能阻塞调用线程，不能占用代理线程
+        reconnector.reconnectInBackground();
+    }
+
+    boolean acceptsSystemTopic(String topic) {
+        for (String prefix : systemTopicPrefixes) {
+            if (topic.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean matchesSubscription(String topic) {
+        for (String filter : subscriptions) {
+            if (LoopbackBroker.matches(filter, topic)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void deliver(RawMessage message) {
+        try {
+            if (rawMessageListener != null) {
+                rawMessageListener.onMessageReceived(message);
+            }
+        } catch (Exception e) {
+            log.error(ExceptionUtil.getBriefStackTrace(e));
+        }
+    }
+
+    @Override
+    public void publishMessage(RawMessage message, ActionListener listener) {
+        if (!connected) {
+            if (listener != null) {
+                listener.onFailure(null, new IllegalStateException("connection is not established"));
+            }
+            return;
+        }
+        broker.onPublish(message, message.getQos() == 0 ? listener : metrics.trackPublish(listener));
+    }
+
+    @Override
+    public void close() {
+        reconnector.cancel();
+        metrics.close();
+        connected = false;
+        broker.detach(this);
+    }
+
+    @Override
+    public boolean isConnected() {
+        return connected;
+    }
+
+    @Override
+    public void setConnectListener(ConnectListener connectListener) {
+        this.connectListener = connectListener;
+    }
+
+    @Override
+    public void subscribeTopic(String topic, ActionListener actionListener, int qos) {
+        subscriptions.add(topic);
+        broker.onSubscribe(this);
+        if (actionListener != null) {
+            actionListener.onSuccess(topic);
+        }
+    }
+
+    @Override
+    public void setConnectActionListener(ConnectActionListener connectActionListener) {
+        this.connectActionListener = connectActionListener;
+    }
+
+    @Override
+    public void setCustomOptions(CustomOptions customOptions) {
+        this.customOptions = customOptions;
+        reconnector.setCustomOptions(customOptions);
+    }
+
+    @Override
+    public Reconnector getReconnector() {
+        return reconnector;
+    }
+}
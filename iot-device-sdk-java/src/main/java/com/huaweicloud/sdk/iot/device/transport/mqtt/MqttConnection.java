@@ -33,12 +33,15 @@ package com.huaweicloud.sdk.iot.device.transport.mqtt;
 import com.huaweicloud.sdk.iot.device.client.ClientConf;
 import com.huaweicloud.sdk.iot.device.client.CustomOptions;
 import com.huaweicloud.sdk.iot.device.client.listener.DefaultPublishListenerImpl;
+import com.huaweicloud.sdk.iot.device.metrics.ClientMetrics;
 import com.huaweicloud.sdk.iot.device.transport.ActionListener;
 import com.huaweicloud.sdk.iot.device.transport.ConnectActionListener;
 import com.huaweicloud.sdk.iot.device.transport.ConnectListener;
 import com.huaweicloud.sdk.iot.device.transport.Connection;
 import com.huaweicloud.sdk.iot.device.transport.RawMessage;
 import com.huaweicloud.sdk.iot.device.transport.RawMessageListener;
+import com.huaweicloud.sdk.iot.device.transport.Reconnector;
+import com.huaweicloud.sdk.iot.device.transport.spool.OfflineMessageSpool;
 import com.huaweicloud.sdk.iot.device.utils.ExceptionUtil;
 import com.huaweicloud.sdk.iot.device.utils.IotUtil;
 
@@ -56,11 +59,13 @@ import org.eclipse.paho.client.mqttv3.MqttToken;
 import org.eclipse.paho.client.mqttv3.internal.DisconnectedMessageBuffer;
 import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
 
-import java.time.Instant;
-import java.time.ZoneId;
-import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
+import java.io.File;
+import java.io.IOException;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.SSLContext;
 
@@ -75,17 +80,11 @@ public class MqttConnection implements Connection {
 
     private static final int DEFAULT_KEEPLIVE = 120;
 
-    private static final String CONNECT_TYPE_OF_DEVICE = "0";
-
-    private static final String CONNECT_TYPE_OF_BRIDGE_DEVICE = "3";
-
-    private static final int CONNECT_OF_BRIDGE_MODE = 3;
-
     private static final int MAX_FLIGHT_COUNT = 1000;
 
-    private final ClientConf clientConf;
+    private static final int REPLAY_PERIOD = 100;
 
-    private boolean connectFinished = false;
+    private final ClientConf clientConf;
 
     private IotMqttAsyncClient mqttAsyncClient;
 
@@ -95,16 +94,31 @@ public class MqttConnection implements Connection {
 
     private RawMessageListener rawMessageListener;
 
-    private int connectResultCode;
-
     private CustomOptions customOptions = new CustomOptions();
 
     private DisconnectedMessageBuffer disconnectedMessageBuffer;
 
+    private OfflineMessageSpool offlineSpool;
+
+    private final Reconnector reconnector;
+
+    /**
+     * 离线消息补发任务，只在连接正常且磁盘缓存中有待发送消息时运行
+     */
+    private ScheduledFuture<?> replayTask;
+
+    private int replayBatch;
+
+    private final ClientMetrics metrics;
+
     public MqttConnection(ClientConf clientConf, RawMessageListener rawMessageListener) {
         this.clientConf = clientConf;
         this.rawMessageListener = rawMessageListener;
+        this.reconnector = new Reconnector(this, customOptions);
         initDisconnectedMessageBuffer(5000);
+        this.metrics = new ClientMetrics(clientConf.getMetricRegistry());
+        metrics.registerGauge(ClientMetrics.PUBLISH_INFLIGHT_LIMIT, () -> customOptions.getMaxInflight());
+        metrics.registerGauge(ClientMetrics.OFFLINE_BUFFER_SIZE, () -> disconnectedMessageBuffer.getMessageCount());
     }
 
     private void initDisconnectedMessageBuffer(int offlineBufferSize) {
@@ -118,6 +132,7 @@ public class MqttConnection implements Connection {
         @Override
         public void connectionLost(Throwable cause) {
             log.error("Connection lost.", cause);
+            metrics.connectionLost();
             if (connectListener != null) {
                 connectListener.connectionLost(cause);
             }
@@ -126,13 +141,21 @@ public class MqttConnection implements Connection {
                 customOptions.getConnectListener().connectionLost(cause);
             }
 
-            IotUtil.reConnect(MqttConnection.this, customOptions);
+            stopReplay();
+
+            // 由共享的重连线程按退避时间重连，不阻塞paho的回调线程
+            reconnector.reconnect();
         }
 
         @Override
         public void messageArrived(String topic, MqttMessage message) {
-            log.info("messageArrived topic =  {}, msg = {}", topic, message.toString());
-            RawMessage rawMessage = new RawMessage(topic, message.toString());
+            // 直接使用mqtt消息体，不解码也不拷贝，消息体只在需要打印时解码
+            RawMessage rawMessage = new RawMessage(topic, message.getPayload(), message.getQos());
+            if (log.isDebugEnabled()) {
+                log.debug("messageArrived topic =  {}, msg = {}", topic, rawMessage);
+            } else {
+                log.info("messageArrived topic =  {}, size = {}", topic, message.getPayload().length);
+            }
             try {
                 if (rawMessageListener != null) {
                     rawMessageListener.onMessageReceived(rawMessage);
@@ -146,12 +169,21 @@ public class MqttConnection implements Connection {
 
         @Override
         public void deliveryComplete(IMqttDeliveryToken token) {
-
+            // 发布结果和发布时延在publishMessage传入的监听器中处理
         }
 
         @Override
         public void connectComplete(boolean reconnect, String serverURI) {
             log.info("Mqtt client connected. address is {}", serverURI);
+            metrics.connected();
+
+            // 已发出但未确认的离线消息随连接断开而丢失，重连后从最早的未确认消息开始补发
+            if (offlineSpool != null) {
+                offlineSpool.rewind();
+                if (offlineSpool.size() > 0) {
+                    startReplay();
+                }
+            }
 
             if (connectListener != null) {
                 connectListener.connectComplete(reconnect, serverURI);
@@ -165,52 +197,44 @@ public class MqttConnection implements Connection {
 
     @Override
     public int connect() {
-
         try {
-            this.connectFinished = false;
-            String timeStamp = ZonedDateTime.ofInstant(Instant.now(), ZoneId.of("UTC"))
-                .format(DateTimeFormatter.ofPattern("yyyyMMddHH"));
-            String clientId = generateClientId(timeStamp);
-
-            try {
-                mqttAsyncClient = new IotMqttAsyncClient(clientConf.getServerUri(), clientId, new MemoryPersistence());
-            } catch (MqttException e) {
-                log.error(ExceptionUtil.getBriefStackTrace(e));
-            }
+            return connectAsync().get();
+        } catch (InterruptedException e) {
+            log.error(ExceptionUtil.getBriefStackTrace(e));
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.error(ExceptionUtil.getBriefStackTrace(e));
+        }
+        return -1;
+    }
 
-            if (createMqttConnection(timeStamp)) {
-                return -1;
-            }
+    /**
+     * 异步建立连接，连接结果由paho的回调线程通知，不阻塞调用线程
+     *
+     * @return 连接建立结果，0表示成功，其他表示失败
+     */
+    @Override
+    public CompletableFuture<Integer> connectAsync() {
+        CompletableFuture<Integer> future = new CompletableFuture<>();
+        try {
+            MqttCredential credential = MqttCredential.of(clientConf);
+            mqttAsyncClient = new IotMqttAsyncClient(clientConf.getServerUri(), credential.getClientId(),
+                new MemoryPersistence());
 
-            synchronized (this) {
-                while (!connectFinished) {
-                    try {
-                        wait(DEFAULT_CONNECT_TIMEOUT * 1000);
-                    } catch (InterruptedException e) {
-                        log.error(ExceptionUtil.getBriefStackTrace(e));
-                    }
-                }
+            if (createMqttConnection(credential, future)) {
+                metrics.connectFailed();
+                future.complete(-1);
             }
-
         } catch (MqttException e) {
             log.error("connect error, the deviceId is {}. exception is {}", clientConf.getDeviceId(),
                 ExceptionUtil.getBriefStackTrace(e));
+            metrics.connectFailed();
+            future.complete(e.getReasonCode() == 0 ? -1 : e.getReasonCode());
         }
-
-        if (mqttAsyncClient.isConnected()) {
-            return 0;
-        }
-
-        // 处理paho返回的错误码为0的异常
-        if (connectResultCode == 0) {
-            log.error("Client encountered an exception");
-            return -1;
-        }
-
-        return connectResultCode;
+        return future;
     }
 
-    private boolean createMqttConnection(String timeStamp)
+    private boolean createMqttConnection(MqttCredential credential, CompletableFuture<Integer> future)
         throws MqttException {
         mqttAsyncClient.setDisconnectedMessageBuffer(disconnectedMessageBuffer);
 
@@ -228,15 +252,9 @@ public class MqttConnection implements Connection {
 
         options.setHttpsHostnameVerificationEnabled(false);
         options.setCleanSession(true);
-        options.setUserName(clientConf.getDeviceId());
+        options.setUserName(credential.getUserName());
         options.setMaxInflight(customOptions.getMaxInflight());
-
-        String secret = clientConf.getSecret();
-
-        if (secret != null && !secret.isEmpty()) {
-            String passWord = IotUtil.shaHMac(secret, timeStamp, clientConf.getCheckStamp());
-            Optional.ofNullable(passWord).ifPresent(s -> options.setPassword(s.toCharArray()));
-        }
+        Optional.ofNullable(credential.getPassword()).ifPresent(s -> options.setPassword(s.toCharArray()));
 
         options.setConnectionTimeout(DEFAULT_CONNECT_TIMEOUT);
         options.setKeepAliveInterval(DEFAULT_KEEPLIVE);
@@ -245,29 +263,11 @@ public class MqttConnection implements Connection {
 
         log.info("try to connect to {}", clientConf.getServerUri());
 
-        mqttAsyncClient.connect(options, null, getCallback());
+        mqttAsyncClient.connect(options, null, getCallback(future));
         return false;
     }
 
-    private String generateClientId(String timeStamp) {
-        String clientId;
-        if (clientConf.getMode() == CONNECT_OF_BRIDGE_MODE) {
-            clientId = String.join("_", clientConf.getDeviceId(), CONNECT_TYPE_OF_BRIDGE_DEVICE, Integer.toString(clientConf.getCheckStamp()),
-                timeStamp);
-        } else if (clientConf.getScopeId() != null) {
-            if (clientConf.getSecret() != null) {
-                clientId = String.join("_", clientConf.getDeviceId(), CONNECT_TYPE_OF_DEVICE, clientConf.getScopeId(), Integer.toString(clientConf.getCheckStamp()),
-                    timeStamp);
-            } else {
-                clientId = String.join("_", clientConf.getDeviceId(), CONNECT_TYPE_OF_DEVICE, clientConf.getScopeId());
-            }
-        } else {
-            clientId = String.join("_", clientConf.getDeviceId(), CONNECT_TYPE_OF_DEVICE, Integer.toString(clientConf.getCheckStamp()), timeStamp);
-        }
-        return clientId;
-    }
-
-    private IMqttActionListener getCallback() {
+    private IMqttActionListener getCallback(CompletableFuture<Integer> future) {
         return new IMqttActionListener() {
             @Override
             public void onSuccess(IMqttToken iMqttToken) {
@@ -277,17 +277,15 @@ public class MqttConnection implements Connection {
                 if (connectActionListener != null) {
                     connectActionListener.onSuccess(iMqttToken);
                 }
-
-                synchronized (MqttConnection.this) {
-                    connectFinished = true;
-                    MqttConnection.this.notifyAll();
-                }
+                future.complete(0);
             }
 
             @Override
             public void onFailure(IMqttToken iMqttToken, Throwable throwable) {
                 log.info("connect failed, the reason is {}", throwable.toString());
-                if(throwable instanceof MqttException) {
+                metrics.connectFailed();
+                int connectResultCode = 0;
+                if (throwable instanceof MqttException) {
                     MqttException me = (MqttException) throwable;
                     connectResultCode = me.getReasonCode();
                 }
@@ -296,10 +294,12 @@ public class MqttConnection implements Connection {
                     connectActionListener.onFailure(iMqttToken, throwable);
                 }
 
-                synchronized (MqttConnection.this) {
-                    connectFinished = true;
-                    MqttConnection.this.notifyAll();
+                // 处理paho返回的错误码为0的异常
+                if (connectResultCode == 0) {
+                    log.error("Client encountered an exception");
+                    connectResultCode = -1;
                 }
+                future.complete(connectResultCode);
             }
         };
     }
@@ -307,23 +307,51 @@ public class MqttConnection implements Connection {
     @Override
     public void publishMessage(RawMessage message, ActionListener listener) {
 
+        // 断线期间以及离线消息补发完之前，新消息都写入磁盘缓存，保证消息顺序
+        if (offlineSpool != null && (!isConnected() || offlineSpool.size() > 0)) {
+            if (!offlineSpool.append(message, listener) && listener != null) {
+                listener.onFailure(null, new IllegalStateException("offline spool rejected the message"));
+            }
+
+            // 补发任务可能在写入前刚好因缓存为空而停止
+            if (isConnected()) {
+                startReplay();
+            }
+            return;
+        }
+
+        // 只统计连接正常时发出的qos1消息，断线期间进入内存缓存的消息不计入发布时延
+        ActionListener publishListener = message.getQos() != 0 && isConnected()
+            ? metrics.trackPublish(listener) : listener;
         try {
+            // paho在收到确认前一直持有消息体数组用于重发，所以消息体不能使用复用的缓冲区
             MqttMessage mqttMessage = new MqttMessage(message.getPayload());
             mqttMessage.setQos(message.getQos() == 0 ? 0 : DEFAULT_QOS);
 
-            DefaultPublishListenerImpl defaultPublishListener = new DefaultPublishListenerImpl(listener, message);
+            DefaultPublishListenerImpl defaultPublishListener = new DefaultPublishListenerImpl(publishListener,
+                message);
 
             mqttAsyncClient.publish(message.getTopic(), mqttMessage, message.getTopic(), defaultPublishListener);
-            log.info("publish message topic is {}, msg =  {}", message.getTopic(), message.toString());
+            if (log.isDebugEnabled()) {
+                log.debug("publish message topic is {}, msg =  {}", message.getTopic(), message);
+            } else {
+                log.info("publish message topic is {}, size = {}", message.getTopic(), message.getPayload().length);
+            }
         } catch (MqttException e) {
             log.error(ExceptionUtil.getBriefStackTrace(e));
-            if (listener != null) {
-                listener.onFailure(null, e);
+            if (publishListener != null) {
+                publishListener.onFailure(null, e);
             }
         }
     }
 
     public void close() {
+        reconnector.cancel();
+        metrics.close();
+        stopReplay();
+        if (offlineSpool != null) {
+            offlineSpool.close();
+        }
 
         if (mqttAsyncClient.isConnected()) {
             try {
@@ -356,6 +384,13 @@ public class MqttConnection implements Connection {
     public void setCustomOptions(CustomOptions customOptions) {
         this.customOptions = customOptions;
         initDisconnectedMessageBuffer(customOptions.getOfflineBufferSize());
+        initOfflineSpool(customOptions);
+        reconnector.setCustomOptions(customOptions);
+    }
+
+    @Override
+    public Reconnector getReconnector() {
+        return reconnector;
     }
 
     public void setRawMessageListener(RawMessageListener rawMessageListener) {
@@ -387,4 +422,101 @@ public class MqttConnection implements Connection {
         }
 
     }
+
+    private void initOfflineSpool(CustomOptions options) {
+        if (offlineSpool != null || options.getOfflineSpoolDir() == null) {
+            return;
+        }
+        try {
+            File directory = new File(options.getOfflineSpoolDir(), clientConf.getDeviceId());
+            offlineSpool = new OfflineMessageSpool(directory, options.getOfflineSpoolQuota(),
+                options.getOfflineSpoolSegmentSize(), options.getOfflineSpoolDropPolicy());
+        } catch (IOException e) {
+            log.error("init offline spool failed, use memory buffer instead. {}", ExceptionUtil.getBriefStackTrace(e));
+            return;
+        }
+        metrics.registerGauge(ClientMetrics.OFFLINE_SPOOL_SIZE, offlineSpool::size);
+
+        // 每个周期补发的消息数按速率折算，至少1条
+        replayBatch = Math.max(options.getOfflineReplayRate() * REPLAY_PERIOD / 1000, 1);
+    }
+
+    /**
+     * 在重连共用的定时线程上开始补发离线消息，不为每个连接单独创建线程
+     */
+    private synchronized void startReplay() {
+        if (replayTask == null) {
+            replayTask = reconnector.scheduleWithFixedDelay(this::replay, REPLAY_PERIOD, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized void stopReplay() {
+        if (replayTask != null) {
+            replayTask.cancel(false);
+            replayTask = null;
+        }
+    }
+
+    /**
+     * 断线或缓存中的消息都已确认时，由补发任务自己停止。
+     * 停止前后可能刚好重连或写入了新消息，它们调用的startReplay会被这里的停止抵消，所以停止后重新检查一次；
+     * 不持有锁访问缓存，因为缓存的回调中可能再次发布消息
+     */
+    private void stopIdleReplay() {
+        stopReplay();
+        if (isConnected() && offlineSpool.size() > 0) {
+            startReplay();
+        }
+    }
+
+    private void replay() {
+        try {
+            replayOnce();
+        } catch (Exception e) {
+            // 周期任务抛出异常后不再执行
+            log.error(ExceptionUtil.getBriefStackTrace(e));
+        }
+    }
+
+    private void replayOnce() {
+        if (!isConnected()) {
+            stopIdleReplay();
+            return;
+        }
+        for (int i = 0; i < replayBatch && isConnected(); i++) {
+            OfflineMessageSpool.SpoolRecord record = offlineSpool.next();
+            if (record == null) {
+                // 已发出未确认的消息可能发送失败后需要重发，全部确认后才停止
+                if (offlineSpool.size() == 0) {
+                    stopIdleReplay();
+                }
+                return;
+            }
+            RawMessage message = record.getMessage();
+            MqttMessage mqttMessage = new MqttMessage(message.getPayload());
+            mqttMessage.setQos(message.getQos() == 0 ? 0 : DEFAULT_QOS);
+            try {
+                mqttAsyncClient.publish(message.getTopic(), mqttMessage, null, new IMqttActionListener() {
+                    @Override
+                    public void onSuccess(IMqttToken asyncActionToken) {
+                        offlineSpool.ack(record);
+                    }
+
+                    @Override
+                    public void onFailure(IMqttToken asyncActionToken, Throwable exception) {
+                        log.warn("replay offline message failed, topic = {}", message.getTopic());
+                        offlineSpool.rewind(record);
+                    }
+                });
+            } catch (MqttException e) {
+                // 发送窗口已满或连接已断开，下个周期重试
+                offlineSpool.rewind(record);
+                return;
+            } catch (Exception e) {
+                log.error(ExceptionUtil.getBriefStackTrace(e));
+                offlineSpool.rewind(record);
+                return;
+            }
+        }
+    }
 }
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.transport.mqtt;
+
+import com.huaweicloud.sdk.iot.device.client.ClientConf;
+import com.huaweicloud.sdk.iot.device.utils.IotUtil;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 建链鉴权参数，包括clientId、用户名和密码，各个mqtt连接实现共用
+ */
+class MqttCredential {
+    private static final String CONNECT_TYPE_OF_DEVICE = "0";
+
+    private static final String CONNECT_TYPE_OF_BRIDGE_DEVICE = "3";
+
+    private static final int CONNECT_OF_BRIDGE_MODE = 3;
+
+    private static final DateTimeFormatter TIME_STAMP_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMddHH");
+
+    private final String clientId;
+
+    private final String userName;
+
+    private final String password;
+
+    private MqttCredential(String clientId, String userName, String password) {
+        this.clientId = clientId;
+        this.userName = userName;
+        this.password = password;
+    }
+
+    /**
+     * 按当前时间生成建链鉴权参数，每次建链都需要重新生成
+     *
+     * @param clientConf 客户端配置
+     * @return 建链鉴权参数
+     */
+    static MqttCredential of(ClientConf clientConf) {
+        String timeStamp = ZonedDateTime.ofInstant(Instant.now(), ZoneId.of("UTC")).format(TIME_STAMP_FORMATTER);
+        String password = null;
+        String secret = clientConf.getSecret();
+        if (secret != null && !secret.isEmpty()) {
+            password = IotUtil.shaHMac(secret, timeStamp, clientConf.getCheckStamp());
+        }
+        return new MqttCredential(generateClientId(clientConf, timeStamp), clientConf.getDeviceId(), password);
+    }
+
+    private static String generateClientId(ClientConf clientConf, String timeStamp) {
+        String clientId;
+        if (clientConf.getMode() == CONNECT_OF_BRIDGE_MODE) {
+            clientId = String.join("_", clientConf.getDeviceId(), CONNECT_TYPE_OF_BRIDGE_DEVICE, Integer.toString(clientConf.getCheckStamp()),
+                timeStamp);
+        } else if (clientConf.getScopeId() != null) {
+            if (clientConf.getSecret() != null) {
+                clientId = String.join("_", clientConf.getDeviceId(), CONNECT_TYPE_OF_DEVICE, clientConf.getScopeId(), Integer.toString(clientConf.getCheckStamp()),
+                    timeStamp);
+            } else {
+                clientId = String.join("_", clientConf.getDeviceId(), CONNECT_TYPE_OF_DEVICE, clientConf.getScopeId());
+            }
+        } else {
+            clientId = String.join("_", clientConf.getDeviceId(), CONNECT_TYPE_OF_DEVICE, Integer.toString(clientConf.getCheckStamp()), timeStamp);
+        }
+        return clientId;
+    }
+
+    String getClientId() {
+        return clientId;
+    }
+
+    String getUserName() {
+        return userName;
+    }
+
+    /**
+     * 查询密码，未配置密钥（证书认证）时为null
+     *
+     * @return 密码
+     */
+    String getPassword() {
+        return password;
+    }
+}
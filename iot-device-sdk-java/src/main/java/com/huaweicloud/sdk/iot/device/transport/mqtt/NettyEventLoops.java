@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.transport.mqtt;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.util.concurrent.DefaultEventExecutorGroup;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.EventExecutorGroup;
+
+/**
+ * netty连接共用的线程组。io线程只负责网络收发和编解码，消息回调在回调线程中执行，
+ * 每个连接固定绑定一个回调线程，保证单个连接的消息按顺序处理
+ */
+public class NettyEventLoops {
+    private static final int DEFAULT_IO_THREADS = Runtime.getRuntime().availableProcessors();
+
+    private static final int DEFAULT_CALLBACK_THREADS = Runtime.getRuntime().availableProcessors() * 2;
+
+    private static volatile NettyEventLoops defaultEventLoops;
+
+    private final EventLoopGroup ioGroup;
+
+    private final EventExecutorGroup callbackGroup;
+
+    /**
+     * 构造函数
+     *
+     * @param ioThreads       io线程数
+     * @param callbackThreads 回调线程数，设备的消息回调中有阻塞操作时应适当增大
+     */
+    public NettyEventLoops(int ioThreads, int callbackThreads) {
+        if (ioThreads <= 0 || callbackThreads <= 0) {
+            throw new IllegalArgumentException("thread count must be positive");
+        }
+        this.ioGroup = new NioEventLoopGroup(ioThreads, new DefaultThreadFactory("iot-netty-io", true));
+        this.callbackGroup = new DefaultEventExecutorGroup(callbackThreads,
+            new DefaultThreadFactory("iot-netty-callback", true));
+    }
+
+    /**
+     * 查询默认线程组，首次使用时按cpu核数创建
+     *
+     * @return 默认线程组
+     */
+    public static NettyEventLoops getDefault() {
+        NettyEventLoops eventLoops = defaultEventLoops;
+        if (eventLoops == null) {
+            synchronized (NettyEventLoops.class) {
+                eventLoops = defaultEventLoops;
+                if (eventLoops == null) {
+                    eventLoops = new NettyEventLoops(DEFAULT_IO_THREADS, DEFAULT_CALLBACK_THREADS);
+                    defaultEventLoops = eventLoops;
+                }
+            }
+        }
+        return eventLoops;
+    }
+
+    /**
+     * 替换默认线程组，需要在创建连接前调用，已创建的连接仍使用原来的线程组
+     *
+     * @param eventLoops 线程组
+     */
+    public static void setDefault(NettyEventLoops eventLoops) {
+        synchronized (NettyEventLoops.class) {
+            defaultEventLoops = eventLoops;
+        }
+    }
+
+    EventLoopGroup getIoGroup() {
+        return ioGroup;
+    }
+
+    EventExecutorGroup getCallbackGroup() {
+        return callbackGroup;
+    }
+
+    /**
+     * 关闭线程组，使用该线程组的连接都会断开
+     */
+    public void shutdown() {
+        ioGroup.shutdownGracefully();
+        callbackGroup.shutdownGracefully();
+    }
+}
@@ -0,0 +1,902 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.transport.mqtt;
+
+import com.huaweicloud.sdk.iot.device.client.ClientConf;
+import com.huaweicloud.sdk.iot.device.client.CustomOptions;
+import com.huaweicloud.sdk.iot.device.constants.Constants;
+import com.huaweicloud.sdk.iot.device.metrics.ClientMetrics;
+import com.huaweicloud.sdk.iot.device.transport.ActionListener;
+import com.huaweicloud.sdk.iot.device.transport.ConnectActionListener;
+import com.huaweicloud.sdk.iot.device.transport.ConnectListener;
+import com.huaweicloud.sdk.iot.device.transport.Connection;
+import com.huaweicloud.sdk.iot.device.transport.RawMessage;
+import com.huaweicloud.sdk.iot.device.transport.RawMessageListener;
+import com.huaweicloud.sdk.iot.device.transport.Reconnector;
+import com.huaweicloud.sdk.iot.device.transport.spool.OfflineMessageSpool;
+import com.huaweicloud.sdk.iot.device.utils.ExceptionUtil;
+import com.huaweicloud.sdk.iot.device.utils.IotUtil;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.mqtt.MqttConnAckMessage;
+import io.netty.handler.codec.mqtt.MqttConnectReturnCode;
+import io.netty.handler.codec.mqtt.MqttDecoder;
+import io.netty.handler.codec.mqtt.MqttEncoder;
+import io.netty.handler.codec.mqtt.MqttFixedHeader;
+import io.netty.handler.codec.mqtt.MqttMessage;
+import io.netty.handler.codec.mqtt.MqttMessageBuilders;
+import io.netty.handler.codec.mqtt.MqttMessageType;
+import io.netty.handler.codec.mqtt.MqttProperties;
+import io.netty.handler.codec.mqtt.MqttProperties.MqttPropertyType;
+import io.netty.handler.codec.mqtt.MqttPubAckMessage;
+import io.netty.handler.codec.mqtt.MqttPubReplyMessageVariableHeader;
+import io.netty.handler.codec.mqtt.MqttPublishMessage;
+import io.netty.handler.codec.mqtt.MqttQoS;
+import io.netty.handler.codec.mqtt.MqttSubAckMessage;
+import io.netty.handler.codec.mqtt.MqttVersion;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.timeout.IdleState;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.concurrent.ScheduledFuture;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+
+/**
+ * 基于netty的mqtt连接。所有连接共用NettyEventLoops中的少量线程，适合在单个JVM中承载大量设备，
+ * 例如设备模拟和协议转换网关。鉴权、重连、离线缓存等行为与MqttConnection一致
+ * <p>
+ * 传输方式为Constants.TRANSPORT_NETTY_MQTT5时使用mqtt5协议：
+ * 上行topic使用主题别名，同一topic只在首次发布时携带完整字符串；
+ * 发送窗口取服务端的receive maximum；
+ * 配置了会话过期时间时，重连后服务端保留了会话则不再重新订阅
+ */
+@Slf4j
+public class NettyMqttConnection implements Connection {
+    private static final int DEFAULT_QOS = 1;
+
+    private static final int DEFAULT_CONNECT_TIMEOUT = 60;
+
+    private static final int DEFAULT_KEEPLIVE = 120;
+
+    private static final int DEFAULT_SSL_PORT = 8883;
+
+    private static final int DEFAULT_TCP_PORT = 1883;
+
+    private static final int MAX_MESSAGE_SIZE = 4 * 1024 * 1024;
+
+    private static final int MAX_PACKET_ID = 65535;
+
+    private static final int REPLAY_PERIOD = 100;
+
+    private static final int DEFAULT_RECEIVE_MAXIMUM = 65535;
+
+    /**
+     * mqtt5的鉴权失败原因码，转换为mqtt3.1.1的返回码，保持连接结果的含义不变
+     */
+    private static final int MQTT5_BAD_USER_NAME_OR_PASSWORD = 0x86;
+
+    private static final int MQTT5_NOT_AUTHORIZED = 0x87;
+
+    private static final int BAD_USER_NAME_OR_PASSWORD = 4;
+
+    private static final int NOT_AUTHORIZED = 5;
+
+    private static final int MQTT5_FAILURE_REASON = 0x80;
+
+    /**
+     * 响应类topic每次都不同，不使用主题别名
+     */
+    private static final String REQUEST_ID_TOPIC_PART = "request_id=";
+
+    private final ClientConf clientConf;
+
+    private final NettyEventLoops eventLoops;
+
+    private final Reconnector reconnector;
+
+    private final boolean mqtt5;
+
+    private final ClientMetrics metrics;
+
+    /**
+     * 已订阅成功的自定义topic及其qos，mqtt5会话未保留时重连后重新订阅
+     */
+    private final Map<String, Integer> subscriptions = new ConcurrentHashMap<>();
+
+    /**
+     * 断线期间或发送窗口已满时的待发消息，按发布顺序发送
+     */
+    private final ArrayDeque<PendingPublish> offlineBuffer = new ArrayDeque<>();
+
+    private volatile RawMessageListener rawMessageListener;
+
+    private volatile ConnectListener connectListener;
+
+    private volatile ConnectActionListener connectActionListener;
+
+    private volatile CustomOptions customOptions = new CustomOptions();
+
+    /**
+     * 已完成建链的通道处理器，断线后为null
+     */
+    private volatile ClientHandler activeHandler;
+
+    private volatile Channel channel;
+
+    private volatile boolean closed;
+
+    /**
+     * 是否连接成功过，之后的连接成功按重连通知
+     */
+    private volatile boolean everConnected;
+
+    private OfflineMessageSpool offlineSpool;
+
+    private int replayBatch;
+
+    public NettyMqttConnection(ClientConf clientConf, RawMessageListener rawMessageListener) {
+        this(clientConf, rawMessageListener, NettyEventLoops.getDefault());
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param clientConf         客户端配置
+     * @param rawMessageListener 原始消息监听器
+     * @param eventLoops         连接使用的线程组
+     */
+    public NettyMqttConnection(ClientConf clientConf, RawMessageListener rawMessageListener,
+        NettyEventLoops eventLoops) {
+        this.clientConf = clientConf;
+        this.rawMessageListener = rawMessageListener;
+        this.eventLoops = eventLoops;
+        this.mqtt5 = clientConf.getTransport() == Constants.TRANSPORT_NETTY_MQTT5;
+        this.reconnector = new Reconnector(this, customOptions);
+        this.metrics = new ClientMetrics(clientConf.getMetricRegistry());
+        metrics.registerGauge(ClientMetrics.PUBLISH_INFLIGHT_LIMIT, () -> customOptions.getMaxInflight());
+        metrics.registerGauge(ClientMetrics.OFFLINE_BUFFER_SIZE, this::getOfflineBufferSize);
+    }
+
+    @Override
+    public int connect() {
+        try {
+            return connectAsync().get();
+        } catch (InterruptedException e) {
+            log.error(ExceptionUtil.getBriefStackTrace(e));
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.error(ExceptionUtil.getBriefStackTrace(e));
+        }
+        return -1;
+    }
+
+    /**
+     * 异步建立连接，连接结果在收到CONNACK后通知，不阻塞调用线程
+     *
+     * @return 连接建立结果，0表示成功，其他表示失败
+     */
+    @Override
+    public CompletableFuture<Integer> connectAsync() {
+        CompletableFuture<Integer> future = new CompletableFuture<>();
+        closed = false;
+        URI uri = URI.create(clientConf.getServerUri());
+        boolean ssl = "ssl".equals(uri.getScheme());
+        int port = uri.getPort() > 0 ? uri.getPort() : (ssl ? DEFAULT_SSL_PORT : DEFAULT_TCP_PORT);
+        SSLContext sslContext = null;
+        if (ssl) {
+            try {
+                sslContext = IotUtil.getSSLContext(clientConf);
+            } catch (Exception e) {
+                log.error(ExceptionUtil.getBriefStackTrace(e));
+                future.complete(-1);
+                return future;
+            }
+        }
+
+        ClientHandler handler = new ClientHandler(MqttCredential.of(clientConf), future);
+        SSLContext channelSslContext = sslContext;
+        Bootstrap bootstrap = new Bootstrap().group(eventLoops.getIoGroup())
+            .channel(NioSocketChannel.class)
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) TimeUnit.SECONDS.toMillis(DEFAULT_CONNECT_TIMEOUT))
+            .option(ChannelOption.TCP_NODELAY, true)
+            .handler(new ChannelInitializer<SocketChannel>() {
+                @Override
+                protected void initChannel(SocketChannel socketChannel) {
+                    ChannelPipeline pipeline = socketChannel.pipeline();
+                    if (channelSslContext != null) {
+                        SSLEngine sslEngine = channelSslContext.createSSLEngine(uri.getHost(), port);
+                        sslEngine.setUseClientMode(true);
+                        pipeline.addLast(new SslHandler(sslEngine));
+                    }
+                    pipeline.addLast(new MqttDecoder(MAX_MESSAGE_SIZE), MqttEncoder.INSTANCE,
+                        new IdleStateHandler(DEFAULT_KEEPLIVE * 3 / 2, DEFAULT_KEEPLIVE, 0));
+
+                    // 消息回调在回调线程中执行，避免设备的业务处理阻塞其他连接的网络收发
+                    pipeline.addLast(eventLoops.getCallbackGroup(), handler);
+                }
+            });
+
+        log.info("try to connect to {}", clientConf.getServerUri());
+        ChannelFuture channelFuture = bootstrap.connect(uri.getHost(), port);
+        channel = channelFuture.channel();
+        channelFuture.addListener(result -> {
+            if (!result.isSuccess()) {
+                onConnectFailure(future, result.cause(), -1);
+            }
+        });
+        return future;
+    }
+
+    private void onConnectFailure(CompletableFuture<Integer> future, Throwable cause, int resultCode) {
+        if (future.isDone()) {
+            return;
+        }
+        log.info("connect failed, the reason is {}", cause.toString());
+        metrics.connectFailed();
+        if (connectActionListener != null) {
+            connectActionListener.onFailure(null, cause);
+        }
+        future.complete(resultCode);
+    }
+
+    @Override
+    public void publishMessage(RawMessage message, ActionListener listener) {
+
+        // 断线期间以及离线消息补发完之前，新消息都写入磁盘缓存，保证消息顺序
+        if (offlineSpool != null && (!isConnected() || offlineSpool.size() > 0)) {
+            if (!offlineSpool.append(message, listener) && listener != null) {
+                listener.onFailure(null, new IllegalStateException("offline spool rejected the message"));
+            }
+            return;
+        }
+
+        PendingPublish pending = new PendingPublish(message, listener);
+        ClientHandler handler = activeHandler;
+        if (handler == null || !isOfflineBufferEmpty()) {
+            bufferMessage(pending);
+            if (handler != null) {
+                handler.execute(handler::drain);
+            }
+            return;
+        }
+        handler.execute(() -> handler.publish(pending));
+    }
+
+    private boolean isOfflineBufferEmpty() {
+        synchronized (offlineBuffer) {
+            return offlineBuffer.isEmpty();
+        }
+    }
+
+    private void bufferMessage(PendingPublish pending) {
+        synchronized (offlineBuffer) {
+            if (offlineBuffer.size() < customOptions.getOfflineBufferSize()) {
+                offlineBuffer.add(pending);
+                return;
+            }
+        }
+        pending.fail(new IllegalStateException("offline buffer is full"));
+    }
+
+    private int getOfflineBufferSize() {
+        synchronized (offlineBuffer) {
+            return offlineBuffer.size();
+        }
+    }
+
+    private PendingPublish pollBufferedMessage() {
+        synchronized (offlineBuffer) {
+            return offlineBuffer.poll();
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        reconnector.cancel();
+        metrics.close();
+        if (offlineSpool != null) {
+            offlineSpool.close();
+        }
+
+        Channel current = channel;
+        if (current == null) {
+            return;
+        }
+        if (current.isActive()) {
+            current.writeAndFlush(buildDisconnect()).addListener(ChannelFutureListener.CLOSE);
+        } else {
+            current.close();
+        }
+    }
+
+    private MqttMessage buildDisconnect() {
+        if (!mqtt5) {
+            return new MqttMessage(new MqttFixedHeader(MqttMessageType.DISCONNECT, false, MqttQoS.AT_MOST_ONCE,
+                false, 0));
+        }
+
+        // 主动关闭时不再需要保留会话
+        MqttProperties properties = new MqttProperties();
+        properties.add(new MqttProperties.IntegerProperty(MqttPropertyType.SESSION_EXPIRY_INTERVAL.value(), 0));
+        return MqttMessageBuilders.disconnect().reasonCode((byte) 0).properties(properties).build();
+    }
+
+    @Override
+    public boolean isConnected() {
+        return activeHandler != null;
+    }
+
+    @Override
+    public void setConnectListener(ConnectListener connectListener) {
+        this.connectListener = connectListener;
+    }
+
+    @Override
+    public void setConnectActionListener(ConnectActionListener connectActionListener) {
+        this.connectActionListener = connectActionListener;
+    }
+
+    @Override
+    public void setCustomOptions(CustomOptions customOptions) {
+        this.customOptions = customOptions;
+        initOfflineSpool(customOptions);
+        reconnector.setCustomOptions(customOptions);
+    }
+
+    @Override
+    public Reconnector getReconnector() {
+        return reconnector;
+    }
+
+    public void setRawMessageListener(RawMessageListener rawMessageListener) {
+        this.rawMessageListener = rawMessageListener;
+    }
+
+    /**
+     * 订阅指定主题，订阅结果在收到SUBACK后通过监听器通知
+     *
+     * @param topic 主题
+     */
+    @Override
+    public void subscribeTopic(String topic, ActionListener listener, int qos) {
+        ClientHandler handler = activeHandler;
+        if (handler == null) {
+            if (listener != null) {
+                listener.onFailure(topic, new IllegalStateException("connection is not established"));
+            }
+            return;
+        }
+        handler.execute(() -> handler.subscribe(new PendingSubscribe(topic, listener, qos)));
+    }
+
+    private void initOfflineSpool(CustomOptions options) {
+        if (offlineSpool != null || options.getOfflineSpoolDir() == null) {
+            return;
+        }
+        try {
+            File directory = new File(options.getOfflineSpoolDir(), clientConf.getDeviceId());
+            offlineSpool = new OfflineMessageSpool(directory, options.getOfflineSpoolQuota(),
+                options.getOfflineSpoolSegmentSize(), options.getOfflineSpoolDropPolicy());
+        } catch (IOException e) {
+            log.error("init offline spool failed, use memory buffer instead. {}", ExceptionUtil.getBriefStackTrace(e));
+            return;
+        }
+        metrics.registerGauge(ClientMetrics.OFFLINE_SPOOL_SIZE, offlineSpool::size);
+
+        // 每个周期补发的消息数按速率折算，至少1条
+        replayBatch = Math.max(options.getOfflineReplayRate() * REPLAY_PERIOD / 1000, 1);
+    }
+
+    private void notifyConnectionLost(Throwable cause) {
+        log.error("Connection lost.", cause);
+        metrics.connectionLost();
+        if (connectListener != null) {
+            connectListener.connectionLost(cause);
+        }
+
+        if (customOptions.getConnectListener() != null) {
+            customOptions.getConnectListener().connectionLost(cause);
+        }
+
+        // 自定义重连可能阻塞调用线程，不能占用共用的回调线程
+        reconnector.reconnectInBackground();
+    }
+
+    private void notifyConnectComplete() {
+        log.info("Mqtt client connected. address is {}", clientConf.getServerUri());
+        metrics.connected();
+
+        // 与paho的回调一致，首次连接之后的连接都是重连
+        boolean reconnect = everConnected;
+        everConnected = true;
+        if (connectListener != null) {
+            connectListener.connectComplete(reconnect, clientConf.getServerUri());
+        }
+
+        if (customOptions.getConnectListener() != null) {
+            customOptions.getConnectListener().connectComplete(reconnect, clientConf.getServerUri());
+        }
+    }
+
+    /**
+     * 单个通道的协议处理，所有状态只在通道绑定的回调线程中访问，不需要加锁
+     */
+    private class ClientHandler extends SimpleChannelInboundHandler<MqttMessage> {
+        private final MqttCredential credential;
+
+        private final CompletableFuture<Integer> connectFuture;
+
+        private final Map<Integer, PendingPublish> inflight = new HashMap<>();
+
+        private final Map<Integer, PendingSubscribe> subscribes = new HashMap<>();
+
+        private ChannelHandlerContext ctx;
+
+        private int packetId;
+
+        private int sendWindow;
+
+        private int topicAliasMaximum;
+
+        private final Map<String, Integer> topicAliases = new HashMap<>();
+
+        private ScheduledFuture<?> connAckTimeout;
+
+        private ScheduledFuture<?> replayTask;
+
+        ClientHandler(MqttCredential credential, CompletableFuture<Integer> connectFuture) {
+            this.credential = credential;
+            this.connectFuture = connectFuture;
+        }
+
+        void execute(Runnable task) {
+            ctx.executor().execute(task);
+        }
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) {
+            this.ctx = ctx;
+            long sessionExpiryInterval = mqtt5 ? customOptions.getSessionExpiryInterval() : 0;
+            MqttMessageBuilders.ConnectBuilder builder = MqttMessageBuilders.connect()
+                .protocolVersion(mqtt5 ? MqttVersion.MQTT_5 : MqttVersion.MQTT_3_1_1)
+                .clientId(credential.getClientId())
+                .username(credential.getUserName())
+                .cleanSession(sessionExpiryInterval == 0)
+                .keepAlive(DEFAULT_KEEPLIVE);
+            if (sessionExpiryInterval > 0) {
+                MqttProperties properties = new MqttProperties();
+                properties.add(new MqttProperties.IntegerProperty(MqttPropertyType.SESSION_EXPIRY_INTERVAL.value(),
+                    (int) Math.min(sessionExpiryInterval, Integer.MAX_VALUE)));
+                builder.properties(properties);
+            }
+            if (credential.getPassword() != null) {
+                builder.password(credential.getPassword().getBytes(StandardCharsets.UTF_8));
+            }
+            ctx.writeAndFlush(builder.build());
+            connAckTimeout = ctx.executor().schedule(() -> {
+                onConnectFailure(connectFuture, new IOException("wait for connack timeout"), -1);
+                ctx.close();
+            }, DEFAULT_CONNECT_TIMEOUT, TimeUnit.SECONDS);
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, MqttMessage msg) {
+            if (msg.decoderResult().isFailure()) {
+                log.error("decode mqtt message failed, {}", msg.decoderResult().cause().toString());
+                ctx.close();
+                return;
+            }
+            switch (msg.fixedHeader().messageType()) {
+                case CONNACK:
+                    onConnAck((MqttConnAckMessage) msg);
+                    break;
+                case PUBLISH:
+                    onPublish((MqttPublishMessage) msg);
+                    break;
+                case PUBACK:
+                    onPubAck((MqttPubAckMessage) msg);
+                    break;
+                case SUBACK:
+                    onSubAck((MqttSubAckMessage) msg);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void onConnAck(MqttConnAckMessage msg) {
+            connAckTimeout.cancel(false);
+            MqttConnectReturnCode returnCode = msg.variableHeader().connectReturnCode();
+            if (returnCode != MqttConnectReturnCode.CONNECTION_ACCEPTED) {
+                onConnectFailure(connectFuture, new IOException("connection refused, " + returnCode),
+                    toResultCode(returnCode));
+                ctx.close();
+                return;
+            }
+
+            log.info("connect success, the uri is {}", clientConf.getServerUri());
+            sendWindow = customOptions.getMaxInflight();
+            if (mqtt5) {
+                MqttProperties properties = msg.variableHeader().properties();
+                sendWindow = Math.min(sendWindow,
+                    getIntProperty(properties, MqttPropertyType.RECEIVE_MAXIMUM, DEFAULT_RECEIVE_MAXIMUM));
+                topicAliasMaximum = getIntProperty(properties, MqttPropertyType.TOPIC_ALIAS_MAXIMUM, 0);
+                if (!msg.variableHeader().isSessionPresent()) {
+                    subscriptions.forEach((topic, qos) -> subscribe(new PendingSubscribe(topic, null, qos)));
+                }
+            }
+            activeHandler = this;
+            if (connectActionListener != null) {
+                connectActionListener.onSuccess(null);
+            }
+
+            // 已发出但未确认的离线消息随连接断开而丢失，重连后从最早的未确认消息开始补发
+            if (offlineSpool != null) {
+                offlineSpool.rewind();
+                replayTask = ctx.executor().scheduleWithFixedDelay(this::replay, REPLAY_PERIOD, REPLAY_PERIOD,
+                    TimeUnit.MILLISECONDS);
+            }
+            notifyConnectComplete();
+            connectFuture.complete(0);
+            drain();
+        }
+
+        private int toResultCode(MqttConnectReturnCode returnCode) {
+            int code = returnCode.byteValue() & 0xff;
+            if (code == MQTT5_BAD_USER_NAME_OR_PASSWORD) {
+                return BAD_USER_NAME_OR_PASSWORD;
+            }
+            return code == MQTT5_NOT_AUTHORIZED ? NOT_AUTHORIZED : code;
+        }
+
+        private int getIntProperty(MqttProperties properties, MqttPropertyType type, int defaultValue) {
+            MqttProperties.MqttProperty<?> property = properties.getProperty(type.value());
+            return property == null ? defaultValue : (Integer) property.value();
+        }
+
+        private void onPublish(MqttPublishMessage msg) {
+            String topic = msg.variableHeader().topicName();
+            byte[] payload = ByteBufUtil.getBytes(msg.payload());
+            int qos = msg.fixedHeader().qosLevel().value();
+            RawMessage rawMessage = new RawMessage(topic, payload, qos);
+            if (log.isDebugEnabled()) {
+                log.debug("messageArrived topic =  {}, msg = {}", topic, rawMessage);
+            } else {
+                log.info("messageArrived topic =  {}, size = {}", topic, payload.length);
+            }
+            try {
+                if (rawMessageListener != null) {
+                    rawMessageListener.onMessageReceived(rawMessage);
+                }
+            } catch (Exception e) {
+                log.error(ExceptionUtil.getBriefStackTrace(e));
+            }
+
+            if (qos > 0) {
+                ctx.writeAndFlush(MqttMessageBuilders.pubAck().packetId(msg.variableHeader().packetId()).build());
+            }
+        }
+
+        private void onPubAck(MqttPubAckMessage msg) {
+            PendingPublish pending = inflight.remove(msg.variableHeader().messageId());
+            if (pending != null) {
+                int reasonCode = 0;
+                if (msg.variableHeader() instanceof MqttPubReplyMessageVariableHeader) {
+                    reasonCode = ((MqttPubReplyMessageVariableHeader) msg.variableHeader()).reasonCode() & 0xff;
+                }
+                if (reasonCode < MQTT5_FAILURE_REASON) {
+                    pending.succeed();
+                } else {
+                    pending.fail(new IOException("publish rejected, reason code is " + reasonCode));
+                }
+            }
+            drain();
+        }
+
+        private void onSubAck(MqttSubAckMessage msg) {
+            PendingSubscribe pending = subscribes.remove(msg.variableHeader().messageId());
+            if (pending == null) {
+                return;
+            }
+            List<Integer> grantedQosLevels = msg.payload().grantedQoSLevels();
+            if (mqtt5 && grantedQosLevels.contains(pending.qos)) {
+                subscriptions.put(pending.topic, pending.qos);
+            }
+            if (pending.listener == null) {
+                return;
+            }
+            for (int grantedQos : grantedQosLevels) {
+                if (pending.qos == grantedQos) {
+                    pending.listener.onSuccess(pending.topic);
+                } else {
+                    pending.listener.onFailure(pending.topic,
+                        new RuntimeException("subscribe failed granted qos is " + grantedQos));
+                }
+            }
+        }
+
+        @Override
+        public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+            if (!(evt instanceof IdleStateEvent)) {
+                super.userEventTriggered(ctx, evt);
+                return;
+            }
+            if (((IdleStateEvent) evt).state() == IdleState.READER_IDLE) {
+                log.warn("no data received within keep alive interval, close the connection");
+                ctx.close();
+            } else if (((IdleStateEvent) evt).state() == IdleState.WRITER_IDLE) {
+                ctx.writeAndFlush(new MqttMessage(new MqttFixedHeader(MqttMessageType.PINGREQ, false,
+                    MqttQoS.AT_MOST_ONCE, false, 0)));
+            }
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            log.error(ExceptionUtil.getBriefStackTrace(cause));
+            ctx.close();
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) {
+            if (connAckTimeout != null) {
+                connAckTimeout.cancel(false);
+            }
+            if (replayTask != null) {
+                replayTask.cancel(false);
+            }
+            boolean established = activeHandler == this;
+            if (established) {
+                activeHandler = null;
+            }
+
+            IOException cause = new IOException("connection lost");
+            List<PendingPublish> lost = new ArrayList<>(inflight.values());
+            inflight.clear();
+            lost.forEach(pending -> pending.fail(cause));
+            subscribes.values().stream()
+                .filter(pending -> pending.listener != null)
+                .forEach(pending -> pending.listener.onFailure(pending.topic, cause));
+            subscribes.clear();
+
+            onConnectFailure(connectFuture, cause, -1);
+            if (established && !closed) {
+                notifyConnectionLost(cause);
+            }
+        }
+
+        void publish(PendingPublish pending) {
+            if (activeHandler != this || !hasCapacity()) {
+                bufferMessage(pending);
+                return;
+            }
+            send(pending);
+        }
+
+        /**
+         * 在发送窗口允许的范围内发送缓存的消息
+         */
+        void drain() {
+            while (activeHandler == this && hasCapacity()) {
+                PendingPublish pending = pollBufferedMessage();
+                if (pending == null) {
+                    return;
+                }
+                send(pending);
+            }
+        }
+
+        private boolean hasCapacity() {
+            return inflight.size() < sendWindow;
+        }
+
+        private void send(PendingPublish pending) {
+            RawMessage message = pending.message;
+            MqttQoS qos = message.getQos() == 0 ? MqttQoS.AT_MOST_ONCE : MqttQoS.valueOf(DEFAULT_QOS);
+            int messageId = 0;
+            if (qos != MqttQoS.AT_MOST_ONCE) {
+                messageId = nextPacketId();
+                inflight.put(messageId, pending);
+                pending.track(metrics);
+            }
+            int id = messageId;
+            MqttMessageBuilders.PublishBuilder builder = MqttMessageBuilders.publish()
+                .topicName(message.getTopic())
+                .qos(qos)
+                .retained(false)
+                .messageId(id);
+            applyTopicAlias(builder, message.getTopic());
+            ctx.writeAndFlush(builder
+                .payload(Unpooled.wrappedBuffer(message.getPayload()))
+                .build()).addListener(result -> {
+                    if (!result.isSuccess()) {
+                        if (id == 0 || inflight.remove(id) != null) {
+                            pending.fail(result.cause());
+                        }
+                    } else if (id == 0) {
+                        pending.succeed();
+                    }
+                });
+            if (log.isDebugEnabled()) {
+                log.debug("publish message topic is {}, msg =  {}", message.getTopic(), message);
+            } else {
+                log.info("publish message topic is {}, size = {}", message.getTopic(), message.getPayload().length);
+            }
+        }
+
+        /**
+         * 首次发布某个topic时分配别名并携带完整topic，之后只携带别名
+         */
+        private void applyTopicAlias(MqttMessageBuilders.PublishBuilder builder, String topic) {
+            if (topicAliasMaximum == 0 || topic.contains(REQUEST_ID_TOPIC_PART)) {
+                return;
+            }
+            Integer alias = topicAliases.get(topic);
+            if (alias != null) {
+                builder.topicName("");
+            } else if (topicAliases.size() < topicAliasMaximum) {
+                alias = topicAliases.size() + 1;
+                topicAliases.put(topic, alias);
+            } else {
+                return;
+            }
+            MqttProperties properties = new MqttProperties();
+            properties.add(new MqttProperties.IntegerProperty(MqttPropertyType.TOPIC_ALIAS.value(), alias));
+            builder.properties(properties);
+        }
+
+        void subscribe(PendingSubscribe pending) {
+            int messageId = nextPacketId();
+            subscribes.put(messageId, pending);
+            ctx.writeAndFlush(MqttMessageBuilders.subscribe()
+                .addSubscription(MqttQoS.valueOf(pending.qos), pending.topic)
+                .messageId(messageId)
+                .build());
+        }
+
+        private int nextPacketId() {
+            do {
+                packetId = packetId % MAX_PACKET_ID + 1;
+            } while (inflight.containsKey(packetId) || subscribes.containsKey(packetId));
+            return packetId;
+        }
+
+        private void replay() {
+            for (int i = 0; i < replayBatch && activeHandler == this && hasCapacity(); i++) {
+                OfflineMessageSpool.SpoolRecord record = offlineSpool.next();
+                if (record == null) {
+                    return;
+                }
+                send(new PendingPublish(record.getMessage(), new ActionListener() {
+                    @Override
+                    public void onSuccess(Object context) {
+                        offlineSpool.ack(record);
+                    }
+
+                    @Override
+                    public void onFailure(Object context, Throwable var2) {
+                        log.warn("replay offline message failed, topic = {}", record.getMessage().getTopic());
+                        offlineSpool.rewind(record);
+                    }
+                }));
+            }
+        }
+    }
+
+    private static class PendingPublish {
+        private final RawMessage message;
+
+        private final ActionListener listener;
+
+        private ClientMetrics metrics;
+
+        private long startTime;
+
+        PendingPublish(RawMessage message, ActionListener listener) {
+            this.message = message;
+            this.listener = listener;
+        }
+
+        /**
+         * 发出qos1消息时开始统计，收到PUBACK或失败时结束
+         */
+        void track(ClientMetrics clientMetrics) {
+            metrics = clientMetrics;
+            startTime = clientMetrics.publishStarted();
+        }
+
+        void succeed() {
+            if (metrics != null) {
+                metrics.publishCompleted(startTime, true);
+            }
+            if (listener != null) {
+                listener.onSuccess(null);
+            }
+        }
+
+        void fail(Throwable cause) {
+            if (metrics != null) {
+                metrics.publishCompleted(startTime, false);
+            }
+            log.error("publish message failed, topic = {}, size = {}", message.getTopic(),
+                message.getPayload().length);
+            if (log.isDebugEnabled()) {
+                log.debug("failed message is {}", message);
+            }
+            if (listener != null) {
+                listener.onFailure(null, cause);
+            }
+        }
+    }
+
+    private static class PendingSubscribe {
+        private final String topic;
+
+        private final ActionListener listener;
+
+        private final int qos;
+
+        PendingSubscribe(String topic, ActionListener listener, int qos) {
+            this.topic = topic;
+            this.listener = listener;
+            this.qos = qos;
+        }
+    }
+}
@@ -0,0 +1,463 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.transport.spool;
+
+import com.huaweicloud.sdk.iot.device.transport.ActionListener;
+import com.huaweicloud.sdk.iot.device.transport.RawMessage;
+import com.huaweicloud.sdk.iot.device.utils.ExceptionUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * 离线消息磁盘缓存。
+ * 断线期间上报的消息按顺序追加写入目录下的分段文件，每个分段文件通过内存映射读写，进程重启后未发送的消息仍然保留。
+ * 每条记录格式为：长度(4字节) + CRC32(4字节) + 状态(1字节) + qos(1字节) + topic长度(2字节) + topic + 消息体，
+ * 长度和CRC覆盖状态字节之后的内容，加载时校验失败的记录及其后的内容视为未写完整而丢弃。
+ * 消息发送成功后原地将状态置为已发送，分段内的消息全部发送后删除分段文件。
+ * 磁盘占用达到配额时按丢弃策略处理：丢弃最早的分段、丢弃新消息，或按优先级丢弃（qos0的新消息直接丢弃，qos1的新消息挤掉最早的分段）。
+ * 此类线程安全。
+ */
+@Slf4j
+public class OfflineMessageSpool {
+    /**
+     * 磁盘配额用完时丢弃最早的分段
+     */
+    public static final int DROP_OLDEST = 0;
+
+    /**
+     * 磁盘配额用完时丢弃新消息
+     */
+    public static final int DROP_NEWEST = 1;
+
+    /**
+     * 磁盘配额用完时丢弃qos0的新消息，qos1的新消息丢弃最早的分段
+     */
+    public static final int DROP_BY_PRIORITY = 2;
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    private static final int STATE_OFFSET = 8;
+
+    private static final int BODY_HEADER_SIZE = 4;
+
+    private static final byte STATE_PENDING = 0;
+
+    private static final byte STATE_DONE = 1;
+
+    private final File directory;
+
+    private final int segmentSize;
+
+    private final int maxSegments;
+
+    private final int dropPolicy;
+
+    private final List<Segment> segments = new ArrayList<>();
+
+    private final Map<Long, ActionListener> listeners = new HashMap<>();
+
+    private long nextSegmentId;
+
+    private int readSegmentIndex;
+
+    private int readPosition;
+
+    private int pendingCount;
+
+    /**
+     * 构造函数，加载目录中已有的离线消息
+     *
+     * @param directory   缓存目录，不存在时自动创建
+     * @param quota       磁盘配额，单位字节，至少保留两个分段
+     * @param segmentSize 分段文件大小，单位字节
+     * @param dropPolicy  丢弃策略，取值为DROP_OLDEST、DROP_NEWEST或DROP_BY_PRIORITY
+     * @throws IOException 目录无法创建或分段文件无法读取
+     */
+    public OfflineMessageSpool(File directory, long quota, int segmentSize, int dropPolicy) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("create offline spool directory failed, " + directory);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = (int) Math.max(quota / segmentSize, 2);
+        this.dropPolicy = dropPolicy;
+        load();
+    }
+
+    private void load() throws IOException {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SEGMENT_SUFFIX));
+        if (files == null) {
+            return;
+        }
+        long[] ids = new long[files.length];
+        int count = 0;
+        for (File file : files) {
+            String name = file.getName();
+            try {
+                ids[count++] = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+            } catch (NumberFormatException e) {
+                log.warn("ignore unknown file in offline spool, {}", name);
+                count--;
+            }
+        }
+        Arrays.sort(ids, 0, count);
+        for (int i = 0; i < count; i++) {
+            Segment segment = new Segment(ids[i], segmentFile(ids[i]), segmentSize);
+            segment.recover();
+            nextSegmentId = ids[i] + 1;
+            if (segment.pendingCount == 0) {
+                segment.delete();
+                continue;
+            }
+            pendingCount += segment.pendingCount;
+            segments.add(segment);
+        }
+        if (pendingCount > 0) {
+            log.info("load {} offline messages from {}", pendingCount, directory);
+        }
+    }
+
+    private File segmentFile(long id) {
+        return new File(directory, String.format("%020d", id) + SEGMENT_SUFFIX);
+    }
+
+    /**
+     * 追加一条消息
+     *
+     * @param message  消息
+     * @param listener 发布监听器，消息发送成功或被丢弃时通知，不持久化，进程重启后不再通知
+     * @return true表示已写入缓存，false表示按丢弃策略丢弃或消息过大
+     */
+    public synchronized boolean append(RawMessage message, ActionListener listener) {
+        byte[] topic = message.getTopic().getBytes(StandardCharsets.UTF_8);
+        byte[] payload = message.getPayload() == null ? new byte[0] : message.getPayload();
+        int recordSize = RECORD_HEADER_SIZE + BODY_HEADER_SIZE + topic.length + payload.length;
+        if (recordSize > segmentSize) {
+            log.error("offline message is larger than segment size, topic = {}", message.getTopic());
+            return false;
+        }
+
+        Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (segment == null || segment.writePosition + recordSize > segment.buffer.capacity()) {
+            segment = newSegment(message.getQos());
+            if (segment == null) {
+                return false;
+            }
+        }
+
+        int position = segment.writePosition;
+        segment.write(topic, payload, message.getQos());
+        pendingCount++;
+        if (listener != null) {
+            listeners.put(key(segment.id, position), listener);
+        }
+        return true;
+    }
+
+    private Segment newSegment(int qos) {
+        Segment last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (last != null && last.pendingCount == 0) {
+            removeSegment(last);
+        }
+        if (segments.size() >= maxSegments) {
+            if (dropPolicy == DROP_NEWEST || (dropPolicy == DROP_BY_PRIORITY && qos == 0)) {
+                log.warn("offline spool is full, discard new message");
+                return null;
+            }
+            dropSegment(segments.get(0));
+        }
+        try {
+            Segment segment = new Segment(nextSegmentId, segmentFile(nextSegmentId), segmentSize);
+            nextSegmentId++;
+            segments.add(segment);
+            return segment;
+        } catch (IOException e) {
+            log.error(ExceptionUtil.getBriefStackTrace(e));
+            return null;
+        }
+    }
+
+    private void dropSegment(Segment segment) {
+        log.warn("offline spool is full, discard {} messages in the oldest segment", segment.pendingCount);
+        pendingCount -= segment.pendingCount;
+        long prefix = key(segment.id, 0);
+        Iterator<Map.Entry<Long, ActionListener>> iterator = listeners.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, ActionListener> entry = iterator.next();
+            if ((entry.getKey() & 0xFFFFFFFF00000000L) == prefix) {
+                iterator.remove();
+                entry.getValue().onFailure(null, new IllegalStateException("offline spool is full"));
+            }
+        }
+        removeSegment(segment);
+    }
+
+    private void removeSegment(Segment segment) {
+        int index = segments.indexOf(segment);
+        segments.remove(index);
+        segment.delete();
+        if (readSegmentIndex > index) {
+            readSegmentIndex--;
+        } else if (readSegmentIndex == index) {
+            readPosition = 0;
+        }
+    }
+
+    /**
+     * 读取游标之后下一条待发送的消息，并将游标后移
+     *
+     * @return 待发送的消息，没有时返回null
+     */
+    public synchronized SpoolRecord next() {
+        while (readSegmentIndex < segments.size()) {
+            Segment segment = segments.get(readSegmentIndex);
+            while (readPosition < segment.writePosition) {
+                int position = readPosition;
+                readPosition += segment.recordSize(position);
+                if (segment.isPending(position)) {
+                    return segment.read(position);
+                }
+            }
+            if (readSegmentIndex == segments.size() - 1) {
+                return null;
+            }
+            readSegmentIndex++;
+            readPosition = 0;
+        }
+        return null;
+    }
+
+    /**
+     * 确认消息已发送，删除已全部发送的分段
+     *
+     * @param record 消息
+     */
+    public synchronized void ack(SpoolRecord record) {
+        Segment segment = record.segment;
+        if (!segments.contains(segment) || !segment.isPending(record.position)) {
+            return;
+        }
+        segment.markDone(record.position);
+        pendingCount--;
+        ActionListener listener = listeners.remove(key(segment.id, record.position));
+        if (listener != null) {
+            listener.onSuccess(null);
+        }
+        boolean isActive = segment == segments.get(segments.size() - 1);
+        if (segment.pendingCount == 0 && !isActive) {
+            removeSegment(segment);
+        }
+    }
+
+    /**
+     * 将游标移回指定消息，用于发送失败后重发
+     *
+     * @param record 消息
+     */
+    public synchronized void rewind(SpoolRecord record) {
+        int index = segments.indexOf(record.segment);
+        if (index >= 0 && (index < readSegmentIndex || (index == readSegmentIndex && record.position < readPosition))) {
+            readSegmentIndex = index;
+            readPosition = record.position;
+        }
+    }
+
+    /**
+     * 将游标移回最早的未确认消息，重连后调用，已发出但未确认的消息会重新发送
+     */
+    public synchronized void rewind() {
+        readSegmentIndex = 0;
+        readPosition = 0;
+    }
+
+    /**
+     * 查询待发送的消息数
+     *
+     * @return 待发送的消息数
+     */
+    public synchronized int size() {
+        return pendingCount;
+    }
+
+    /**
+     * 将写入内容刷到磁盘并关闭
+     */
+    public synchronized void close() {
+        for (Segment segment : segments) {
+            segment.close();
+        }
+        segments.clear();
+    }
+
+    private static long key(long segmentId, int position) {
+        return (segmentId << 32) | position;
+    }
+
+    /**
+     * 离线缓存中的一条消息
+     */
+    public static class SpoolRecord {
+        private final Segment segment;
+
+        private final int position;
+
+        private final RawMessage message;
+
+        private SpoolRecord(Segment segment, int position, RawMessage message) {
+            this.segment = segment;
+            this.position = position;
+            this.message = message;
+        }
+
+        public RawMessage getMessage() {
+            return message;
+        }
+    }
+
+    private static class Segment {
+        private final long id;
+
+        private final File file;
+
+        private final MappedByteBuffer buffer;
+
+        private int writePosition;
+
+        private int pendingCount;
+
+        Segment(long id, File file, int size) throws IOException {
+            this.id = id;
+            this.file = file;
+            try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+                FileChannel channel = randomAccessFile.getChannel()) {
+                // 已有分段按文件实际大小映射，避免分段大小配置变小后截断已缓存的消息
+                this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(channel.size(), size));
+            }
+        }
+
+        /**
+         * 扫描已有记录，确定写入位置和待发送消息数，校验失败的记录及其后的内容视为未写完整
+         */
+        void recover() {
+            int position = 0;
+            while (position + RECORD_HEADER_SIZE <= buffer.capacity()) {
+                int length = buffer.getInt(position);
+                if (length < BODY_HEADER_SIZE || position + RECORD_HEADER_SIZE + length > buffer.capacity()) {
+                    break;
+                }
+                if (crc(position + STATE_OFFSET + 1, length - 1) != buffer.getInt(position + 4)) {
+                    log.warn("offline spool record is corrupted, discard the rest of {}", file.getName());
+                    break;
+                }
+                if (buffer.get(position + STATE_OFFSET) == STATE_PENDING) {
+                    pendingCount++;
+                }
+                position += RECORD_HEADER_SIZE + length;
+            }
+            writePosition = position;
+        }
+
+        void write(byte[] topic, byte[] payload, int qos) {
+            int position = writePosition;
+            int length = BODY_HEADER_SIZE + topic.length + payload.length;
+            ByteBuffer body = buffer.duplicate();
+            body.position(position + STATE_OFFSET);
+            body.put(STATE_PENDING).put((byte) qos).putShort((short) topic.length).put(topic).put(payload);
+            buffer.putInt(position + 4, crc(position + STATE_OFFSET + 1, length - 1));
+
+            // 最后写入长度，长度为0的位置即写入结束的位置
+            buffer.putInt(position, length);
+            writePosition = position + RECORD_HEADER_SIZE + length;
+            pendingCount++;
+        }
+
+        int recordSize(int position) {
+            return RECORD_HEADER_SIZE + buffer.getInt(position);
+        }
+
+        boolean isPending(int position) {
+            return buffer.get(position + STATE_OFFSET) == STATE_PENDING;
+        }
+
+        void markDone(int position) {
+            buffer.put(position + STATE_OFFSET, STATE_DONE);
+            pendingCount--;
+        }
+
+        SpoolRecord read(int position) {
+            int length = buffer.getInt(position);
+            int qos = buffer.get(position + STATE_OFFSET + 1);
+            int topicLength = buffer.getShort(position + STATE_OFFSET + 2) & 0xFFFF;
+            byte[] topic = new byte[topicLength];
+            byte[] payload = new byte[length - BODY_HEADER_SIZE - topicLength];
+            ByteBuffer body = buffer.duplicate();
+            body.position(position + STATE_OFFSET + BODY_HEADER_SIZE);
+            body.get(topic).get(payload);
+            RawMessage message = new RawMessage(new String(topic, StandardCharsets.UTF_8), payload, qos);
+            return new SpoolRecord(this, position, message);
+        }
+
+        private int crc(int offset, int length) {
+            ByteBuffer region = buffer.duplicate();
+            region.limit(offset + length).position(offset);
+            CRC32 crc32 = new CRC32();
+            crc32.update(region);
+            return (int) crc32.getValue();
+        }
+
+        void close() {
+            buffer.force();
+        }
+
+        void delete() {
+            if (!file.delete()) {
+                log.warn("delete offline spool segment failed, {}", file.getName());
+                file.deleteOnExit();
+            }
+        }
+    }
+}
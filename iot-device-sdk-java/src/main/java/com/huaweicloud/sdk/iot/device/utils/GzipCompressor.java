@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.utils;
+
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * gzip压缩工具。
+ * 每个线程复用一个Deflater和输出缓冲区，压缩时直接从输入数组写入缓冲区，只为结果分配一次数组。
+ * 输出为完整的gzip格式（头部、deflate数据、CRC32和长度尾部），可被GZIPInputStream解压。
+ * 只压缩完整的字节数组，不提供边序列化边压缩的流式接口：压缩上报在压缩效果达不到阈值时要改用原始字节上报，
+ * 原始字节无论如何都需要保留。
+ */
+public final class GzipCompressor {
+    private static final int GZIP_MAGIC = 0x8b1f;
+
+    private static final int HEADER_SIZE = 10;
+
+    private static final int TRAILER_SIZE = 8;
+
+    /**
+     * 线程缓冲区超过此大小时用完即释放，避免偶发的大消息长期占用内存
+     */
+    private static final int MAX_RETAINED_BUFFER = 256 * 1024;
+
+    private static final ThreadLocal<State> STATE = ThreadLocal.withInitial(State::new);
+
+    private GzipCompressor() {
+    }
+
+    /**
+     * gzip压缩
+     *
+     * @param data 原始数据
+     * @return 压缩后的数据，data为null时返回空数组
+     */
+    public static byte[] compress(byte[] data) {
+        if (data == null) {
+            return new byte[0];
+        }
+        return compress(data, 0, data.length);
+    }
+
+    /**
+     * gzip压缩
+     *
+     * @param data   原始数据
+     * @param offset 起始位置
+     * @param length 长度
+     * @return 压缩后的数据
+     */
+    public static byte[] compress(byte[] data, int offset, int length) {
+        State state = STATE.get();
+        Deflater deflater = state.deflater;
+        CRC32 crc = state.crc;
+        deflater.reset();
+        crc.reset();
+        crc.update(data, offset, length);
+        deflater.setInput(data, offset, length);
+        deflater.finish();
+
+        // deflate最坏情况下比输入略大，按输入大小加少量余量预留，不够时再扩容
+        byte[] buffer = state.ensureCapacity(HEADER_SIZE + length + (length >> 6) + 64 + TRAILER_SIZE);
+        writeHeader(buffer);
+        int position = HEADER_SIZE;
+        while (!deflater.finished()) {
+            if (position == buffer.length - TRAILER_SIZE) {
+                buffer = state.ensureCapacity(buffer.length * 2);
+            }
+            position += deflater.deflate(buffer, position, buffer.length - TRAILER_SIZE - position);
+        }
+        writeIntLe(buffer, position, (int) crc.getValue());
+        writeIntLe(buffer, position + 4, length);
+        byte[] result = Arrays.copyOf(buffer, position + TRAILER_SIZE);
+        state.release();
+        return result;
+    }
+
+    private static void writeHeader(byte[] buffer) {
+        buffer[0] = (byte) GZIP_MAGIC;
+        buffer[1] = (byte) (GZIP_MAGIC >> 8);
+        buffer[2] = Deflater.DEFLATED;
+
+        // flags、修改时间、扩展标志置0，操作系统字段与GZIPOutputStream一致为0
+        Arrays.fill(buffer, 3, HEADER_SIZE, (byte) 0);
+    }
+
+    private static void writeIntLe(byte[] buffer, int position, int value) {
+        buffer[position] = (byte) value;
+        buffer[position + 1] = (byte) (value >> 8);
+        buffer[position + 2] = (byte) (value >> 16);
+        buffer[position + 3] = (byte) (value >> 24);
+    }
+
+    private static class State {
+        private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+
+        private final CRC32 crc = new CRC32();
+
+        private byte[] buffer = new byte[1024];
+
+        private byte[] ensureCapacity(int capacity) {
+            if (buffer.length < capacity) {
+                buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length * 2));
+            }
+            return buffer;
+        }
+
+        private void release() {
+            if (buffer.length > MAX_RETAINED_BUFFER) {
+                buffer = new byte[1024];
+            }
+        }
+    }
+}
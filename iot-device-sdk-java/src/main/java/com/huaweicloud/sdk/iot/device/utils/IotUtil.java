@@ -40,11 +40,11 @@ import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOUtils;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
 import java.nio.charset.StandardCharsets;
 import java.security.KeyStore;
 import java.security.SecureRandom;
@@ -52,15 +52,11 @@ import java.security.cert.Certificate;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
-import java.sql.Date;
-import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Locale;
-import java.util.TimeZone;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.zip.GZIPOutputStream;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
@@ -90,8 +86,6 @@ public class IotUtil {
 
     public static final long DEFAULT_BACKOFF = 1000L;
 
-    private static int retryTimes = 0;
-
     private static final AtomicLong requestId = new AtomicLong(0);
 
     private static final SecureRandom random = new SecureRandom();
@@ -164,13 +158,7 @@ public class IotUtil {
      * @return 当前时间戳
      */
     public static String getTimeStamp() {
-
-        String timeStampFormat = "yyyyMMdd'T'HHmmss'Z'";
-
-        SimpleDateFormat df = new SimpleDateFormat(timeStampFormat);
-        df.setTimeZone(TimeZone.getTimeZone("UTC"));
-        return df.format(new Date(System.currentTimeMillis()));
-
+        return TimeStampClock.getDefault().getTimeStamp();
     }
 
     /**
@@ -185,10 +173,12 @@ public class IotUtil {
     }
 
     /**
-     * 退避重连
+     * 退避重连，阻塞调用线程直到重连成功。重试次数只在本次调用内累计，不同连接之间互不影响。
+     * 不希望阻塞线程时使用Reconnector
      *
-     * @param connection
-     * @return
+     * @param connection    连接
+     * @param customOptions 自定义选项
+     * @return 0表示重连成功，-1表示未开启重连
      */
     public static int reConnect(Connection connection, CustomOptions customOptions) {
         if (customOptions.getCustomBackoffHandler() != null) {
@@ -198,27 +188,35 @@ public class IotUtil {
             return -1;
         }
         int ret = -1;
+        int retryTimes = 0;
         while (ret != 0) {
-            // 退避重连
-            int lowBound = (int) (customOptions.getBackoff() * 0.8);
-            int highBound = (int) (customOptions.getBackoff() * 1.0);
-            long randomBackOff = random.nextInt(highBound - lowBound);
-            int powParameter = retryTimes & 0x0F;
-            long backOffWithJitter = (long) (Math.pow(2.0, (double) powParameter)) * (randomBackOff + lowBound);
-            long waitTimeUntilNextRetry = Math.min(customOptions.getMinBackoff() + backOffWithJitter,
-                customOptions.getMaxBackoff());
             try {
-                Thread.sleep(waitTimeUntilNextRetry);
+                Thread.sleep(getBackoffTime(customOptions, retryTimes));
             } catch (InterruptedException e) {
                 log.error("sleep failed, the reason is {}", e.getMessage());
             }
             retryTimes++;
             ret = connection.connect();
         }
-        retryTimes = 0;
         return ret;
     }
 
+    /**
+     * 计算第retryTimes次重连前的等待时间：按退避系数指数增长并带随机抖动，不超过最大重连时间
+     *
+     * @param customOptions 自定义选项
+     * @param retryTimes    已重试次数
+     * @return 等待时间，单位毫秒
+     */
+    public static long getBackoffTime(CustomOptions customOptions, int retryTimes) {
+        int lowBound = (int) (customOptions.getBackoff() * 0.8);
+        int highBound = (int) (customOptions.getBackoff() * 1.0);
+        long randomBackOff = highBound > lowBound ? random.nextInt(highBound - lowBound) : 0;
+        int powParameter = retryTimes & 0x0F;
+        long backOffWithJitter = (long) (Math.pow(2.0, (double) powParameter)) * (randomBackOff + lowBound);
+        return Math.min(customOptions.getMinBackoff() + backOffWithJitter, customOptions.getMaxBackoff());
+    }
+
 
     /**
      * HmacSHA256/HmacSM3
@@ -361,11 +359,9 @@ public class IotUtil {
             return new byte[0];
         }
 
-        try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            GZIPOutputStream gzipOutputStream = new GZIPOutputStream(byteArrayOutputStream)) {
-            gzipOutputStream.write(string.getBytes(encoding));
-            return byteArrayOutputStream.toByteArray();
-        } catch (IOException e) {
+        try {
+            return GzipCompressor.compress(string.getBytes(encoding));
+        } catch (UnsupportedEncodingException e) {
             log.error("compress failed " + e.getMessage());
         }
         return new byte[0];
@@ -31,6 +31,7 @@
 package com.huaweicloud.sdk.iot.device.utils;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
@@ -41,6 +42,7 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import lombok.extern.slf4j.Slf4j;
 
 
+import java.io.IOException;
 import java.util.Map;
 
 /**
@@ -94,6 +96,24 @@ public class JsonUtil {
         }
     }
 
+    /**
+     * 将对象直接序列化为UTF-8字节数组，省去中间字符串及其编码拷贝
+     *
+     * @param object 待序列化对象
+     * @return 字节数组，失败时返回null
+     */
+    public static <T> byte[] convertObject2Bytes(T object) {
+        if (null == object) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsBytes(object);
+        } catch (JsonProcessingException e) {
+            log.error("write value as bytes failed" + e.getMessage());
+            return null;
+        }
+    }
+
     public static <T> T convertObjectNode2Object(ObjectNode objectNode, Class<T> cls) {
         if (null == objectNode) {
             return null;
@@ -128,6 +148,25 @@ public class JsonUtil {
         }
     }
 
+    /**
+     * 直接从UTF-8字节数组解析对象，省去先解码成字符串的拷贝
+     *
+     * @param jsonBytes json字节数组
+     * @param cls       目标类型
+     * @return 解析结果，失败时返回null
+     */
+    public static <T> T convertJsonBytesToObject(byte[] jsonBytes, Class<T> cls) {
+        if (jsonBytes == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(jsonBytes, cls);
+        } catch (Exception e) {
+            log.error("read value failed" + e.getMessage());
+            return null;
+        }
+    }
+
     public static <T> T convertJsonStringToObject(String jsonString, TypeReference<?> valueTypeRef) {
         if (jsonString == null) {
             return null;
@@ -142,6 +181,17 @@ public class JsonUtil {
         }
     }
 
+    /**
+     * 创建流式解析器，用于只需要读取部分内容的场景，调用方负责关闭
+     *
+     * @param jsonBytes json字节数组
+     * @return 解析器
+     * @throws IOException 创建失败
+     */
+    public static JsonParser createParser(byte[] jsonBytes) throws IOException {
+        return objectMapper.getFactory().createParser(jsonBytes);
+    }
+
     public static ObjectNode createObjectNode() {
         return objectMapper.createObjectNode();
     }
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.utils;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 上报时间戳时钟，按秒缓存格式化后的UTC时间戳，同一秒内的调用直接返回缓存的字符串。
+ * 默认使用系统时钟，设备和平台时间不一致时，可以通过setDefault替换为校正后的时钟，比如
+ * TimeStampClock.setDefault(new TimeStampClock(Clock.offset(Clock.systemUTC(), offset)))
+ */
+public class TimeStampClock {
+    private static final DateTimeFormatter TIME_STAMP_FORMATTER = DateTimeFormatter
+        .ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
+    private static final DateTimeFormatter COMPACT_FORMATTER = DateTimeFormatter
+        .ofPattern("yyyyMMddHHmmss").withZone(ZoneOffset.UTC);
+
+    private static volatile TimeStampClock defaultClock = new TimeStampClock(Clock.systemUTC());
+
+    private final Clock clock;
+
+    private volatile Second current;
+
+    /**
+     * 构造函数
+     *
+     * @param clock 时间来源
+     */
+    public TimeStampClock(Clock clock) {
+        if (clock == null) {
+            throw new IllegalArgumentException("clock can not be null");
+        }
+        this.clock = clock;
+        this.current = format(Math.floorDiv(clock.millis(), 1000L));
+    }
+
+    /**
+     * 获取SDK使用的时钟
+     *
+     * @return 时钟
+     */
+    public static TimeStampClock getDefault() {
+        return defaultClock;
+    }
+
+    /**
+     * 替换SDK使用的时钟
+     *
+     * @param clock 时钟
+     */
+    public static void setDefault(TimeStampClock clock) {
+        if (clock == null) {
+            throw new IllegalArgumentException("clock can not be null");
+        }
+        defaultClock = clock;
+    }
+
+    /**
+     * 当前时间
+     *
+     * @return 毫秒时间戳
+     */
+    public long millis() {
+        return clock.millis();
+    }
+
+    /**
+     * 获取上报使用的时间戳
+     *
+     * @return 时间戳，格式为yyyyMMdd'T'HHmmss'Z'
+     */
+    public String getTimeStamp() {
+        return currentSecond().timeStamp;
+    }
+
+    /**
+     * 获取不带分隔符的时间戳
+     *
+     * @return 时间戳，格式为yyyyMMddHHmmss
+     */
+    public String getCompactTimeStamp() {
+        return currentSecond().compactTimeStamp;
+    }
+
+    private Second currentSecond() {
+        long epochSecond = Math.floorDiv(clock.millis(), 1000L);
+        Second second = current;
+        if (second.epochSecond != epochSecond) {
+            // 跨秒时重新格式化，多个线程同时刷新时结果相同，不需要加锁
+            second = format(epochSecond);
+            current = second;
+        }
+        return second;
+    }
+
+    private static Second format(long epochSecond) {
+        Instant instant = Instant.ofEpochSecond(epochSecond);
+        return new Second(epochSecond, TIME_STAMP_FORMATTER.format(instant), COMPACT_FORMATTER.format(instant));
+    }
+
+    private static final class Second {
+        private final long epochSecond;
+
+        private final String timeStamp;
+
+        private final String compactTimeStamp;
+
+        Second(long epochSecond, String timeStamp, String compactTimeStamp) {
+            this.epochSecond = epochSecond;
+            this.timeStamp = timeStamp;
+            this.compactTimeStamp = compactTimeStamp;
+        }
+    }
+}
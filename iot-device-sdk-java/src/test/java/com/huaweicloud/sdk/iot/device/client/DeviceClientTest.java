@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.client;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.huaweicloud.sdk.iot.device.client.handler.MessageReceivedHandler;
+import com.huaweicloud.sdk.iot.device.client.requests.CommandRsp;
+import com.huaweicloud.sdk.iot.device.client.requests.ServiceProperty;
+import com.huaweicloud.sdk.iot.device.devicerule.DeviceRuleService;
+import com.huaweicloud.sdk.iot.device.service.AbstractDevice;
+import com.huaweicloud.sdk.iot.device.transport.Connection;
+import com.huaweicloud.sdk.iot.device.transport.RawMessage;
+import com.huaweicloud.sdk.iot.device.transport.Reconnector;
+import com.huaweicloud.sdk.iot.device.utils.JsonUtil;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPInputStream;
+
+@RunWith(PowerMockRunner.class)
+@PowerMockIgnore({"javax.management.*", "javax.crypto.*", "javax.script.*"})
+public class DeviceClientTest {
+    @Mock
+    private Connection connectionMock;
+
+    @Mock
+    private AbstractDevice deviceMock;
+
+    @Mock
+    private DeviceRuleService deviceRuleServiceMock;
+
+    private DeviceClient deviceClient;
+
+    @Before
+    public void setUp() {
+        ClientConf clientConf = new ClientConf();
+        clientConf.setDeviceId("dev_1");
+        clientConf.setSecret("secret");
+        clientConf.setServerUri("tcp://localhost:1883");
+        when(deviceMock.getDeviceRuleService()).thenReturn(deviceRuleServiceMock);
+        deviceClient = new DeviceClient(clientConf, deviceMock);
+        deviceClient.connection = connectionMock;
+    }
+
+    @Test
+    public void test_report_properties() {
+        ServiceProperty serviceProperty = new ServiceProperty();
+        serviceProperty.setServiceId("smokeDetector");
+        serviceProperty.setProperties(Collections.singletonMap("alarm", 1));
+        List<ServiceProperty> properties = Collections.singletonList(serviceProperty);
+
+        deviceClient.reportProperties(properties, null);
+
+        ArgumentCaptor<RawMessage> captor = ArgumentCaptor.forClass(RawMessage.class);
+        verify(connectionMock).publishMessage(captor.capture(), isNull());
+        verify(deviceRuleServiceMock).handleRule(properties);
+        assertEquals("$oc/devices/dev_1/sys/properties/report", captor.getValue().getTopic());
+
+        // 直接序列化为字节后的消息体与原先经ObjectNode生成的字符串一致
+        ObjectNode expected = JsonUtil.createObjectNode();
+        expected.putPOJO("services", properties);
+        assertArrayEquals(JsonUtil.convertObject2String(expected).getBytes(StandardCharsets.UTF_8),
+            captor.getValue().getPayload());
+    }
+
+    @Test
+    public void test_respond_command() {
+        CommandRsp commandRsp = new CommandRsp(0);
+
+        deviceClient.respondCommand("req-1", commandRsp);
+
+        ArgumentCaptor<RawMessage> captor = ArgumentCaptor.forClass(RawMessage.class);
+        verify(connectionMock).publishMessage(captor.capture(), any());
+        assertEquals("$oc/devices/dev_1/sys/commands/response/request_id=req-1", captor.getValue().getTopic());
+        assertEquals(JsonUtil.convertObject2String(commandRsp), captor.getValue().toString());
+    }
+
+    @Test
+    public void test_report_compressed_properties() throws Exception {
+        ServiceProperty serviceProperty = new ServiceProperty();
+        serviceProperty.setServiceId("smokeDetector");
+        serviceProperty.setProperties(Collections.singletonMap("alarm", 1));
+        List<ServiceProperty> properties = Collections.singletonList(serviceProperty);
+        CustomOptions customOptions = new CustomOptions();
+        customOptions.setCompressThreshold(1024);
+        deviceClient.setCustomOptions(customOptions);
+
+        // 小于阈值或压缩后反而变大时不压缩，使用非压缩topic
+        deviceClient.reportCompressedProperties(properties, null);
+        customOptions.setCompressThreshold(0);
+        deviceClient.reportCompressedProperties(properties, null);
+        customOptions.setCompressMaxRatio(2.0);
+        deviceClient.reportCompressedProperties(properties, null);
+
+        ArgumentCaptor<RawMessage> captor = ArgumentCaptor.forClass(RawMessage.class);
+        verify(connectionMock, times(3)).publishMessage(captor.capture(), isNull());
+        ObjectNode expected = JsonUtil.createObjectNode();
+        expected.putPOJO("services", properties);
+        byte[] json = JsonUtil.convertObject2String(expected).getBytes(StandardCharsets.UTF_8);
+
+        assertEquals("$oc/devices/dev_1/sys/properties/report", captor.getAllValues().get(0).getTopic());
+        assertArrayEquals(json, captor.getAllValues().get(0).getPayload());
+        assertEquals("$oc/devices/dev_1/sys/properties/report", captor.getAllValues().get(1).getTopic());
+        assertEquals("$oc/devices/dev_1/sys/properties/report?encoding=gzip", captor.getAllValues().get(2).getTopic());
+        try (GZIPInputStream inputStream = new GZIPInputStream(
+            new ByteArrayInputStream(captor.getAllValues().get(2).getPayload()))) {
+            assertArrayEquals(json, IOUtils.toByteArray(inputStream));
+        }
+    }
+
+    @Test
+    public void test_put_message_handler_recompiles_router() {
+        String topic = "$oc/devices/dev_1/user/custom";
+        TopicRouter before = deviceClient.getTopicRouter();
+        MessageReceivedHandler handler = message -> { };
+
+        deviceClient.putMessageHandler("/user/custom", handler);
+
+        assertSame(handler, deviceClient.getFunctionMap().get("/user/custom"));
+        assertSame(handler, deviceClient.getTopicRouter().route(topic).getHandler());
+        assertEquals(null, before.route(topic).getHandler());
+    }
+
+    @Test
+    public void test_connect_async_reuses_connection_reconnector() {
+        Reconnector reconnector = mock(Reconnector.class);
+        when(connectionMock.getReconnector()).thenReturn(reconnector);
+        when(connectionMock.connectAsync()).thenReturn(CompletableFuture.completedFuture(-1));
+        when(reconnector.reconnect()).thenReturn(CompletableFuture.completedFuture(-1));
+
+        // 首次连接失败后使用连接自带的重连器，而不是再创建一个
+        deviceClient.connectAsync();
+        deviceClient.close();
+
+        verify(reconnector).reconnect();
+    }
+
+    @Test
+    public void test_function_map_writes_through_to_router() {
+        String topic = "$oc/devices/dev_1/user/custom";
+        MessageReceivedHandler handler = message -> { };
+
+        // 兼容原有的通过getFunctionMap增加handler的用法
+        deviceClient.getFunctionMap().put("/user/custom", handler);
+        assertSame(handler, deviceClient.getTopicRouter().route(topic).getHandler());
+
+        assertSame(handler, deviceClient.getFunctionMap().remove("/user/custom"));
+        assertNull(deviceClient.getFunctionMap().get("/user/custom"));
+        assertNull(deviceClient.getTopicRouter().route(topic).getHandler());
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+public class HashedWheelTimerTest {
+    private static final int THREAD_COUNT = 8;
+
+    private HashedWheelTimer timer;
+
+    @After
+    public void tearDown() {
+        timer.stop();
+    }
+
+    @Test
+    public void test_concurrent_first_timeouts_expire() throws Exception {
+        // 重复多轮，每轮都在新的定时器上并发添加第一批任务，覆盖启动过程中的竞争
+        for (int round = 0; round < 20; round++) {
+            timer = new HashedWheelTimer("test-wheel-timer", 10, 64);
+            CyclicBarrier barrier = new CyclicBarrier(THREAD_COUNT);
+            CountDownLatch expired = new CountDownLatch(THREAD_COUNT);
+            Thread[] threads = new Thread[THREAD_COUNT];
+            for (int i = 0; i < THREAD_COUNT; i++) {
+                threads[i] = new Thread(() -> {
+                    try {
+                        barrier.await(10, TimeUnit.SECONDS);
+                        timer.newTimeout(expired::countDown, 20);
+                    } catch (Exception e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+                threads[i].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            assertTrue(expired.await(5, TimeUnit.SECONDS));
+            assertEquals(0, timer.getPendingCount());
+            timer.stop();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void test_new_timeout_after_stop() {
+        timer = new HashedWheelTimer("test-wheel-timer", 10, 64);
+        timer.stop();
+        timer.newTimeout(() -> { }, 10);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class MessageDispatcherTest {
+    private MessageDispatcher dispatcher;
+
+    @After
+    public void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    public void test_same_key_keeps_order() throws InterruptedException {
+        dispatcher = new MessageDispatcher(4, 8);
+        int count = 1000;
+        List<Integer> received = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch latch = new CountDownLatch(count);
+        int key = "product_node_1".hashCode();
+        for (int i = 0; i < count; i++) {
+            int seq = i;
+            dispatcher.dispatch(key, () -> {
+                received.add(seq);
+                latch.countDown();
+            });
+        }
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, received.get(i).intValue());
+        }
+    }
+
+    @Test
+    public void test_different_lanes_run_in_parallel() throws InterruptedException {
+        dispatcher = new MessageDispatcher(2, 0);
+        int blockedKey = 0;
+        int otherKey = 1;
+        assertNotEquals(dispatcher.laneOf(blockedKey), dispatcher.laneOf(otherKey));
+
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch otherDone = new CountDownLatch(1);
+        dispatcher.dispatch(blockedKey, () -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        dispatcher.dispatch(otherKey, otherDone::countDown);
+
+        // 一个通道阻塞时，其他通道的消息仍能被处理
+        assertTrue(otherDone.await(10, TimeUnit.SECONDS));
+        release.countDown();
+    }
+
+    @Test
+    public void test_lane_threads_are_named_daemons() throws InterruptedException {
+        dispatcher = new MessageDispatcher(1, 0);
+        AtomicReference<Thread> laneThread = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+        dispatcher.dispatch(0, () -> {
+            laneThread.set(Thread.currentThread());
+            done.countDown();
+        });
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertTrue(laneThread.get().isDaemon());
+        assertTrue(laneThread.get().getName().startsWith("iot-dispatch-"));
+    }
+
+    @Test
+    public void test_dispatch_after_shutdown_drops_message() throws InterruptedException {
+        dispatcher = new MessageDispatcher(1, 1);
+        dispatcher.shutdown();
+        AtomicBoolean ran = new AtomicBoolean();
+
+        // 关闭后投递不抛异常给接收线程，消息直接丢弃
+        dispatcher.dispatch(0, () -> ran.set(true));
+
+        TimeUnit.MILLISECONDS.sleep(100);
+        assertFalse(ran.get());
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.huaweicloud.sdk.iot.device.client.requests.DeviceProperties;
+import com.huaweicloud.sdk.iot.device.client.requests.ServiceProperty;
+import com.huaweicloud.sdk.iot.device.gateway.requests.DeviceProperty;
+import com.huaweicloud.sdk.iot.device.transport.ActionListener;
+import com.huaweicloud.sdk.iot.device.transport.RawMessage;
+import com.huaweicloud.sdk.iot.device.utils.JsonUtil;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(PowerMockRunner.class)
+@PowerMockIgnore({"javax.management.*", "javax.crypto.*", "javax.script.*"})
+public class PropertyReportBatcherTest {
+    private static final String TOPIC = "$oc/devices/dev_1/sys/properties/report";
+
+    @Mock
+    private DeviceClient deviceClientMock;
+
+    @Mock
+    private ScheduledExecutorService schedulerMock;
+
+    @Mock
+    private ActionListener listenerMock;
+
+    private static ServiceProperty service(String serviceId, String name, Object value) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put(name, value);
+        ServiceProperty serviceProperty = new ServiceProperty();
+        serviceProperty.setServiceId(serviceId);
+        serviceProperty.setProperties(properties);
+        return serviceProperty;
+    }
+
+    private RawMessage captureSinglePublish(ActionListener listener) {
+        ArgumentCaptor<RawMessage> captor = ArgumentCaptor.forClass(RawMessage.class);
+        verify(deviceClientMock).publishRawMessage(captor.capture(), listener == null ? any() : eq(listener));
+        return captor.getValue();
+    }
+
+    @Test
+    public void test_merge_services_until_flush() {
+        PropertyReportBatcher batcher = new PropertyReportBatcher(deviceClientMock, schedulerMock, TOPIC, false,
+            100, 64 * 1024, false);
+
+        ServiceProperty first = service("sensor", "temperature", 20);
+        ServiceProperty second = service("sensor", "temperature", 21);
+        batcher.addServices(Collections.singletonList(first), listenerMock);
+        batcher.addServices(Collections.singletonList(second), null);
+
+        // 只在第一次上报时安排定时发布，发布前不产生消息
+        verify(schedulerMock, times(1)).schedule(any(Runnable.class), eq(100L), eq(TimeUnit.MILLISECONDS));
+        verify(deviceClientMock, never()).publishRawMessage(any(), any());
+
+        batcher.flush();
+        RawMessage message = captureSinglePublish(null);
+        assertEquals(TOPIC, message.getTopic());
+        DeviceProperties expected = new DeviceProperties();
+        expected.setServices(Arrays.asList(first, second));
+        assertEquals(JsonUtil.convertObject2String(expected), message.toString());
+    }
+
+    @Test
+    public void test_coalesce_keeps_latest_value() {
+        PropertyReportBatcher batcher = new PropertyReportBatcher(deviceClientMock, schedulerMock, TOPIC, false,
+            100, 64 * 1024, true);
+
+        batcher.addServices(Arrays.asList(service("sensor", "temperature", 20), service("sensor", "humidity", 60)),
+            null);
+        batcher.addServices(Collections.singletonList(service("sensor", "temperature", 22)), null);
+        batcher.flush();
+
+        ServiceProperty merged = service("sensor", "temperature", 22);
+        merged.getProperties().put("humidity", 60);
+        DeviceProperties expected = new DeviceProperties();
+        expected.setServices(Collections.singletonList(merged));
+        assertEquals(JsonUtil.convertObject2String(expected), captureSinglePublish(null).toString());
+    }
+
+    @Test
+    public void test_coalesce_takes_newer_event_time() {
+        PropertyReportBatcher batcher = new PropertyReportBatcher(deviceClientMock, schedulerMock, TOPIC, false,
+            100, 64 * 1024, true);
+
+        ServiceProperty older = service("sensor", "temperature", 20);
+        older.setEventTime("20261017T010000Z");
+        batcher.addServices(Collections.singletonList(older), null);
+        batcher.addServices(Collections.singletonList(service("sensor", "temperature", 22)), null);
+        batcher.flush();
+
+        DeviceProperties expected = new DeviceProperties();
+        expected.setServices(Collections.singletonList(service("sensor", "temperature", 22)));
+        assertEquals(JsonUtil.convertObject2String(expected), captureSinglePublish(null).toString());
+    }
+
+    @Test
+    public void test_publish_when_byte_budget_reached() {
+        PropertyReportBatcher batcher = new PropertyReportBatcher(deviceClientMock, schedulerMock, TOPIC, false,
+            100, 1, false);
+
+        batcher.addServices(Collections.singletonList(service("sensor", "temperature", 20)), listenerMock);
+
+        // 超过大小上限时不等待定时发布，监听器随发布的消息一起通知
+        verify(schedulerMock, never()).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+        ArgumentCaptor<ActionListener> listenerCaptor = ArgumentCaptor.forClass(ActionListener.class);
+        verify(deviceClientMock).publishRawMessage(any(RawMessage.class), listenerCaptor.capture());
+        listenerCaptor.getValue().onSuccess(null);
+        verify(listenerMock).onSuccess(null);
+    }
+
+    @Test
+    public void test_listener_follows_its_own_data_when_budget_crossed() {
+        ServiceProperty first = service("sensor", "temperature", 20);
+        ServiceProperty second = service("sensor", "humidity", 60);
+        ServiceProperty third = service("sensor", "pressure", 1000);
+        int maxBytes = JsonUtil.convertObject2Bytes(first).length + JsonUtil.convertObject2Bytes(second).length + 1;
+        PropertyReportBatcher batcher = new PropertyReportBatcher(deviceClientMock, schedulerMock, TOPIC, false,
+            100, maxBytes, false);
+        ActionListener earlierListener = mock(ActionListener.class);
+
+        batcher.addServices(Collections.singletonList(first), earlierListener);
+        batcher.addServices(Arrays.asList(second, third), listenerMock);
+
+        // 提前发布的消息只包含此前的数据，只通知此前的监听器
+        ArgumentCaptor<RawMessage> messageCaptor = ArgumentCaptor.forClass(RawMessage.class);
+        ArgumentCaptor<ActionListener> listenerCaptor = ArgumentCaptor.forClass(ActionListener.class);
+        verify(deviceClientMock).publishRawMessage(messageCaptor.capture(), listenerCaptor.capture());
+        DeviceProperties expected = new DeviceProperties();
+        expected.setServices(Arrays.asList(first, second));
+        assertEquals(JsonUtil.convertObject2String(expected), messageCaptor.getValue().toString());
+        listenerCaptor.getValue().onSuccess(null);
+        verify(earlierListener).onSuccess(null);
+        verify(listenerMock, never()).onSuccess(any());
+
+        // 本次的监听器随包含其最后一个服务属性的消息通知
+        batcher.flush();
+        verify(deviceClientMock, times(2)).publishRawMessage(messageCaptor.capture(), listenerCaptor.capture());
+        expected.setServices(Collections.singletonList(third));
+        assertEquals(JsonUtil.convertObject2String(expected), messageCaptor.getValue().toString());
+        listenerCaptor.getValue().onSuccess(null);
+        verify(listenerMock).onSuccess(null);
+    }
+
+    @Test
+    public void test_merge_sub_devices() {
+        PropertyReportBatcher batcher = new PropertyReportBatcher(deviceClientMock, schedulerMock,
+            "$oc/devices/gateway_1/sys/gateway/sub_devices/properties/report", true, 100, 64 * 1024, false);
+
+        DeviceProperty first = new DeviceProperty();
+        first.setDeviceId("sub_1");
+        first.setServices(Collections.singletonList(service("sensor", "temperature", 20)));
+        DeviceProperty second = new DeviceProperty();
+        second.setDeviceId("sub_2");
+        second.setServices(Collections.singletonList(service("sensor", "temperature", 30)));
+        batcher.addDevices(Collections.singletonList(first), null);
+        batcher.addDevices(Collections.singletonList(second), null);
+        batcher.flush();
+
+        // 与不合并时上报的消息格式一致
+        Map<String, List<DeviceProperty>> expected = Collections.singletonMap("devices", Arrays.asList(first, second));
+        assertEquals(JsonUtil.convertObject2String(expected), captureSinglePublish(null).toString());
+    }
+
+    @Test
+    public void test_discard_sub_device_without_device_id() {
+        PropertyReportBatcher batcher = new PropertyReportBatcher(deviceClientMock, schedulerMock,
+            "$oc/devices/gateway_1/sys/gateway/sub_devices/properties/report", true, 100, 64 * 1024, false);
+
+        DeviceProperty valid = new DeviceProperty();
+        valid.setDeviceId("sub_1");
+        valid.setServices(Collections.singletonList(service("sensor", "temperature", 20)));
+        DeviceProperty invalid = new DeviceProperty();
+        invalid.setServices(Collections.singletonList(service("sensor", "temperature", 30)));
+        batcher.addDevices(Arrays.asList(invalid, valid), null);
+        batcher.flush();
+
+        Map<String, List<DeviceProperty>> expected = Collections.singletonMap("devices",
+            Collections.singletonList(valid));
+        assertEquals(JsonUtil.convertObject2String(expected), captureSinglePublish(null).toString());
+    }
+}
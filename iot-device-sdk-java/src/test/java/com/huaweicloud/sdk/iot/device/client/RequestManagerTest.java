@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.verify;
+
+import com.huaweicloud.sdk.iot.device.transport.RawMessage;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+@RunWith(PowerMockRunner.class)
+@PowerMockIgnore({"javax.management.*", "javax.crypto.*", "javax.script.*"})
+public class RequestManagerTest {
+    private static final String REQUEST_TOPIC = "$oc/devices/dev_1/sys/shadow/get/request_id=";
+
+    private static final String RESPONSE_TOPIC = "$oc/devices/dev_1/sys/shadow/get/response/request_id=";
+
+    @Mock
+    private DeviceClient deviceClientMock;
+
+    private RequestManager requestManager;
+
+    @Before
+    public void setUp() {
+        requestManager = new RequestManager(deviceClientMock);
+    }
+
+    @After
+    public void tearDown() {
+        requestManager.close();
+    }
+
+    private static IotRequest newRequest(String requestId, int timeout) {
+        return new IotRequest(new RawMessage(REQUEST_TOPIC + requestId, "{}"), requestId, timeout);
+    }
+
+    @Test
+    public void test_async_request_completed_by_response() throws Exception {
+        IotRequest request = newRequest("req-1", 10000);
+
+        CompletableFuture<String> future = requestManager.executeAsyncRequest(request);
+        verify(deviceClientMock).publishRawMessage(request.getRawMessage(), null);
+        assertEquals(1, requestManager.getPendingCount());
+
+        requestManager.onRequestResponse(new RawMessage(RESPONSE_TOPIC + "req-1", "{\"shadow\":[]}"));
+
+        assertEquals("{\"shadow\":[]}", future.get(1, TimeUnit.SECONDS));
+        assertEquals(0, requestManager.getPendingCount());
+    }
+
+    @Test
+    public void test_async_request_timeout_evicts_pending_entry() throws Exception {
+        IotRequest request = newRequest("req-2", 200);
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<String> listenerResult = new AtomicReference<>();
+
+        requestManager.executeAsyncRequest(request, result -> {
+            listenerResult.set(result);
+            latch.countDown();
+        });
+
+        try {
+            request.getFuture().get(5, TimeUnit.SECONDS);
+            fail("request should time out");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        assertEquals(IotResult.TIMEOUT.toString(), listenerResult.get());
+        assertEquals(0, requestManager.getPendingCount());
+
+        // 超时后迟到的响应被丢弃
+        requestManager.onRequestResponse(new RawMessage(RESPONSE_TOPIC + "req-2", "{}"));
+        assertSame(IotResult.TIMEOUT, request.getResult());
+    }
+
+    @Test
+    public void test_sync_request_timeout() {
+        IotRequest request = newRequest("req-3", 100);
+
+        Object result = requestManager.executeSyncRequest(request);
+
+        verify(deviceClientMock).publishRawMessage(eq(request.getRawMessage()), isNull());
+        assertSame(IotResult.TIMEOUT, result);
+        assertEquals(0, requestManager.getPendingCount());
+    }
+}
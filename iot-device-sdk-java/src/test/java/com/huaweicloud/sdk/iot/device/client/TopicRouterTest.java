@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.huaweicloud.sdk.iot.device.client.handler.MessageReceivedHandler;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class TopicRouterTest {
+    private final MessageReceivedHandler messageHandler = message -> { };
+
+    private final MessageReceivedHandler commandHandler = message -> { };
+
+    private final MessageReceivedHandler bridgeCommandHandler = message -> { };
+
+    private final MessageReceivedHandler propertySetHandler = message -> { };
+
+    private final MessageReceivedHandler v3Handler = message -> { };
+
+    private TopicRouter router;
+
+    @Before
+    public void setUp() {
+        Map<String, MessageReceivedHandler> functionMap = new LinkedHashMap<>();
+        functionMap.put("/messages/down", messageHandler);
+        functionMap.put("/sys/commands/request_id", bridgeCommandHandler);
+        functionMap.put("sys/commands/request_id", commandHandler);
+        functionMap.put("/sys/properties/set/request_id", propertySetHandler);
+        functionMap.put("/huawei/v1/devices/", v3Handler);
+        router = TopicRouter.compile(functionMap);
+    }
+
+    @Test
+    public void test_route_device_topic() {
+        TopicRouter.Route route = router.route("$oc/devices/dev_1/sys/properties/set/request_id=abc-123");
+        assertSame(propertySetHandler, route.getHandler());
+        assertEquals("dev_1", route.getDeviceId());
+        assertEquals("abc-123", route.getRequestId());
+        assertNull(route.getBridgeId());
+
+        route = router.route("$oc/devices/dev_1/sys/messages/down");
+        assertSame(messageHandler, route.getHandler());
+        assertNull(route.getRequestId());
+    }
+
+    @Test
+    public void test_route_bridge_topic() {
+        TopicRouter.Route route = router.route("$oc/bridges/bridge_1/devices/sub_1/sys/commands/request_id=42");
+        assertSame(bridgeCommandHandler, route.getHandler());
+        assertEquals("bridge_1", route.getBridgeId());
+        assertEquals("sub_1", route.getDeviceId());
+        assertEquals("42", route.getRequestId());
+    }
+
+    @Test
+    public void test_route_falls_back_to_contains() {
+        TopicRouter.Route route = router.route("/huawei/v1/devices/dev_1/command/json");
+        assertSame(v3Handler, route.getHandler());
+        assertEquals("dev_1", route.getDeviceId());
+
+        route = router.route("$oc/devices/dev_1/user/custom");
+        assertNull(route.getHandler());
+        assertEquals("dev_1", route.getDeviceId());
+    }
+
+    @Test
+    public void test_parse_ids_without_handler() {
+        TopicRouter.Route route = TopicRouter.parse("$oc/bridges/bridge_1/devices/sub_1/sys/login/response/request_id=7");
+        assertNull(route.getHandler());
+        assertEquals("bridge_1", route.getBridgeId());
+        assertEquals("sub_1", route.getDeviceId());
+        assertEquals("7", route.getRequestId());
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.client.requests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.huaweicloud.sdk.iot.device.filemanager.response.UrlResponse;
+import com.huaweicloud.sdk.iot.device.utils.JsonUtil;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+public class DeviceEventTest {
+    private static final String PARAS = "{\"url\":\"https://obs/upload\",\"bucket_name\":\"bucket\",\"expire\":3600}";
+
+    @BeforeClass
+    public static void registerType() {
+        DeviceEventTypeRegistry.register("$test", "get_url_response", UrlResponse.class);
+    }
+
+    @AfterClass
+    public static void unregisterType() {
+        DeviceEventTypeRegistry.unregister("$test", "get_url_response");
+    }
+
+    private static DeviceEvent parseSingle(String event) {
+        String json = "{\"object_device_id\":\"dev\",\"services\":[" + event + "]}";
+        DeviceEvents deviceEvents = JsonUtil.convertJsonBytesToObject(json.getBytes(StandardCharsets.UTF_8),
+            DeviceEvents.class);
+        assertEquals("dev", deviceEvents.getDeviceId());
+        assertEquals(1, deviceEvents.getServices().size());
+        return deviceEvents.getServices().get(0);
+    }
+
+    private static void assertUrlResponse(UrlResponse urlResponse) {
+        assertEquals("https://obs/upload", urlResponse.getUrl());
+        assertEquals("bucket", urlResponse.getBucketName());
+        assertEquals(Integer.valueOf(3600), urlResponse.getExpire());
+    }
+
+    @Test
+    public void test_registered_paras_are_parsed_to_target_type() {
+        DeviceEvent deviceEvent = parseSingle("{\"service_id\":\"$test\",\"event_type\":\"get_url_response\","
+            + "\"event_time\":\"20231010T101010Z\",\"event_id\":\"e1\",\"paras\":" + PARAS + "}");
+
+        assertEquals("e1", deviceEvent.getEventId());
+        assertEquals("20231010T101010Z", deviceEvent.getEventTime());
+        UrlResponse urlResponse = deviceEvent.getParas(UrlResponse.class);
+        assertUrlResponse(urlResponse);
+        assertSame(urlResponse, deviceEvent.getParas(UrlResponse.class));
+
+        // 兼容原有的Map接口
+        assertEquals("bucket", deviceEvent.getParas().get("bucket_name"));
+    }
+
+    @Test
+    public void test_paras_before_event_type() {
+        DeviceEvent deviceEvent = parseSingle("{\"paras\":" + PARAS + ",\"unknown\":{\"a\":[1,2]},"
+            + "\"event_type\":\"get_url_response\",\"service_id\":\"$test\"}");
+
+        assertUrlResponse(deviceEvent.getParas(UrlResponse.class));
+    }
+
+    @Test
+    public void test_mismatched_paras_only_affect_own_event() {
+        String json = "{\"object_device_id\":\"dev\",\"services\":["
+            + "{\"service_id\":\"$test\",\"event_type\":\"get_url_response\","
+            + "\"paras\":{\"url\":\"https://obs/bad\",\"expire\":\"never\",\"extra\":1}},"
+            + "{\"service_id\":\"$test\",\"event_type\":\"get_url_response\",\"paras\":" + PARAS + "}]}";
+        DeviceEvents deviceEvents = JsonUtil.convertJsonBytesToObject(json.getBytes(StandardCharsets.UTF_8),
+            DeviceEvents.class);
+
+        assertEquals(2, deviceEvents.getServices().size());
+        DeviceEvent bad = deviceEvents.getServices().get(0);
+        assertNull(bad.getParas(UrlResponse.class));
+        assertEquals("never", bad.getParas().get("expire"));
+        assertEquals(1, bad.getParas().get("extra"));
+        assertUrlResponse(deviceEvents.getServices().get(1).getParas(UrlResponse.class));
+    }
+
+    @Test
+    public void test_typed_paras_keep_original_map() {
+        DeviceEvent deviceEvent = parseSingle("{\"service_id\":\"$test\",\"event_type\":\"get_url_response\","
+            + "\"paras\":{\"url\":\"https://obs/upload\",\"extra\":true}}");
+
+        assertEquals("https://obs/upload", deviceEvent.getParas(UrlResponse.class).getUrl());
+        Map<String, Object> paras = deviceEvent.getParas();
+        assertEquals(2, paras.size());
+        assertEquals(Boolean.TRUE, paras.get("extra"));
+        assertFalse(paras.containsKey("bucket_name"));
+    }
+
+    @Test
+    public void test_unregistered_paras_are_map() {
+        DeviceEvent deviceEvent = parseSingle("{\"service_id\":\"$other\",\"event_type\":\"get_url_response\","
+            + "\"paras\":" + PARAS + "}");
+
+        assertEquals("https://obs/upload", deviceEvent.getParas().get("url"));
+        assertUrlResponse(deviceEvent.getParas(UrlResponse.class));
+
+        DeviceEvent noParas = parseSingle("{\"service_id\":\"$test\",\"event_type\":\"get_url_response\","
+            + "\"paras\":null}");
+        assertNull(noParas.getParas());
+        assertNull(noParas.getParas(UrlResponse.class));
+    }
+
+    @Test
+    public void test_serialize_uplink_event() {
+        DeviceEvent deviceEvent = new DeviceEvent();
+        deviceEvent.setServiceId("$test");
+        deviceEvent.setEventType("get_url_response");
+        Map<String, Object> paras = new HashMap<>();
+        paras.put("url", "https://obs/upload");
+        deviceEvent.setParas(paras);
+
+        String json = JsonUtil.convertObject2String(deviceEvent);
+
+        assertTrue(json.contains("\"paras\":{\"url\":\"https://obs/upload\"}"));
+        assertEquals("https://obs/upload", parseSingle(json).getParas(UrlResponse.class).getUrl());
+    }
+}
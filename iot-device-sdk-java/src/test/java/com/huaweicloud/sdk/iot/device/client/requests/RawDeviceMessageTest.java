@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.client.requests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+public class RawDeviceMessageTest {
+    private static DeviceMessage toDeviceMessage(String payload) {
+        return new RawDeviceMessage(payload.getBytes(StandardCharsets.UTF_8)).toDeviceMessage();
+    }
+
+    @Test
+    public void test_system_format() {
+        DeviceMessage deviceMessage = toDeviceMessage(
+            " \r\n{\"name\":\"n\",\"id\":\"i\",\"content\":\"c\",\"object_device_id\":null}");
+        assertNotNull(deviceMessage);
+        assertEquals("n", deviceMessage.getName());
+        assertEquals("i", deviceMessage.getId());
+        assertEquals("c", deviceMessage.getContent());
+        assertNull(deviceMessage.getDeviceId());
+
+        // 标量值按字符串处理
+        assertEquals("1", toDeviceMessage("{\"content\":\"3\",\"object_device_id\":1}").getDeviceId());
+        assertNotNull(toDeviceMessage("{}"));
+    }
+
+    @Test
+    public void test_not_system_format() {
+        assertNull(toDeviceMessage("{\"content\":\"3\",\"other\":{\"a\":1}}"));
+        assertNull(toDeviceMessage("{\"content\":{\"a\":1}}"));
+        assertNull(toDeviceMessage("{\"name\":[1]}"));
+        assertNull(toDeviceMessage("[{\"name\":\"1\"}]"));
+        assertNull(toDeviceMessage("{\"name\":\"1\",\"id\""));
+        assertNull(toDeviceMessage("null"));
+        assertNull(toDeviceMessage(""));
+        assertNull(new RawDeviceMessage(new byte[] {0x1, 0x7b, 0x2}).toDeviceMessage());
+        assertNull(new RawDeviceMessage(null).toDeviceMessage());
+    }
+}
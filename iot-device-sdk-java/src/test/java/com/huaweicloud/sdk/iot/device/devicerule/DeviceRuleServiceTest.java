@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.devicerule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.huaweicloud.sdk.iot.device.client.requests.DeviceEvent;
+import com.huaweicloud.sdk.iot.device.client.requests.ServiceProperty;
+import com.huaweicloud.sdk.iot.device.devicerule.model.DeviceInfo;
+import com.huaweicloud.sdk.iot.device.devicerule.model.DeviceRuleAction;
+import com.huaweicloud.sdk.iot.device.devicerule.model.DeviceRuleCondition;
+import com.huaweicloud.sdk.iot.device.devicerule.model.DeviceRuleInfo;
+import com.huaweicloud.sdk.iot.device.devicerule.model.TimeRange;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class DeviceRuleServiceTest {
+    private final List<String> triggered = new CopyOnWriteArrayList<>();
+
+    private DeviceRuleService deviceRuleService;
+
+    @Before
+    public void setUp() {
+        deviceRuleService = new DeviceRuleService() {
+            @Override
+            public void onRuleActionHandler(List<DeviceRuleAction> actionList) {
+                triggered.add(actionList.get(0).getDeviceId());
+            }
+        };
+    }
+
+    private static DeviceRuleCondition condition(String path, String operator, String value) {
+        DeviceInfo deviceInfo = new DeviceInfo();
+        deviceInfo.setPath(path);
+        DeviceRuleCondition condition = new DeviceRuleCondition();
+        condition.setType("DEVICE_DATA");
+        condition.setDeviceInfo(deviceInfo);
+        condition.setOperator(operator);
+        condition.setValue(value);
+        return condition;
+    }
+
+    private static DeviceRuleInfo rule(String ruleId, String logic, DeviceRuleCondition... conditions) {
+        DeviceRuleAction action = new DeviceRuleAction();
+        action.setDeviceId(ruleId);
+        DeviceRuleInfo ruleInfo = new DeviceRuleInfo();
+        ruleInfo.setRuleId(ruleId);
+        ruleInfo.setStatus("active");
+        ruleInfo.setLogic(logic);
+        ruleInfo.setConditions(Arrays.asList(conditions));
+        ruleInfo.setActions(Collections.singletonList(action));
+        return ruleInfo;
+    }
+
+    private void addRules(DeviceRuleInfo... ruleInfos) {
+        Map<String, Object> paras = new HashMap<>();
+        paras.put("rulesInfos", Arrays.asList(ruleInfos));
+        DeviceEvent deviceEvent = new DeviceEvent();
+        deviceEvent.setServiceId("$device_rule");
+        deviceEvent.setEventType("device_rule_config_response");
+        deviceEvent.setParas(paras);
+        deviceRuleService.onEvent(deviceEvent);
+    }
+
+    private void report(String serviceId, String property, Object value) {
+        ServiceProperty serviceProperty = new ServiceProperty();
+        serviceProperty.setServiceId(serviceId);
+        serviceProperty.setProperties(Collections.singletonMap(property, value));
+        deviceRuleService.handleRule(Collections.singletonList(serviceProperty));
+    }
+
+    @Test
+    public void test_compare_operators() {
+        addRules(rule("gt", "or", condition("sensor/temp", ">", "30")),
+            rule("between", "or", condition("sensor/humidity", "between", "10,20")),
+            rule("eq", "or", condition("sensor/level", "=", "5.0")));
+
+        report("sensor", "temp", 31);
+        report("sensor", "temp", "30");
+        report("sensor", "humidity", 15.5);
+        report("sensor", "humidity", 25);
+        report("sensor", "level", 5);
+        report("other", "temp", 40);
+
+        assertEquals(Arrays.asList("gt", "between", "eq"), triggered);
+    }
+
+    @Test
+    public void test_in_and_logic() {
+        DeviceRuleCondition in = condition("sensor/mode", "in", null);
+        in.setInValues(Arrays.asList("auto", "eco"));
+        addRules(rule("and", "and", in, condition("sensor/temp", "<=", "10")));
+
+        ServiceProperty serviceProperty = new ServiceProperty();
+        serviceProperty.setServiceId("sensor");
+        Map<String, Object> props = new HashMap<>();
+        props.put("mode", "eco");
+        props.put("temp", 8);
+        serviceProperty.setProperties(props);
+        deviceRuleService.handleRule(Collections.singletonList(serviceProperty));
+        report("sensor", "mode", "eco");
+
+        assertEquals(Collections.singletonList("and"), triggered);
+    }
+
+    @Test
+    public void test_inactive_and_out_of_time_rules_are_skipped() {
+        DeviceRuleInfo inactive = rule("inactive", "or", condition("sensor/temp", ">", "0"));
+        inactive.setStatus("inactive");
+        DeviceRuleInfo invalidTime = rule("invalidTime", "or", condition("sensor/temp", ">", "0"));
+        invalidTime.setTimeRange(new TimeRange());
+        addRules(inactive, invalidTime);
+
+        report("sensor", "temp", 1);
+
+        assertTrue(triggered.isEmpty());
+        assertTrue(deviceRuleService.checkTimeRange(null));
+    }
+
+    @Test
+    public void test_simple_timer_rule() throws Exception {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        DeviceRuleCondition timer = new DeviceRuleCondition();
+        timer.setType("SIMPLE_TIMER");
+        timer.setStartTime(dateFormat.format(new Date()));
+        timer.setRepeatInterval(1);
+        timer.setRepeatCount(1);
+        addRules(rule("timer", "or", timer));
+
+        // 开始时间已到，立即触发一次，1秒后再触发一次，之后不再触发
+        Thread.sleep(2500);
+        assertEquals(Arrays.asList("timer", "timer"), triggered);
+    }
+}
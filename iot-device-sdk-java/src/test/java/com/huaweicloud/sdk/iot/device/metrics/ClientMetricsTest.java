@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.huaweicloud.sdk.iot.device.IoTDevice;
+import com.huaweicloud.sdk.iot.device.client.ClientConf;
+import com.huaweicloud.sdk.iot.device.client.CustomOptions;
+import com.huaweicloud.sdk.iot.device.client.requests.ServiceProperty;
+import com.huaweicloud.sdk.iot.device.transport.ActionListener;
+import com.huaweicloud.sdk.iot.device.transport.loopback.LoopbackBroker;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class ClientMetricsTest {
+    private static final String DEVICE_ID = "product_node_1";
+
+    private LoopbackBroker broker;
+
+    private MetricRegistry registry;
+
+    private IoTDevice device;
+
+    @Before
+    public void setUp() {
+        broker = new LoopbackBroker();
+        registry = new MetricRegistry();
+        ClientConf clientConf = new ClientConf();
+        clientConf.setDeviceId(DEVICE_ID);
+        clientConf.setSecret("secret");
+        clientConf.setServerUri("loopback://local");
+        clientConf.setConnectionFactory(broker);
+        clientConf.setMetricRegistry(registry);
+        device = new IoTDevice(clientConf);
+
+        CustomOptions options = new CustomOptions();
+        options.setMinBackoff(10);
+        options.setBackoff(10);
+        options.setMaxBackoff(20);
+        device.getClient().setCustomOptions(options);
+    }
+
+    @After
+    public void tearDown() {
+        device.getClient().close();
+        broker.close();
+    }
+
+    @Test
+    public void testPublishLatencyIsRecordedOnAck() throws Exception {
+        assertEquals(0, device.init());
+        assertTrue(broker.awaitIdle(5, TimeUnit.SECONDS));
+        long published = registry.counter(ClientMetrics.PUBLISH_SUCCESS).getCount();
+
+        CompletableFuture<Object> acked = new CompletableFuture<>();
+        ServiceProperty serviceProperty = new ServiceProperty();
+        serviceProperty.setServiceId("smokeDetector");
+        serviceProperty.setProperties(Collections.singletonMap("alarm", 1));
+        device.getClient().reportProperties(Collections.singletonList(serviceProperty), new ActionListener() {
+            @Override
+            public void onSuccess(Object context) {
+                acked.complete(context);
+            }
+
+            @Override
+            public void onFailure(Object context, Throwable var2) {
+                acked.completeExceptionally(var2);
+            }
+        });
+        acked.get(5, TimeUnit.SECONDS);
+
+        assertEquals(published + 1, registry.counter(ClientMetrics.PUBLISH_SUCCESS).getCount());
+        assertEquals(published + 1, registry.histogram(ClientMetrics.PUBLISH_LATENCY).getTotalCount());
+        assertEquals(0, registry.counter(ClientMetrics.PUBLISH_FAILURE).getCount());
+        assertEquals(0, registry.getGaugeValue(ClientMetrics.PUBLISH_INFLIGHT));
+        assertTrue(registry.getGaugeNames().contains(ClientMetrics.DISPATCH_QUEUE_LENGTH));
+    }
+
+    @Test
+    public void testReconnectIsCountedAndTimed() throws Exception {
+        assertEquals(0, device.init());
+        assertTrue(broker.disconnect(DEVICE_ID));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (registry.histogram(ClientMetrics.RECONNECT_DURATION).getTotalCount() == 0
+            && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, registry.counter(ClientMetrics.CONNECTION_LOST).getCount());
+        assertEquals(1, registry.histogram(ClientMetrics.RECONNECT_DURATION).getTotalCount());
+        assertTrue(registry.histogram(ClientMetrics.RECONNECT_DURATION).getMax() < 5000);
+    }
+
+    @Test
+    public void testDisabledWithoutRegistry() {
+        ClientMetrics metrics = new ClientMetrics(null);
+        ActionListener listener = new ActionListener() {
+            @Override
+            public void onSuccess(Object context) {
+            }
+
+            @Override
+            public void onFailure(Object context, Throwable var2) {
+            }
+        };
+        assertSame(listener, metrics.trackPublish(listener));
+        assertEquals(0, metrics.publishStarted());
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class MetricRegistryTest {
+    @Test
+    public void testGaugesWithSameNameAreSummed() {
+        MetricRegistry registry = new MetricRegistry();
+        Gauge first = () -> 3;
+        Gauge second = () -> 4;
+        registry.registerGauge("queue", first);
+        registry.registerGauge("queue", second);
+        assertEquals(7, registry.getGaugeValue("queue"));
+
+        registry.removeGauge("queue", first);
+        assertEquals(4, registry.getGaugeValue("queue"));
+        assertEquals(0, registry.getGaugeValue("unknown"));
+    }
+
+    @Test
+    public void testCountersAndHistogramsAreSharedByName() {
+        MetricRegistry registry = new MetricRegistry();
+        registry.counter("lost").increment();
+        registry.counter("lost").add(2);
+        assertSame(registry.counter("lost"), registry.getCounters().get("lost"));
+        assertEquals(3, registry.counter("lost").getCount());
+
+        registry.histogram("latency").record(10);
+        registry.histogram("latency").record(30);
+        assertEquals(2, registry.getHistograms().get("latency").getTotalCount());
+        assertEquals(20, registry.histogram("latency").getMean());
+    }
+}
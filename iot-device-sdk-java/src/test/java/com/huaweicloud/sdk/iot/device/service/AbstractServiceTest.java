@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import com.huaweicloud.sdk.iot.device.client.IotResult;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class AbstractServiceTest {
+    private TestService service;
+
+    private AbstractDevice deviceMock;
+
+    @Before
+    public void setUp() {
+        deviceMock = mock(AbstractDevice.class);
+        service = new TestService();
+        service.setServiceId("test");
+        service.setIotDevice(deviceMock);
+    }
+
+    @Test
+    public void test_on_read() {
+        Map<String, Object> all = service.onRead();
+        assertEquals(3, all.size());
+        assertEquals(25, all.get("temp"));
+        assertEquals("ok", all.get("status"));
+
+        Map<String, Object> one = service.onRead("temperature", "unknown");
+        assertEquals(1, one.size());
+        assertEquals(25, one.get("temp"));
+    }
+
+    @Test
+    public void test_on_write() {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("temp", 30);
+        properties.put("counter", 7);
+
+        // Integer写入long字段与反射调用的转换规则一致
+        assertEquals(IotResult.SUCCESS.getResultCode(), service.onWrite(properties).getResultCode());
+        assertEquals(30, service.getTemperature());
+        assertEquals(7L, service.getCounter());
+        verify(deviceMock).firePropertiesChanged("test", "temperature", "counter");
+    }
+
+    @Test
+    public void test_on_write_rejected() {
+        assertNotEquals(0, service.onWrite(Collections.singletonMap("status", "x")).getResultCode());
+        assertNotEquals(0, service.onWrite(Collections.singletonMap("temp", "hot")).getResultCode());
+        assertEquals(25, service.getTemperature());
+    }
+
+    @Test
+    public void test_auto_report_on_shared_scheduler() throws Exception {
+        service.enableAutoReport(50);
+        verify(deviceMock, timeout(2000).atLeast(2)).firePropertiesChanged("test");
+
+        service.disableAutoReport();
+        Thread.sleep(100);
+        reset(deviceMock);
+        Thread.sleep(200);
+        verify(deviceMock, never()).firePropertiesChanged("test");
+    }
+
+    public static class TestService extends AbstractService {
+        @Property(name = "temp")
+        private int temperature = 25;
+
+        @Property(writeable = false)
+        private String status = "ok";
+
+        @Property
+        private long counter;
+
+        public int getTemperature() {
+            return temperature;
+        }
+
+        public void setTemperature(int temperature) {
+            this.temperature = temperature;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public long getCounter() {
+            return counter;
+        }
+
+        public void setCounter(long counter) {
+            this.counter = counter;
+        }
+    }
+}
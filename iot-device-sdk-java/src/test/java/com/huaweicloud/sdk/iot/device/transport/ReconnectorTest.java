@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.huaweicloud.sdk.iot.device.client.CustomOptions;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class ReconnectorTest {
+    private Connection connection;
+
+    private CustomOptions customOptions;
+
+    @Before
+    public void setUp() {
+        connection = mock(Connection.class);
+        customOptions = new CustomOptions();
+        customOptions.setBackoff(10);
+        customOptions.setMinBackoff(1);
+        customOptions.setMaxBackoff(20);
+    }
+
+    @Test
+    public void test_retry_until_connected() throws Exception {
+        when(connection.connectAsync()).thenReturn(CompletableFuture.completedFuture(-1),
+            CompletableFuture.completedFuture(-1), CompletableFuture.completedFuture(0));
+        Reconnector reconnector = new Reconnector(connection, customOptions);
+
+        // 重连在共享线程中进行，调用方立即返回，重连进行中再次调用得到同一个结果
+        CompletableFuture<Integer> future = reconnector.reconnect();
+        assertSame(future, reconnector.reconnect());
+
+        assertEquals(0, (int) future.get(5, TimeUnit.SECONDS));
+        verify(connection, times(3)).connectAsync();
+        verify(connection, never()).connect();
+        assertEquals(0, reconnector.getRetryTimes());
+    }
+
+    @Test
+    public void test_cancel() throws Exception {
+        customOptions.setMinBackoff(60 * 1000);
+        customOptions.setMaxBackoff(60 * 1000);
+        Reconnector reconnector = new Reconnector(connection, customOptions);
+
+        CompletableFuture<Integer> future = reconnector.reconnect();
+        assertFalse(future.isDone());
+        reconnector.cancel();
+        assertEquals(-1, (int) future.get(1, TimeUnit.SECONDS));
+        verify(connection, never()).connectAsync();
+    }
+
+    @Test
+    public void test_disabled() throws Exception {
+        customOptions.setReConnect(false);
+        Reconnector reconnector = new Reconnector(connection, customOptions);
+
+        assertEquals(-1, (int) reconnector.reconnect().get(1, TimeUnit.SECONDS));
+        verify(connection, never()).connectAsync();
+    }
+
+    @Test
+    public void test_custom_backoff_runs_on_dedicated_thread() throws Exception {
+        CompletableFuture<String> threadName = new CompletableFuture<>();
+        customOptions.setCustomBackoffHandler(conn -> {
+            threadName.complete(Thread.currentThread().getName());
+            return 0;
+        });
+        Reconnector reconnector = new Reconnector(connection, customOptions);
+
+        reconnector.reconnectInBackground();
+        assertTrue(threadName.get(5, TimeUnit.SECONDS).startsWith("iot-custom-reconnect-"));
+    }
+
+    @Test
+    public void test_cancel_while_custom_backoff_runs() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        customOptions.setCustomBackoffHandler(conn -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 0;
+        });
+        Reconnector reconnector = new Reconnector(connection, customOptions);
+
+        CompletableFuture<CompletableFuture<Integer>> result = CompletableFuture.supplyAsync(reconnector::reconnect);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // 自定义重连执行期间关闭连接不会被阻塞
+        CompletableFuture<Void> cancelled = CompletableFuture.runAsync(reconnector::cancel);
+        cancelled.get(1, TimeUnit.SECONDS);
+        release.countDown();
+        assertEquals(-1, (int) result.get(5, TimeUnit.SECONDS).get());
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.transport.loopback;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.huaweicloud.sdk.iot.device.IoTDevice;
+import com.huaweicloud.sdk.iot.device.client.ClientConf;
+import com.huaweicloud.sdk.iot.device.client.CustomOptions;
+import com.huaweicloud.sdk.iot.device.client.requests.CommandRsp;
+import com.huaweicloud.sdk.iot.device.client.requests.ServiceProperty;
+import com.huaweicloud.sdk.iot.device.client.requests.ShadowData;
+import com.huaweicloud.sdk.iot.device.client.requests.ShadowRequest;
+import com.huaweicloud.sdk.iot.device.transport.Connection;
+import com.huaweicloud.sdk.iot.device.transport.RawMessage;
+import com.huaweicloud.sdk.iot.device.utils.JsonUtil;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class LoopbackBrokerTest {
+    private static final String DEVICE_ID = "product_gateway";
+
+    private final BlockingQueue<RawMessage> uplink = new LinkedBlockingQueue<>();
+
+    private LoopbackBroker broker;
+
+    private ClientConf clientConf;
+
+    @Before
+    public void setUp() {
+        broker = new LoopbackBroker();
+        broker.setUplinkListener(uplink::add);
+        clientConf = new ClientConf();
+        clientConf.setDeviceId(DEVICE_ID);
+        clientConf.setSecret("secret");
+        clientConf.setServerUri("loopback://local");
+        clientConf.setConnectionFactory(broker);
+    }
+
+    @After
+    public void tearDown() {
+        broker.close();
+    }
+
+    @Test
+    public void testShadowReturnsReportedProperties() throws Exception {
+        IoTDevice device = new IoTDevice(clientConf);
+        assertEquals(0, device.init());
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("temperature", 23);
+        ServiceProperty serviceProperty = new ServiceProperty();
+        serviceProperty.setServiceId("smokeDetector");
+        serviceProperty.setProperties(properties);
+        device.getClient().reportProperties(Collections.singletonList(serviceProperty), null);
+
+        CompletableFuture<List<ShadowData>> shadow = new CompletableFuture<>();
+        device.getClient().setShadowListener((requestId, shadowDataList) -> shadow.complete(shadowDataList));
+        ShadowRequest shadowRequest = new ShadowRequest();
+        shadowRequest.setDeviceId(DEVICE_ID);
+        device.getClient().getShadow(shadowRequest, null);
+
+        List<ShadowData> shadowData = shadow.get(5, TimeUnit.SECONDS);
+        assertEquals(1, shadowData.size());
+        assertEquals("smokeDetector", shadowData.get(0).getServiceId());
+        JsonNode reported = JsonUtil.convertValue(shadowData.get(0).getReported().getProperties(), JsonNode.class);
+        assertEquals(23, reported.path("temperature").asInt());
+        device.getClient().close();
+    }
+
+    @Test
+    public void testTimeSyncAndCommand() throws Exception {
+        IoTDevice device = new IoTDevice(clientConf);
+        assertEquals(0, device.init());
+
+        CompletableFuture<Long> deviceSendTime = new CompletableFuture<>();
+        device.getTimeSyncService().setListener((sendTime, serverRecvTime, serverSendTime) ->
+            deviceSendTime.complete(sendTime));
+        device.getTimeSyncService().requestTimeSync();
+        assertTrue(deviceSendTime.get(5, TimeUnit.SECONDS) > 0);
+
+        device.getClient().setCommandListener((requestId, serviceId, commandName, paras) ->
+            device.getClient().respondCommand(requestId, new CommandRsp(0)));
+        broker.publish("$oc/devices/" + DEVICE_ID + "/sys/commands/request_id=42",
+            "{\"service_id\":\"smokeDetector\",\"command_name\":\"ring\",\"paras\":{}}");
+        assertTrue(broker.awaitIdle(5, TimeUnit.SECONDS));
+        RawMessage response = pollUplink("/sys/commands/response/request_id=42");
+        assertNotNull(response);
+        device.getClient().close();
+    }
+
+    @Test
+    public void testSubDeviceAddAndSync() throws Exception {
+        BlockingQueue<RawMessage> downlink = new LinkedBlockingQueue<>();
+        Connection connection = broker.createConnection(clientConf, downlink::add);
+        assertEquals(0, connection.connect());
+
+        String eventsUp = "$oc/devices/" + DEVICE_ID + "/sys/events/up";
+        connection.publishMessage(new RawMessage(eventsUp, "{\"services\":[{\"service_id\":\"$sub_device_manager\","
+            + "\"event_type\":\"add_sub_device_request\",\"paras\":{\"devices\":[{\"node_id\":\"sensor1\","
+            + "\"product_id\":\"product\"}]}}]}"), null);
+        JsonNode response = pollEvent(downlink);
+        assertEquals("add_sub_device_response", response.path("event_type").asText());
+        assertEquals("product_sensor1",
+            response.path("paras").path("successful_devices").path(0).path("device_id").asText());
+
+        connection.publishMessage(new RawMessage(eventsUp, "{\"services\":[{\"service_id\":\"sub_device_manager\","
+            + "\"event_type\":\"sub_device_sync_request\",\"paras\":{\"version\":0}}]}"), null);
+        JsonNode notify = pollEvent(downlink);
+        assertEquals("add_sub_device_notify", notify.path("event_type").asText());
+        assertEquals(1, notify.path("paras").path("version").asLong());
+        assertEquals(DEVICE_ID, notify.path("paras").path("devices").path(0).path("parent_device_id").asText());
+    }
+
+    @Test
+    public void testDisconnectTriggersReconnect() throws Exception {
+        CustomOptions options = new CustomOptions();
+        options.setMinBackoff(10);
+        options.setBackoff(10);
+        options.setMaxBackoff(20);
+        Connection connection = broker.createConnection(clientConf, message -> { });
+        connection.setCustomOptions(options);
+        assertEquals(0, connection.connect());
+        assertEquals(1, broker.getConnectionCount());
+
+        assertTrue(broker.disconnect(DEVICE_ID));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (broker.getConnectionCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(connection.isConnected());
+
+        connection.close();
+        assertFalse(connection.isConnected());
+        assertEquals(0, broker.getConnectionCount());
+    }
+
+    @Test
+    public void testRouteByClientIdAndSubscription() throws Exception {
+        BlockingQueue<RawMessage> downlink = new LinkedBlockingQueue<>();
+        Connection connection = broker.createConnection(clientConf, downlink::add);
+        assertEquals(0, connection.connect());
+        ClientConf otherConf = new ClientConf();
+        otherConf.setDeviceId("product_other");
+        otherConf.setSecret("secret");
+        otherConf.setServerUri("loopback://local");
+        BlockingQueue<RawMessage> otherDownlink = new LinkedBlockingQueue<>();
+        Connection other = broker.createConnection(otherConf, otherDownlink::add);
+        assertEquals(0, other.connect());
+        connection.subscribeTopic("$oc/devices/+/user/#", null, 0);
+
+        broker.publish("$oc/devices/product_other/sys/messages/down", "{}");
+        broker.publish("$oc/devices/" + DEVICE_ID + "/user/test", "{}");
+        broker.publish("$oc/devices/product_other/user/test", "{}");
+        assertTrue(broker.awaitIdle(5, TimeUnit.SECONDS));
+
+        assertEquals(2, otherDownlink.size());
+        assertEquals(2, downlink.size());
+        assertEquals("$oc/devices/" + DEVICE_ID + "/user/test", downlink.poll().getTopic());
+        assertEquals("$oc/devices/product_other/user/test", downlink.poll().getTopic());
+
+        connection.close();
+        broker.publish("$oc/devices/product_other/user/test", "{}");
+        assertTrue(broker.awaitIdle(5, TimeUnit.SECONDS));
+        assertTrue(downlink.isEmpty());
+        other.close();
+    }
+
+    @Test
+    public void testMatches() {
+        assertTrue(LoopbackBroker.matches("a/+/c", "a/b/c"));
+        assertTrue(LoopbackBroker.matches("a/#", "a/b/c"));
+        assertFalse(LoopbackBroker.matches("a/+", "a/b/c"));
+        assertFalse(LoopbackBroker.matches("a/b/c/d", "a/b/c"));
+    }
+
+    private RawMessage pollUplink(String topicSuffix) throws InterruptedException {
+        RawMessage message;
+        while ((message = uplink.poll(5, TimeUnit.SECONDS)) != null) {
+            if (message.getTopic().endsWith(topicSuffix)) {
+                return message;
+            }
+        }
+        return null;
+    }
+
+    private static JsonNode pollEvent(BlockingQueue<RawMessage> downlink) throws InterruptedException {
+        RawMessage message = downlink.poll(5, TimeUnit.SECONDS);
+        assertNotNull(message);
+        return JsonUtil.convertJsonBytesToObject(message.getPayload(), JsonNode.class).path("services").path(0);
+    }
+}
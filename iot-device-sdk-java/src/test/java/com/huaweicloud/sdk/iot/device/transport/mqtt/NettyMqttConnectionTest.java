@@ -0,0 +1,463 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.transport.mqtt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.huaweicloud.sdk.iot.device.client.ClientConf;
+import com.huaweicloud.sdk.iot.device.client.CustomOptions;
+import com.huaweicloud.sdk.iot.device.constants.Constants;
+import com.huaweicloud.sdk.iot.device.metrics.ClientMetrics;
+import com.huaweicloud.sdk.iot.device.metrics.MetricRegistry;
+import com.huaweicloud.sdk.iot.device.transport.ActionListener;
+import com.huaweicloud.sdk.iot.device.transport.ConnectListener;
+import com.huaweicloud.sdk.iot.device.transport.RawMessage;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.mqtt.MqttConnectMessage;
+import io.netty.handler.codec.mqtt.MqttConnectReturnCode;
+import io.netty.handler.codec.mqtt.MqttDecoder;
+import io.netty.handler.codec.mqtt.MqttEncoder;
+import io.netty.handler.codec.mqtt.MqttMessage;
+import io.netty.handler.codec.mqtt.MqttMessageBuilders;
+import io.netty.handler.codec.mqtt.MqttProperties;
+import io.netty.handler.codec.mqtt.MqttProperties.MqttPropertyType;
+import io.netty.handler.codec.mqtt.MqttPublishMessage;
+import io.netty.handler.codec.mqtt.MqttQoS;
+import io.netty.handler.codec.mqtt.MqttSubscribeMessage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class NettyMqttConnectionTest {
+    private static final String DEVICE_ID = "product_node";
+
+    private final BlockingQueue<MqttPublishMessage> serverReceived = new LinkedBlockingQueue<>();
+
+    private final BlockingQueue<RawMessage> clientReceived = new LinkedBlockingQueue<>();
+
+    private final BlockingQueue<MqttConnectMessage> serverConnects = new LinkedBlockingQueue<>();
+
+    private final BlockingQueue<String> serverSubscribes = new LinkedBlockingQueue<>();
+
+    private final BlockingQueue<Integer> heldPubAcks = new LinkedBlockingQueue<>();
+
+    private ClientConf clientConf;
+
+    private EventLoopGroup serverGroup;
+
+    private Channel serverChannel;
+
+    private volatile ChannelHandlerContext serverSession;
+
+    private volatile String connectedClientId;
+
+    private volatile MqttConnectReturnCode connectReturnCode = MqttConnectReturnCode.CONNECTION_ACCEPTED;
+
+    private volatile boolean sessionPresent;
+
+    private volatile int receiveMaximum;
+
+    private volatile int topicAliasMaximum;
+
+    private volatile boolean holdPubAck;
+
+    private NettyEventLoops eventLoops;
+
+    private NettyMqttConnection connection;
+
+    @Before
+    public void setUp() throws InterruptedException {
+        serverGroup = new NioEventLoopGroup(1);
+        serverChannel = new ServerBootstrap().group(serverGroup)
+            .channel(NioServerSocketChannel.class)
+            .childHandler(new ChannelInitializer<SocketChannel>() {
+                @Override
+                protected void initChannel(SocketChannel ch) {
+                    ch.pipeline().addLast(new MqttDecoder(), MqttEncoder.INSTANCE, new BrokerHandler());
+                }
+            })
+            .bind("127.0.0.1", 0).sync().channel();
+        int port = ((InetSocketAddress) serverChannel.localAddress()).getPort();
+
+        clientConf = new ClientConf();
+        clientConf.setDeviceId(DEVICE_ID);
+        clientConf.setSecret("secret");
+        clientConf.setServerUri("tcp://127.0.0.1:" + port);
+        eventLoops = new NettyEventLoops(1, 1);
+        connection = new NettyMqttConnection(clientConf, clientReceived::add, eventLoops);
+    }
+
+    @After
+    public void tearDown() {
+        connection.close();
+        eventLoops.shutdown();
+        serverChannel.close();
+        serverGroup.shutdownGracefully();
+    }
+
+    @Test
+    public void testConnectPublishAndReceive() throws InterruptedException {
+        assertEquals(0, connection.connect());
+        assertTrue(connection.isConnected());
+        assertTrue(connectedClientId.startsWith(DEVICE_ID + "_0_0_"));
+
+        LatchListener listener = new LatchListener();
+        connection.publishMessage(new RawMessage("up", "hello"), listener);
+        MqttPublishMessage published = serverReceived.poll(5, TimeUnit.SECONDS);
+        assertNotNull(published);
+        assertEquals("up", published.variableHeader().topicName());
+        assertEquals("hello", published.payload().toString(StandardCharsets.UTF_8));
+        published.release();
+        assertTrue(listener.succeeded.await(5, TimeUnit.SECONDS));
+
+        serverSession.writeAndFlush(MqttMessageBuilders.publish().topicName("down").qos(MqttQoS.AT_LEAST_ONCE)
+            .messageId(7).retained(false).payload(Unpooled.copiedBuffer("command", StandardCharsets.UTF_8)).build());
+        RawMessage received = clientReceived.poll(5, TimeUnit.SECONDS);
+        assertNotNull(received);
+        assertEquals("down", received.getTopic());
+        assertEquals("command", received.toString());
+    }
+
+    @Test
+    public void testConnectRefused() {
+        connectReturnCode = MqttConnectReturnCode.CONNECTION_REFUSED_BAD_USER_NAME_OR_PASSWORD;
+        assertEquals(4, connection.connect());
+        assertFalse(connection.isConnected());
+    }
+
+    @Test
+    public void testMessagesPublishedBeforeConnectAreSentInOrder() throws InterruptedException {
+        LatchListener first = new LatchListener();
+        LatchListener second = new LatchListener();
+        connection.publishMessage(new RawMessage("up", "1"), first);
+        connection.publishMessage(new RawMessage("up", "2", 0), second);
+
+        assertEquals(0, connection.connect());
+        MqttPublishMessage message = serverReceived.poll(5, TimeUnit.SECONDS);
+        assertNotNull(message);
+        assertEquals("1", message.payload().toString(StandardCharsets.UTF_8));
+        message.release();
+        message = serverReceived.poll(5, TimeUnit.SECONDS);
+        assertNotNull(message);
+        assertEquals("2", message.payload().toString(StandardCharsets.UTF_8));
+        message.release();
+        assertTrue(first.succeeded.await(5, TimeUnit.SECONDS));
+        assertTrue(second.succeeded.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testSubscribeAndConnectionLost() throws InterruptedException {
+        assertEquals(0, connection.connect());
+        LatchListener listener = new LatchListener();
+        connection.subscribeTopic("custom/topic", listener, 1);
+        assertTrue(listener.succeeded.await(5, TimeUnit.SECONDS));
+
+        CountDownLatch lost = new CountDownLatch(1);
+        connection.setConnectListener(new ConnectListener() {
+            @Override
+            public void connectionLost(Throwable cause) {
+                lost.countDown();
+            }
+
+            @Override
+            public void connectComplete(boolean reconnect, String serverURI) {
+            }
+        });
+        serverSession.close();
+        assertTrue(lost.await(5, TimeUnit.SECONDS));
+        assertFalse(connection.isConnected());
+    }
+
+    @Test
+    public void testConnectCompleteReportsReconnect() throws InterruptedException {
+        CustomOptions options = new CustomOptions();
+        options.setReConnect(false);
+        connection.setCustomOptions(options);
+        BlockingQueue<Boolean> reconnects = new LinkedBlockingQueue<>();
+        CountDownLatch lost = new CountDownLatch(1);
+        connection.setConnectListener(new ConnectListener() {
+            @Override
+            public void connectionLost(Throwable cause) {
+                lost.countDown();
+            }
+
+            @Override
+            public void connectComplete(boolean reconnect, String serverURI) {
+                reconnects.add(reconnect);
+            }
+        });
+
+        // 首次连接之后的连接成功都按重连通知
+        assertEquals(0, connection.connect());
+        assertEquals(Boolean.FALSE, reconnects.poll(5, TimeUnit.SECONDS));
+        serverSession.close();
+        assertTrue(lost.await(5, TimeUnit.SECONDS));
+        assertEquals(0, connection.connect());
+        assertEquals(Boolean.TRUE, reconnects.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testMqtt5TopicAlias() throws InterruptedException {
+        topicAliasMaximum = 1;
+        useMqtt5(new CustomOptions());
+        assertEquals(0, connection.connect());
+
+        String topic = "$oc/devices/" + DEVICE_ID + "/sys/properties/report";
+        connection.publishMessage(new RawMessage(topic, "{}"), null);
+        connection.publishMessage(new RawMessage(topic, "{}"), null);
+        connection.publishMessage(new RawMessage("$oc/devices/" + DEVICE_ID
+            + "/sys/commands/response/request_id=1", "{}"), null);
+        connection.publishMessage(new RawMessage("other", "{}"), null);
+
+        MqttPublishMessage first = serverReceived.poll(5, TimeUnit.SECONDS);
+        assertNotNull(first);
+        assertEquals(topic, first.variableHeader().topicName());
+        assertEquals(1, getTopicAlias(first).intValue());
+        MqttPublishMessage second = serverReceived.poll(5, TimeUnit.SECONDS);
+        assertNotNull(second);
+        assertEquals("", second.variableHeader().topicName());
+        assertEquals(1, getTopicAlias(second).intValue());
+        MqttPublishMessage response = serverReceived.poll(5, TimeUnit.SECONDS);
+        assertNotNull(response);
+        assertNull(getTopicAlias(response));
+
+        // 别名已用完的topic携带完整字符串发布
+        MqttPublishMessage other = serverReceived.poll(5, TimeUnit.SECONDS);
+        assertNotNull(other);
+        assertEquals("other", other.variableHeader().topicName());
+        assertNull(getTopicAlias(other));
+    }
+
+    @Test
+    public void testMqtt5ReceiveMaximum() throws InterruptedException {
+        receiveMaximum = 1;
+        holdPubAck = true;
+        useMqtt5(new CustomOptions());
+        assertEquals(0, connection.connect());
+
+        LatchListener first = new LatchListener();
+        LatchListener second = new LatchListener();
+        connection.publishMessage(new RawMessage("up", "1"), first);
+        connection.publishMessage(new RawMessage("up", "2"), second);
+        assertNotNull(serverReceived.poll(5, TimeUnit.SECONDS));
+        assertNull(serverReceived.poll(200, TimeUnit.MILLISECONDS));
+
+        serverSession.writeAndFlush(MqttMessageBuilders.pubAck().packetId(heldPubAcks.take()).build());
+        assertTrue(first.succeeded.await(5, TimeUnit.SECONDS));
+        MqttPublishMessage message = serverReceived.poll(5, TimeUnit.SECONDS);
+        assertNotNull(message);
+        assertEquals("2", message.payload().toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testPublishMetrics() throws InterruptedException {
+        MetricRegistry registry = new MetricRegistry();
+        clientConf.setMetricRegistry(registry);
+        connection.close();
+        connection = new NettyMqttConnection(clientConf, clientReceived::add, eventLoops);
+        CustomOptions options = new CustomOptions();
+        options.setMaxInflight(1);
+        connection.setCustomOptions(options);
+        holdPubAck = true;
+        assertEquals(0, connection.connect());
+
+        LatchListener first = new LatchListener();
+        LatchListener second = new LatchListener();
+        connection.publishMessage(new RawMessage("up", "1"), first);
+        connection.publishMessage(new RawMessage("up", "2"), second);
+        assertNotNull(serverReceived.poll(5, TimeUnit.SECONDS));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (registry.getGaugeValue(ClientMetrics.OFFLINE_BUFFER_SIZE) == 0
+            && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, registry.getGaugeValue(ClientMetrics.PUBLISH_INFLIGHT));
+        assertEquals(1, registry.getGaugeValue(ClientMetrics.PUBLISH_INFLIGHT_LIMIT));
+        assertEquals(1, registry.getGaugeValue(ClientMetrics.OFFLINE_BUFFER_SIZE));
+
+        serverSession.writeAndFlush(MqttMessageBuilders.pubAck().packetId(heldPubAcks.take()).build());
+        assertTrue(first.succeeded.await(5, TimeUnit.SECONDS));
+        assertNotNull(serverReceived.poll(5, TimeUnit.SECONDS));
+        serverSession.writeAndFlush(MqttMessageBuilders.pubAck().packetId(heldPubAcks.take()).build());
+        assertTrue(second.succeeded.await(5, TimeUnit.SECONDS));
+        assertEquals(2, registry.counter(ClientMetrics.PUBLISH_SUCCESS).getCount());
+        assertEquals(2, registry.histogram(ClientMetrics.PUBLISH_LATENCY).getTotalCount());
+        assertEquals(0, registry.getGaugeValue(ClientMetrics.PUBLISH_INFLIGHT));
+        assertEquals(0, registry.getGaugeValue(ClientMetrics.OFFLINE_BUFFER_SIZE));
+
+        connection.close();
+        assertEquals(0, registry.getGaugeValue(ClientMetrics.PUBLISH_INFLIGHT_LIMIT));
+    }
+
+    @Test
+    public void testMqtt5SessionResume() throws InterruptedException {
+        CustomOptions options = new CustomOptions();
+        options.setReConnect(false);
+        options.setSessionExpiryInterval(600);
+        useMqtt5(options);
+        assertEquals(0, connection.connect());
+        MqttConnectMessage connect = serverConnects.take();
+        assertFalse(connect.variableHeader().isCleanSession());
+        assertEquals(600, connect.variableHeader().properties()
+            .getProperty(MqttPropertyType.SESSION_EXPIRY_INTERVAL.value()).value());
+        LatchListener listener = new LatchListener();
+        connection.subscribeTopic("custom/topic", listener, 1);
+        assertTrue(listener.succeeded.await(5, TimeUnit.SECONDS));
+        assertEquals("custom/topic", serverSubscribes.take());
+
+        // 服务端保留了会话，重连后不重新订阅
+        sessionPresent = true;
+        reconnect();
+        assertNull(serverSubscribes.poll(200, TimeUnit.MILLISECONDS));
+
+        // 会话已过期，重连后重新订阅
+        sessionPresent = false;
+        reconnect();
+        assertEquals("custom/topic", serverSubscribes.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testMqtt5ConnectRefused() {
+        connectReturnCode = MqttConnectReturnCode.CONNECTION_REFUSED_BAD_USERNAME_OR_PASSWORD;
+        useMqtt5(new CustomOptions());
+        assertEquals(4, connection.connect());
+    }
+
+    private void useMqtt5(CustomOptions options) {
+        connection.close();
+        clientConf.setTransport(Constants.TRANSPORT_NETTY_MQTT5);
+        connection = new NettyMqttConnection(clientConf, clientReceived::add, eventLoops);
+        connection.setCustomOptions(options);
+    }
+
+    private void reconnect() throws InterruptedException {
+        CountDownLatch lost = new CountDownLatch(1);
+        connection.setConnectListener(new ConnectListener() {
+            @Override
+            public void connectionLost(Throwable cause) {
+                lost.countDown();
+            }
+
+            @Override
+            public void connectComplete(boolean reconnect, String serverURI) {
+            }
+        });
+        serverSession.close();
+        assertTrue(lost.await(5, TimeUnit.SECONDS));
+        assertEquals(0, connection.connect());
+    }
+
+    private static Integer getTopicAlias(MqttPublishMessage message) {
+        MqttProperties.MqttProperty<?> property = message.variableHeader().properties()
+            .getProperty(MqttPropertyType.TOPIC_ALIAS.value());
+        return property == null ? null : (Integer) property.value();
+    }
+
+    private static class LatchListener implements ActionListener {
+        private final CountDownLatch succeeded = new CountDownLatch(1);
+
+        @Override
+        public void onSuccess(Object context) {
+            succeeded.countDown();
+        }
+
+        @Override
+        public void onFailure(Object context, Throwable var2) {
+        }
+    }
+
+    private class BrokerHandler extends SimpleChannelInboundHandler<MqttMessage> {
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, MqttMessage msg) {
+            switch (msg.fixedHeader().messageType()) {
+                case CONNECT:
+                    MqttConnectMessage connect = (MqttConnectMessage) msg;
+                    connectedClientId = connect.payload().clientIdentifier();
+                    serverConnects.add(connect);
+                    serverSession = ctx;
+                    MqttProperties properties = new MqttProperties();
+                    if (receiveMaximum > 0) {
+                        properties.add(new MqttProperties.IntegerProperty(MqttPropertyType.RECEIVE_MAXIMUM.value(),
+                            receiveMaximum));
+                    }
+                    if (topicAliasMaximum > 0) {
+                        properties.add(new MqttProperties.IntegerProperty(
+                            MqttPropertyType.TOPIC_ALIAS_MAXIMUM.value(), topicAliasMaximum));
+                    }
+                    ctx.writeAndFlush(MqttMessageBuilders.connAck().returnCode(connectReturnCode)
+                        .sessionPresent(sessionPresent).properties(properties).build());
+                    break;
+                case PUBLISH:
+                    MqttPublishMessage publish = (MqttPublishMessage) msg;
+                    if (holdPubAck) {
+                        heldPubAcks.add(publish.variableHeader().packetId());
+                    } else if (publish.fixedHeader().qosLevel() == MqttQoS.AT_LEAST_ONCE) {
+                        ctx.writeAndFlush(MqttMessageBuilders.pubAck()
+                            .packetId(publish.variableHeader().packetId()).build());
+                    }
+                    serverReceived.add(publish.replace(Unpooled.wrappedBuffer(ByteBufUtil.getBytes(publish.payload()))));
+                    break;
+                case SUBSCRIBE:
+                    MqttSubscribeMessage subscribe = (MqttSubscribeMessage) msg;
+                    subscribe.payload().topicSubscriptions()
+                        .forEach(subscription -> serverSubscribes.add(subscription.topicName()));
+                    ctx.writeAndFlush(MqttMessageBuilders.subAck()
+                        .packetId(subscribe.variableHeader().messageId())
+                        .addGrantedQos(MqttQoS.AT_LEAST_ONCE).build());
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.transport.spool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import com.huaweicloud.sdk.iot.device.transport.ActionListener;
+import com.huaweicloud.sdk.iot.device.transport.RawMessage;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+public class OfflineMessageSpoolTest {
+    private static final String TOPIC = "$oc/devices/dev_1/sys/properties/report";
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static RawMessage message(String payload, int qos) {
+        return new RawMessage(TOPIC, payload, qos);
+    }
+
+    @Test
+    public void test_replay_after_restart() throws IOException {
+        File directory = folder.newFolder();
+        OfflineMessageSpool spool = new OfflineMessageSpool(directory, 1024 * 1024, SEGMENT_SIZE,
+            OfflineMessageSpool.DROP_OLDEST);
+        ActionListener listener = mock(ActionListener.class);
+        spool.append(message("m1", 1), listener);
+        spool.append(message("m2", 1), null);
+        spool.append(message("m3", 0), null);
+
+        OfflineMessageSpool.SpoolRecord first = spool.next();
+        assertEquals("m1", first.getMessage().toString());
+        spool.ack(first);
+        verify(listener).onSuccess(isNull());
+        spool.close();
+
+        // 重启后只剩未确认的消息，topic、qos与写入时一致
+        spool = new OfflineMessageSpool(directory, 1024 * 1024, SEGMENT_SIZE, OfflineMessageSpool.DROP_OLDEST);
+        assertEquals(2, spool.size());
+        OfflineMessageSpool.SpoolRecord second = spool.next();
+        assertEquals(TOPIC, second.getMessage().getTopic());
+        assertEquals("m2", second.getMessage().toString());
+        assertEquals(1, second.getMessage().getQos());
+        OfflineMessageSpool.SpoolRecord third = spool.next();
+        assertEquals("m3", third.getMessage().toString());
+        assertEquals(0, third.getMessage().getQos());
+        assertNull(spool.next());
+
+        // 未确认的消息在rewind后重新读取
+        spool.ack(third);
+        spool.rewind();
+        assertEquals("m2", spool.next().getMessage().toString());
+        assertNull(spool.next());
+        spool.close();
+    }
+
+    @Test
+    public void test_discard_corrupted_tail() throws IOException {
+        File directory = folder.newFolder();
+        OfflineMessageSpool spool = new OfflineMessageSpool(directory, 1024 * 1024, SEGMENT_SIZE,
+            OfflineMessageSpool.DROP_OLDEST);
+        spool.append(message("intact", 1), null);
+        spool.append(message("corrupted", 1), null);
+        spool.close();
+
+        File[] segments = directory.listFiles();
+        assertEquals(1, segments.length);
+        try (RandomAccessFile file = new RandomAccessFile(segments[0], "rw")) {
+            int firstRecordSize = 8 + file.readInt();
+            file.seek(firstRecordSize + 8 + 4 + TOPIC.length());
+            file.write('X');
+        }
+
+        spool = new OfflineMessageSpool(directory, 1024 * 1024, SEGMENT_SIZE, OfflineMessageSpool.DROP_OLDEST);
+        assertEquals(1, spool.size());
+        assertEquals("intact", spool.next().getMessage().toString());
+        spool.close();
+    }
+
+    @Test
+    public void test_drop_policy() throws IOException {
+        // 每个分段只能放下一条消息，配额为两个分段
+        int segmentSize = 8 + 4 + TOPIC.length() + 2;
+        OfflineMessageSpool oldest = new OfflineMessageSpool(folder.newFolder(), segmentSize * 2L, segmentSize,
+            OfflineMessageSpool.DROP_OLDEST);
+        ActionListener listener = mock(ActionListener.class);
+        assertTrue(oldest.append(message("m1", 1), listener));
+        assertTrue(oldest.append(message("m2", 1), null));
+        assertTrue(oldest.append(message("m3", 1), null));
+        verify(listener).onFailure(isNull(), any(IllegalStateException.class));
+        assertEquals(2, oldest.size());
+        assertEquals("m2", oldest.next().getMessage().toString());
+        oldest.close();
+
+        OfflineMessageSpool newest = new OfflineMessageSpool(folder.newFolder(), segmentSize * 2L, segmentSize,
+            OfflineMessageSpool.DROP_NEWEST);
+        assertTrue(newest.append(message("m1", 1), null));
+        assertTrue(newest.append(message("m2", 1), null));
+        assertFalse(newest.append(message("m3", 1), null));
+        assertEquals("m1", newest.next().getMessage().toString());
+        newest.close();
+
+        OfflineMessageSpool priority = new OfflineMessageSpool(folder.newFolder(), segmentSize * 2L, segmentSize,
+            OfflineMessageSpool.DROP_BY_PRIORITY);
+        assertTrue(priority.append(message("m1", 1), null));
+        assertTrue(priority.append(message("m2", 1), null));
+        assertFalse(priority.append(message("q0", 0), null));
+        assertTrue(priority.append(message("m3", 1), null));
+        assertEquals("m2", priority.next().getMessage().toString());
+        priority.close();
+    }
+}
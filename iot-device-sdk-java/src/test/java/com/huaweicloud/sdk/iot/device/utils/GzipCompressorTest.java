@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+public class GzipCompressorTest {
+    private static byte[] decompress(byte[] data) throws IOException {
+        try (GZIPInputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            return IOUtils.toByteArray(inputStream);
+        }
+    }
+
+    @Test
+    public void test_round_trip() throws IOException {
+        byte[] empty = new byte[0];
+        assertArrayEquals(empty, decompress(GzipCompressor.compress(empty)));
+
+        StringBuilder json = new StringBuilder("{\"services\":[");
+        for (int i = 0; i < 2000; i++) {
+            json.append("{\"service_id\":\"s").append(i).append("\",\"properties\":{\"v\":").append(i).append("}},");
+        }
+        byte[] text = json.append("{}]}").toString().getBytes(StandardCharsets.UTF_8);
+        assertArrayEquals(text, decompress(GzipCompressor.compress(text)));
+
+        // 不可压缩的数据压缩后比原始数据大，需要扩容输出缓冲区
+        byte[] random = new byte[300 * 1024];
+        new Random(1).nextBytes(random);
+        assertArrayEquals(random, decompress(GzipCompressor.compress(random)));
+        assertArrayEquals(text, decompress(GzipCompressor.compress(text)));
+    }
+
+    @Test
+    public void test_iot_util_compress_has_complete_trailer() throws IOException {
+        String payload = "{\"services\":[{\"service_id\":\"smokeDetector\",\"properties\":{\"alarm\":1}}]}";
+
+        byte[] compressed = IotUtil.compress(payload, "UTF-8");
+
+        assertEquals(payload, new String(decompress(compressed), StandardCharsets.UTF_8));
+    }
+}
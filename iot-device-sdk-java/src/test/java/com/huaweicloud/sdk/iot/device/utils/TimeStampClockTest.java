@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+public class TimeStampClockTest {
+    /**
+     * 可以手动拨动的时钟
+     */
+    private static class MutableClock extends Clock {
+        private long millis;
+
+        MutableClock(long millis) {
+            this.millis = millis;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+
+    @Test
+    public void test_cached_per_second() {
+        MutableClock clock = new MutableClock(Instant.parse("2023-10-10T08:09:10.001Z").toEpochMilli());
+        TimeStampClock timeStampClock = new TimeStampClock(clock);
+
+        String timeStamp = timeStampClock.getTimeStamp();
+        assertEquals("20231010T080910Z", timeStamp);
+        assertEquals("20231010080910", timeStampClock.getCompactTimeStamp());
+
+        clock.millis += 998;
+        assertSame(timeStamp, timeStampClock.getTimeStamp());
+
+        clock.millis += 1;
+        assertEquals("20231010T080911Z", timeStampClock.getTimeStamp());
+
+        // 时钟回拨也会刷新
+        clock.millis -= 60000;
+        assertEquals("20231010T080811Z", timeStampClock.getTimeStamp());
+    }
+
+    @Test
+    public void test_offset_clock() {
+        Clock base = Clock.fixed(Instant.parse("2023-12-31T23:59:59Z"), ZoneOffset.UTC);
+        TimeStampClock timeStampClock = new TimeStampClock(Clock.offset(base, Duration.ofSeconds(2)));
+
+        assertEquals("20240101T000001Z", timeStampClock.getTimeStamp());
+
+        TimeStampClock old = TimeStampClock.getDefault();
+        try {
+            TimeStampClock.setDefault(timeStampClock);
+            assertEquals("20240101T000001Z", IotUtil.getTimeStamp());
+        } finally {
+            TimeStampClock.setDefault(old);
+        }
+    }
+}
@@ -0,0 +1,330 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.simulator;
+
+import com.huaweicloud.sdk.iot.device.IoTDevice;
+import com.huaweicloud.sdk.iot.device.client.ClientConf;
+import com.huaweicloud.sdk.iot.device.client.CustomOptions;
+import com.huaweicloud.sdk.iot.device.client.MessageDispatcher;
+import com.huaweicloud.sdk.iot.device.transport.ConnectionFactory;
+import com.huaweicloud.sdk.iot.device.utils.ExceptionUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 设备规模压测：按产品模型模拟大量直连设备和网关子设备，连接本地broker后按配置的速率上报属性、应答平台请求，
+ * 可选地随机断链，最后输出吞吐、发布到确认的时延分位值以及每个设备占用的堆内存，用于找到单进程能承载的设备上限。
+ * <p>
+ * 用法：java -jar iot-device-simulator-with-deps.jar [simulator.properties]，配置项也可以用-Dsimulator.xxx覆盖
+ */
+@Slf4j
+public class DeviceSimulator {
+    private static final String DEFAULT_CONFIG = "/simulator.properties";
+
+    private static final long CONNECT_TIMEOUT_MINUTES = 10L;
+
+    private static final long PROGRESS_INTERVAL_MILLIS = 10000L;
+
+    private final SimulatorConfig config;
+
+    private final SimulatorStats stats = new SimulatorStats();
+
+    private final List<SimulatedDevice> devices = new ArrayList<>();
+
+    private final List<SimulatedGateway> gateways = new ArrayList<>();
+
+    private SimulatorBroker broker;
+
+    private ScheduledExecutorService scheduler;
+
+    private MessageDispatcher dispatcher;
+
+    private ScheduledExecutorService clientExecutor;
+
+    private int connected;
+
+    private long heapPerDevice;
+
+    public DeviceSimulator(SimulatorConfig config) {
+        this.config = config;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Properties properties = new Properties();
+        try (InputStream inputStream = args.length > 0 ? new FileInputStream(args[0])
+            : DeviceSimulator.class.getResourceAsStream(DEFAULT_CONFIG)) {
+            if (inputStream != null) {
+                properties.load(inputStream);
+            }
+        }
+        DeviceSimulator simulator = new DeviceSimulator(SimulatorConfig.load(properties));
+        try {
+            simulator.run();
+        } catch (Exception e) {
+            log.error("simulator failed: {}", ExceptionUtil.getBriefStackTrace(e));
+        } finally {
+            simulator.close();
+        }
+    }
+
+    /**
+     * 执行一轮压测：建链、稳定运行配置的时长、输出报告
+     *
+     * @throws Exception 加载产品模型或启动broker失败
+     */
+    public void run() throws Exception {
+        ProductModel productModel = ProductModel.load(config.getProductModel());
+        broker = SimulatorConfig.BROKER_MQTT.equals(config.getBroker())
+            ? new EmbeddedMqttBroker(config.getMqttPort()) : new LoopbackSimulatorBroker();
+        broker.start();
+        scheduler = Executors.newScheduledThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "simulator-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long heapBefore = usedHeap();
+        int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+        createDevices(productModel);
+        long connectStart = System.nanoTime();
+        connectAll();
+        long connectMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - connectStart);
+        heapPerDevice = (usedHeap() - heapBefore) / Math.max(config.getTotalDevices(), 1L);
+        int threadsAfter = ManagementFactory.getThreadMXBean().getThreadCount();
+        log.info("connected {}/{} connections in {} ms, {} devices in total", connected,
+            devices.size() + gateways.size(), connectMillis, config.getTotalDevices());
+        log.info("heap per device: {} bytes, threads: {} -> {}", heapPerDevice, threadsBefore, threadsAfter);
+
+        PlatformDriver driver = new PlatformDriver(broker, productModel, stats, config, buildTargets(),
+            buildConnectionIds());
+        broker.setUplinkListener(driver);
+        stats.reset();
+        scheduleReports();
+        driver.start(scheduler);
+
+        long loadStart = System.nanoTime();
+        long deadline = loadStart + TimeUnit.SECONDS.toNanos(config.getDuration());
+        while (System.nanoTime() < deadline) {
+            TimeUnit.NANOSECONDS.sleep(Math.min(TimeUnit.MILLISECONDS.toNanos(PROGRESS_INTERVAL_MILLIS),
+                deadline - System.nanoTime()));
+            log.info("progress: acked {}, online {}, publish ack {}", stats.getAcked().sum(),
+                broker.getConnectionCount(), stats.getPublishAck().summary());
+        }
+        scheduler.shutdownNow();
+        report(System.nanoTime() - loadStart);
+    }
+
+    private void createDevices(ProductModel productModel) {
+        ConnectionFactory connectionFactory = (clientConf, rawMessageListener) ->
+            new TrackingConnection(broker.createConnection(clientConf, rawMessageListener), stats);
+        CustomOptions customOptions = new CustomOptions();
+        customOptions.setMinBackoff(config.getMinBackoff());
+        customOptions.setBackoff(config.getMinBackoff());
+        customOptions.setMaxBackoff(config.getMaxBackoff());
+
+        // 所有模拟设备共用一个下行分发器和任务线程池，而不是每个设备各自创建线程
+        dispatcher = new MessageDispatcher(Runtime.getRuntime().availableProcessors(), 0);
+        customOptions.setDispatcher(dispatcher);
+        clientExecutor = Executors.newScheduledThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "simulator-client");
+            thread.setDaemon(true);
+            return thread;
+        });
+        customOptions.setExecutorService(clientExecutor);
+
+        for (int i = 0; i < config.getDevices(); i++) {
+            SimulatedDevice device = new SimulatedDevice(newClientConf("sim_device_" + i, connectionFactory),
+                productModel);
+            device.getClient().setCustomOptions(customOptions);
+            devices.add(device);
+        }
+        for (int i = 0; i < config.getGateways(); i++) {
+            SimulatedGateway gateway = new SimulatedGateway(newClientConf("sim_gateway_" + i, connectionFactory),
+                productModel);
+            gateway.getClient().setCustomOptions(customOptions);
+            gateways.add(gateway);
+        }
+    }
+
+    private ClientConf newClientConf(String deviceId, ConnectionFactory connectionFactory) {
+        ClientConf clientConf = new ClientConf();
+        clientConf.setServerUri(broker.getServerUri());
+        clientConf.setDeviceId(deviceId);
+        clientConf.setSecret("simulator");
+        clientConf.setTransport(config.getTransport());
+        clientConf.setConnectionFactory(connectionFactory);
+        return clientConf;
+    }
+
+    /**
+     * 按connectRate匀速建链，避免瞬间建链把broker的accept队列打满
+     */
+    private void connectAll() throws InterruptedException {
+        List<IoTDevice> all = new ArrayList<>(devices);
+        all.addAll(gateways);
+        List<CompletableFuture<Integer>> futures = new ArrayList<>(all.size());
+        long start = System.nanoTime();
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(config.getConnectRate(), 1.0);
+        for (int i = 0; i < all.size(); i++) {
+            long wait = start + (long) (i * intervalNanos) - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            futures.add(all.get(i).initAsync());
+        }
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .get(CONNECT_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+        } catch (TimeoutException | ExecutionException e) {
+            log.warn("not all devices connected: {}", ExceptionUtil.getBriefStackTrace(e));
+        }
+        connected = (int) futures.stream().filter(future -> future.getNow(-1) == 0).count();
+    }
+
+    private void scheduleReports() {
+        long interval = Math.max(config.getReportInterval(), 1L);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (SimulatedDevice device : devices) {
+            scheduler.scheduleAtFixedRate(device::report, random.nextLong(interval), interval, TimeUnit.MILLISECONDS);
+        }
+        for (int i = 0; i < gateways.size(); i++) {
+            SimulatedGateway gateway = gateways.get(i);
+            for (int j = 0; j < config.getSubDevicesPerGateway(); j++) {
+                String subDeviceId = subDeviceId(i, j);
+                scheduler.scheduleAtFixedRate(() -> gateway.reportSubDevice(subDeviceId), random.nextLong(interval),
+                    interval, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private String[][] buildTargets() {
+        List<String[]> targets = new ArrayList<>();
+        for (SimulatedDevice device : devices) {
+            targets.add(new String[] {device.getDeviceId(), device.getDeviceId()});
+        }
+        for (int i = 0; i < gateways.size(); i++) {
+            for (int j = 0; j < config.getSubDevicesPerGateway(); j++) {
+                targets.add(new String[] {gateways.get(i).getDeviceId(), subDeviceId(i, j)});
+            }
+        }
+        return targets.toArray(new String[0][]);
+    }
+
+    private String[] buildConnectionIds() {
+        List<String> connectionIds = new ArrayList<>();
+        devices.forEach(device -> connectionIds.add(device.getDeviceId()));
+        gateways.forEach(gateway -> connectionIds.add(gateway.getDeviceId()));
+        return connectionIds.toArray(new String[0]);
+    }
+
+    private static String subDeviceId(int gatewayIndex, int subDeviceIndex) {
+        return "sim_sub_" + gatewayIndex + "_" + subDeviceIndex;
+    }
+
+    private void report(long elapsedNanos) {
+        double seconds = elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1);
+        log.info("==================== simulator report ====================");
+        log.info("broker: {}, transport: {}, devices: {} (direct {}, gateways {} x {} sub devices), duration: {}s",
+            config.getBroker(), config.getTransport(), config.getTotalDevices(), config.getDevices(),
+            config.getGateways(), config.getSubDevicesPerGateway(), String.format("%.1f", seconds));
+        log.info("heap per device: {} bytes, peak threads: {}", heapPerDevice,
+            ManagementFactory.getThreadMXBean().getPeakThreadCount());
+        log.info("publish: {} sent, {} acked ({}/s), {} failed; property reports at broker: {} ({}/s)",
+            stats.getPublished().sum(), stats.getAcked().sum(), rate(stats.getAcked().sum(), seconds),
+            stats.getFailed().sum(), stats.getPropertyReports().sum(), rate(stats.getPropertyReports().sum(), seconds));
+        log.info("publish to ack: {}", stats.getPublishAck().summary());
+        log.info("downlink: {} sent, {} timeout", stats.getDownlinkSent().sum(), stats.getDownlinkTimeouts().sum());
+        log.info("command rtt: {}", stats.getCommandRtt().summary());
+        log.info("property set rtt: {}", stats.getPropertySetRtt().summary());
+        log.info("property get rtt: {}", stats.getPropertyGetRtt().summary());
+        log.info("chaos: {} disconnects injected, {} connection lost, {} reconnected",
+            stats.getDisconnectsInjected().sum(), stats.getConnectionLost().sum(), stats.getReconnects().sum());
+        log.info("reconnect: {}", stats.getReconnect().summary());
+    }
+
+    private static String rate(long count, double seconds) {
+        return String.format("%.1f", seconds > 0 ? count / seconds : 0.0);
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            TimeUnit.MILLISECONDS.sleep(100);
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * 关闭所有设备和broker
+     */
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        devices.forEach(device -> device.getClient().close());
+        gateways.forEach(gateway -> gateway.getClient().close());
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
+        if (clientExecutor != null) {
+            clientExecutor.shutdown();
+        }
+        if (broker != null) {
+            broker.close();
+        }
+    }
+
+    public SimulatorStats getStats() {
+        return stats;
+    }
+
+    public int getConnected() {
+        return connected;
+    }
+
+    public long getHeapPerDevice() {
+        return heapPerDevice;
+    }
+}
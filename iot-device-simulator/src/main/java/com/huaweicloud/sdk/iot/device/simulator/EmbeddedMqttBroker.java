@@ -0,0 +1,345 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.simulator;
+
+import com.huaweicloud.sdk.iot.device.client.ClientConf;
+import com.huaweicloud.sdk.iot.device.constants.Constants;
+import com.huaweicloud.sdk.iot.device.transport.Connection;
+import com.huaweicloud.sdk.iot.device.transport.RawMessage;
+import com.huaweicloud.sdk.iot.device.transport.RawMessageListener;
+import com.huaweicloud.sdk.iot.device.transport.mqtt.MqttConnection;
+import com.huaweicloud.sdk.iot.device.transport.mqtt.NettyMqttConnection;
+import com.huaweicloud.sdk.iot.device.utils.ExceptionUtil;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.mqtt.MqttConnectMessage;
+import io.netty.handler.codec.mqtt.MqttConnectReturnCode;
+import io.netty.handler.codec.mqtt.MqttDecoder;
+import io.netty.handler.codec.mqtt.MqttEncoder;
+import io.netty.handler.codec.mqtt.MqttFixedHeader;
+import io.netty.handler.codec.mqtt.MqttMessage;
+import io.netty.handler.codec.mqtt.MqttMessageBuilders;
+import io.netty.handler.codec.mqtt.MqttMessageIdVariableHeader;
+import io.netty.handler.codec.mqtt.MqttMessageType;
+import io.netty.handler.codec.mqtt.MqttPublishMessage;
+import io.netty.handler.codec.mqtt.MqttQoS;
+import io.netty.handler.codec.mqtt.MqttSubscribeMessage;
+import io.netty.handler.codec.mqtt.MqttTopicSubscription;
+import io.netty.handler.codec.mqtt.MqttUnsubscribeMessage;
+import io.netty.util.AttributeKey;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 内嵌的mqtt broker，只实现压测需要的子集：qos0/qos1发布、订阅、心跳，设备按平台规则自动订阅自己的系统topic。
+ * 设备的上行消息不转发给其他设备，统一交给上行消息监听器，由压测程序扮演平台
+ */
+@Slf4j
+public class EmbeddedMqttBroker implements SimulatorBroker {
+    private static final String DEVICE_TOPIC_PREFIX = "$oc/devices/";
+
+    private static final int MAX_MESSAGE_SIZE = 1024 * 1024;
+
+    private static final AttributeKey<Session> SESSION = AttributeKey.valueOf("simulatorSession");
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+
+    private final BrokerHandler handler = new BrokerHandler();
+
+    private final int port;
+
+    private EventLoopGroup bossGroup;
+
+    private EventLoopGroup workerGroup;
+
+    private Channel serverChannel;
+
+    private volatile RawMessageListener uplinkListener;
+
+    /**
+     * 构造函数
+     *
+     * @param port 监听端口，0表示随机端口
+     */
+    public EmbeddedMqttBroker(int port) {
+        this.port = port;
+    }
+
+    @Override
+    public void start() throws InterruptedException {
+        bossGroup = new NioEventLoopGroup(1);
+        workerGroup = new NioEventLoopGroup();
+        serverChannel = new ServerBootstrap().group(bossGroup, workerGroup)
+            .channel(NioServerSocketChannel.class)
+            .option(ChannelOption.SO_BACKLOG, 4096)
+            .childOption(ChannelOption.TCP_NODELAY, true)
+            .childHandler(new ChannelInitializer<SocketChannel>() {
+                @Override
+                protected void initChannel(SocketChannel ch) {
+                    ch.pipeline().addLast(new MqttDecoder(MAX_MESSAGE_SIZE), MqttEncoder.INSTANCE, handler);
+                }
+            })
+            .bind("127.0.0.1", port).sync().channel();
+        log.info("embedded mqtt broker listen on {}", serverChannel.localAddress());
+    }
+
+    @Override
+    public String getServerUri() {
+        return "tcp://127.0.0.1:" + ((InetSocketAddress) serverChannel.localAddress()).getPort();
+    }
+
+    @Override
+    public Connection createConnection(ClientConf clientConf, RawMessageListener rawMessageListener) {
+        if (clientConf.getTransport() == Constants.TRANSPORT_PAHO) {
+            return new MqttConnection(clientConf, rawMessageListener);
+        }
+        return new NettyMqttConnection(clientConf, rawMessageListener);
+    }
+
+    @Override
+    public void setUplinkListener(RawMessageListener uplinkListener) {
+        this.uplinkListener = uplinkListener;
+    }
+
+    @Override
+    public void publish(String topic, byte[] payload) {
+        String deviceId = getDeviceId(topic);
+        if (deviceId != null) {
+            // 系统topic直接按设备id找到连接，不用遍历所有订阅
+            Session session = sessions.get(deviceId);
+            if (session != null) {
+                session.send(topic, payload);
+            }
+            return;
+        }
+        for (Session session : sessions.values()) {
+            if (session.isSubscribed(topic)) {
+                session.send(topic, payload);
+            }
+        }
+    }
+
+    @Override
+    public boolean disconnect(String deviceId) {
+        Session session = sessions.get(deviceId);
+        if (session == null) {
+            return false;
+        }
+        session.channel.close();
+        return true;
+    }
+
+    @Override
+    public int getConnectionCount() {
+        return sessions.size();
+    }
+
+    @Override
+    public void close() {
+        if (serverChannel != null) {
+            serverChannel.close();
+        }
+        sessions.values().forEach(session -> session.channel.close());
+        if (workerGroup != null) {
+            workerGroup.shutdownGracefully();
+        }
+        if (bossGroup != null) {
+            bossGroup.shutdownGracefully();
+        }
+    }
+
+    private static String getDeviceId(String topic) {
+        if (!topic.startsWith(DEVICE_TOPIC_PREFIX)) {
+            return null;
+        }
+        int end = topic.indexOf('/', DEVICE_TOPIC_PREFIX.length());
+        return end < 0 ? null : topic.substring(DEVICE_TOPIC_PREFIX.length(), end);
+    }
+
+    static boolean matches(String filter, String topic) {
+        String[] filterLevels = filter.split("/", -1);
+        String[] topicLevels = topic.split("/", -1);
+        for (int i = 0; i < filterLevels.length; i++) {
+            if ("#".equals(filterLevels[i])) {
+                return true;
+            }
+            if (i >= topicLevels.length) {
+                return false;
+            }
+            if (!"+".equals(filterLevels[i]) && !filterLevels[i].equals(topicLevels[i])) {
+                return false;
+            }
+        }
+        return filterLevels.length == topicLevels.length;
+    }
+
+    private static class Session {
+        private final String deviceId;
+
+        private final Channel channel;
+
+        private final Set<String> filters = ConcurrentHashMap.newKeySet();
+
+        Session(String deviceId, Channel channel) {
+            this.deviceId = deviceId;
+            this.channel = channel;
+        }
+
+        boolean isSubscribed(String topic) {
+            for (String filter : filters) {
+                if (matches(filter, topic)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void send(String topic, byte[] payload) {
+            channel.writeAndFlush(MqttMessageBuilders.publish().topicName(topic).qos(MqttQoS.AT_MOST_ONCE)
+                .retained(false).messageId(0).payload(Unpooled.wrappedBuffer(payload)).build());
+        }
+    }
+
+    @ChannelHandler.Sharable
+    private class BrokerHandler extends SimpleChannelInboundHandler<MqttMessage> {
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, MqttMessage msg) {
+            if (msg.decoderResult().isFailure()) {
+                log.warn("invalid mqtt message from {}: {}", ctx.channel().remoteAddress(),
+                    msg.decoderResult().cause().getMessage());
+                ctx.close();
+                return;
+            }
+            switch (msg.fixedHeader().messageType()) {
+                case CONNECT:
+                    onConnect(ctx, (MqttConnectMessage) msg);
+                    break;
+                case PUBLISH:
+                    onPublish(ctx, (MqttPublishMessage) msg);
+                    break;
+                case SUBSCRIBE:
+                    onSubscribe(ctx, (MqttSubscribeMessage) msg);
+                    break;
+                case UNSUBSCRIBE:
+                    onUnsubscribe(ctx, (MqttUnsubscribeMessage) msg);
+                    break;
+                case PINGREQ:
+                    ctx.writeAndFlush(new MqttMessage(
+                        new MqttFixedHeader(MqttMessageType.PINGRESP, false, MqttQoS.AT_MOST_ONCE, false, 0)));
+                    break;
+                case DISCONNECT:
+                    ctx.close();
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void onConnect(ChannelHandlerContext ctx, MqttConnectMessage connect) {
+            String deviceId = connect.payload().userName() != null
+                ? connect.payload().userName() : connect.payload().clientIdentifier();
+            Session session = new Session(deviceId, ctx.channel());
+            ctx.channel().attr(SESSION).set(session);
+
+            // 与平台一致，同一个设备重复建链时断开之前的连接
+            Session previous = sessions.put(deviceId, session);
+            if (previous != null) {
+                previous.channel.close();
+            }
+            ctx.writeAndFlush(MqttMessageBuilders.connAck().returnCode(MqttConnectReturnCode.CONNECTION_ACCEPTED)
+                .sessionPresent(false).build());
+        }
+
+        private void onPublish(ChannelHandlerContext ctx, MqttPublishMessage publish) {
+            if (publish.fixedHeader().qosLevel() == MqttQoS.AT_LEAST_ONCE) {
+                ctx.writeAndFlush(MqttMessageBuilders.pubAck().packetId(publish.variableHeader().packetId()).build());
+            }
+            RawMessageListener listener = uplinkListener;
+            if (listener != null) {
+                listener.onMessageReceived(new RawMessage(publish.variableHeader().topicName(),
+                    ByteBufUtil.getBytes(publish.payload()), publish.fixedHeader().qosLevel().value()));
+            }
+        }
+
+        private void onSubscribe(ChannelHandlerContext ctx, MqttSubscribeMessage subscribe) {
+            Session session = ctx.channel().attr(SESSION).get();
+            MqttMessageBuilders.SubAckBuilder subAck = MqttMessageBuilders.subAck()
+                .packetId(subscribe.variableHeader().messageId());
+            for (MqttTopicSubscription subscription : subscribe.payload().topicSubscriptions()) {
+                if (session != null) {
+                    session.filters.add(subscription.topicName());
+                }
+                subAck.addGrantedQos(subscription.qualityOfService() == MqttQoS.AT_MOST_ONCE
+                    ? MqttQoS.AT_MOST_ONCE : MqttQoS.AT_LEAST_ONCE);
+            }
+            ctx.writeAndFlush(subAck.build());
+        }
+
+        private void onUnsubscribe(ChannelHandlerContext ctx, MqttUnsubscribeMessage unsubscribe) {
+            Session session = ctx.channel().attr(SESSION).get();
+            if (session != null) {
+                session.filters.removeAll(unsubscribe.payload().topics());
+            }
+            ctx.writeAndFlush(new MqttMessage(
+                new MqttFixedHeader(MqttMessageType.UNSUBACK, false, MqttQoS.AT_MOST_ONCE, false, 0),
+                MqttMessageIdVariableHeader.from(unsubscribe.variableHeader().messageId())));
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) {
+            Session session = ctx.channel().attr(SESSION).get();
+            if (session != null) {
+                sessions.remove(session.deviceId, session);
+            }
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            log.debug("mqtt session error: {}", ExceptionUtil.getBriefStackTrace(cause));
+            ctx.close();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.simulator;
+
+import com.huaweicloud.sdk.iot.device.client.ClientConf;
+import com.huaweicloud.sdk.iot.device.transport.Connection;
+import com.huaweicloud.sdk.iot.device.transport.RawMessageListener;
+import com.huaweicloud.sdk.iot.device.transport.loopback.LoopbackBroker;
+
+/**
+ * 基于sdk进程内回环broker的实现，不经过网络，测量的是sdk自身的开销
+ */
+public class LoopbackSimulatorBroker implements SimulatorBroker {
+    private final LoopbackBroker broker = new LoopbackBroker();
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public String getServerUri() {
+        return "loopback://simulator";
+    }
+
+    @Override
+    public Connection createConnection(ClientConf clientConf, RawMessageListener rawMessageListener) {
+        return broker.createConnection(clientConf, rawMessageListener);
+    }
+
+    @Override
+    public void setUplinkListener(RawMessageListener uplinkListener) {
+        broker.setUplinkListener(uplinkListener);
+    }
+
+    @Override
+    public void publish(String topic, byte[] payload) {
+        broker.publish(topic, payload);
+    }
+
+    @Override
+    public boolean disconnect(String deviceId) {
+        return broker.disconnect(deviceId);
+    }
+
+    @Override
+    public int getConnectionCount() {
+        return broker.getConnectionCount();
+    }
+
+    @Override
+    public void close() {
+        broker.close();
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.simulator;
+
+import com.huaweicloud.sdk.iot.device.client.requests.Command;
+import com.huaweicloud.sdk.iot.device.client.requests.PropsGet;
+import com.huaweicloud.sdk.iot.device.client.requests.PropsSet;
+import com.huaweicloud.sdk.iot.device.transport.RawMessage;
+import com.huaweicloud.sdk.iot.device.transport.RawMessageListener;
+import com.huaweicloud.sdk.iot.device.utils.JsonUtil;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 扮演平台：按配置的速率向随机设备下发命令、属性设置和属性查询，统计从下发到收到设备响应的时延，
+ * 并按混沌配置随机断开连接
+ */
+class PlatformDriver implements RawMessageListener {
+    private static final String REQUEST_ID = "request_id=";
+
+    private static final String COMMAND_RESPONSE = "/sys/commands/response/";
+
+    private static final String PROPERTIES_SET_RESPONSE = "/sys/properties/set/response/";
+
+    private static final String PROPERTIES_GET_RESPONSE = "/sys/properties/get/response/";
+
+    private static final String PROPERTIES_REPORT = "/properties/report";
+
+    private static final long TICK_MILLIS = 10L;
+
+    private static final long REQUEST_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(20);
+
+    private final SimulatorBroker broker;
+
+    private final ProductModel productModel;
+
+    private final SimulatorStats stats;
+
+    private final SimulatorConfig config;
+
+    /**
+     * 下发目标，每项为{连接的设备id, 目标设备id}，子设备的消息经网关的连接下发
+     */
+    private final String[][] targets;
+
+    /**
+     * 混沌测试时可断开的连接，即直连设备和网关
+     */
+    private final String[] connectionIds;
+
+    private final Map<String, Long> pending = new ConcurrentHashMap<>();
+
+    private final AtomicLong requestId = new AtomicLong();
+
+    private double commandQuota;
+
+    private double propertySetQuota;
+
+    private double propertyGetQuota;
+
+    PlatformDriver(SimulatorBroker broker, ProductModel productModel, SimulatorStats stats, SimulatorConfig config,
+        String[][] targets, String[] connectionIds) {
+        this.broker = broker;
+        this.productModel = productModel;
+        this.stats = stats;
+        this.config = config;
+        this.targets = targets;
+        this.connectionIds = connectionIds;
+    }
+
+    /**
+     * 开始下发，所有任务都在传入的调度线程中执行
+     *
+     * @param scheduler 调度线程
+     */
+    void start(ScheduledExecutorService scheduler) {
+        if (targets.length > 0) {
+            scheduler.scheduleAtFixedRate(this::tick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+            scheduler.scheduleAtFixedRate(this::expire, 1, 1, TimeUnit.SECONDS);
+        }
+        if (config.getChaosInterval() > 0 && connectionIds.length > 0) {
+            scheduler.scheduleAtFixedRate(this::injectChaos, config.getChaosInterval(), config.getChaosInterval(),
+                TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void onMessageReceived(RawMessage message) {
+        String topic = message.getTopic();
+        if (topic.endsWith(PROPERTIES_REPORT)) {
+            stats.getPropertyReports().increment();
+            return;
+        }
+        int index = topic.indexOf(REQUEST_ID);
+        if (index < 0) {
+            return;
+        }
+        Long sentAt = pending.remove(topic.substring(index + REQUEST_ID.length()));
+        if (sentAt == null) {
+            return;
+        }
+        long latency = System.nanoTime() - sentAt;
+        if (topic.contains(COMMAND_RESPONSE)) {
+            stats.getCommandRtt().record(latency);
+        } else if (topic.contains(PROPERTIES_SET_RESPONSE)) {
+            stats.getPropertySetRtt().record(latency);
+        } else if (topic.contains(PROPERTIES_GET_RESPONSE)) {
+            stats.getPropertyGetRtt().record(latency);
+        }
+    }
+
+    private void tick() {
+        double seconds = TICK_MILLIS / 1000.0;
+        commandQuota += config.getCommandRate() * seconds;
+        propertySetQuota += config.getPropertySetRate() * seconds;
+        propertyGetQuota += config.getPropertyGetRate() * seconds;
+        for (; commandQuota >= 1; commandQuota--) {
+            sendCommand();
+        }
+        for (; propertySetQuota >= 1; propertySetQuota--) {
+            sendPropertySet();
+        }
+        for (; propertyGetQuota >= 1; propertyGetQuota--) {
+            sendPropertyGet();
+        }
+    }
+
+    private void sendCommand() {
+        String[] command = productModel.randomCommand();
+        if (command == null) {
+            return;
+        }
+        String[] target = randomTarget();
+        Command request = new Command();
+        request.setDeviceId(target[1]);
+        request.setServiceId(command[0]);
+        request.setCommandName(command[1]);
+        request.setParas(Collections.emptyMap());
+        send(target[0], "/sys/commands/", request);
+    }
+
+    private void sendPropertySet() {
+        String[] target = randomTarget();
+        PropsSet request = new PropsSet();
+        request.setDeviceId(target[1]);
+        request.setServices(productModel.randomProperties(productModel.randomServiceId()));
+        send(target[0], "/sys/properties/set/", request);
+    }
+
+    private void sendPropertyGet() {
+        String[] target = randomTarget();
+        PropsGet request = new PropsGet();
+        request.setDeviceId(target[1]);
+        request.setServiceId(productModel.randomServiceId());
+        send(target[0], "/sys/properties/get/", request);
+    }
+
+    private void send(String connectionId, String topicSuffix, Object request) {
+        String id = String.valueOf(requestId.incrementAndGet());
+        pending.put(id, System.nanoTime());
+        stats.getDownlinkSent().increment();
+        broker.publish("$oc/devices/" + connectionId + topicSuffix + REQUEST_ID + id,
+            JsonUtil.convertObject2Bytes(request));
+    }
+
+    private String[] randomTarget() {
+        return targets[ThreadLocalRandom.current().nextInt(targets.length)];
+    }
+
+    /**
+     * 设备断链期间下发的请求收不到响应，超时后计入超时数，避免一直占用内存
+     */
+    private void expire() {
+        long now = System.nanoTime();
+        Iterator<Long> iterator = pending.values().iterator();
+        while (iterator.hasNext()) {
+            if (now - iterator.next() > REQUEST_TIMEOUT_NANOS) {
+                iterator.remove();
+                stats.getDownlinkTimeouts().increment();
+            }
+        }
+    }
+
+    private void injectChaos() {
+        long count = Math.max(1L, Math.round(connectionIds.length * config.getChaosRatio()));
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (long i = 0; i < count; i++) {
+            if (broker.disconnect(connectionIds[random.nextInt(connectionIds.length)])) {
+                stats.getDisconnectsInjected().increment();
+            }
+        }
+    }
+}
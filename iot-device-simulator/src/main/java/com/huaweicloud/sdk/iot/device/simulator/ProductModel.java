@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.simulator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.huaweicloud.sdk.iot.device.client.requests.ServiceProperty;
+import com.huaweicloud.sdk.iot.device.utils.IotUtil;
+import com.huaweicloud.sdk.iot.device.utils.JsonUtil;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 产品模型，格式和平台导出的模型文件一致，用于生成随机的属性值和命令
+ */
+public class ProductModel {
+    private static final String DEFAULT_MODEL = "/smoke-detector-model.json";
+
+    private final List<ModelService> services = new ArrayList<>();
+
+    private final Map<String, ModelService> serviceMap = new HashMap<>();
+
+    private final List<String[]> commands = new ArrayList<>();
+
+    private ProductModel(JsonNode root) {
+        for (JsonNode serviceNode : root.path("services")) {
+            ModelService service = new ModelService(serviceNode.path("service_id").asText());
+            for (JsonNode propertyNode : serviceNode.path("properties")) {
+                service.properties.add(new ModelProperty(propertyNode));
+            }
+            for (JsonNode commandNode : serviceNode.path("commands")) {
+                commands.add(new String[] {service.serviceId, commandNode.path("command_name").asText()});
+            }
+            services.add(service);
+            serviceMap.put(service.serviceId, service);
+        }
+        if (services.isEmpty()) {
+            throw new IllegalArgumentException("product model has no service");
+        }
+    }
+
+    /**
+     * 加载产品模型
+     *
+     * @param path 模型文件路径，为空时加载内置的烟感模型
+     * @return 产品模型
+     * @throws IOException 读取文件失败
+     */
+    public static ProductModel load(String path) throws IOException {
+        if (path == null || path.isEmpty()) {
+            try (InputStream inputStream = ProductModel.class.getResourceAsStream(DEFAULT_MODEL)) {
+                if (inputStream == null) {
+                    throw new IOException("default product model not found");
+                }
+                ByteArrayOutputStream content = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                int length;
+                while ((length = inputStream.read(buffer)) != -1) {
+                    content.write(buffer, 0, length);
+                }
+                return parse(content.toByteArray());
+            }
+        }
+        return parse(Files.readAllBytes(Paths.get(path)));
+    }
+
+    static ProductModel parse(byte[] content) {
+        JsonNode root = JsonUtil.convertJsonBytesToObject(content, JsonNode.class);
+        if (root == null) {
+            throw new IllegalArgumentException("invalid product model");
+        }
+        return new ProductModel(root);
+    }
+
+    /**
+     * 生成所有服务的随机属性
+     *
+     * @return 服务属性列表
+     */
+    public List<ServiceProperty> randomProperties() {
+        List<ServiceProperty> result = new ArrayList<>(services.size());
+        for (ModelService service : services) {
+            result.add(service.randomProperty());
+        }
+        return result;
+    }
+
+    /**
+     * 生成指定服务的随机属性，属性查询时使用
+     *
+     * @param serviceId 服务id，为空时返回所有服务
+     * @return 服务属性列表
+     */
+    public List<ServiceProperty> randomProperties(String serviceId) {
+        ModelService service = serviceId == null ? null : serviceMap.get(serviceId);
+        if (service == null) {
+            return randomProperties();
+        }
+        return Collections.singletonList(service.randomProperty());
+    }
+
+    /**
+     * 随机选择一个服务，属性设置和查询时使用
+     *
+     * @return 服务id
+     */
+    public String randomServiceId() {
+        return services.get(ThreadLocalRandom.current().nextInt(services.size())).serviceId;
+    }
+
+    /**
+     * 随机选择一个命令
+     *
+     * @return 服务id和命令名，模型中没有命令时返回null
+     */
+    public String[] randomCommand() {
+        if (commands.isEmpty()) {
+            return null;
+        }
+        return commands.get(ThreadLocalRandom.current().nextInt(commands.size()));
+    }
+
+    private static class ModelService {
+        private final String serviceId;
+
+        private final List<ModelProperty> properties = new ArrayList<>();
+
+        ModelService(String serviceId) {
+            this.serviceId = serviceId;
+        }
+
+        ServiceProperty randomProperty() {
+            Map<String, Object> values = new HashMap<>();
+            for (ModelProperty property : properties) {
+                values.put(property.name, property.randomValue());
+            }
+            ServiceProperty serviceProperty = new ServiceProperty();
+            serviceProperty.setServiceId(serviceId);
+            serviceProperty.setProperties(values);
+            return serviceProperty;
+        }
+    }
+
+    private static class ModelProperty {
+        private final String name;
+
+        private final String dataType;
+
+        private final double min;
+
+        private final double max;
+
+        private final int maxLength;
+
+        private final List<String> enumList = new ArrayList<>();
+
+        ModelProperty(JsonNode node) {
+            this.name = node.path("property_name").asText();
+            this.dataType = node.path("data_type").asText("string").toLowerCase();
+            this.min = node.path("min").asDouble(0);
+            this.max = Math.max(node.path("max").asDouble(100), min);
+            this.maxLength = Math.max(node.path("max_length").asInt(16), 1);
+            node.path("enum_list").forEach(item -> enumList.add(item.asText()));
+        }
+
+        Object randomValue() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            switch (dataType) {
+                case "int":
+                    return (int) min + random.nextInt((int) (max - min) + 1);
+                case "long":
+                    return (long) min + random.nextLong((long) (max - min) + 1);
+                case "decimal":
+                    return min + random.nextDouble() * (max - min);
+                case "boolean":
+                    return random.nextBoolean();
+                case "datetime":
+                    return IotUtil.getTimeStamp();
+                case "enum":
+                    return enumList.isEmpty() ? "" : enumList.get(random.nextInt(enumList.size()));
+                case "jsonobject":
+                    return Collections.emptyMap();
+                default:
+                    int length = 1 + random.nextInt(maxLength);
+                    char[] chars = new char[length];
+                    for (int i = 0; i < length; i++) {
+                        chars[i] = (char) ('a' + random.nextInt(26));
+                    }
+                    return new String(chars);
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.simulator;
+
+import com.huaweicloud.sdk.iot.device.IoTDevice;
+import com.huaweicloud.sdk.iot.device.client.ClientConf;
+import com.huaweicloud.sdk.iot.device.client.IotResult;
+import com.huaweicloud.sdk.iot.device.client.listener.PropertyListener;
+import com.huaweicloud.sdk.iot.device.client.requests.CommandRsp;
+import com.huaweicloud.sdk.iot.device.client.requests.ServiceProperty;
+
+import java.util.List;
+
+/**
+ * 模拟直连设备，按产品模型上报属性并应答命令、属性设置和属性查询
+ */
+public class SimulatedDevice extends IoTDevice {
+    private final ProductModel productModel;
+
+    /**
+     * 构造函数
+     *
+     * @param clientConf   客户端配置
+     * @param productModel 产品模型
+     */
+    public SimulatedDevice(ClientConf clientConf, ProductModel productModel) {
+        super(clientConf);
+        this.productModel = productModel;
+        getClient().setCommandListener((requestId, serviceId, commandName, paras) ->
+            getClient().respondCommand(requestId, new CommandRsp(0)));
+        getClient().setPropertyListener(new PropertyListener() {
+            @Override
+            public void onPropertiesSet(String requestId, List<ServiceProperty> services) {
+                getClient().respondPropsSet(requestId, IotResult.SUCCESS);
+            }
+
+            @Override
+            public void onPropertiesGet(String requestId, String serviceId) {
+                getClient().respondPropsGet(requestId, productModel.randomProperties(serviceId));
+            }
+        });
+    }
+
+    /**
+     * 按产品模型生成随机属性并上报
+     */
+    public void report() {
+        getClient().reportProperties(productModel.randomProperties(), null);
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.simulator;
+
+import com.huaweicloud.sdk.iot.device.client.ClientConf;
+import com.huaweicloud.sdk.iot.device.client.IotResult;
+import com.huaweicloud.sdk.iot.device.client.requests.Command;
+import com.huaweicloud.sdk.iot.device.client.requests.CommandRsp;
+import com.huaweicloud.sdk.iot.device.client.requests.DeviceEvent;
+import com.huaweicloud.sdk.iot.device.client.requests.DeviceMessage;
+import com.huaweicloud.sdk.iot.device.client.requests.PropsGet;
+import com.huaweicloud.sdk.iot.device.client.requests.PropsSet;
+import com.huaweicloud.sdk.iot.device.gateway.AbstractGateway;
+import com.huaweicloud.sdk.iot.device.gateway.SubDevicesPersistence;
+import com.huaweicloud.sdk.iot.device.gateway.requests.DeviceInfo;
+import com.huaweicloud.sdk.iot.device.gateway.requests.SubDevicesInfo;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 模拟网关，代理子设备上报属性并应答平台对子设备下发的命令、属性设置和属性查询
+ */
+public class SimulatedGateway extends AbstractGateway {
+    private final ProductModel productModel;
+
+    /**
+     * 构造函数
+     *
+     * @param clientConf   客户端配置
+     * @param productModel 子设备的产品模型
+     */
+    public SimulatedGateway(ClientConf clientConf, ProductModel productModel) {
+        super(new MemorySubDevicesPersistence(), clientConf);
+        this.productModel = productModel;
+    }
+
+    /**
+     * 按产品模型生成随机属性并以子设备身份上报
+     *
+     * @param subDeviceId 子设备id
+     */
+    public void reportSubDevice(String subDeviceId) {
+        reportSubDeviceProperties(subDeviceId, productModel.randomProperties(), null);
+    }
+
+    @Override
+    public void onSubdevCommand(String requestId, Command command) {
+        getClient().respondCommand(requestId, new CommandRsp(0));
+    }
+
+    @Override
+    public void onSubdevPropertiesSet(String requestId, PropsSet propsSet) {
+        getClient().respondPropsSet(requestId, IotResult.SUCCESS);
+    }
+
+    @Override
+    public void onSubdevPropertiesGet(String requestId, PropsGet propsGet) {
+        getClient().respondPropsGet(requestId, productModel.randomProperties(propsGet.getServiceId()));
+    }
+
+    @Override
+    public void onSubdevMessage(DeviceMessage message) {
+    }
+
+    @Override
+    public void onSubdevEvent(String deviceId, DeviceEvent deviceEvent) {
+    }
+
+    /**
+     * 子设备信息只保存在内存中，压测不需要持久化
+     */
+    private static class MemorySubDevicesPersistence implements SubDevicesPersistence {
+        private final Map<String, DeviceInfo> subDevices = new ConcurrentHashMap<>();
+
+        private volatile long version;
+
+        @Override
+        public DeviceInfo getSubDevice(String nodeId) {
+            return subDevices.get(nodeId);
+        }
+
+        @Override
+        public int addSubDevices(SubDevicesInfo subDevicesInfo) {
+            subDevicesInfo.getDevices().forEach(deviceInfo -> subDevices.put(deviceInfo.getNodeId(), deviceInfo));
+            version = subDevicesInfo.getVersion();
+            return 0;
+        }
+
+        @Override
+        public int deleteSubDevices(SubDevicesInfo subDevicesInfo) {
+            subDevicesInfo.getDevices().forEach(deviceInfo -> subDevices.remove(deviceInfo.getNodeId()));
+            version = subDevicesInfo.getVersion();
+            return 0;
+        }
+
+        @Override
+        public long getVersion() {
+            return version;
+        }
+    }
+}
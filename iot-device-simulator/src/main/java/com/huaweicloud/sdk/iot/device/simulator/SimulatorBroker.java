@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.simulator;
+
+import com.huaweicloud.sdk.iot.device.transport.ConnectionFactory;
+import com.huaweicloud.sdk.iot.device.transport.RawMessageListener;
+
+/**
+ * 压测使用的本地broker，同时作为设备连接的工厂
+ */
+public interface SimulatorBroker extends ConnectionFactory {
+    /**
+     * 启动broker
+     *
+     * @throws Exception 启动失败
+     */
+    void start() throws Exception;
+
+    /**
+     * 查询设备使用的平台地址
+     *
+     * @return 平台地址
+     */
+    String getServerUri();
+
+    /**
+     * 设置上行消息监听器，设备发布的每条消息都会通知
+     *
+     * @param uplinkListener 上行消息监听器
+     */
+    void setUplinkListener(RawMessageListener uplinkListener);
+
+    /**
+     * 以平台身份发布下行消息
+     *
+     * @param topic   topic
+     * @param payload 消息体
+     */
+    void publish(String topic, byte[] payload);
+
+    /**
+     * 断开指定设备的连接，用于混沌测试
+     *
+     * @param deviceId 设备id
+     * @return 设备在线时返回true
+     */
+    boolean disconnect(String deviceId);
+
+    /**
+     * 查询在线连接数
+     *
+     * @return 在线连接数
+     */
+    int getConnectionCount();
+
+    /**
+     * 关闭broker
+     */
+    void close();
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.simulator;
+
+import com.huaweicloud.sdk.iot.device.constants.Constants;
+
+import java.util.Properties;
+
+/**
+ * 压测配置，从properties文件加载，同名的系统属性（-Dsimulator.xxx）优先
+ */
+public class SimulatorConfig {
+    public static final String BROKER_LOOPBACK = "loopback";
+
+    public static final String BROKER_MQTT = "mqtt";
+
+    private static final String SYSTEM_PROPERTY_PREFIX = "simulator.";
+
+    private String broker = BROKER_LOOPBACK;
+
+    private int transport = Constants.TRANSPORT_NETTY;
+
+    private int mqttPort = 0;
+
+    private int devices = 1000;
+
+    private int gateways = 10;
+
+    private int subDevicesPerGateway = 1000;
+
+    private long reportInterval = 10000L;
+
+    private double commandRate = 100;
+
+    private double propertySetRate = 50;
+
+    private double propertyGetRate = 50;
+
+    private double connectRate = 2000;
+
+    private long chaosInterval = 0L;
+
+    private double chaosRatio = 0.01;
+
+    private long minBackoff = 1000L;
+
+    private long maxBackoff = 5000L;
+
+    private long duration = 60L;
+
+    private String productModel;
+
+    /**
+     * 从properties加载配置，未配置的项保持默认值
+     *
+     * @param properties 配置
+     * @return 压测配置
+     */
+    public static SimulatorConfig load(Properties properties) {
+        SimulatorConfig config = new SimulatorConfig();
+        config.setBroker(get(properties, "broker", config.getBroker()));
+        config.setTransport(Integer.parseInt(get(properties, "transport", String.valueOf(config.getTransport()))));
+        config.setMqttPort(Integer.parseInt(get(properties, "mqttPort", String.valueOf(config.getMqttPort()))));
+        config.setDevices(Integer.parseInt(get(properties, "devices", String.valueOf(config.getDevices()))));
+        config.setGateways(Integer.parseInt(get(properties, "gateways", String.valueOf(config.getGateways()))));
+        config.setSubDevicesPerGateway(Integer.parseInt(
+            get(properties, "subDevicesPerGateway", String.valueOf(config.getSubDevicesPerGateway()))));
+        config.setReportInterval(Long.parseLong(
+            get(properties, "reportInterval", String.valueOf(config.getReportInterval()))));
+        config.setCommandRate(Double.parseDouble(
+            get(properties, "commandRate", String.valueOf(config.getCommandRate()))));
+        config.setPropertySetRate(Double.parseDouble(
+            get(properties, "propertySetRate", String.valueOf(config.getPropertySetRate()))));
+        config.setPropertyGetRate(Double.parseDouble(
+            get(properties, "propertyGetRate", String.valueOf(config.getPropertyGetRate()))));
+        config.setConnectRate(Double.parseDouble(
+            get(properties, "connectRate", String.valueOf(config.getConnectRate()))));
+        config.setChaosInterval(Long.parseLong(
+            get(properties, "chaosInterval", String.valueOf(config.getChaosInterval()))));
+        config.setChaosRatio(Double.parseDouble(
+            get(properties, "chaosRatio", String.valueOf(config.getChaosRatio()))));
+        config.setMinBackoff(Long.parseLong(get(properties, "minBackoff", String.valueOf(config.getMinBackoff()))));
+        config.setMaxBackoff(Long.parseLong(get(properties, "maxBackoff", String.valueOf(config.getMaxBackoff()))));
+        config.setDuration(Long.parseLong(get(properties, "duration", String.valueOf(config.getDuration()))));
+        config.setProductModel(get(properties, "productModel", null));
+        return config;
+    }
+
+    private static String get(Properties properties, String key, String defaultValue) {
+        String value = System.getProperty(SYSTEM_PROPERTY_PREFIX + key, properties.getProperty(key));
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        return value.trim();
+    }
+
+    /**
+     * 查询设备总数，包括直连设备和子设备
+     *
+     * @return 设备总数
+     */
+    public long getTotalDevices() {
+        return devices + (long) gateways * subDevicesPerGateway;
+    }
+
+    public String getBroker() {
+        return broker;
+    }
+
+    public void setBroker(String broker) {
+        this.broker = broker;
+    }
+
+    public int getTransport() {
+        return transport;
+    }
+
+    public void setTransport(int transport) {
+        this.transport = transport;
+    }
+
+    public int getMqttPort() {
+        return mqttPort;
+    }
+
+    public void setMqttPort(int mqttPort) {
+        this.mqttPort = mqttPort;
+    }
+
+    public int getDevices() {
+        return devices;
+    }
+
+    public void setDevices(int devices) {
+        this.devices = devices;
+    }
+
+    public int getGateways() {
+        return gateways;
+    }
+
+    public void setGateways(int gateways) {
+        this.gateways = gateways;
+    }
+
+    public int getSubDevicesPerGateway() {
+        return subDevicesPerGateway;
+    }
+
+    public void setSubDevicesPerGateway(int subDevicesPerGateway) {
+        this.subDevicesPerGateway = subDevicesPerGateway;
+    }
+
+    public long getReportInterval() {
+        return reportInterval;
+    }
+
+    public void setReportInterval(long reportInterval) {
+        this.reportInterval = reportInterval;
+    }
+
+    public double getCommandRate() {
+        return commandRate;
+    }
+
+    public void setCommandRate(double commandRate) {
+        this.commandRate = commandRate;
+    }
+
+    public double getPropertySetRate() {
+        return propertySetRate;
+    }
+
+    public void setPropertySetRate(double propertySetRate) {
+        this.propertySetRate = propertySetRate;
+    }
+
+    public double getPropertyGetRate() {
+        return propertyGetRate;
+    }
+
+    public void setPropertyGetRate(double propertyGetRate) {
+        this.propertyGetRate = propertyGetRate;
+    }
+
+    public double getConnectRate() {
+        return connectRate;
+    }
+
+    public void setConnectRate(double connectRate) {
+        this.connectRate = connectRate;
+    }
+
+    public long getChaosInterval() {
+        return chaosInterval;
+    }
+
+    public void setChaosInterval(long chaosInterval) {
+        this.chaosInterval = chaosInterval;
+    }
+
+    public double getChaosRatio() {
+        return chaosRatio;
+    }
+
+    public void setChaosRatio(double chaosRatio) {
+        this.chaosRatio = chaosRatio;
+    }
+
+    public long getMinBackoff() {
+        return minBackoff;
+    }
+
+    public void setMinBackoff(long minBackoff) {
+        this.minBackoff = minBackoff;
+    }
+
+    public long getMaxBackoff() {
+        return maxBackoff;
+    }
+
+    public void setMaxBackoff(long maxBackoff) {
+        this.maxBackoff = maxBackoff;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+
+    public void setDuration(long duration) {
+        this.duration = duration;
+    }
+
+    public String getProductModel() {
+        return productModel;
+    }
+
+    public void setProductModel(String productModel) {
+        this.productModel = productModel;
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.simulator;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 压测统计，所有设备共用一个实例
+ */
+public class SimulatorStats {
+    private final LongAdder published = new LongAdder();
+
+    private final LongAdder acked = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+
+    private final LongAdder propertyReports = new LongAdder();
+
+    private final LongAdder downlinkSent = new LongAdder();
+
+    private final LongAdder downlinkTimeouts = new LongAdder();
+
+    private final LongAdder disconnectsInjected = new LongAdder();
+
+    private final LongAdder connectionLost = new LongAdder();
+
+    private final LongAdder reconnects = new LongAdder();
+
+    private final LatencyHistogram publishAck = new LatencyHistogram();
+
+    private final LatencyHistogram commandRtt = new LatencyHistogram();
+
+    private final LatencyHistogram propertySetRtt = new LatencyHistogram();
+
+    private final LatencyHistogram propertyGetRtt = new LatencyHistogram();
+
+    private final LatencyHistogram reconnect = new LatencyHistogram();
+
+    /**
+     * 清空统计，建链阶段结束后调用，只统计稳定运行阶段
+     */
+    public void reset() {
+        published.reset();
+        acked.reset();
+        failed.reset();
+        propertyReports.reset();
+        downlinkSent.reset();
+        downlinkTimeouts.reset();
+        disconnectsInjected.reset();
+        connectionLost.reset();
+        reconnects.reset();
+        publishAck.reset();
+        commandRtt.reset();
+        propertySetRtt.reset();
+        propertyGetRtt.reset();
+        reconnect.reset();
+    }
+
+    public LongAdder getPublished() {
+        return published;
+    }
+
+    public LongAdder getAcked() {
+        return acked;
+    }
+
+    public LongAdder getFailed() {
+        return failed;
+    }
+
+    public LongAdder getPropertyReports() {
+        return propertyReports;
+    }
+
+    public LongAdder getDownlinkSent() {
+        return downlinkSent;
+    }
+
+    public LongAdder getDownlinkTimeouts() {
+        return downlinkTimeouts;
+    }
+
+    public LongAdder getDisconnectsInjected() {
+        return disconnectsInjected;
+    }
+
+    public LongAdder getConnectionLost() {
+        return connectionLost;
+    }
+
+    public LongAdder getReconnects() {
+        return reconnects;
+    }
+
+    public LatencyHistogram getPublishAck() {
+        return publishAck;
+    }
+
+    public LatencyHistogram getCommandRtt() {
+        return commandRtt;
+    }
+
+    public LatencyHistogram getPropertySetRtt() {
+        return propertySetRtt;
+    }
+
+    public LatencyHistogram getPropertyGetRtt() {
+        return propertyGetRtt;
+    }
+
+    public LatencyHistogram getReconnect() {
+        return reconnect;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.simulator;
+
+import com.huaweicloud.sdk.iot.device.client.CustomOptions;
+import com.huaweicloud.sdk.iot.device.transport.ActionListener;
+import com.huaweicloud.sdk.iot.device.transport.ConnectActionListener;
+import com.huaweicloud.sdk.iot.device.transport.ConnectListener;
+import com.huaweicloud.sdk.iot.device.transport.Connection;
+import com.huaweicloud.sdk.iot.device.transport.RawMessage;
+import com.huaweicloud.sdk.iot.device.transport.Reconnector;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 包装设备的连接，统计发布到确认的时延以及断线重连的次数和耗时，不改变原连接的行为
+ */
+class TrackingConnection implements Connection {
+    private final Connection delegate;
+
+    private final SimulatorStats stats;
+
+    private volatile ConnectListener connectListener;
+
+    private volatile long lostAt;
+
+    TrackingConnection(Connection delegate, SimulatorStats stats) {
+        this.delegate = delegate;
+        this.stats = stats;
+        delegate.setConnectListener(new ConnectListener() {
+            @Override
+            public void connectionLost(Throwable cause) {
+                lostAt = System.nanoTime();
+                stats.getConnectionLost().increment();
+                ConnectListener listener = connectListener;
+                if (listener != null) {
+                    listener.connectionLost(cause);
+                }
+            }
+
+            @Override
+            public void connectComplete(boolean reconnect, String serverURI) {
+                long lost = lostAt;
+                if (lost != 0) {
+                    lostAt = 0;
+                    stats.getReconnects().increment();
+                    stats.getReconnect().record(System.nanoTime() - lost);
+                }
+                ConnectListener listener = connectListener;
+                if (listener != null) {
+                    listener.connectComplete(reconnect, serverURI);
+                }
+            }
+        });
+    }
+
+    @Override
+    public int connect() {
+        return delegate.connect();
+    }
+
+    @Override
+    public CompletableFuture<Integer> connectAsync() {
+        return delegate.connectAsync();
+    }
+
+    @Override
+    public void publishMessage(RawMessage message, ActionListener listener) {
+        long start = System.nanoTime();
+        stats.getPublished().increment();
+        delegate.publishMessage(message, new ActionListener() {
+            @Override
+            public void onSuccess(Object context) {
+                stats.getAcked().increment();
+                stats.getPublishAck().record(System.nanoTime() - start);
+                if (listener != null) {
+                    listener.onSuccess(context);
+                }
+            }
+
+            @Override
+            public void onFailure(Object context, Throwable var2) {
+                stats.getFailed().increment();
+                if (listener != null) {
+                    listener.onFailure(context, var2);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    @Override
+    public boolean isConnected() {
+        return delegate.isConnected();
+    }
+
+    @Override
+    public void setConnectListener(ConnectListener connectListener) {
+        this.connectListener = connectListener;
+    }
+
+    @Override
+    public void subscribeTopic(String topic, ActionListener actionListener, int qos) {
+        delegate.subscribeTopic(topic, actionListener, qos);
+    }
+
+    @Override
+    public void setConnectActionListener(ConnectActionListener connectActionListener) {
+        delegate.setConnectActionListener(connectActionListener);
+    }
+
+    @Override
+    public void setCustomOptions(CustomOptions customOptions) {
+        delegate.setCustomOptions(customOptions);
+    }
+
+    @Override
+    public Reconnector getReconnector() {
+        return delegate.getReconnector();
+    }
+}
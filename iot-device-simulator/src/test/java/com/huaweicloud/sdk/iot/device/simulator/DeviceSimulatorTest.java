@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2020-2023 Huawei Cloud Computing Technology Co., Ltd. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ *    conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *    of conditions and the following disclaimer in the documentation and/or other materials
+ *    provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used
+ *    to endorse or promote products derived from this software without specific prior written
+ *    permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.huaweicloud.sdk.iot.device.simulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.huaweicloud.sdk.iot.device.constants.Constants;
+
+import org.junit.Test;
+
+public class DeviceSimulatorTest {
+    @Test
+    public void testLoopbackRun() throws Exception {
+        SimulatorConfig config = smallFleet();
+        config.setBroker(SimulatorConfig.BROKER_LOOPBACK);
+        config.setChaosInterval(300);
+        config.setChaosRatio(0.2);
+        runAndCheck(config);
+    }
+
+    @Test
+    public void testEmbeddedMqttRun() throws Exception {
+        SimulatorConfig config = smallFleet();
+        config.setBroker(SimulatorConfig.BROKER_MQTT);
+        config.setTransport(Constants.TRANSPORT_NETTY);
+        runAndCheck(config);
+    }
+
+    private static SimulatorConfig smallFleet() {
+        SimulatorConfig config = new SimulatorConfig();
+        config.setDevices(5);
+        config.setGateways(2);
+        config.setSubDevicesPerGateway(10);
+        config.setReportInterval(100);
+        config.setCommandRate(50);
+        config.setPropertySetRate(50);
+        config.setPropertyGetRate(50);
+        config.setMinBackoff(10);
+        config.setMaxBackoff(50);
+        config.setDuration(2);
+        return config;
+    }
+
+    private static void runAndCheck(SimulatorConfig config) throws Exception {
+        DeviceSimulator simulator = new DeviceSimulator(config);
+        try {
+            simulator.run();
+        } finally {
+            simulator.close();
+        }
+        SimulatorStats stats = simulator.getStats();
+        assertEquals(config.getDevices() + config.getGateways(), simulator.getConnected());
+        assertTrue(stats.getAcked().sum() > 0);
+        assertTrue(stats.getPublishAck().getTotalCount() > 0);
+        assertTrue(stats.getPropertyReports().sum() > 0);
+        assertTrue(stats.getCommandRtt().getTotalCount() > 0);
+        assertTrue(stats.getPropertySetRtt().getTotalCount() > 0);
+        assertTrue(stats.getPropertyGetRtt().getTotalCount() > 0);
+        if (config.getChaosInterval() > 0) {
+            assertTrue(stats.getDisconnectsInjected().sum() > 0);
+            assertTrue(stats.getReconnects().sum() > 0);
+        }
+    }
+}